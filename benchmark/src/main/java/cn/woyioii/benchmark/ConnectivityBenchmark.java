@@ -0,0 +1,75 @@
+package cn.woyioii.benchmark;
+
+import cn.woyioii.model.MapStore;
+import cn.woyioii.model.Road;
+import cn.woyioii.service.impl.RoadServiceImpl;
+import cn.woyioii.service.impl.VillageServiceImpl;
+import cn.woyioii.util.MapCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 与村庄数量近似线性相关的算法：基于列式存储的连通性检查和道路服务的单源最短路径
+ * 规模覆盖100到10万个村庄
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectivityBenchmark {
+
+    @Param({"GRID", "GEOMETRIC", "CLUSTERED", "SCALE_FREE"})
+    private GraphGenerator.Topology topology;
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int size;
+
+    @Param("42")
+    private long seed;
+
+    private MapStore store;
+    private RoadServiceImpl roadService;
+    private String startId;
+    private String endId;
+
+    @Setup
+    public void setUp() {
+        GraphGenerator.Dataset dataset = GraphGenerator.generate(topology, size, seed);
+        store = dataset.store();
+        roadService = new RoadServiceImpl(new InMemoryStorage.Roads(dataset.roads()),
+                new VillageServiceImpl(new InMemoryStorage.Villages(dataset.villages())));
+
+        // 起点和终点取最大连通分量中下标最小和最大的村庄，保证路径存在
+        Set<Integer> largest = MapCalculator.checkConnectivity(store).stream()
+                .max(Comparator.comparingInt(Set::size))
+                .orElseThrow();
+        startId = String.valueOf(store.villageId(largest.stream().min(Integer::compare).orElseThrow()));
+        endId = String.valueOf(store.villageId(largest.stream().max(Integer::compare).orElseThrow()));
+    }
+
+    @Benchmark
+    public List<Set<Integer>> checkConnectivity() {
+        return MapCalculator.checkConnectivity(store);
+    }
+
+    @Benchmark
+    public List<Road> calculateShortestPath() {
+        return roadService.calculateShortestPath(startId, endId);
+    }
+}
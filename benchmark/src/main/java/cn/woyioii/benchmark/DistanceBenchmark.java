@@ -0,0 +1,110 @@
+package cn.woyioii.benchmark;
+
+import cn.woyioii.model.MapStore;
+import cn.woyioii.util.DistanceKernel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量距离计算：道路长度重算、一个村庄到其余村庄的距离（连通方案候选边的一行）和最近村庄查找
+ * 每个场景分别在加载向量模块和强制逐个计算的独立JVM中运行，便于对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = DistanceBenchmark.VECTOR)
+public class DistanceBenchmark {
+    static final String VECTOR = "--add-modules=jdk.incubator.vector";
+    static final String SCALAR = "-D" + DistanceKernel.VECTOR_PROPERTY + "=false";
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    @Param("42")
+    private long seed;
+
+    private MapStore store;
+    private int[] targets;
+    private double[] villageDistances;
+    private double[] roadLengths;
+    private double clickX;
+    private double clickY;
+
+    @Setup
+    public void setUp() {
+        GraphGenerator.Dataset dataset = GraphGenerator.generate(GraphGenerator.Topology.GEOMETRIC, size, seed);
+        store = dataset.store();
+        targets = new int[store.getVillageCount() - 1];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = i + 1;
+        }
+        villageDistances = new double[store.getVillageCount()];
+        roadLengths = new double[store.getRoadCount()];
+        // 点击位置取最后一个村庄附近，保证整个数组都被扫描
+        int last = store.getVillageCount() - 1;
+        clickX = store.x(last) + 0.5;
+        clickY = store.y(last) - 0.5;
+    }
+
+    @Benchmark
+    public double[] roadLengths() {
+        return computeRoadLengths();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {VECTOR, SCALAR})
+    public double[] roadLengthsScalar() {
+        return computeRoadLengths();
+    }
+
+    @Benchmark
+    public double[] distancesFromVillage() {
+        return computeDistancesFromVillage();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {VECTOR, SCALAR})
+    public double[] distancesFromVillageScalar() {
+        return computeDistancesFromVillage();
+    }
+
+    @Benchmark
+    public int nearest() {
+        return findNearest();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {VECTOR, SCALAR})
+    public int nearestScalar() {
+        return findNearest();
+    }
+
+    private double[] computeRoadLengths() {
+        DistanceKernel.distances(store.xs(), store.ys(), store.roadStarts(), store.roadEnds(), store.getRoadCount(),
+                roadLengths);
+        return roadLengths;
+    }
+
+    private double[] computeDistancesFromVillage() {
+        DistanceKernel.distances(store.x(0), store.y(0), store.xs(), store.ys(), targets, targets.length,
+                villageDistances);
+        return villageDistances;
+    }
+
+    private int findNearest() {
+        return DistanceKernel.nearest(clickX, clickY, store.xs(), store.ys(), store.getVillageCount(), 20);
+    }
+}
@@ -0,0 +1,259 @@
+package cn.woyioii.benchmark;
+
+import cn.woyioii.model.MapGraph;
+import cn.woyioii.model.MapStore;
+import cn.woyioii.model.Road;
+import cn.woyioii.model.Village;
+import cn.woyioii.util.MapCalculator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * <h1>合成数据生成器</h1>
+ * <p>按拓扑类型、村庄数量和随机种子生成村庄和道路，相同参数总是生成相同的数据，保证基准结果可以复现。</p>
+ *
+ * <h2>拓扑类型</h2>
+ * <ul>
+ *   <li>GRID：正方形网格，每个村庄连接右侧和下方的相邻村庄，连通</li>
+ *   <li>GEOMETRIC：随机几何图，距离小于连接半径的村庄之间有道路，通常包含多个连通分量</li>
+ *   <li>CLUSTERED：村庄按正态分布聚集在若干中心周围，聚集内部按距离连接，各聚集依次相连</li>
+ *   <li>SCALE_FREE：按优先连接生成的无标度图，少数村庄连接大量道路，连通</li>
+ * </ul>
+ * <p>村庄ID从1开始连续编号，道路长度与界面中按坐标计算的长度一致。</p>
+ * <p>读写测试不关心拓扑，使用{@link #records}生成带描述的村庄和随机连接的道路，可以生成数百万条记录。</p>
+ */
+public final class GraphGenerator {
+    // 相邻村庄的平均间距（世界坐标）
+    private static final int SPACING = 20;
+    // 随机几何图的连接半径，平均每个村庄约5条道路
+    private static final double GEOMETRIC_RADIUS = 25;
+    // 每个聚集的平均村庄数和聚集的标准差
+    private static final int CLUSTER_SIZE = 200;
+    private static final double CLUSTER_SIGMA = 60;
+    private static final double CLUSTER_RADIUS = 12;
+    // 无标度图中每个新村庄连接的已有村庄数
+    private static final int ATTACHMENTS = 2;
+
+    public enum Topology {
+        GRID, GEOMETRIC, CLUSTERED, SCALE_FREE
+    }
+
+    private GraphGenerator() {
+        // 工具类，禁止实例化
+    }
+
+    public static Dataset generate(Topology topology, int size, long seed) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("村庄数量必须为正数: " + size);
+        }
+        Random random = new Random(seed);
+        return switch (topology) {
+            case GRID -> grid(size);
+            case GEOMETRIC -> geometric(size, random);
+            case CLUSTERED -> clustered(size, random);
+            case SCALE_FREE -> scaleFree(size, random);
+        };
+    }
+
+    /**
+     * 生成指定数量的村庄和道路记录，道路连接随机的两个不同村庄，允许重复
+     * 字段内容与界面保存的数据相近，用于测量读写吞吐量和内存分配
+     */
+    public static Dataset records(int villageCount, int roadCount, long seed) {
+        if (villageCount < 2 || roadCount < 0) {
+            throw new IllegalArgumentException("记录数量无效: 村庄=" + villageCount + ", 道路=" + roadCount);
+        }
+        Random random = new Random(seed);
+        int extent = (int) (Math.sqrt(villageCount) * SPACING);
+        List<Village> villages = new ArrayList<>(villageCount);
+        for (int i = 1; i <= villageCount; i++) {
+            villages.add(new Village(i, "村庄" + i, random.nextInt(extent + 1), random.nextInt(extent + 1),
+                    "第" + i + "号村庄，人口" + (100 + random.nextInt(5000)) + "人"));
+        }
+        List<Road> roads = new ArrayList<>(roadCount);
+        for (int r = 1; r <= roadCount; r++) {
+            int a = random.nextInt(villageCount);
+            int b = random.nextInt(villageCount - 1);
+            Village start = villages.get(a);
+            Village end = villages.get(b >= a ? b + 1 : b);
+            Road road = new Road(start.getId(), end.getId(), "道路" + r, MapCalculator.calculateDistance(start, end));
+            road.setId(r);
+            roads.add(road);
+        }
+        return new Dataset(villages, roads);
+    }
+
+    private static Dataset grid(int size) {
+        int side = (int) Math.ceil(Math.sqrt(size));
+        Dataset.Builder builder = new Dataset.Builder(size);
+        for (int i = 0; i < size; i++) {
+            builder.village(i % side * SPACING, i / side * SPACING);
+        }
+        for (int i = 0; i < size; i++) {
+            if (i % side + 1 < side && i + 1 < size) {
+                builder.road(i, i + 1);
+            }
+            if (i + side < size) {
+                builder.road(i, i + side);
+            }
+        }
+        return builder.build();
+    }
+
+    private static Dataset geometric(int size, Random random) {
+        int extent = (int) (Math.sqrt(size) * SPACING);
+        Dataset.Builder builder = new Dataset.Builder(size);
+        for (int i = 0; i < size; i++) {
+            builder.village(random.nextInt(extent + 1), random.nextInt(extent + 1));
+        }
+        connectNearby(builder, 0, size, GEOMETRIC_RADIUS);
+        return builder.build();
+    }
+
+    private static Dataset clustered(int size, Random random) {
+        int clusters = Math.max(1, size / CLUSTER_SIZE);
+        int extent = (int) (Math.sqrt(size) * SPACING * 2);
+        Dataset.Builder builder = new Dataset.Builder(size);
+        int[] firsts = new int[clusters];
+        for (int c = 0; c < clusters; c++) {
+            double centerX = random.nextDouble() * extent;
+            double centerY = random.nextDouble() * extent;
+            int first = c * size / clusters;
+            int last = (c + 1) * size / clusters;
+            firsts[c] = first;
+            for (int i = first; i < last; i++) {
+                builder.village((int) Math.round(centerX + random.nextGaussian() * CLUSTER_SIGMA),
+                        (int) Math.round(centerY + random.nextGaussian() * CLUSTER_SIGMA));
+            }
+            connectNearby(builder, first, last, CLUSTER_RADIUS);
+            // 聚集内部按生成顺序串联，保证每个聚集连通
+            for (int i = first + 1; i < last; i++) {
+                builder.road(i - 1, i);
+            }
+        }
+        for (int c = 1; c < clusters; c++) {
+            builder.road(firsts[c - 1], firsts[c]);
+        }
+        return builder.build();
+    }
+
+    private static Dataset scaleFree(int size, Random random) {
+        int extent = (int) (Math.sqrt(size) * SPACING);
+        Dataset.Builder builder = new Dataset.Builder(size);
+        for (int i = 0; i < size; i++) {
+            builder.village(random.nextInt(extent + 1), random.nextInt(extent + 1));
+        }
+        // 每条道路的两个端点都加入列表，均匀抽取端点即按连接数成比例选择村庄
+        List<Integer> endpoints = new ArrayList<>(size * ATTACHMENTS * 2);
+        for (int i = 1; i < size; i++) {
+            Set<Integer> targets = new HashSet<>();
+            int wanted = Math.min(ATTACHMENTS, i);
+            while (targets.size() < wanted) {
+                targets.add(endpoints.isEmpty() ? random.nextInt(i) : endpoints.get(random.nextInt(endpoints.size())));
+            }
+            for (int target : targets) {
+                builder.road(i, target);
+                endpoints.add(i);
+                endpoints.add(target);
+            }
+        }
+        return builder.build();
+    }
+
+    // 用边长为半径的网格分桶，连接[first, last)中距离不超过radius的村庄
+    private static void connectNearby(Dataset.Builder builder, int first, int last, double radius) {
+        Map<Long, List<Integer>> cells = new HashMap<>();
+        for (int i = first; i < last; i++) {
+            cells.computeIfAbsent(cellKey(builder.x(i), builder.y(i), radius), k -> new ArrayList<>()).add(i);
+        }
+        for (int i = first; i < last; i++) {
+            long cx = (long) Math.floor(builder.x(i) / radius);
+            long cy = (long) Math.floor(builder.y(i) / radius);
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    List<Integer> cell = cells.get(((cx + dx) << 32) | ((cy + dy) & 0xFFFFFFFFL));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int j : cell) {
+                        if (j > i && Math.hypot(builder.x(i) - builder.x(j), builder.y(i) - builder.y(j)) <= radius) {
+                            builder.road(i, j);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static long cellKey(int x, int y, double size) {
+        long cx = (long) Math.floor(x / size);
+        long cy = (long) Math.floor(y / size);
+        return (cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 生成的村庄和道路
+     * 村庄在列表中的下标加1即为ID
+     */
+    public record Dataset(List<Village> villages, List<Road> roads) {
+
+        public MapStore store() {
+            return MapStore.of(villages, roads);
+        }
+
+        // 按村庄下标建立邻接矩阵，无道路为0，与服务层使用同一个图构建步骤
+        public double[][] adjacencyMatrix() {
+            return MapGraph.of(villages, roads).adjacencyMatrix();
+        }
+
+        private static final class Builder {
+            private final List<Village> villages;
+            private final List<Road> roads = new ArrayList<>();
+            private final Set<Long> connected = new HashSet<>();
+
+            Builder(int size) {
+                this.villages = new ArrayList<>(size);
+            }
+
+            void village(int x, int y) {
+                int id = villages.size() + 1;
+                villages.add(new Village(id, "村庄" + id, x, y, ""));
+            }
+
+            int x(int index) {
+                return villages.get(index).getLocateX();
+            }
+
+            int y(int index) {
+                return villages.get(index).getLocateY();
+            }
+
+            // 连接两个下标对应的村庄，已连接或为同一村庄时忽略
+            void road(int a, int b) {
+                if (a == b) {
+                    return;
+                }
+                long key = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+                if (!connected.add(key)) {
+                    return;
+                }
+                Village start = villages.get(a);
+                Village end = villages.get(b);
+                Road road = new Road(start.getId(), end.getId(), "道路" + (roads.size() + 1),
+                        MapCalculator.calculateDistance(start, end));
+                road.setId(roads.size() + 1);
+                roads.add(road);
+            }
+
+            Dataset build() {
+                return new Dataset(villages, roads);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package cn.woyioii.benchmark;
+
+import cn.woyioii.dao.RoadDao;
+import cn.woyioii.dao.VillageDao;
+import cn.woyioii.model.Road;
+import cn.woyioii.model.Village;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 只保存在内存中的数据访问对象，用于在基准测试中创建服务，不读写文件
+ */
+final class InMemoryStorage {
+
+    private InMemoryStorage() {
+        // 工具类，禁止实例化
+    }
+
+    static final class Villages implements VillageDao {
+        private List<Village> villages;
+
+        Villages(List<Village> villages) {
+            this.villages = new ArrayList<>(villages);
+        }
+
+        @Override
+        public void setFilePath(String filePath) {
+            // 不使用文件
+        }
+
+        @Override
+        public void saveVillage(List<Village> village, String filePath) {
+            this.villages = new ArrayList<>(village);
+        }
+
+        @Override
+        public void updateVillage(List<Village> updatedVillage) {
+            this.villages = new ArrayList<>(updatedVillage);
+        }
+
+        @Override
+        public List<Village> getAllVillages() {
+            return villages;
+        }
+
+        @Override
+        public List<Village> readVillages(String filePath) {
+            return villages;
+        }
+    }
+
+    static final class Roads implements RoadDao {
+        private List<Road> roads;
+
+        Roads(List<Road> roads) {
+            this.roads = new ArrayList<>(roads);
+        }
+
+        @Override
+        public void setFilePath(String filePath) {
+            // 不使用文件
+        }
+
+        @Override
+        public void saveRoad(List<Road> road, String filePath) {
+            this.roads = new ArrayList<>(road);
+        }
+
+        @Override
+        public void updateRoad(List<Road> updatedRoad) {
+            this.roads = new ArrayList<>(updatedRoad);
+        }
+
+        @Override
+        public List<Road> getAllRoads() {
+            return roads;
+        }
+
+        @Override
+        public List<Road> readRoads(String filePath) {
+            return roads;
+        }
+    }
+}
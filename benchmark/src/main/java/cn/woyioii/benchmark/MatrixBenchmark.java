@@ -0,0 +1,112 @@
+package cn.woyioii.benchmark;
+
+import cn.woyioii.model.MapStore;
+import cn.woyioii.model.Village;
+import cn.woyioii.util.MapCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于邻接矩阵或逐对比较村庄的算法，耗时随村庄数量平方或立方增长
+ * 邻接矩阵占用n²个double，规模限制在100到1000个村庄
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = DistanceBenchmark.VECTOR)
+public class MatrixBenchmark {
+
+    @Param({"GRID", "GEOMETRIC", "CLUSTERED", "SCALE_FREE"})
+    private GraphGenerator.Topology topology;
+
+    @Param({"100", "300", "1000"})
+    private int size;
+
+    @Param("42")
+    private long seed;
+
+    private double[][] matrix;
+    // 补齐村村通方案中的道路后的邻接矩阵，保证最优路径完整计算
+    private double[][] connectedMatrix;
+    private MapStore store;
+    private List<Village> villages;
+
+    @Setup
+    public void setUp() {
+        GraphGenerator.Dataset dataset = GraphGenerator.generate(topology, size, seed);
+        matrix = dataset.adjacencyMatrix();
+        store = dataset.store();
+        villages = dataset.villages();
+        connectedMatrix = connect(matrix, store);
+    }
+
+    // 不连通的拓扑（如GEOMETRIC）按连通方案补齐道路，已连通时返回原矩阵
+    private static double[][] connect(double[][] matrix, MapStore store) {
+        List<int[]> newRoads = MapCalculator.addNewRoadToConnect(store);
+        if (newRoads.isEmpty()) {
+            return matrix;
+        }
+        double[][] connected = new double[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            connected[i] = matrix[i].clone();
+        }
+        for (int[] road : newRoads) {
+            // 边的端点为村庄下标加1
+            int start = road[0] - 1;
+            int end = road[1] - 1;
+            // 邻接矩阵中0表示无道路，坐标重合的村庄取最小长度
+            double length = Math.max(0.1,
+                    MapCalculator.calculateDistance(store.x(start), store.y(start), store.x(end), store.y(end)));
+            connected[start][end] = length;
+            connected[end][start] = length;
+        }
+        return connected;
+    }
+
+    @Benchmark
+    public List<Set<Integer>> checkConnectivityMatrix() {
+        return MapCalculator.checkConnectivity(matrix);
+    }
+
+    @Benchmark
+    public List<int[]> addNewRoadToConnect() {
+        return MapCalculator.addNewRoadToConnect(store);
+    }
+
+    @Benchmark
+    public List<int[]> addNewRoadToConnectMatrix() {
+        return MapCalculator.addNewRoadToConnect(matrix, villages);
+    }
+
+    @Benchmark
+    public double[][] findAllPairsShortestPaths() {
+        return MapCalculator.findAllPairsShortestPaths(matrix);
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> findAllPairsShortestPathsWithRoute() {
+        return MapCalculator.findAllPairsShortestPathsWithRoute(matrix, 0);
+    }
+
+    // 使用补齐道路后的矩阵，避免不连通时只完成连通性检查即返回
+    @Benchmark
+    public List<Integer> findOptimalRoute() {
+        return MapCalculator.findOptimalRoute(connectedMatrix, 0);
+    }
+}
@@ -0,0 +1,126 @@
+package cn.woyioii.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <h1>读写基准与基线比较</h1>
+ * <p>启用GC分析器运行{@link PersistenceBenchmark}，输出每次操作的耗时和每条记录分配的字节数，
+ * 结果写入CSV文件作为基线，指定上一次的基线文件时同时打印变化百分比。</p>
+ * <p>用法：{@code java -cp benchmarks.jar cn.woyioii.benchmark.PersistenceBaseline <输出CSV> [基线CSV] [记录数...]}</p>
+ */
+public final class PersistenceBaseline {
+    private static final String HEADER = "benchmark,records,lazy,ms_per_op,bytes_per_record";
+
+    private PersistenceBaseline() {
+        // 工具类，禁止实例化
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        if (args.length < 1) {
+            System.err.println("用法: PersistenceBaseline <输出CSV> [基线CSV] [记录数...]");
+            System.exit(2);
+        }
+        Path output = Path.of(args[0]);
+        Path baseline = args.length > 1 && !args[1].isEmpty() ? Path.of(args[1]) : null;
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(PersistenceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class);
+        if (args.length > 2) {
+            String[] records = new String[args.length - 2];
+            System.arraycopy(args, 2, records, 0, records.length);
+            options.param("records", records);
+        }
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        List<Row> rows = new ArrayList<>();
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            int records = Integer.parseInt(result.getParams().getParam("records"));
+            boolean lazy = Boolean.parseBoolean(result.getParams().getParam("lazy"));
+            double millis = result.getPrimaryResult().getScore();
+            double bytes = allocatedBytesPerOp(result);
+            // FileController同时处理村庄和道路，记录数加倍
+            int processed = benchmark.endsWith("fileControllerLoad") || benchmark.endsWith("fileControllerSave")
+                    ? records * 2 : records;
+            rows.add(new Row(benchmark.substring(benchmark.lastIndexOf('.') + 1), records, lazy, millis,
+                    bytes / processed));
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (Row row : rows) {
+            lines.add(row.toCsv());
+        }
+        Files.write(output, lines, StandardCharsets.UTF_8);
+        System.out.println("结果已写入 " + output);
+
+        Map<String, Row> previous = baseline != null ? read(baseline) : Map.of();
+        System.out.printf("%-22s %10s %6s %14s %16s %10s %10s%n", "基准", "记录数", "延迟", "耗时(ms/op)", "分配(B/记录)",
+                "耗时变化", "分配变化");
+        for (Row row : rows) {
+            Row before = previous.get(row.key());
+            System.out.printf(Locale.ROOT, "%-22s %10d %6s %14.3f %16.1f %10s %10s%n", row.benchmark(), row.records(),
+                    row.lazy(), row.millis(), row.bytesPerRecord(),
+                    before != null ? change(before.millis(), row.millis()) : "-",
+                    before != null ? change(before.bytesPerRecord(), row.bytesPerRecord()) : "-");
+        }
+    }
+
+    // GC分析器报告的每次操作分配字节数，不同JMH版本的指标名称带或不带前缀
+    private static double allocatedBytesPerOp(RunResult result) {
+        Result<?> allocated = result.getSecondaryResults().get("gc.alloc.rate.norm");
+        if (allocated == null) {
+            allocated = result.getSecondaryResults().get("·gc.alloc.rate.norm");
+        }
+        return allocated != null ? allocated.getScore() : Double.NaN;
+    }
+
+    private static String change(double before, double after) {
+        if (before == 0 || Double.isNaN(before) || Double.isNaN(after)) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%+.1f%%", (after - before) / before * 100);
+    }
+
+    private static Map<String, Row> read(Path baseline) throws IOException {
+        Map<String, Row> rows = new HashMap<>();
+        List<String> lines = Files.readAllLines(baseline, StandardCharsets.UTF_8);
+        for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+            String[] fields = line.split(",");
+            if (fields.length == 5) {
+                Row row = new Row(fields[0], Integer.parseInt(fields[1]), Boolean.parseBoolean(fields[2]),
+                        Double.parseDouble(fields[3]), Double.parseDouble(fields[4]));
+                rows.put(row.key(), row);
+            }
+        }
+        return rows;
+    }
+
+    private record Row(String benchmark, int records, boolean lazy, double millis, double bytesPerRecord) {
+        String key() {
+            return benchmark + "@" + records + (lazy ? "/lazy" : "");
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%s,%.4f,%.2f", benchmark, records, lazy, millis, bytesPerRecord);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package cn.woyioii.benchmark;
+
+import cn.woyioii.controller.FileController;
+import cn.woyioii.dao.impl.RoadDaoImpl;
+import cn.woyioii.dao.impl.VillageDaoImpl;
+import cn.woyioii.model.Road;
+import cn.woyioii.model.Village;
+import cn.woyioii.service.impl.RoadServiceImpl;
+import cn.woyioii.service.impl.VillageServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JSON数据文件的读写：村庄和道路DAO的整体读取、保存，以及FileController的加载和保存
+ * 村庄和道路各records条，每个基准的一次操作处理records条记录（FileController为村庄和道路各records条）
+ * 配合GC分析器（-prof gc）得到每次操作分配的字节数，除以记录数即为每条记录的分配量，见{@link PersistenceBaseline}
+ * 村庄文件超过32MB时DAO会自动改为延迟加载描述，因此由lazy参数固定读取方式，避免不同记录数的结果不可比较
+ * 所有DAO都指向临时目录中的文件，不读写工作目录下的data目录
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class PersistenceBenchmark {
+
+    @Param({"10000", "100000", "1000000", "2000000"})
+    private int records;
+
+    @Param("42")
+    private long seed;
+
+    // 读取村庄时是否延迟加载描述
+    @Param({"false", "true"})
+    private boolean lazy;
+
+    private Path directory;
+    private List<Village> villages;
+    private List<Road> roads;
+    private VillageDaoImpl villageDao;
+    private RoadDaoImpl roadDao;
+    private VillageDaoImpl villageWriter;
+    private RoadDaoImpl roadWriter;
+    private Path villageOutput;
+    private Path roadOutput;
+
+    private FileController fileController;
+    private File baseFile;
+    private File saveBaseFile;
+    private VillageServiceImpl villageService;
+    private RoadServiceImpl roadService;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("villagemap-bench");
+        GraphGenerator.Dataset dataset = GraphGenerator.records(records, records, seed);
+        villages = dataset.villages();
+        roads = dataset.roads();
+
+        // 读取用的数据文件
+        Path villageFile = directory.resolve("bench-villages.json");
+        Path roadFile = directory.resolve("bench-roads.json");
+        villageDao = new VillageDaoImpl(villageFile.toString());
+        roadDao = new RoadDaoImpl(roadFile.toString());
+        villageDao.setLazyLoading(lazy);
+        villageDao.updateVillage(villages);
+        roadDao.updateRoad(roads);
+
+        // 保存基准使用单独的DAO写入单独的文件，saveRoad会改变DAO的文件路径，不能与读取共用
+        villageOutput = directory.resolve("out-villages.json");
+        roadOutput = directory.resolve("out-roads.json");
+        villageWriter = new VillageDaoImpl(villageOutput.toString());
+        roadWriter = new RoadDaoImpl(roadOutput.toString());
+
+        // 服务初始为空，由loadData加载bench数据集
+        fileController = new FileController();
+        baseFile = directory.resolve("bench.json").toFile();
+        saveBaseFile = directory.resolve("saved.json").toFile();
+        VillageDaoImpl serviceVillageDao = new VillageDaoImpl(villageFile.toString());
+        serviceVillageDao.setLazyLoading(lazy);
+        villageService = new VillageServiceImpl(serviceVillageDao, List.of());
+        roadService = new RoadServiceImpl(new RoadDaoImpl(roadFile.toString()), villageService, List.of());
+        fileController.loadData(baseFile, villageService, roadService);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Benchmark
+    public List<Village> villageDaoGetAll() {
+        return villageDao.getAllVillages();
+    }
+
+    @Benchmark
+    public List<Road> roadDaoGetAll() {
+        return roadDao.getAllRoads();
+    }
+
+    @Benchmark
+    public void villageDaoSave() {
+        villageWriter.saveVillage(villages, villageOutput.toString());
+    }
+
+    @Benchmark
+    public void roadDaoSave() {
+        roadWriter.saveRoad(roads, roadOutput.toString());
+    }
+
+    // 同步加载村庄和道路文件并替换服务中的数据
+    @Benchmark
+    public boolean fileControllerLoad() {
+        return fileController.loadData(baseFile, villageService, roadService);
+    }
+
+    // 保存服务中的数据，写入村庄和道路两个文件
+    @Benchmark
+    public void fileControllerSave() {
+        fileController.saveDataAsync(saveBaseFile, villageService, roadService, message -> {
+        }).join();
+    }
+}
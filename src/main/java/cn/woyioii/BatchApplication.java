@@ -0,0 +1,374 @@
+package cn.woyioii;
+
+import cn.woyioii.dao.StorageBackend;
+import cn.woyioii.model.MapGraph;
+import cn.woyioii.model.MapStore;
+import cn.woyioii.model.Road;
+import cn.woyioii.model.Village;
+import cn.woyioii.service.RoadService;
+import cn.woyioii.service.VillageService;
+import cn.woyioii.service.impl.RoadServiceImpl;
+import cn.woyioii.service.impl.VillageServiceImpl;
+import cn.woyioii.util.AlertUtils;
+import cn.woyioii.util.MapCalculator;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * <h1>批处理命令行入口</h1>
+ * <p>不启动界面、不初始化JavaFX工具包，加载数据后执行指定的分析，每项分析的结果写入输出目录中的一个文件，
+ * 适用于在服务器上定时运行规划任务。</p>
+ * <p>用法：{@code BatchApplication <村庄数据文件> <输出目录> <分析[,分析...]> [--start=村庄ID] [--end=村庄ID]
+ * [--format=json|csv]}</p>
+ *
+ * <h2>分析</h2>
+ * <ul>
+ *   <li>connectivity：连通性检查，输出每个连通分量包含的村庄</li>
+ *   <li>plan：村村通方案，输出连通所有村庄需要新建的道路</li>
+ *   <li>shortest：从起点到其他所有村庄的最短路径，需要 {@code --start}</li>
+ *   <li>path：起点到终点的最短路径经过的道路，需要 {@code --start} 和 {@code --end}</li>
+ *   <li>route：从起点出发经过所有村庄的最优路径，需要 {@code --start}</li>
+ *   <li>roundtrip：从起点出发经过所有村庄并返回的最优回路，需要 {@code --start}</li>
+ * </ul>
+ * <p>JSON结果包含汇总信息和结果行，CSV结果只包含结果行，汇总信息同时输出到标准输出。
+ * 存储后端与界面相同，可通过 {@code -Dvillagemap.storage=h2} 切换。</p>
+ */
+@Slf4j
+public class BatchApplication {
+    private static final String VILLAGE_SUFFIX = "-villages.json";
+    private static final String ROAD_SUFFIX = "-roads.json";
+    private static final String USAGE = "用法: BatchApplication <村庄数据文件> <输出目录> "
+            + "<connectivity|plan|shortest|path|route|roundtrip>[,...] [--start=村庄ID] [--end=村庄ID] [--format=json|csv]";
+
+    private final VillageService villageService;
+    private final RoadService roadService;
+    private final Integer startId;
+    private final Integer endId;
+
+    public BatchApplication(VillageService villageService, RoadService roadService, Integer startId, Integer endId) {
+        this.villageService = villageService;
+        this.roadService = roadService;
+        this.startId = startId;
+        this.endId = endId;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        AlertUtils.setHeadless(true);
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        try {
+            String villagePath = args[0];
+            if (!villagePath.endsWith(VILLAGE_SUFFIX)) {
+                throw new IllegalArgumentException("村庄数据文件名应以" + VILLAGE_SUFFIX + "结尾: " + villagePath);
+            }
+            StorageBackend backend = StorageBackend.fromSystemProperty();
+            if (backend == StorageBackend.JSON && !Files.exists(Path.of(villagePath))) {
+                throw new IllegalArgumentException("村庄数据文件不存在: " + villagePath);
+            }
+            Path outputDir = Path.of(args[1]);
+            List<String> analyses = List.of(args[2].toLowerCase(Locale.ROOT).split(","));
+            Map<String, String> options = parseOptions(args);
+            Integer startId = options.containsKey("start") ? Integer.valueOf(options.get("start")) : null;
+            Integer endId = options.containsKey("end") ? Integer.valueOf(options.get("end")) : null;
+            String format = options.getOrDefault("format", "json").toLowerCase(Locale.ROOT);
+            if (!format.equals("json") && !format.equals("csv")) {
+                throw new IllegalArgumentException("不支持的输出格式: " + format);
+            }
+
+            long startTime = System.currentTimeMillis();
+            // 数据访问对象直接指向目标数据集，服务创建时只读取这一份数据，不会在工作目录生成默认文件
+            String roadPath = villagePath.substring(0, villagePath.length() - VILLAGE_SUFFIX.length()) + ROAD_SUFFIX;
+            VillageService villageService = new VillageServiceImpl(backend.createVillageDao(villagePath));
+            RoadService roadService = new RoadServiceImpl(backend.createRoadDao(roadPath), villageService);
+            // 与界面打开文件相同，忽略引用不存在村庄的道路
+            roadService.validateRoadReferences(villageService);
+            log.info("读取数据: {}个村庄, {}条道路, 耗时{}ms", villageService.getAllVillages().size(),
+                    roadService.getAllRoads().size(), System.currentTimeMillis() - startTime);
+
+            BatchApplication batch = new BatchApplication(villageService, roadService, startId, endId);
+            Files.createDirectories(outputDir);
+            for (String analysis : analyses) {
+                long analysisStart = System.currentTimeMillis();
+                Result result = batch.run(analysis.trim());
+                Path output = outputDir.resolve(result.name() + "." + format);
+                if (format.equals("json")) {
+                    result.writeJson(output);
+                } else {
+                    result.writeCsv(output);
+                }
+                System.out.println(result.name() + ": " + result.summary() + " -> " + output);
+                log.info("分析{}完成，耗时{}ms", result.name(), System.currentTimeMillis() - analysisStart);
+            }
+        } catch (Exception e) {
+            log.error("批处理失败", e);
+            System.err.println("批处理失败: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // 解析 --名称=值 形式的可选参数
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 3; i < args.length; i++) {
+            String arg = args[i];
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("无法识别的参数: " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    /**
+     * 执行一项分析
+     * @param analysis 分析名称
+     * @return 分析结果
+     */
+    public Result run(String analysis) {
+        return switch (analysis) {
+            case "connectivity" -> connectivity();
+            case "plan" -> plan();
+            case "shortest" -> shortest();
+            case "path" -> path();
+            case "route" -> route(false);
+            case "roundtrip" -> route(true);
+            default -> throw new IllegalArgumentException("未知的分析: " + analysis);
+        };
+    }
+
+    // 连通性检查，每个村庄一行
+    private Result connectivity() {
+        MapStore store = roadService.getMapStore();
+        List<Set<Integer>> components = MapCalculator.checkConnectivity(store);
+        Result result = new Result("connectivity", List.of("component", "villageId", "villageName"));
+        result.summary().put("villageCount", store.getVillageCount());
+        result.summary().put("componentCount", components.size());
+        result.summary().put("connected", components.size() <= 1);
+        for (int c = 0; c < components.size(); c++) {
+            for (int index : components.get(c)) {
+                result.addRow(c + 1, store.villageId(index), store.villageName(index));
+            }
+        }
+        return result;
+    }
+
+    // 村村通方案，每条建议新建的道路一行
+    private Result plan() {
+        MapStore store = roadService.getMapStore();
+        List<Set<Integer>> components = MapCalculator.checkConnectivity(store);
+        List<int[]> edges = components.size() > 1 ? MapCalculator.addNewRoadToConnect(store) : List.of();
+        Result result = new Result("plan", List.of("startId", "startName", "endId", "endName", "length"));
+        double total = 0;
+        for (int[] edge : edges) {
+            // 边的端点为村庄下标加1
+            int start = edge[0] - 1;
+            int end = edge[1] - 1;
+            double length = MapCalculator.calculateDistance(store.x(start), store.y(start), store.x(end), store.y(end));
+            total += length;
+            result.addRow(store.villageId(start), store.villageName(start),
+                    store.villageId(end), store.villageName(end), length);
+        }
+        result.summary().put("componentCount", components.size());
+        result.summary().put("newRoadCount", edges.size());
+        result.summary().put("totalLength", round(total));
+        return result;
+    }
+
+    // 单源最短路径，每个目标村庄一行
+    private Result shortest() {
+        Village start = requireVillage(startId, "start");
+        MapGraph graph = roadService.getGraph();
+        List<Village> villages = graph.villages();
+        double[][] adjacencyMatrix = graph.adjacencyMatrix();
+        int startIndex = graph.indexOf(start.getId());
+        Map<Integer, List<Integer>> paths = MapCalculator.findAllPairsShortestPathsWithRoute(adjacencyMatrix, startIndex);
+
+        Result result = new Result("shortest",
+                List.of("targetId", "targetName", "reachable", "distance", "pathIds", "path"));
+        int unreachable = 0;
+        for (int i = 0; i < villages.size(); i++) {
+            if (i == startIndex) {
+                continue;
+            }
+            Village target = villages.get(i);
+            List<Integer> path = paths.get(i);
+            if (path == null) {
+                unreachable++;
+                result.addRow(target.getId(), target.getName(), false, -1, "", "");
+                continue;
+            }
+            double distance = 0;
+            for (int j = 1; j < path.size(); j++) {
+                distance += adjacencyMatrix[path.get(j - 1)][path.get(j)];
+            }
+            result.addRow(target.getId(), target.getName(), true, round(distance),
+                    path.stream().map(index -> String.valueOf(villages.get(index).getId()))
+                            .collect(Collectors.joining(" ")),
+                    path.stream().map(index -> villages.get(index).getName())
+                            .collect(Collectors.joining(" → ")));
+        }
+        result.summary().put("startId", start.getId());
+        result.summary().put("startName", start.getName());
+        result.summary().put("reachableCount", villages.size() - 1 - unreachable);
+        result.summary().put("unreachableCount", unreachable);
+        return result;
+    }
+
+    // 点到点最短路径，每条经过的道路一行
+    private Result path() {
+        Village start = requireVillage(startId, "start");
+        Village end = requireVillage(endId, "end");
+        List<Road> roads = roadService.calculateShortestPath(String.valueOf(start.getId()), String.valueOf(end.getId()));
+        Result result = new Result("path", List.of("step", "roadId", "startId", "endId", "name", "length"));
+        double total = 0;
+        for (int i = 0; i < roads.size(); i++) {
+            Road road = roads.get(i);
+            total += road.getLength();
+            result.addRow(i + 1, road.getId(), road.getStartId(), road.getEndId(), road.getName(), road.getLength());
+        }
+        result.summary().put("startId", start.getId());
+        result.summary().put("endId", end.getId());
+        result.summary().put("reachable", start.equals(end) || !roads.isEmpty());
+        result.summary().put("totalLength", round(total));
+        return result;
+    }
+
+    // 最优路径或回路，每个途经村庄一行，道路列为前往下一个村庄的道路
+    private Result route(boolean roundTrip) {
+        Village start = requireVillage(startId, "start");
+        MapGraph graph = roadService.getGraph();
+        MapCalculator.RouteResult route;
+        if (roundTrip) {
+            if (MapCalculator.checkConnectivity(graph.store()).size() > 1) {
+                route = new MapCalculator.RouteResult();
+                route.setErrorMessage("当前地图为非连通图");
+            } else {
+                route = MapCalculator.calculateOptimalRoundTrip(graph, start);
+            }
+        } else {
+            route = MapCalculator.calculateOptimalRoute(graph, start);
+        }
+
+        Result result = new Result(roundTrip ? "roundtrip" : "route",
+                List.of("step", "villageId", "villageName", "roadId", "roadName", "roadLength"));
+        result.summary().put("startId", start.getId());
+        result.summary().put("success", route.isSuccess());
+        if (!route.isSuccess()) {
+            result.summary().put("error", route.getErrorMessage());
+            return result;
+        }
+        List<Village> path = route.getPath();
+        List<Road> pathRoads = route.getPathRoads();
+        double total = 0;
+        for (int i = 0; i < path.size(); i++) {
+            Village village = path.get(i);
+            Road road = i < pathRoads.size() ? pathRoads.get(i) : null;
+            if (road != null) {
+                total += road.getLength();
+            }
+            result.addRow(i + 1, village.getId(), village.getName(),
+                    road != null ? road.getId() : null,
+                    road != null ? road.getName() : null,
+                    road != null ? road.getLength() : null);
+        }
+        result.summary().put("totalDistance", round(total));
+        return result;
+    }
+
+    private Village requireVillage(Integer id, String option) {
+        if (id == null) {
+            throw new IllegalArgumentException("该分析需要参数 --" + option + "=村庄ID");
+        }
+        Village village = villageService.getVillageById(id);
+        if (village == null) {
+            throw new IllegalArgumentException("村庄不存在: " + id);
+        }
+        return village;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10.0) / 10.0;
+    }
+
+    /**
+     * 一项分析的结果：汇总信息和按列组织的结果行
+     */
+    public record Result(String name, Map<String, Object> summary, List<String> columns, List<List<Object>> rows) {
+        private static final Gson GSON = new GsonBuilder().setPrettyPrinting().serializeNulls().create();
+
+        Result(String name, List<String> columns) {
+            this(name, new LinkedHashMap<>(), columns, new ArrayList<>());
+        }
+
+        void addRow(Object... values) {
+            rows.add(Arrays.asList(values));
+        }
+
+        void writeJson(Path path) throws IOException {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("analysis", name);
+            json.put("summary", summary);
+            List<Map<String, Object>> items = new ArrayList<>(rows.size());
+            for (List<Object> row : rows) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                for (int i = 0; i < columns.size(); i++) {
+                    item.put(columns.get(i), row.get(i));
+                }
+                items.add(item);
+            }
+            json.put("rows", items);
+            try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                GSON.toJson(json, writer);
+            }
+        }
+
+        void writeCsv(Path path) throws IOException {
+            try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                writer.write(String.join(",", columns));
+                writer.write('\n');
+                for (List<Object> row : rows) {
+                    for (int i = 0; i < row.size(); i++) {
+                        if (i > 0) {
+                            writer.write(',');
+                        }
+                        writer.write(csv(row.get(i)));
+                    }
+                    writer.write('\n');
+                }
+            }
+        }
+
+        // 含逗号、引号或换行的值加引号，内部引号加倍
+        private static String csv(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = String.valueOf(value);
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+                return text;
+            }
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package cn.woyioii;
+
+import cn.woyioii.model.Road;
+import cn.woyioii.model.Village;
+import cn.woyioii.util.MapCalculator;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <h1>大规模数据集生成器</h1>
+ * <p>生成与界面保存格式相同的 {@code xxx-villages.json} / {@code xxx-roads.json}，用于基准测试和长时间运行测试。
+ * 村庄和道路逐条写出，坐标由村庄编号和随机种子直接计算，内存占用与数据规模无关，
+ * 相同参数总是生成相同的文件。</p>
+ * <p>用法：{@code DatasetGenerator <输出前缀> [--villages=N] [--roads=M] [--degree=D] [--components=K]
+ * [--distribution=uniform|grid|clustered] [--seed=S]}</p>
+ *
+ * <h2>参数</h2>
+ * <ul>
+ *   <li>输出前缀：如 {@code data/huge}，生成 {@code data/huge-villages.json} 和 {@code data/huge-roads.json}</li>
+ *   <li>villages：村庄数量，默认10万</li>
+ *   <li>roads / degree：道路数量或平均每个村庄的道路数，默认平均4条；两者都指定时以道路数量为准</li>
+ *   <li>components：连通分量数量，默认1，道路数量不能少于村庄数减分量数</li>
+ *   <li>distribution：空间分布，uniform为随机均匀分布（默认），grid为规则网格点，clustered为按聚集分布</li>
+ *   <li>seed：随机种子，默认42</li>
+ * </ul>
+ *
+ * <h2>生成方式</h2>
+ * <ul>
+ *   <li>村庄按编号顺序沿希尔伯特曲线排布，编号相近的村庄在空间上也相近</li>
+ *   <li>村庄按编号分为连续的若干段，每段为一个连通分量，段内先按编号串联，再连接编号相近的村庄补足道路数量</li>
+ *   <li>补充的道路由村庄及编号间隔唯一确定，不会产生重复道路，无需记录已生成的道路</li>
+ * </ul>
+ * <p>存储后端为H2时，首次打开生成的JSON数据集会自动导入数据库。</p>
+ */
+@Slf4j
+public class DatasetGenerator {
+    private static final String VILLAGE_SUFFIX = "-villages.json";
+    private static final String ROAD_SUFFIX = "-roads.json";
+    private static final int DEFAULT_VILLAGES = 100_000;
+    private static final double DEFAULT_DEGREE = 4;
+    private static final long DEFAULT_SEED = 42;
+    // 相邻村庄的平均间距（世界坐标）
+    private static final int SPACING = 20;
+    // 每个聚集的村庄数和聚集的标准差
+    private static final int CLUSTER_SIZE = 200;
+    private static final double CLUSTER_SIGMA = 60;
+    // 补充道路的编号间隔至少为2，间隔1为串联道路
+    private static final int MIN_OFFSET = 2;
+    // 补充道路的编号间隔范围不小于该值，避免道路数少时总是连接同一间隔的村庄
+    private static final int MIN_WINDOW = 8;
+    // 编号间隔范围的上限，已选取的间隔用一个long的各位记录
+    private static final int MAX_WINDOW = Long.SIZE;
+    // 每生成该数量的道路输出一次进度
+    private static final long PROGRESS_INTERVAL = 1_000_000;
+
+    // 随机数的用途，同一村庄的不同用途使用不同的序列
+    private static final int SALT_X = 1;
+    private static final int SALT_Y = 2;
+    private static final int SALT_ANGLE_X = 3;
+    private static final int SALT_ANGLE_Y = 4;
+    private static final int SALT_POPULATION = 5;
+    // 第k条补充道路使用SALT_OFFSET + k
+    private static final int SALT_OFFSET = 8;
+
+    public enum Distribution {
+        UNIFORM, GRID, CLUSTERED
+    }
+
+    private final int villageCount;
+    private final long roadCount;
+    private final int components;
+    private final Distribution distribution;
+    private final long seed;
+    private final Gson gson = new Gson();
+
+    // 希尔伯特曲线的边长、单元数和聚集数量
+    private final int curveSide;
+    private final long curveCells;
+    private final int clusterCount;
+
+    public DatasetGenerator(int villageCount, long roadCount, int components, Distribution distribution, long seed) {
+        if (villageCount < 1) {
+            throw new IllegalArgumentException("村庄数量必须为正数: " + villageCount);
+        }
+        if (components < 1 || components > villageCount) {
+            throw new IllegalArgumentException("连通分量数量应在1到村庄数量之间: " + components);
+        }
+        if (roadCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("道路数量超出范围: " + roadCount);
+        }
+        if (roadCount < villageCount - components) {
+            throw new IllegalArgumentException("道路数量不足以形成" + components + "个连通分量，至少需要"
+                    + (villageCount - components) + "条: " + roadCount);
+        }
+        this.villageCount = villageCount;
+        this.roadCount = roadCount;
+        this.components = components;
+        this.distribution = distribution;
+        this.seed = seed;
+        this.clusterCount = Math.max(1, villageCount / CLUSTER_SIZE);
+        long points = distribution == Distribution.CLUSTERED ? clusterCount : villageCount;
+        int side = 1;
+        while ((long) side * side < points) {
+            side <<= 1;
+        }
+        this.curveSide = side;
+        this.curveCells = (long) side * side;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("用法: DatasetGenerator <输出前缀> [--villages=N] [--roads=M] [--degree=D] "
+                    + "[--components=K] [--distribution=uniform|grid|clustered] [--seed=S]");
+            System.exit(2);
+        }
+
+        try {
+            Map<String, String> options = parseOptions(args);
+            int villages = Integer.parseInt(options.getOrDefault("villages", String.valueOf(DEFAULT_VILLAGES)));
+            double degree = Double.parseDouble(options.getOrDefault("degree", String.valueOf(DEFAULT_DEGREE)));
+            long roads = options.containsKey("roads")
+                    ? Long.parseLong(options.get("roads"))
+                    : Math.round(villages * degree / 2);
+            int components = Integer.parseInt(options.getOrDefault("components", "1"));
+            Distribution distribution = Distribution.valueOf(
+                    options.getOrDefault("distribution", "uniform").toUpperCase(Locale.ROOT));
+            long seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(DEFAULT_SEED)));
+
+            String prefix = args[0];
+            if (prefix.endsWith(VILLAGE_SUFFIX)) {
+                prefix = prefix.substring(0, prefix.length() - VILLAGE_SUFFIX.length());
+            }
+            DatasetGenerator generator = new DatasetGenerator(villages, roads, components, distribution, seed);
+            generator.writeVillages(Path.of(prefix + VILLAGE_SUFFIX));
+            generator.writeRoads(Path.of(prefix + ROAD_SUFFIX));
+        } catch (Exception e) {
+            log.error("生成数据集失败", e);
+            System.err.println("生成数据集失败: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // 解析 --名称=值 形式的可选参数
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("无法识别的参数: " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    /**
+     * 写出村庄文件，村庄ID从1开始连续编号
+     */
+    public void writeVillages(Path path) throws IOException {
+        long startTime = System.currentTimeMillis();
+        try (JsonWriter writer = open(path)) {
+            writer.beginArray();
+            for (int i = 0; i < villageCount; i++) {
+                int population = 100 + (int) (unit(i, SALT_POPULATION) * 5000);
+                Village village = new Village(i + 1, "村庄" + (i + 1), x(i), y(i),
+                        "第" + (i + 1) + "号村庄，人口" + population + "人");
+                gson.toJson(village, Village.class, writer);
+            }
+            writer.endArray();
+        }
+        log.info("已生成村庄文件: {}，{}个村庄，分布{}，耗时{}ms", path, villageCount,
+                distribution, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 写出道路文件，道路ID从1开始连续编号
+     * 补充道路按各村庄可连接的后续村庄数量成比例分配，分量过小无法容纳时实际道路数会少于指定数量
+     */
+    public void writeRoads(Path path) throws IOException {
+        long startTime = System.currentTimeMillis();
+        long extraTotal = roadCount - (villageCount - components);
+        long written = 0;
+        long shortfall = 0;
+        long nextProgress = PROGRESS_INTERVAL;
+        try (JsonWriter writer = open(path)) {
+            writer.beginArray();
+            for (int c = 0; c < components; c++) {
+                int first = (int) ((long) c * villageCount / components);
+                int last = (int) ((long) (c + 1) * villageCount / components);
+                int size = last - first;
+                // 按村庄编号均分补充道路，各分量累计数量与指定总数一致
+                long extra = extraTotal * last / villageCount - extraTotal * first / villageCount;
+                long reachable = Math.max(1, size - MIN_OFFSET);
+                int window = (int) Math.min(MAX_WINDOW, Math.max(MIN_WINDOW, (extra + reachable - 1) / reachable * 2));
+                long capacity = capacity(size, window, size);
+                if (extra > capacity) {
+                    shortfall += extra - capacity;
+                    extra = capacity;
+                }
+                for (int local = 0; local < size; local++) {
+                    int i = first + local;
+                    if (local + 1 < size) {
+                        writeRoad(writer, ++written, i, i + 1);
+                    }
+                    if (extra == 0) {
+                        continue;
+                    }
+                    // 只连接编号更大的村庄，村庄和间隔唯一确定一条道路
+                    int slots = (int) (capacity(size, window, local + 1) - capacity(size, window, local));
+                    int count = (int) (extra * capacity(size, window, local + 1) / capacity
+                            - extra * capacity(size, window, local) / capacity);
+                    // 在[MIN_OFFSET, MIN_OFFSET + slots)中不重复地选取间隔
+                    long chosen = 0;
+                    for (int k = 0; k < count; k++) {
+                        int rank = (int) (unit(i, SALT_OFFSET + k) * (slots - k));
+                        int offset = nthClearBit(chosen, rank);
+                        chosen |= 1L << offset;
+                        writeRoad(writer, ++written, i, i + MIN_OFFSET + offset);
+                    }
+                    if (written >= nextProgress) {
+                        log.info("已生成{}条道路", written);
+                        nextProgress += PROGRESS_INTERVAL;
+                    }
+                }
+            }
+            writer.endArray();
+        }
+        if (shortfall > 0) {
+            log.warn("连通分量过小，{}条道路无法生成", shortfall);
+        }
+        log.info("已生成道路文件: {}，{}条道路，{}个连通分量，耗时{}ms", path, written,
+                components, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 分量内前count个村庄可生成的补充道路总数
+     * 村庄最多连接其后window个村庄中的道路，间隔从MIN_OFFSET开始，靠近分量末尾的村庄可连接的数量递减
+     */
+    private static long capacity(int size, int window, int count) {
+        long reachable = Math.max(0, size - MIN_OFFSET);
+        long end = Math.min(count, reachable);
+        long full = Math.min(end, Math.max(0, reachable - window));
+        // 前full个村庄各有window个，之后第q个村庄有reachable - q个
+        return full * window + (end - full) * reachable - (full + end - 1) * (end - full) / 2;
+    }
+
+    private void writeRoad(JsonWriter writer, long id, int a, int b) throws IOException {
+        Road road = new Road(a + 1, b + 1, "道路" + id, MapCalculator.calculateDistance(x(a), y(a), x(b), y(b)));
+        road.setId((int) id);
+        gson.toJson(road, Road.class, writer);
+    }
+
+    // 第rank个（从0开始）未置位的位
+    private static int nthClearBit(long bits, int rank) {
+        int bit = Long.numberOfTrailingZeros(~bits);
+        for (int r = 0; r < rank; r++) {
+            bit = Long.numberOfTrailingZeros(~(bits | (-1L >>> (Long.SIZE - 1 - bit))));
+        }
+        return bit;
+    }
+
+    private static JsonWriter open(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        return new JsonWriter(out);
+    }
+
+    // 村庄坐标，只由编号和种子决定
+    private int x(int index) {
+        return coordinate(index, true);
+    }
+
+    private int y(int index) {
+        return coordinate(index, false);
+    }
+
+    private int coordinate(int index, boolean horizontal) {
+        if (distribution == Distribution.CLUSTERED) {
+            // 连续编号的村庄属于同一聚集，聚集中心沿曲线排布，相邻聚集相距约为聚集的大小
+            int cluster = (int) ((long) index * clusterCount / villageCount);
+            long cell = hilbert(cluster * curveCells / clusterCount);
+            double spacing = Math.sqrt(CLUSTER_SIZE) * SPACING * 2 * Math.sqrt((double) clusterCount / curveCells);
+            double center = ((horizontal ? cell >>> 32 : cell & 0xFFFFFFFFL) + 0.5) * spacing;
+            double offset = horizontal
+                    ? gaussian(index, SALT_X, SALT_ANGLE_X) * CLUSTER_SIGMA
+                    : gaussian(index, SALT_Y, SALT_ANGLE_Y) * CLUSTER_SIGMA;
+            return (int) Math.max(0, Math.round(center + offset + CLUSTER_SIGMA * 3));
+        }
+        // 村庄均匀分布在曲线的单元上，单元大小使平均间距为SPACING
+        long cell = hilbert(index * curveCells / villageCount);
+        double cellSize = SPACING * Math.sqrt((double) villageCount / curveCells);
+        double jitter = distribution == Distribution.GRID ? 0.5 : unit(index, horizontal ? SALT_X : SALT_Y);
+        return (int) Math.round(((horizontal ? cell >>> 32 : cell & 0xFFFFFFFFL) + jitter) * cellSize);
+    }
+
+    // 希尔伯特曲线上第d个单元的坐标，高32位为x，低32位为y
+    private long hilbert(long d) {
+        long x = 0;
+        long y = 0;
+        long t = d;
+        for (long s = 1; s < curveSide; s <<= 1) {
+            long rx = 1 & (t >>> 1);
+            long ry = 1 & (t ^ rx);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                long swap = x;
+                x = y;
+                y = swap;
+            }
+            x += s * rx;
+            y += s * ry;
+            t >>>= 2;
+        }
+        return (x << 32) | y;
+    }
+
+    // [0, 1)之间的确定性随机数，由种子、村庄编号和用途决定
+    private double unit(long index, int salt) {
+        long z = seed + index * 0x9E3779B97F4A7C15L + salt * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    // 标准正态分布的确定性随机数
+    private double gaussian(long index, int radiusSalt, int angleSalt) {
+        double u = 1 - unit(index, radiusSalt);
+        double v = unit(index, angleSalt);
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+    }
+}
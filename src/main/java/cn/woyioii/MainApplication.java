@@ -3,14 +3,14 @@ package cn.woyioii;
 import cn.woyioii.controller.FileController;
 import cn.woyioii.controller.MainController;
 import cn.woyioii.dao.RoadDao;
+import cn.woyioii.dao.StorageBackend;
 import cn.woyioii.dao.VillageDao;
-import cn.woyioii.dao.impl.RoadDaoImpl;
-import cn.woyioii.dao.impl.VillageDaoImpl;
 import cn.woyioii.service.RoadService;
 import cn.woyioii.service.VillageService;
 import cn.woyioii.service.impl.RoadServiceImpl;
 import cn.woyioii.service.impl.VillageServiceImpl;
 import cn.woyioii.handler.ErrorHandler;
+import cn.woyioii.server.RoutingServer;
 import cn.woyioii.util.ImageUtils;
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -23,6 +23,7 @@ import lombok.extern.slf4j.Slf4j;
 import cn.woyioii.util.AlertUtils;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * 程序入口类，继承 JavaFX 的 Application
@@ -32,6 +33,7 @@ import java.io.IOException;
 public class MainApplication extends Application {
     private VillageService villageService;
     private RoadService roadService;
+    private RoutingServer routingServer;
 
     public static void main(String[] args) {
         try {
@@ -46,13 +48,18 @@ public class MainApplication extends Application {
     public void init() throws Exception {
         try {
             super.init();
-            // 初始化数据访问层（DAO）
-            VillageDao villageDao = new VillageDaoImpl();
-            RoadDao roadDao = new RoadDaoImpl();
+            // 初始化数据访问层（DAO），存储后端可通过 -Dvillagemap.storage=h2 切换
+            StorageBackend backend = StorageBackend.fromSystemProperty();
+            log.info("使用存储后端: {}", backend);
+            VillageDao villageDao = backend.createVillageDao();
+            RoadDao roadDao = backend.createRoadDao();
 
-            // 初始化服务层（Service）
-            villageService = new VillageServiceImpl(villageDao);
-            roadService = new RoadServiceImpl(roadDao, villageService);
+            // 初始化服务层（Service），数据由界面启动后在后台加载，这里不读取文件
+            villageService = new VillageServiceImpl(villageDao, List.of());
+            roadService = new RoadServiceImpl(roadDao, villageService, List.of());
+
+            // 指定 -Dvillagemap.http.port 时启动本地路线查询服务
+            routingServer = RoutingServer.startFromSystemProperty();
         } catch (Exception e) {
             log.error("初始化失败", e);
             throw e;
@@ -74,6 +81,7 @@ public class MainApplication extends Application {
             
             // 初始化数据
             controller.initializeData();
+            controller.setRoutingServer(routingServer);
 
             // 设置主场景
             Scene scene = new Scene(root);
@@ -99,11 +107,18 @@ public class MainApplication extends Application {
 
     @Override
     public void stop() {
-        // 程序退出前保存数据
+        // 程序退出前保存数据，村庄与道路文件并行写入，等待写入完成后再退出
         ErrorHandler.safeExecute("保存数据", () -> {
+            // 没有未保存的更改时不写入，避免初始数据加载完成前退出时用空数据覆盖文件
+            if (!villageService.hasChanges() && !roadService.hasChanges()) {
+                return;
+            }
             log.info("应用程序关闭，保存数据");
-            FileController.saveAllData(villageService, roadService);
+            FileController.saveAllDataAsync(villageService, roadService).join();
         });
+        if (routingServer != null) {
+            routingServer.stop();
+        }
     }
 }
 
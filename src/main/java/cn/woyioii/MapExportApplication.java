@@ -0,0 +1,67 @@
+package cn.woyioii;
+
+import cn.woyioii.dao.RoadDao;
+import cn.woyioii.dao.StorageBackend;
+import cn.woyioii.dao.VillageDao;
+import cn.woyioii.model.MapGraph;
+import cn.woyioii.model.Road;
+import cn.woyioii.model.Village;
+import cn.woyioii.render.MapExporter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 地图导出命令行入口，不启动界面
+ * <p>用法：{@code MapExportApplication <村庄数据文件> <输出PNG> [宽度] [高度] [线程数]}</p>
+ * <ul>
+ *   <li>村庄数据文件为 {@code xxx-villages.json}，道路数据从同目录的 {@code xxx-roads.json} 读取</li>
+ *   <li>宽度默认4000像素；高度不指定或为0时按数据范围的宽高比计算</li>
+ *   <li>线程数默认为处理器核数</li>
+ *   <li>存储后端与界面相同，可通过 {@code -Dvillagemap.storage=h2} 切换</li>
+ * </ul>
+ */
+@Slf4j
+public class MapExportApplication {
+    private static final String VILLAGE_SUFFIX = "-villages.json";
+    private static final String ROAD_SUFFIX = "-roads.json";
+    private static final int DEFAULT_WIDTH = 4000;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 2) {
+            System.err.println("用法: MapExportApplication <村庄数据文件> <输出PNG> [宽度] [高度] [线程数]");
+            System.exit(2);
+        }
+
+        try {
+            String villagePath = args[0];
+            if (!villagePath.endsWith(VILLAGE_SUFFIX)) {
+                throw new IllegalArgumentException("村庄数据文件名应以" + VILLAGE_SUFFIX + "结尾: " + villagePath);
+            }
+            StorageBackend backend = StorageBackend.fromSystemProperty();
+            if (backend == StorageBackend.JSON && !Files.exists(Path.of(villagePath))) {
+                throw new IllegalArgumentException("村庄数据文件不存在: " + villagePath);
+            }
+            String roadPath = villagePath.substring(0, villagePath.length() - VILLAGE_SUFFIX.length()) + ROAD_SUFFIX;
+            Path output = Path.of(args[1]);
+            int width = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_WIDTH;
+            int height = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+            int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+            VillageDao villageDao = backend.createVillageDao(villagePath);
+            RoadDao roadDao = backend.createRoadDao(roadPath);
+            List<Village> villages = villageDao.getAllVillages();
+            List<Road> roads = roadDao.getAllRoads();
+            log.info("读取数据: {}个村庄, {}条道路", villages.size(), roads.size());
+
+            MapExporter.exportPng(MapGraph.of(villages, roads), width, height, output, threads);
+        } catch (Exception e) {
+            log.error("导出地图失败", e);
+            System.err.println("导出地图失败: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -1,15 +1,28 @@
 package cn.woyioii.controller;
 
+import cn.woyioii.model.DataSnapshot;
+import cn.woyioii.model.Road;
+import cn.woyioii.model.Village;
 import cn.woyioii.service.RoadService;
 import cn.woyioii.service.VillageService;
 import cn.woyioii.util.AlertUtils;
+import javafx.application.Platform;
 import javafx.stage.Window;
-import cn.woyioii.handler.ErrorHandler;
 import lombok.extern.slf4j.Slf4j;
 import javafx.stage.FileChooser;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class FileController {
@@ -20,6 +33,9 @@ public class FileController {
     private static final String VILLAGE_SUFFIX = "-villages.json";
     private static final String ROAD_SUFFIX = "-roads.json";
 
+    // 后台文件读写线程池，每个任务运行在独立的虚拟线程上
+    private static final ExecutorService IO_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
     public FileController() {
         this.fileChooser = new FileChooser();
         // 设置文件过滤器
@@ -30,19 +46,20 @@ public class FileController {
     }
 
     /**
-     * 保存所有数据到文件
+     * 异步保存所有数据到当前文件
+     * 村庄和道路文件在后台线程中并行写入
      * @param villageService 村庄服务
      * @param roadService 道路服务
+     * @return 写入完成的Future
      */
-    public static void saveAllData(VillageService villageService, RoadService roadService) {
-        ErrorHandler.safeExecute("保存数据", () -> {
-            villageService.saveVillages();
-            roadService.validateRoadReferences(villageService); // 保存前验证引用
-            roadService.saveRoads();
-            log.info("所有数据已成功保存");
-        });
+    public static CompletableFuture<Void> saveAllDataAsync(VillageService villageService, RoadService roadService) {
+        roadService.validateRoadReferences(villageService); // 保存前验证引用
+        return CompletableFuture.allOf(
+                CompletableFuture.runAsync(villageService::saveVillages, IO_EXECUTOR),
+                CompletableFuture.runAsync(roadService::saveRoads, IO_EXECUTOR)
+        ).thenRun(() -> log.info("所有数据已成功保存"));
     }
-    
+
     // 创建新的空白数据
     public void createNewData(VillageService villageService, RoadService roadService) {
         try {
@@ -71,7 +88,8 @@ public class FileController {
     }
 
     /**
-     * 加载数据文件
+     * 加载数据文件（同步）
+     * 在调用线程中应用解析结果，适用于无界面环境
      * @param baseFile 基础文件
      * @param villageService 村庄服务
      * @param roadService 道路服务
@@ -79,47 +97,167 @@ public class FileController {
      */
     public boolean loadData(File baseFile, VillageService villageService, RoadService roadService) {
         try {
-            String basePath = baseFile.getParent();
-            String baseName = baseFile.getName().replace(".json", "");
-            
-            // 首先加载村庄数据
-            File villageFile = findMatchingFile(basePath, baseName + "-villages");
-            if (villageFile == null || !villageFile.exists()) {
-                villageFile = baseFile; // 如果没有专门的村庄文件，使用基础文件
-            }
-            
-            if (!villageFile.exists()) {
-                throw new IOException("找不到村庄数据文件: " + villageFile);
-            }
-            
-            // 设置并加载村庄数据
-            villageService.getVillageDao().setFilePath(villageFile.getAbsolutePath());
-            villageService.reloadVillages();
-            
-            // 加载道路数据
-            File roadFile = findMatchingFile(basePath, baseName + "-roads");
-            if (roadFile != null && roadFile.exists()) {
-                roadService.getRoadDao().setFilePath(roadFile.getAbsolutePath());
-                roadService.reloadRoads();
-                validateRoadReferences(roadService, villageService);
-            } else {
-                log.info("未找到道路数据文件，创建空的道路集合");
-                roadService.createNewRoads();
-            }
-            
-            log.info("数据加载成功 - 村庄文件: {}, 道路文件: {}", villageFile, roadFile);
+            LoadedData data = readData(baseFile, villageService, roadService, message -> {}).join();
+            applyLoadedData(data, villageService, roadService);
             return true;
         } catch (Exception e) {
-            log.error("加载数据失败: {}", e.getMessage(), e);
-            throw new RuntimeException("加载数据失败: " + e.getMessage(), e);
+            Throwable cause = unwrap(e);
+            log.error("加载数据失败: {}", cause.getMessage(), cause);
+            throw new RuntimeException("加载数据失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 异步加载数据文件
+     * 村庄与道路文件在后台线程中并行解析，解析完成后在JavaFX线程中一次性替换服务中的数据
+     * @param baseFile 基础文件
+     * @param villageService 村庄服务
+     * @param roadService 道路服务
+     * @param progress 进度回调，用于向状态栏报告加载进度
+     * @return 数据已切换到服务中时完成的Future
+     */
+    public CompletableFuture<Void> loadDataAsync(File baseFile, VillageService villageService,
+                                                 RoadService roadService, Consumer<String> progress) {
+        return readData(baseFile, villageService, roadService, progress)
+                .thenAcceptAsync(data -> {
+                    applyLoadedData(data, villageService, roadService);
+                    progress.accept("数据加载完成");
+                }, Platform::runLater);
+    }
+
+    // 在后台线程中并行解析村庄和道路文件
+    private CompletableFuture<LoadedData> readData(File baseFile, VillageService villageService,
+                                                   RoadService roadService, Consumer<String> progress) {
+        String basePath = baseFile.getParent();
+        String baseName = baseFile.getName().replace(".json", "");
+
+        // 首先定位村庄数据
+        File matchedVillageFile = findMatchingFile(basePath, baseName + "-villages");
+        if (matchedVillageFile == null || !matchedVillageFile.exists()) {
+            matchedVillageFile = baseFile; // 如果没有专门的村庄文件，使用基础文件
+        }
+        File villageFile = matchedVillageFile;
+        if (!villageFile.exists()) {
+            return CompletableFuture.failedFuture(new IOException("找不到村庄数据文件: " + villageFile));
         }
+
+        // 定位道路数据
+        File roadFile = findMatchingFile(basePath, baseName + "-roads");
+
+        progress.accept("正在读取数据文件: " + baseFile.getName());
+        CompletableFuture<List<Village>> villagesFuture = readVillagesAsync(villageFile, villageService, progress);
+        CompletableFuture<List<Road>> roadsFuture;
+        File targetRoadFile;
+        if (roadFile != null && roadFile.exists()) {
+            targetRoadFile = roadFile;
+            roadsFuture = readRoadsAsync(roadFile, roadService, progress);
+        } else {
+            // 切换数据集后道路保存到与村庄文件同名的道路文件
+            targetRoadFile = defaultRoadFile(villageFile);
+            log.info("未找到道路数据文件，创建空的道路集合");
+            roadsFuture = CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        // 村庄解析完成后立即建立ID索引，与道路解析重叠进行
+        CompletableFuture<Set<Integer>> villageIdsFuture = villagesFuture.thenApply(FileController::indexVillageIds);
+
+        return villagesFuture
+                .thenCombine(villageIdsFuture, VillageIndex::new)
+                .thenCombine(roadsFuture, (index, roads) -> {
+                    LoadedData data = validateReferences(villageFile, targetRoadFile, index.villages(), index.ids(), roads);
+                    if (!data.droppedRoads().isEmpty()) {
+                        progress.accept("已忽略 " + data.droppedRoads().size() + " 条引用不存在村庄的道路");
+                    }
+                    log.info("数据解析完成 - 村庄文件: {}, 道路文件: {}", villageFile, roadFile);
+                    return data;
+                });
+    }
+
+    // 建立村庄ID索引，用于道路端点校验
+    private static Set<Integer> indexVillageIds(List<Village> villages) {
+        return villages.parallelStream()
+                .map(Village::getId)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    // 单次并行遍历道路，按端点村庄是否存在划分为有效道路和被丢弃的道路
+    private static LoadedData validateReferences(File villageFile, File roadFile, List<Village> villages,
+                                                 Set<Integer> villageIds, List<Road> roads) {
+        Map<Boolean, List<Road>> partitioned = roads.parallelStream()
+                .collect(Collectors.partitioningBy(road ->
+                        villageIds.contains(road.getStartId()) && villageIds.contains(road.getEndId())));
+        List<Road> dropped = partitioned.get(false);
+        for (Road road : dropped) {
+            log.warn("发现无效道路引用: {} (起点: {}, 终点: {})",
+                road.getName(), road.getStartId(), road.getEndId());
+        }
+        if (!dropped.isEmpty()) {
+            log.info("加载时忽略 {} 条无效道路引用", dropped.size());
+        }
+        return new LoadedData(villageFile, roadFile, villages, partitioned.get(true), dropped);
+    }
+
+    // 只读取文件，不切换数据访问对象的当前文件，解析成功后再由applyLoadedData切换
+    private CompletableFuture<List<Village>> readVillagesAsync(File file, VillageService villageService,
+                                                              Consumer<String> progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Village> villages = villageService.getVillageDao().readVillages(file.getAbsolutePath());
+            if (villages == null) {
+                villages = new ArrayList<>();
+            }
+            progress.accept("已读取村庄数据: " + villages.size() + " 个");
+            return villages;
+        }, IO_EXECUTOR);
+    }
+
+    private CompletableFuture<List<Road>> readRoadsAsync(File file, RoadService roadService,
+                                                       Consumer<String> progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Road> roads = roadService.getRoadDao().readRoads(file.getAbsolutePath());
+            progress.accept("已读取道路数据: " + roads.size() + " 条");
+            return roads;
+        }, IO_EXECUTOR);
+    }
+
+    // 两个文件都解析成功后，在同一步中切换文件路径和服务中的数据，道路引用已在解析阶段校验过
+    private void applyLoadedData(LoadedData data, VillageService villageService, RoadService roadService) {
+        villageService.getVillageDao().setFilePath(data.villageFile().getAbsolutePath());
+        roadService.getRoadDao().setFilePath(data.roadFile().getAbsolutePath());
+        villageService.replaceVillages(data.villages());
+        roadService.replaceRoads(data.roads());
+    }
+
+    // 与村庄文件同名的道路文件
+    private static File defaultRoadFile(File villageFile) {
+        String name = villageFile.getName();
+        String baseName = name.endsWith(VILLAGE_SUFFIX)
+                ? name.substring(0, name.length() - VILLAGE_SUFFIX.length())
+                : name.replace(".json", "");
+        return new File(villageFile.getAbsoluteFile().getParentFile(), baseName + ROAD_SUFFIX);
     }
-    
+
     private void validateRoadReferences(RoadService roadService, VillageService villageService) {
         // 验证road数据中的村庄ID引用是否有效，无效则移除
         roadService.validateRoadReferences(villageService);
     }
 
+    // 去除CompletableFuture包装的异常
+    private static Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+
+    // 村庄列表及其ID索引
+    private record VillageIndex(List<Village> villages, Set<Integer> ids) {
+    }
+
+    // 后台解析得到的数据集及其文件，droppedRoads为端点村庄不存在而被忽略的道路
+    private record LoadedData(File villageFile, File roadFile, List<Village> villages, List<Road> roads,
+                              List<Road> droppedRoads) {
+    }
+
     private File findMatchingFile(String basePath, String prefix) {
         // 移除已有的.json后缀
         prefix = prefix.replace(".json", "");
@@ -138,66 +276,87 @@ public class FileController {
         return null;
     }
 
-    // 保存数据到文件
-    public boolean saveData(File baseFile, VillageService villageService, RoadService roadService) {
-        try {
-            String basePath = baseFile.getParent();
-
-            String baseName = baseFile.getName()
-                                   .replace(".json", "")
-                                   .replace("-villages", "")
-                                   .replace("-roads", "");
-            
-            // 确保目标目录存在
-            File directory = new File(basePath);
-            if (!directory.exists() && !directory.mkdirs()) {
-                throw new IOException("无法创建目标目录: " + basePath);
-            }
-            
-            // 使用新的后缀格式创建文件
-            File villageFile = new File(basePath, baseName + VILLAGE_SUFFIX);
-            villageService.getVillageDao().saveVillage(
-                villageService.getAllVillages(), 
-                villageFile.getAbsolutePath()
-            );
-            
-            // 保存道路数据
-            File roadFile = new File(basePath, baseName + ROAD_SUFFIX);
-            roadService.validateRoadReferences(villageService); // 确保引用有效
-            roadService.getRoadDao().saveRoad(
-                roadService.getAllRoads(), 
-                roadFile.getAbsolutePath()
-            );
-            
-            log.info("成功保存数据，村庄文件: {}, 道路文件: {}", villageFile, roadFile);
-            return true;
-        } catch (Exception e) {
-            log.error("保存数据失败: {}", e.getMessage(), e);
-            throw new RuntimeException("保存数据失败: " + e.getMessage(), e);
+    /**
+     * 异步保存数据到文件
+     * 在调用线程中获取数据快照，随后在后台线程中并行写入村庄和道路文件，写入当前数据集时只写入变更
+     * @param baseFile 基础文件
+     * @param villageService 村庄服务
+     * @param roadService 道路服务
+     * @param progress 进度回调，用于向状态栏报告保存进度
+     * @return 写入完成的Future
+     */
+    public CompletableFuture<Void> saveDataAsync(File baseFile, VillageService villageService,
+                                                 RoadService roadService, Consumer<String> progress) {
+        String basePath = baseFile.getParent();
+
+        String baseName = baseFile.getName()
+                               .replace(".json", "")
+                               .replace("-villages", "")
+                               .replace("-roads", "");
+
+        // 确保目标目录存在
+        File directory = new File(basePath);
+        if (!directory.exists() && !directory.mkdirs()) {
+            return CompletableFuture.failedFuture(new IOException("无法创建目标目录: " + basePath));
         }
+
+        // 在当前线程获取快照，写入期间的编辑不会影响本次保存
+        roadService.validateRoadReferences(villageService); // 确保引用有效
+        DataSnapshot<Village> villages = villageService.getSnapshot();
+        DataSnapshot<Road> roads = roadService.getSnapshot();
+
+        // 使用新的后缀格式创建文件
+        File villageFile = new File(basePath, baseName + VILLAGE_SUFFIX);
+        File roadFile = new File(basePath, baseName + ROAD_SUFFIX);
+
+        progress.accept("正在保存数据...");
+        return CompletableFuture.allOf(
+                CompletableFuture.runAsync(() ->
+                        villageService.saveVillages(villages, villageFile.getAbsolutePath()), IO_EXECUTOR),
+                CompletableFuture.runAsync(() ->
+                        roadService.saveRoads(roads, roadFile.getAbsolutePath()), IO_EXECUTOR)
+        ).whenComplete((ignored, e) -> {
+            if (e == null) {
+                log.info("成功保存数据，村庄文件: {}, 道路文件: {}", villageFile, roadFile);
+            } else {
+                log.error("保存数据失败: {}", unwrap(e).getMessage(), unwrap(e));
+            }
+        });
     }
 
-    // 单独加载村庄数据
-    public void loadVillageData(File file, VillageService villageService) {
-        try {
-            villageService.getVillageDao().setFilePath(file.getAbsolutePath());
-            villageService.reloadVillages();
-            log.info("村庄数据加载成功: {}", file);
-        } catch (Exception e) {
-            log.error("加载村庄数据失败: {}", e.getMessage(), e);
-            throw new RuntimeException("加载村庄数据失败: " + e.getMessage(), e);
-        }
+    /**
+     * 异步加载单独的村庄文件
+     * @param file 村庄文件
+     * @param villageService 村庄服务
+     * @param progress 进度回调
+     * @return 数据已切换到服务中时完成的Future
+     */
+    public CompletableFuture<Void> loadVillageDataAsync(File file, VillageService villageService,
+                                                        Consumer<String> progress) {
+        return readVillagesAsync(file, villageService, progress)
+                .thenAcceptAsync(villages -> {
+                    villageService.getVillageDao().setFilePath(file.getAbsolutePath());
+                    villageService.replaceVillages(villages);
+                    log.info("村庄数据加载成功: {}", file);
+                }, Platform::runLater);
     }
 
-    // 单独加载道路数据
-    public void loadRoadData(File file, RoadService roadService) {
-        try {
-            roadService.getRoadDao().setFilePath(file.getAbsolutePath());
-            roadService.reloadRoads();
-            log.info("道路数据加载成功: {}", file);
-        } catch (Exception e) {
-            log.error("加载道路数据失败: {}", e.getMessage(), e);
-            throw new RuntimeException("加载道路数据失败: " + e.getMessage(), e);
-        }
+    /**
+     * 异步加载单独的道路文件
+     * @param file 道路文件
+     * @param roadService 道路服务
+     * @param villageService 用于校验道路端点的村庄服务
+     * @param progress 进度回调
+     * @return 数据已切换到服务中时完成的Future
+     */
+    public CompletableFuture<Void> loadRoadDataAsync(File file, RoadService roadService,
+                                                     VillageService villageService, Consumer<String> progress) {
+        return readRoadsAsync(file, roadService, progress)
+                .thenAcceptAsync(roads -> {
+                    roadService.getRoadDao().setFilePath(file.getAbsolutePath());
+                    roadService.replaceRoads(roads);
+                    validateRoadReferences(roadService, villageService);
+                    log.info("道路数据加载成功: {}", file);
+                }, Platform::runLater);
     }
 }
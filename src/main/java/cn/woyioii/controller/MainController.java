@@ -2,24 +2,41 @@ package cn.woyioii.controller;
 
 import cn.woyioii.handler.UIEventHandler;
 import cn.woyioii.handler.UIEventHandler.UIEventListener;
+import cn.woyioii.model.MapGraph;
+import cn.woyioii.model.MapStore;
 import cn.woyioii.model.Road;
 import cn.woyioii.model.Village;
 import cn.woyioii.render.MapRenderer;
+import cn.woyioii.render.Viewport;
+import cn.woyioii.server.RoutingServer;
+import cn.woyioii.service.AnalysisCache;
 import cn.woyioii.service.RoadService;
 import cn.woyioii.service.VillageService;
 import cn.woyioii.util.AlertUtils;
+import cn.woyioii.util.DistanceKernel;
 import cn.woyioii.util.MapCalculator;
+import cn.woyioii.util.ProgressMonitor;
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.*;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.stage.Stage;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -27,6 +44,12 @@ public class MainController implements UIEventListener {
     // 默认数据文件路径常量
     private static final String DEFAULT_DATA_FILE = "data/default-villages.json";
     private static final int VILLAGE_SELECT_THRESHOLD = 20; // 村庄选择的像素阈值
+    private static final double ZOOM_STEP = 1.1; // 滚轮每格的缩放倍数
+    private static final double TABLE_CELL_SIZE = 24; // 表格固定行高
+    private static final List<Integer> PLAYBACK_SPEEDS = List.of(10, 50, 200, 1000); // 回放速度选项(km/s)
+    private static final int DEFAULT_PLAYBACK_SPEED = 50;
+    // 耗时分析在后台线程中执行，界面线程只负责展示结果
+    private static final ExecutorService ANALYSIS_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
 
     // FXML 组件
     @FXML private TableView<Village> villageTable;
@@ -34,6 +57,9 @@ public class MainController implements UIEventListener {
     @FXML private Canvas mapCanvas;
     @FXML private Label statusLabel;
     @FXML private Label coordinatesLabel;
+    @FXML private ProgressBar analysisProgress;
+    @FXML private Button cancelAnalysisButton;
+    @FXML private CheckMenuItem statsMenuItem;
 
     // FXML 右侧组件
     public TextArea textAreaResult;
@@ -43,15 +69,22 @@ public class MainController implements UIEventListener {
 
     @FXML private TableView<PathResult> shortestPathsTable;
 
+    @FXML private Button playRouteButton;
+    @FXML private ComboBox<Integer> playbackSpeedCombo;
+
     // Services服务对象
     private VillageService villageService;
     private RoadService roadService;
 
     // UI事件处理器
     private UIEventHandler uiEventHandler;
+    // 分析结果缓存，数据版本变化后自动失效
+    private AnalysisCache analysisCache;
 
     // 地图渲染器
     private MapRenderer mapRenderer;
+    // 本地路线查询服务，未启用时为null
+    private RoutingServer routingServer;
 
     // 文件管理器
     private final FileController fileManager = new FileController();
@@ -64,6 +97,13 @@ public class MainController implements UIEventListener {
     private ContextMenu addRoadMenu;
     private List<int[]> newRoadsToAdd;
 
+    // 地图拖动起点
+    private double dragX;
+    private double dragY;
+
+    // 正在执行的后台分析，没有时为null
+    private Task<?> runningAnalysis;
+
     /**
      * FXML初始化方法，在所有@FXML注入完成后调用
      */
@@ -75,12 +115,18 @@ public class MainController implements UIEventListener {
         setupTables();
         // 配置地图事件
         setupMap();
+        // 配置路线回放
+        setupPlayback();
         // 更新状态
         updateStatus("等待数据加载...");
     }
 
     // 设置表格
     private void setupTables() {
+        // 固定行高，虚拟化表格只为可见行创建单元格，延迟加载的描述仅在显示时读取
+        villageTable.setFixedCellSize(TABLE_CELL_SIZE);
+        roadTable.setFixedCellSize(TABLE_CELL_SIZE);
+
         // 设置表格列
         villageTable.getSelectionModel().selectedItemProperty().addListener(
                 (obs, oldSelection, newSelection) -> handleVillageSelection(newSelection));
@@ -116,7 +162,10 @@ public class MainController implements UIEventListener {
 
         mapCanvas.setOnMouseMoved(this::handleMouseMoved);
         mapCanvas.setOnMouseClicked(this::handleMapClick);
-
+        // 左键拖动平移，滚轮缩放
+        mapCanvas.setOnMousePressed(this::handleMapPressed);
+        mapCanvas.setOnMouseDragged(this::handleMapDragged);
+        mapCanvas.setOnScroll(this::handleMapScroll);
     }
 
     @FXML
@@ -142,58 +191,67 @@ public class MainController implements UIEventListener {
 
     @FXML
     public void onOpenVillage() {
-        handleFileOperation("打开村庄文件", () -> {
-            fileManager.loadVillageData(currentFile, villageService);
-            return "已加载村庄数据";
-        });
+        handleFileOperation("打开村庄文件", file ->
+            fileManager.loadVillageDataAsync(file, villageService, this::updateStatus)
+                .thenApply(ignored -> "已加载村庄数据"));
     }
 
     @FXML
     public void onOpenRoad() {
-        handleFileOperation("打开道路文件", () -> {
-            fileManager.loadRoadData(currentFile, roadService);
-            calculateAllRoadLengths();
-            return "已加载道路数据";
-        });
+        handleFileOperation("打开道路文件", file ->
+            fileManager.loadRoadDataAsync(file, roadService, villageService, this::updateStatus)
+                .thenApply(ignored -> {
+                    calculateAllRoadLengths();
+                    return "已加载道路数据";
+                }));
     }
 
     @FXML
     public void onSave() {
-        try {
-            if (currentFile == null) {
-                // 如果当前没有关联文件，显示另存为对话框
-                Optional<File> fileOpt = fileManager.showSaveDialog(mapCanvas.getScene().getWindow());
-                if (fileOpt.isPresent()) {
-                    currentFile = fileOpt.get();
-                } else {
-                    return; // 用户取消保存操作
-                }
-            }
-            
-            if (fileManager.saveData(currentFile, villageService, roadService)) {
-                dataModified = false;
-                updateStatus("数据已保存至: " + currentFile.getName());
+        saveCurrentFile();
+    }
+
+    // 保存到当前文件，返回保存完成的Future
+    private CompletableFuture<Boolean> saveCurrentFile() {
+        if (currentFile == null) {
+            // 如果当前没有关联文件，显示另存为对话框
+            Optional<File> fileOpt = fileManager.showSaveDialog(mapCanvas.getScene().getWindow());
+            if (fileOpt.isPresent()) {
+                currentFile = fileOpt.get();
+            } else {
+                return CompletableFuture.completedFuture(false); // 用户取消保存操作
             }
-        } catch (Exception e) {
-            log.error("保存数据失败", e);
-            AlertUtils.showException("保存失败", "无法保存数据", e);
         }
+        return saveToFile(currentFile, "保存失败", "无法保存数据");
     }
 
     @FXML
     public void onSaveAs() {
+        Optional<File> fileOpt = fileManager.showSaveDialog(mapCanvas.getScene().getWindow());
+        if (fileOpt.isPresent()) {
+            currentFile = fileOpt.get();
+            saveToFile(currentFile, "另存为失败", "无法保存数据到新文件");
+        }
+    }
+
+    // 在后台写入文件，完成后回到JavaFX线程更新状态
+    private CompletableFuture<Boolean> saveToFile(File file, String errorTitle, String errorMessage) {
         try {
-            Optional<File> fileOpt = fileManager.showSaveDialog(mapCanvas.getScene().getWindow());
-            if (fileOpt.isPresent()) {
-                currentFile = fileOpt.get();
-                if (fileManager.saveData(currentFile, villageService, roadService)) {
+            return fileManager.saveDataAsync(file, villageService, roadService, this::updateStatus)
+                .handleAsync((ignored, e) -> {
+                    if (e != null) {
+                        log.error(errorTitle, e);
+                        AlertUtils.showException(errorTitle, errorMessage, e);
+                        return false;
+                    }
                     dataModified = false;
-                    updateStatus("数据已保存至: " + currentFile.getName());
-                }
-            }
+                    updateStatus("数据已保存至: " + file.getName());
+                    return true;
+                }, Platform::runLater);
         } catch (Exception e) {
-            log.error("另存为失败", e);
-            AlertUtils.showException("另存为失败", "无法保存数据到新文件", e);
+            log.error(errorTitle, e);
+            AlertUtils.showException(errorTitle, errorMessage, e);
+            return CompletableFuture.completedFuture(false);
         }
     }
 
@@ -202,12 +260,22 @@ public class MainController implements UIEventListener {
         if (dataModified) {
             boolean shouldSave = AlertUtils.showConfirmation("保存更改", "数据已修改，是否在退出前保存？");
             if (shouldSave) {
-                onSave();
+                // 等待后台写入完成后再退出，保存失败或取消另存为时留在程序中
+                saveCurrentFile().thenAccept(this::exitIfSaved);
+                return;
             }
         }
         Platform.exit();
     }
 
+    private void exitIfSaved(Boolean saved) {
+        if (Boolean.TRUE.equals(saved)) {
+            Platform.exit();
+        } else {
+            updateStatus("数据未保存，已取消退出");
+        }
+    }
+
     @FXML
     public void handleAddVillage() {
         uiEventHandler.handleAddVillage();
@@ -242,20 +310,22 @@ public class MainController implements UIEventListener {
     public void checkConnectivity() {
         updateStatus("正在检查连通性...");
 
-        // 获取所有村庄和道路
-        List<Village> villages = villageService.getAllVillages();
-        List<Road> roads = roadService.getAllRoads();
+        AnalysisCache.Key key = analysisCache.key("connectivity");
+        // 村庄下标与图中的下标一致
+        MapGraph graph = roadService.getGraph();
+        List<Village> villages = graph.villages();
 
         if (villages.isEmpty()) {
             AlertUtils.showWarning("连通性检查", "当前没有任何村庄");
             return;
         }
 
-        // 构建邻接矩阵
-        double[][] adjacencyMatrix = dataToAdjacencyMatrix (villages, roads);
-
-        // 检查连通性
-        List<Set<Integer>> components = MapCalculator.checkConnectivity(adjacencyMatrix);
+        // 直接基于列式存储检查连通性，数据未变化时使用上次的结果
+        List<Set<Integer>> components = analysisCache.get(key);
+        if (components == null) {
+            components = MapCalculator.checkConnectivity(graph.store());
+            analysisCache.put(key, components, villages.size());
+        }
 
         if (components.size() == 1) {
             String current = textAreaResult.getText();
@@ -281,48 +351,49 @@ public class MainController implements UIEventListener {
         updateStatus("连通性检查完成");
     }
 
-    // 辅助方法：根据村庄ID获取在列表中的索引
-    private int getVillageIndex(List<Village> villages, Integer id) {
-        for (int i = 0; i < villages.size(); i++) {
-            if (villages.get(i).getId() == id) {
-                return i;
-            }
-        }
-        return -1;
-    }
-
     // 最小生成树
     @FXML
     public void generateMinimumSpanningTree() {
-        updateStatus("正在生成最小生成树...");
-
-        // 获取所有村庄和道路
-        List<Village> villages = villageService.getAllVillages();
-        List<Road> roads = roadService.getAllRoads();
+        // 先取缓存键再读取数据，计算期间数据变化时结果不会写入缓存
+        AnalysisCache.Key key = analysisCache.key("plan");
+        // 获取所有村庄，村庄下标与列式存储一致
+        MapGraph graph = roadService.getGraph();
+        List<Village> villages = graph.villages();
 
         if (villages.isEmpty()) {
             AlertUtils.showWarning("村村通方案", "当前没有任何村庄");
             return;
         }
 
-        // 构建邻接矩阵
-        double[][] adjacencyMatrix = dataToAdjacencyMatrix(villages, roads);
+        // 直接基于列式存储检查连通性，候选边在后台生成
+        MapStore store = graph.store();
+        runAnalysis("生成村村通方案", key, monitor -> {
+            List<Set<Integer>> components = MapCalculator.checkConnectivity(store);
+            List<int[]> mstEdges = components.size() == 1
+                    ? List.of() : MapCalculator.addNewRoadToConnect(store, monitor);
+            return new ConnectPlan(components.size(), mstEdges);
+        }, plan -> plan.newRoads().size() + 1L, plan -> showConnectPlan(villages, plan));
+    }
+
+    // 村村通方案的计算结果
+    private record ConnectPlan(int componentCount, List<int[]> newRoads) {
+    }
 
-        // 检查连通性
-        List<Set<Integer>> components = MapCalculator.checkConnectivity(adjacencyMatrix);
+    // 展示村村通方案
+    private void showConnectPlan(List<Village> villages, ConnectPlan plan) {
         // 更新文本区域
         StringBuilder result = new StringBuilder();
         result.append("村村通方案分析结果：\n");
 
-        if (components.size() == 1) {
+        if (plan.componentCount() == 1) {
             // 所有村庄均连通
             result.append("- 当前图中所有村庄均已连通\n");
             result.append("- 无需新建道路，可优化现有道路配置\n");
             AlertUtils.showInformation("村村通方案", "所有村庄已连通");
         } else {
-            // 存在未连通的村庄组
-            List<int[]> mstEdges = MapCalculator.addNewRoadToConnect(adjacencyMatrix, villages);
-            this.newRoadsToAdd = mstEdges;
+            // 存在未连通的村庄组，方案可能来自缓存，复制后再随添加道路移除
+            List<int[]> mstEdges = plan.newRoads();
+            this.newRoadsToAdd = new ArrayList<>(mstEdges);
             System.out.println(mstEdges);
             mapRenderer.highlightRoads(villages, mstEdges);
             
@@ -343,7 +414,7 @@ public class MainController implements UIEventListener {
                 }
             });
             
-            result.append("- 当前图中存在 ").append(components.size()).append(" 个未连通的村庄组\n");
+            result.append("- 当前图中存在 ").append(plan.componentCount()).append(" 个未连通的村庄组\n");
             result.append("- 需要新建 ").append(mstEdges.size()).append(" 条道路以连通所有村庄\n");
             result.append("- 右键点击地图可快速添加建议的道路\n");
             AlertUtils.showInformation("村村通方案", "已生成村村通方案，共需修建 " + mstEdges.size() + " 条新道路\n右键点击地图可快速添加建议的道路");
@@ -395,62 +466,37 @@ public class MainController implements UIEventListener {
         }
     }
 
-    // Data 转邻接矩阵
-    public double[][] dataToAdjacencyMatrix(List<Village> villages, List<Road> roads) {
-        // 创建邻接矩阵
-        int n = villages.size();
-        double[][] adjacencyMatrix = new double[n][n];
-
-        // 构建邻接矩阵
-        for (Road road : roads) {
-            int startIndex = getVillageIndex(villages, road.getStartId());
-            int endIndex = getVillageIndex(villages, road.getEndId());
-
-            if (startIndex != -1 && endIndex != -1) {
-                adjacencyMatrix[startIndex][endIndex] = road.getLength();
-                adjacencyMatrix[endIndex][startIndex] = road.getLength();
-            }
-        }
-        return adjacencyMatrix;
-    }
-
     @FXML
     private void findAllShortestPaths() {
-        updateStatus("正在计算所有最短路径...");
-
         Village startVillage = startVillageCombo.getValue();
         if(startVillage == null) {
             AlertUtils.showWarning("参数错误", "请选择起点村庄");
             return;
         }
 
-        List<Village> villages = villageService.getAllVillages();
-        List<Road> roads = roadService.getAllRoads();
+        AnalysisCache.Key key = analysisCache.key("shortest", startVillage.getId());
+        MapGraph graph = roadService.getGraph();
 
-        double[][] adjacencyMatrix = dataToAdjacencyMatrix(villages, roads);
+        runAnalysis("计算所有最短路径", key,
+                monitor -> shortestPathResults(graph, startVillage, monitor),
+                results -> results.stream()
+                        .mapToLong(r -> r.getPathVillages() != null ? r.getPathVillages().size() + 1 : 1)
+                        .sum(),
+                this::showShortestPaths);
+    }
 
-        int startIndex = villages.indexOf(startVillage);
+    // 计算从起点到其他所有村庄的最短路径，在后台线程中执行
+    private List<PathResult> shortestPathResults(MapGraph graph, Village startVillage, ProgressMonitor monitor) {
+        List<Village> villages = graph.villages();
+        double[][] adjacencyMatrix = graph.adjacencyMatrix();
+
+        int startIndex = graph.indexOf(startVillage.getId());
         
         // 计算从起点到所有其他点的最短路径
-        Map<Integer, List<Integer>> allPaths = MapCalculator.findAllPairsShortestPathsWithRoute(adjacencyMatrix, startIndex);
-        double[][] distances = MapCalculator.findAllPairsShortestPaths(adjacencyMatrix);
-        
-        shortestPathsTable.getItems().clear();
-
-        // 设置表格行点击事件
-        shortestPathsTable.setRowFactory(tv -> {
-            TableRow<PathResult> row = new TableRow<>();
-            row.setOnMouseClicked(event -> {
-                if (!row.isEmpty()) {
-                    PathResult result = row.getItem();
-                    if (result.getPathVillages() != null && result.getPathVillages().size() > 1) {
-                        mapRenderer.highlightPath(result.getPathVillages());
-                    }
-                }
-            });
-            return row;
-        });
+        Map<Integer, List<Integer>> allPaths = MapCalculator.findAllPairsShortestPathsWithRoute(adjacencyMatrix, startIndex, monitor);
+        double[][] distances = MapCalculator.findAllPairsShortestPaths(adjacencyMatrix, monitor);
 
+        List<PathResult> results = new ArrayList<>();
         // 填充表格数据
         for (int i = 0; i < villages.size(); i++) {
             if (i != startIndex) {  // 排除起点自身
@@ -459,9 +505,7 @@ public class MainController implements UIEventListener {
                 double distance = distances[startIndex][i];
                 
                 if (path == null || Double.isInfinite(distance)) {
-                    shortestPathsTable.getItems().add(
-                        new PathResult(targetVillage.getName(), -1, "不可达", null)
-                    );
+                    results.add(new PathResult(targetVillage.getName(), -1, "不可达", null));
                     continue;
                 }
                 
@@ -480,12 +524,32 @@ public class MainController implements UIEventListener {
                 }
                 
                 double roundedDistance = Math.round(distance * 10.0) / 10.0;
-                shortestPathsTable.getItems().add(
-                    new PathResult(targetVillage.getName(), roundedDistance, 
-                        pathStr.toString(), pathVillages)
-                );
+                results.add(new PathResult(targetVillage.getName(), roundedDistance,
+                        pathStr.toString(), pathVillages));
             }
         }
+        return results;
+    }
+
+    // 展示最短路径表格
+    private void showShortestPaths(List<PathResult> results) {
+        shortestPathsTable.getItems().clear();
+
+        // 设置表格行点击事件
+        shortestPathsTable.setRowFactory(tv -> {
+            TableRow<PathResult> row = new TableRow<>();
+            row.setOnMouseClicked(event -> {
+                if (!row.isEmpty()) {
+                    PathResult result = row.getItem();
+                    if (result.getPathVillages() != null && result.getPathVillages().size() > 1) {
+                        mapRenderer.highlightPath(result.getPathVillages());
+                    }
+                }
+            });
+            return row;
+        });
+
+        shortestPathsTable.getItems().setAll(results);
 
         updateStatus("最短路径计算完成");
     }
@@ -512,20 +576,22 @@ public class MainController implements UIEventListener {
 
     @FXML
     public void findOptimalRoute() {
-        updateStatus("正在计算最优路径...");
-
         Village startVillage = routeStartVillageComboBox.getValue();
         if(startVillage == null) {
             AlertUtils.showWarning("参数错误", "请选择起点村庄");
             return;
         }
 
-        List<Village> villages = villageService.getAllVillages();
-        List<Road> roads = roadService.getAllRoads();
+        AnalysisCache.Key key = analysisCache.key("route", startVillage.getId());
+        MapGraph graph = roadService.getGraph();
 
-        MapCalculator.RouteResult result = MapCalculator.calculateOptimalRoute(
-                villages, roads, startVillage);
+        runAnalysis("计算最优路径", key,
+                monitor -> MapCalculator.calculateOptimalRoute(graph, startVillage, monitor),
+                MainController::routeWeight, result -> showOptimalRoute(startVillage, result));
+    }
 
+    // 展示最优路径结果
+    private void showOptimalRoute(Village startVillage, MapCalculator.RouteResult result) {
         if (!result.isSuccess()) {
             String errorMsg = String.format("""
                 无法计算从村庄 [%s] 出发的最优路径
@@ -556,30 +622,30 @@ public class MainController implements UIEventListener {
 
     @FXML
     public void findOptimalRoundTrip() {
-        updateStatus("正在计算最优路径...");
-
         Village startVillage = routeStartVillageComboBox.getValue();
         if(startVillage == null) {
             AlertUtils.showWarning("参数错误", "请选择起点村庄");
             return;
         }
-        // 转为邻接矩阵
 
-        List<Village> villages = villageService.getAllVillages();
-        List<Road> roads = roadService.getAllRoads();
-        double[][] adjacencyMatrix = dataToAdjacencyMatrix(villages, roads);
+        AnalysisCache.Key key = analysisCache.key("roundtrip", startVillage.getId());
+        MapGraph graph = roadService.getGraph();
 
-        // 验证是否为连通图
-        if(MapCalculator.checkConnectivity(adjacencyMatrix).size()>1) {
+        // 验证是否为连通图，基于列式存储检查，无需先构建邻接矩阵
+        if(MapCalculator.checkConnectivity(graph.store()).size()>1) {
             AlertUtils.showWarning("路径计算失败", "当前地图为非连通图，请使用连通性检查功能检查");
             updateStatus("最优路径计算失败");
             return;
         }
 
-        // 调用新的计算方法
-        MapCalculator.RouteResult result = MapCalculator.calculateOptimalRoundTrip(adjacencyMatrix,
-                 villages, roads, startVillage);
+        // 邻接矩阵在后台首次使用时构建
+        runAnalysis("计算最优环游路径", key,
+                monitor -> MapCalculator.calculateOptimalRoundTrip(graph, startVillage, monitor),
+                MainController::routeWeight, result -> showOptimalRoundTrip(startVillage, result));
+    }
 
+    // 展示最优环游路径结果
+    private void showOptimalRoundTrip(Village startVillage, MapCalculator.RouteResult result) {
         if (!result.isSuccess()) {
             String errorMsg = String.format("""
             无法计算从村庄 [%s] 出发的最优环游路径
@@ -602,6 +668,110 @@ public class MainController implements UIEventListener {
         updateStatus("最优环游路径计算完成");
     }
 
+    // 路线结果的缓存权重
+    private static long routeWeight(MapCalculator.RouteResult result) {
+        return result.getPath() != null ? result.getPath().size() + 1L : 1;
+    }
+
+    /**
+     * 在后台线程中执行耗时分析，完成后回到JavaFX线程展示结果
+     * 分析只读取调用前取得的数据快照，同一时间只允许一个分析运行
+     * 缓存中已有相同数据版本的结果时直接展示，不再启动计算
+     * @param name 分析名称，用于状态栏和提示
+     * @param key 缓存键，需要在读取数据快照之前生成
+     * @param analysis 分析过程，需要在耗时循环中调用进度回调
+     * @param weigher 估算结果占用的缓存权重
+     * @param onSuccess 分析成功后在JavaFX线程中执行
+     */
+    private <T> void runAnalysis(String name, AnalysisCache.Key key, Function<ProgressMonitor, T> analysis,
+                                 ToLongFunction<T> weigher, Consumer<T> onSuccess) {
+        if (runningAnalysis != null) {
+            AlertUtils.showWarning("计算进行中", "请等待当前计算完成，或点击\"取消计算\"后重试");
+            return;
+        }
+
+        T cached = analysisCache.get(key);
+        if (cached != null) {
+            onSuccess.accept(cached);
+            updateStatus(name + "完成（使用缓存结果）");
+            return;
+        }
+
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() {
+                return analysis.apply((done, total) -> {
+                    if (isCancelled()) {
+                        throw new CancellationException(name + "已取消");
+                    }
+                    updateProgress(done, total);
+                });
+            }
+        };
+        task.setOnSucceeded(e -> {
+            finishAnalysis();
+            T result = task.getValue();
+            analysisCache.put(key, result, weigher.applyAsLong(result));
+            onSuccess.accept(result);
+        });
+        task.setOnCancelled(e -> {
+            finishAnalysis();
+            log.info("{}已取消", name);
+            updateStatus(name + "已取消");
+        });
+        task.setOnFailed(e -> {
+            finishAnalysis();
+            log.error("{}失败", name, task.getException());
+            AlertUtils.showException("计算失败", name + "时发生错误", task.getException());
+            updateStatus(name + "失败");
+        });
+
+        runningAnalysis = task;
+        analysisProgress.progressProperty().bind(task.progressProperty());
+        analysisProgress.setVisible(true);
+        cancelAnalysisButton.setVisible(true);
+        updateStatus("正在" + name + "...");
+        ANALYSIS_EXECUTOR.execute(task);
+    }
+
+    // 分析结束后隐藏进度条和取消按钮
+    private void finishAnalysis() {
+        runningAnalysis = null;
+        analysisProgress.progressProperty().unbind();
+        analysisProgress.setVisible(false);
+        cancelAnalysisButton.setVisible(false);
+    }
+
+    @FXML
+    public void cancelAnalysis() {
+        if (runningAnalysis != null) {
+            runningAnalysis.cancel();
+        }
+    }
+
+    // 设置路线回放速度选项，回放结束时恢复按钮文字
+    private void setupPlayback() {
+        playbackSpeedCombo.getItems().setAll(PLAYBACK_SPEEDS);
+        playbackSpeedCombo.setValue(DEFAULT_PLAYBACK_SPEED);
+        mapRenderer.setOnPlaybackStopped(() -> playRouteButton.setText("回放路线"));
+    }
+
+    @FXML
+    public void togglePlayback() {
+        if (mapRenderer.isPlaying()) {
+            mapRenderer.stopPlayback();
+            updateStatus("路线回放已停止");
+            return;
+        }
+        Integer speed = playbackSpeedCombo.getValue();
+        if (!mapRenderer.playRoute(speed != null ? speed : DEFAULT_PLAYBACK_SPEED)) {
+            AlertUtils.showWarning("无法回放", "请先计算最优路线或最短回环路径");
+            return;
+        }
+        playRouteButton.setText("停止回放");
+        updateStatus("正在回放路线");
+    }
+
     // 点击村庄时的逻辑
     private void handleVillageSelection(Village village) {
         if (village != null) {
@@ -622,16 +792,64 @@ public class MainController implements UIEventListener {
 
     // 鼠标移动时的逻辑
     private void handleMouseMoved(MouseEvent event) {
-        int x = (int) event.getX();
-        int y = (int) event.getY();
+        Viewport viewport = mapRenderer.getViewport();
+        int x = (int) Math.round(viewport.toWorldX(event.getX()));
+        int y = (int) Math.round(viewport.toWorldY(event.getY()));
         coordinatesLabel.setText("坐标: " + x + "," + y);
     }
 
+    // 按下鼠标时记录拖动起点
+    private void handleMapPressed(MouseEvent event) {
+        dragX = event.getX();
+        dragY = event.getY();
+    }
+
+    // 左键拖动平移地图
+    private void handleMapDragged(MouseEvent event) {
+        if (event.getButton() != MouseButton.PRIMARY) {
+            return;
+        }
+        mapRenderer.pan(event.getX() - dragX, event.getY() - dragY);
+        dragX = event.getX();
+        dragY = event.getY();
+        event.consume();
+    }
+
+    // 滚轮以鼠标位置为中心缩放地图
+    private void handleMapScroll(ScrollEvent event) {
+        if (event.getDeltaY() == 0) {
+            return;
+        }
+        double factor = event.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP;
+        mapRenderer.zoomAt(factor, event.getX(), event.getY());
+        event.consume();
+    }
+
+    @FXML
+    private void onFitToData() {
+        mapRenderer.fitToData();
+    }
+
+    @FXML
+    private void onResetZoom() {
+        mapRenderer.resetView();
+    }
+
+    @FXML
+    private void onToggleStats() {
+        mapRenderer.setStatsVisible(statsMenuItem.isSelected());
+    }
+
     // 点击地图时的逻辑
     private void handleMapClick(MouseEvent event) {
+        // 拖动结束时不处理点击
+        if (!event.isStillSincePress()) {
+            return;
+        }
 
-        double x = event.getX();
-        double y = event.getY();
+        Viewport viewport = mapRenderer.getViewport();
+        double x = viewport.toWorldX(event.getX());
+        double y = viewport.toWorldY(event.getY());
 
         Village closest = findClosestVillage(x, y);
         if (closest != null) {
@@ -640,22 +858,14 @@ public class MainController implements UIEventListener {
         }
     }
 
-    // 查找最近的村庄
+    // 查找最近的村庄，坐标为村庄坐标，选择阈值按当前缩放换算
     private Village findClosestVillage(double x, double y) {
-        Village closest = null;
-        double minDistance = Double.MAX_VALUE;
-
-        for (Village v : villageService.getAllVillages()) {
-            double distance = Math.sqrt(
-                    Math.pow(v.getLocateX() - x, 2) +
-                            Math.pow(v.getLocateY() - y, 2));
-
-            if (distance < minDistance && distance < VILLAGE_SELECT_THRESHOLD) {
-                minDistance = distance;
-                closest = v;
-            }
-        }
-        return closest;
+        double threshold = VILLAGE_SELECT_THRESHOLD / mapRenderer.getViewport().getScale();
+        // 图中的坐标数组按数据版本缓存，点击时无需逐个读取村庄对象
+        MapGraph graph = roadService.getGraph();
+        MapStore store = graph.store();
+        int index = DistanceKernel.nearest(x, y, store.xs(), store.ys(), store.getVillageCount(), threshold);
+        return index < 0 ? null : graph.villages().get(index);
     }
 
     public Village getSelectedVillage() {
@@ -681,7 +891,22 @@ public class MainController implements UIEventListener {
         routeStartVillageComboBox.getItems().setAll(villageService.getAllVillages());
 
         // 更新地图
-        mapRenderer.redraw(villageService.getAllVillages(), roadService.getAllRoads(), villageService);
+        mapRenderer.redraw(roadService.getGraph());
+
+        publishSnapshot();
+    }
+
+    // 设置路线查询服务，并发布当前数据
+    public void setRoutingServer(RoutingServer routingServer) {
+        this.routingServer = routingServer;
+        publishSnapshot();
+    }
+
+    // 向路线查询服务发布当前数据的图，数据未变化时图实例不变
+    private void publishSnapshot() {
+        if (routingServer != null) {
+            routingServer.publish(roadService.getGraph());
+        }
     }
 
     // 更新状态信息
@@ -700,6 +925,7 @@ public class MainController implements UIEventListener {
         this.roadService = roadService;
         // 初始化UI事件处理器
         initializeHandlers();
+        analysisCache = new AnalysisCache(villageService, roadService);
         
         log.info("服务初始化完成");
     }
@@ -710,7 +936,9 @@ public class MainController implements UIEventListener {
             if (dataModified) {
                 boolean shouldSave = AlertUtils.showConfirmation("保存更改", "数据已修改，是否在退出前保存？");
                 if (shouldSave) {
-                    onSave();
+                    // 保存在后台进行，成功后再关闭窗口
+                    event.consume();
+                    saveCurrentFile().thenAccept(this::exitIfSaved);
                 }
             }
         });
@@ -738,19 +966,25 @@ public class MainController implements UIEventListener {
     private void loadInitialData() {
         currentFile = new File(DEFAULT_DATA_FILE);
         if (currentFile.exists()) {
-            if (loadExistingData()) {
-                calculateAllRoadLengths();
-                refreshUI();
-                updateStatus("初始数据加载完成");
-            }
+            loadExistingData()
+                .thenRunAsync(() -> {
+                    calculateAllRoadLengths();
+                    refreshUI();
+                    updateStatus("初始数据加载完成");
+                }, Platform::runLater)
+                .exceptionally(e -> {
+                    Platform.runLater(() -> handleInitializationError(e));
+                    return null;
+                });
         } else {
             createNewData();
         }
     }
 
-    // 加载现有数据
-    private boolean loadExistingData() {
-        return fileManager.loadData(currentFile, villageService, roadService);
+    // 在后台加载现有数据，界面保持响应
+    private CompletableFuture<Void> loadExistingData() {
+        updateStatus("正在加载数据...");
+        return fileManager.loadDataAsync(currentFile, villageService, roadService, this::updateStatus);
     }
 
     // 创建新数据
@@ -760,40 +994,34 @@ public class MainController implements UIEventListener {
     }
 
     // 处理初始化错误
-    private void handleInitializationError(Exception e) {
+    private void handleInitializationError(Throwable e) {
         log.error("初始化界面数据失败", e);
         AlertUtils.showException("初始化失败", "无法加载初始数据", e);
     }
 
     // 计算所有道路长度
     private void calculateAllRoadLengths() {
-        List<Road> roads = roadService.getAllRoads();
-        for (Road road : roads) {
-            Village start = villageService.getVillageById(road.getStartId());
-            Village end = villageService.getVillageById(road.getEndId());
-            if (start != null && end != null) {
-                // 计算距离
-                double length = MapCalculator.calculateDistance(start, end);
-                road.setLength(length);
-            }
-        }
+        roadService.recalculateRoadLengths();
     }
 
-    // 处理文件操作
-    private void handleFileOperation(String operationType, FileOperation operation) {
+    // 处理文件操作，文件在后台读取，完成后回到JavaFX线程刷新界面
+    private void handleFileOperation(String operationType, Function<File, CompletableFuture<String>> operation) {
         if (checkUnsavedChanges()) {
             Optional<File> fileOpt = fileManager.showOpenDialog(mapCanvas.getScene().getWindow());
             if (fileOpt.isPresent()) {
                 currentFile = fileOpt.get();
-                try {
-                    String message = operation.execute();
+                File file = currentFile;
+                updateStatus("正在" + operationType + ": " + file.getName());
+                operation.apply(file).whenCompleteAsync((message, e) -> {
+                    if (e != null) {
+                        log.error("{}失败: {}", operationType, e.getMessage());
+                        AlertUtils.showError(operationType + "失败", "无法加载文件，请检查文件格式是否正确");
+                        return;
+                    }
                     dataModified = false;
                     refreshUI();
-                    updateStatus(message + ": " + currentFile.getName());
-                } catch (Exception e) {
-                    log.error("{}失败: {}", operationType, e.getMessage());
-                    AlertUtils.showError(operationType + "失败", "无法加载文件，请检查文件格式是否正确");
-                }
+                    updateStatus(message + ": " + file.getName());
+                }, Platform::runLater);
             }
         }
     }
@@ -811,12 +1039,6 @@ public class MainController implements UIEventListener {
         return false;
     }
 
-    // 文件操作接口
-    @FunctionalInterface
-    private interface FileOperation {
-        String execute() throws Exception;
-    }
-
     @Override
     public void onDataChanged() {
         markDataAsModified();
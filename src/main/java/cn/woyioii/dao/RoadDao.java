@@ -2,7 +2,13 @@ package cn.woyioii.dao;
 
 import cn.woyioii.model.Road;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * <h1>道路数据访问接口</h1>
@@ -14,18 +20,20 @@ import java.util.List;
  *     <li>删除现有道路信息</li>
  *     <li>获取所有道路列表</li>
  *     <li>查询两个村庄间的道路</li>
+ *     <li>按ID或端点村庄查询道路</li>
  * </ul>
  *
  * <h2>实现说明：</h2>
  * <ul>
- *     <li>使用JSON格式存储数据</li>
- *     <li>通过文件系统进行持久化</li>
+ *     <li>{@code RoadDaoImpl} 使用JSON文件存储，单条操作会重写整个文件</li>
+ *     <li>{@code H2RoadDaoImpl} 使用嵌入式数据库存储，按ID和端点村庄建立索引</li>
  *     <li>支持道路数据的CRUD操作</li>
  * </ul>
  *
  * @author woyioii
  * @see Road
  * @see cn.woyioii.dao.impl.RoadDaoImpl
+ * @see cn.woyioii.dao.impl.H2RoadDaoImpl
  * @since 1.0
  */
 public interface RoadDao {
@@ -37,4 +45,61 @@ public interface RoadDao {
     void updateRoad(List<Road> updatedRoad);
     // 获取所有道路
     List<Road> getAllRoads();
+    // 读取指定文件中的所有道路，不改变当前文件路径，读取失败时抛出异常
+    List<Road> readRoads(String filePath);
+
+    // 保存到指定文件时能否只写入变更的道路，filePath为null表示当前文件
+    // 只有该文件属于当前数据集，且单条写入不会重写整个数据集时才返回true
+    default boolean supportsIncrementalSave(String filePath) {
+        return false;
+    }
+
+    // 一次写入删除和新增或更新的多条道路，新增的道路追加在末尾，没有ID的道路直接追加
+    default void applyChanges(List<Road> upserted, List<Integer> deleted) {
+        Set<Integer> removed = new HashSet<>(deleted);
+        Map<Integer, Road> changed = new LinkedHashMap<>();
+        List<Road> added = new ArrayList<>();
+        for (Road road : upserted) {
+            if (road.getId() == null) {
+                added.add(road);
+            } else {
+                changed.put(road.getId(), road);
+            }
+        }
+        List<Road> roads = new ArrayList<>();
+        for (Road road : getAllRoads()) {
+            if (road.getId() == null || !removed.contains(road.getId())) {
+                Road replacement = road.getId() == null ? null : changed.remove(road.getId());
+                roads.add(replacement == null ? road : replacement);
+            }
+        }
+        roads.addAll(changed.values());
+        roads.addAll(added);
+        updateRoad(roads);
+    }
+
+    // 根据ID获取道路，不存在返回null
+    default Road getRoadById(int roadId) {
+        return getAllRoads().stream()
+                .filter(r -> Objects.equals(r.getId(), roadId))
+                .findFirst()
+                .orElse(null);
+    }
+
+    // 获取以指定村庄为端点的所有道路
+    default List<Road> getRoadsByVillageId(int villageId) {
+        return getAllRoads().stream()
+                .filter(r -> r.getStartId() == villageId || r.getEndId() == villageId)
+                .toList();
+    }
+
+    // 新增或更新单条道路
+    default void upsertRoad(Road road) {
+        applyChanges(List.of(road), List.of());
+    }
+
+    // 删除单条道路
+    default void deleteRoad(int roadId) {
+        applyChanges(List.of(), List.of(roadId));
+    }
 }
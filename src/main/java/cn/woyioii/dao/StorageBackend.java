@@ -0,0 +1,74 @@
+package cn.woyioii.dao;
+
+import cn.woyioii.dao.impl.H2RoadDaoImpl;
+import cn.woyioii.dao.impl.H2VillageDaoImpl;
+import cn.woyioii.dao.impl.RoadDaoImpl;
+import cn.woyioii.dao.impl.VillageDaoImpl;
+
+/**
+ * <h1>存储后端</h1>
+ * 启动时通过系统属性 {@code villagemap.storage} 选择数据访问实现，默认使用JSON文件。
+ *
+ * <ul>
+ *     <li>{@code json}：每个数据集保存为 {@code -villages.json} / {@code -roads.json} 两个文件</li>
+ *     <li>{@code h2}：每个数据集保存为一个嵌入式数据库文件，首次打开时导入同名JSON数据</li>
+ * </ul>
+ *
+ * @author woyioii
+ * @since 1.0
+ */
+public enum StorageBackend {
+    JSON,
+    H2;
+
+    public static final String PROPERTY = "villagemap.storage";
+
+    /**
+     * 从系统属性读取存储后端，未设置或无法识别时使用JSON
+     */
+    public static StorageBackend fromSystemProperty() {
+        String value = System.getProperty(PROPERTY, "json").trim();
+        for (StorageBackend backend : values()) {
+            if (backend.name().equalsIgnoreCase(value)) {
+                return backend;
+            }
+        }
+        return JSON;
+    }
+
+    public VillageDao createVillageDao() {
+        return switch (this) {
+            case JSON -> new VillageDaoImpl();
+            case H2 -> new H2VillageDaoImpl();
+        };
+    }
+
+    public RoadDao createRoadDao() {
+        return switch (this) {
+            case JSON -> new RoadDaoImpl();
+            case H2 -> new H2RoadDaoImpl();
+        };
+    }
+
+    /**
+     * 创建直接指向指定数据文件的村庄数据访问对象，不会创建默认数据文件
+     * @param filePath 村庄数据文件路径
+     */
+    public VillageDao createVillageDao(String filePath) {
+        return switch (this) {
+            case JSON -> new VillageDaoImpl(filePath);
+            case H2 -> new H2VillageDaoImpl(filePath);
+        };
+    }
+
+    /**
+     * 创建直接指向指定数据文件的道路数据访问对象，不会创建默认数据文件
+     * @param filePath 道路数据文件路径
+     */
+    public RoadDao createRoadDao(String filePath) {
+        return switch (this) {
+            case JSON -> new RoadDaoImpl(filePath);
+            case H2 -> new H2RoadDaoImpl(filePath);
+        };
+    }
+}
@@ -2,7 +2,12 @@ package cn.woyioii.dao;
 
 import cn.woyioii.model.Village;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 /**
  * <h1>村庄数据访问接口</h1>
  * 定义了村庄数据的持久化操作接口，负责村庄数据的存储和检索。
@@ -12,18 +17,20 @@ import java.util.List;
  *     <li>保存新村庄数据</li>
  *     <li>更新现有村庄信息</li>
  *     <li>获取所有村庄列表</li>
+ *     <li>按ID读取、写入和删除单个村庄</li>
  * </ul>
  *
  * <h2>实现说明：</h2>
  * <ul>
- *     <li>使用JSON格式存储数据</li>
- *     <li>通过文件系统进行持久化</li>
+ *     <li>{@code VillageDaoImpl} 使用JSON文件存储，单条操作会重写整个文件</li>
+ *     <li>{@code H2VillageDaoImpl} 使用嵌入式数据库存储，单条操作只访问对应记录</li>
  *     <li>支持村庄数据的CRUD操作</li>
  * </ul>
  *
  * @author woyioii
  * @see Village
  * @see cn.woyioii.dao.impl.VillageDaoImpl
+ * @see cn.woyioii.dao.impl.H2VillageDaoImpl
  * @since 1.0
  */
 public interface VillageDao {
@@ -35,4 +42,50 @@ public interface VillageDao {
     void updateVillage(List<Village> updatedVillage);
     // 从文件中获取所有村庄
     List<Village> getAllVillages();
+    // 读取指定文件中的所有村庄，不改变当前文件路径，读取失败时抛出异常
+    List<Village> readVillages(String filePath);
+
+    // 保存到指定文件时能否只写入变更的村庄，filePath为null表示当前文件
+    // 只有该文件属于当前数据集，且单条写入不会重写整个数据集时才返回true
+    default boolean supportsIncrementalSave(String filePath) {
+        return false;
+    }
+
+    // 一次写入删除和新增或更新的多个村庄，新增的村庄追加在末尾
+    default void applyChanges(List<Village> upserted, List<Integer> deleted) {
+        Set<Integer> removed = new HashSet<>(deleted);
+        Map<Integer, Village> changed = new LinkedHashMap<>();
+        upserted.forEach(village -> changed.put(village.getId(), village));
+        List<Village> villages = new ArrayList<>();
+        for (Village village : getAllVillages() == null ? List.<Village>of() : getAllVillages()) {
+            if (!removed.contains(village.getId())) {
+                Village replacement = changed.remove(village.getId());
+                villages.add(replacement == null ? village : replacement);
+            }
+        }
+        villages.addAll(changed.values());
+        updateVillage(villages);
+    }
+
+    // 根据ID获取村庄，不存在返回null
+    default Village getVillageById(int villageId) {
+        List<Village> villages = getAllVillages();
+        if (villages == null) {
+            return null;
+        }
+        return villages.stream()
+                .filter(v -> v.getId() == villageId)
+                .findFirst()
+                .orElse(null);
+    }
+
+    // 新增或更新单个村庄
+    default void upsertVillage(Village village) {
+        applyChanges(List.of(village), List.of());
+    }
+
+    // 删除单个村庄
+    default void deleteVillage(int villageId) {
+        applyChanges(List.of(), List.of(villageId));
+    }
 }
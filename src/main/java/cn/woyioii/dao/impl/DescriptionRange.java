@@ -0,0 +1,61 @@
+package cn.woyioii.dao.impl;
+
+import com.google.gson.JsonParser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+
+/**
+ * 延迟加载的村庄描述在JSON文件中的位置
+ * <p>区间包含字符串两端的引号，即文件中原始的JSON字符串。文件在记录位置之后被修改时无法读取，返回null。</p>
+ *
+ * @param path         数据文件
+ * @param start        起始偏移
+ * @param end          结束偏移（不含）
+ * @param lastModified 记录位置时文件的修改时间
+ */
+@Slf4j
+record DescriptionRange(Path path, long start, long end, long lastModified) implements Supplier<String> {
+
+    int length() {
+        return (int) (end - start);
+    }
+
+    @Override
+    public String get() {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (!isCurrent()) {
+                log.warn("村庄数据文件已被修改，无法读取延迟加载的描述: {}", path);
+                return null;
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(length());
+            readFully(channel, bytes);
+            return JsonParser.parseString(new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8))
+                    .getAsString();
+        } catch (IOException | RuntimeException e) {
+            log.error("读取村庄描述失败: {}", path, e);
+            return null;
+        }
+    }
+
+    // 文件是否仍是记录位置时的版本
+    boolean isCurrent() throws IOException {
+        return Files.getLastModifiedTime(path).toMillis() == lastModified;
+    }
+
+    // 从已打开的文件中读取区间内的原始字节，读到文件末尾时提前结束
+    void readFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, start + bytes.position()) < 0) {
+                break;
+            }
+        }
+    }
+}
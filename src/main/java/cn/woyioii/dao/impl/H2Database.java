@@ -0,0 +1,81 @@
+package cn.woyioii.dao.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 嵌入式H2数据库连接工具
+ * <p>同一数据集的村庄和道路保存在同一个数据库文件中，数据库路径由数据文件名推导：
+ * {@code data/default-villages.json} 与 {@code data/default-roads.json} 都对应 {@code data/default.mv.db}。</p>
+ */
+@Slf4j
+final class H2Database {
+    private static final String DB_SUFFIX = ".mv.db";
+
+    private H2Database() {
+        // 工具类私有构造
+    }
+
+    /**
+     * 由数据文件路径推导数据库路径（不含.mv.db后缀的绝对路径）
+     */
+    static String toDatabasePath(String filePath) {
+        String base = filePath;
+        if (base.endsWith(DB_SUFFIX)) {
+            base = base.substring(0, base.length() - DB_SUFFIX.length());
+        }
+        if (base.endsWith(".json")) {
+            base = base.substring(0, base.length() - ".json".length());
+        }
+        if (base.endsWith("-villages")) {
+            base = base.substring(0, base.length() - "-villages".length());
+        } else if (base.endsWith("-roads")) {
+            base = base.substring(0, base.length() - "-roads".length());
+        }
+        return Paths.get(base).toAbsolutePath().toString();
+    }
+
+    /**
+     * 打开数据库连接，数据库在进程内保持打开，重复连接开销很小
+     */
+    static Connection connect(String databasePath) throws SQLException {
+        return DriverManager.getConnection("jdbc:h2:file:" + databasePath + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    /**
+     * 表不存在时创建表和索引
+     * @return 是否为新创建的表
+     */
+    static boolean createTableIfAbsent(Connection connection, String table, String... ddl) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(null, null, table, new String[]{"TABLE"})) {
+            if (tables.next()) {
+                return false;
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : ddl) {
+                statement.execute(sql);
+            }
+        }
+        log.info("已创建数据表: {}", table);
+        return true;
+    }
+
+    /**
+     * 删除数据表
+     */
+    static void dropTable(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+        }
+        log.info("已删除数据表: {}", table);
+    }
+}
@@ -0,0 +1,264 @@
+package cn.woyioii.dao.impl;
+
+import cn.woyioii.dao.RoadDao;
+import cn.woyioii.model.Road;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于嵌入式H2数据库的道路数据访问实现
+ * <p>道路按ID和两端村庄ID建立索引，查询某个村庄的相关道路不需要读取整个数据集。</p>
+ */
+@Slf4j
+public class H2RoadDaoImpl implements RoadDao {
+    private static final String TABLE = "ROADS";
+    private static final String[] DDL = {
+            "CREATE TABLE ROADS (ROW_ID BIGINT AUTO_INCREMENT PRIMARY KEY, ID INT, "
+                    + "START_ID INT NOT NULL, END_ID INT NOT NULL, NAME VARCHAR, LENGTH DOUBLE NOT NULL)",
+            "CREATE INDEX IDX_ROADS_ID ON ROADS(ID)",
+            "CREATE INDEX IDX_ROADS_START ON ROADS(START_ID)",
+            "CREATE INDEX IDX_ROADS_END ON ROADS(END_ID)"
+    };
+    private static final String COLUMNS = "ROW_ID, ID, START_ID, END_ID, NAME, LENGTH";
+    private static final String INSERT_SQL =
+            "INSERT INTO ROADS (ID, START_ID, END_ID, NAME, LENGTH) VALUES (?, ?, ?, ?, ?)";
+
+    private String filePath;
+    private String databasePath;
+    private final Gson gson = new Gson();
+
+    public H2RoadDaoImpl() {
+        // 初始化,默认数据库与默认JSON文件同名
+        this("data/default-roads.json");
+    }
+
+    public H2RoadDaoImpl(String filePath) {
+        setFilePath(filePath);
+    }
+
+    @Override
+    public void setFilePath(String filePath) {
+        // 设置文件路径，并定位对应的数据库
+        this.filePath = filePath;
+        this.databasePath = H2Database.toDatabasePath(filePath);
+        initializeTable(filePath, databasePath);
+    }
+
+    private void initializeTable(String filePath, String databasePath) {
+        try (Connection connection = H2Database.connect(databasePath)) {
+            if (H2Database.createTableIfAbsent(connection, TABLE, DDL)) {
+                try {
+                    importJson(connection, filePath);
+                } catch (RuntimeException | SQLException e) {
+                    // 导入失败时删除新建的空表，下次打开时重新导入
+                    H2Database.dropTable(connection, TABLE);
+                    throw e;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("无法初始化道路数据库: " + e.getMessage(), e);
+        }
+    }
+
+    // 首次建表时导入同名JSON文件中的数据
+    private void importJson(Connection connection, String filePath) throws SQLException {
+        if (!filePath.endsWith(".json") || !Files.exists(Paths.get(filePath))) {
+            return;
+        }
+        try (FileReader reader = new FileReader(filePath)) {
+            List<Road> roads = gson.fromJson(reader, new TypeToken<List<Road>>() {}.getType());
+            if (roads != null) {
+                insertAll(connection, roads);
+                log.info("已从 {} 导入 {} 条道路", filePath, roads.size());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("导入道路数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void saveRoad(List<Road> road, String filePath) {
+        // 保存道路到指定数据集
+        setFilePath(filePath);
+        replaceAll(road);
+    }
+
+    @Override
+    public void updateRoad(List<Road> updatedRoad) {
+        // 更新当前数据集中的道路
+        replaceAll(updatedRoad);
+    }
+
+    @Override
+    public List<Road> getAllRoads() {
+        return query("SELECT " + COLUMNS + " FROM ROADS ORDER BY ROW_ID");
+    }
+
+    @Override
+    public List<Road> readRoads(String filePath) {
+        // 只打开指定数据集的数据库，不切换当前数据集
+        String database = H2Database.toDatabasePath(filePath);
+        initializeTable(filePath, database);
+        try {
+            return select(database, "SELECT " + COLUMNS + " FROM ROADS ORDER BY ROW_ID");
+        } catch (SQLException e) {
+            throw new RuntimeException("读取道路数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean supportsIncrementalSave(String filePath) {
+        // 村庄和道路文件对应同一个数据库，按数据库判断是否为当前数据集
+        return filePath == null || H2Database.toDatabasePath(filePath).equals(databasePath);
+    }
+
+    @Override
+    public Road getRoadById(int roadId) {
+        List<Road> roads = query("SELECT " + COLUMNS + " FROM ROADS WHERE ID = ? ORDER BY ROW_ID LIMIT 1", roadId);
+        return roads.isEmpty() ? null : roads.getFirst();
+    }
+
+    @Override
+    public List<Road> getRoadsByVillageId(int villageId) {
+        // 分别走起点和终点索引
+        return query("SELECT " + COLUMNS + " FROM ROADS WHERE START_ID = ? UNION "
+                + "SELECT " + COLUMNS + " FROM ROADS WHERE END_ID = ? ORDER BY ROW_ID", villageId, villageId);
+    }
+
+    @Override
+    public void upsertRoad(Road road) {
+        applyChanges(List.of(road), List.of());
+    }
+
+    @Override
+    public void deleteRoad(int roadId) {
+        applyChanges(List.of(), List.of(roadId));
+    }
+
+    @Override
+    public void applyChanges(List<Road> upserted, List<Integer> deleted) {
+        // 在同一个事务中批量删除和更新，不存在或没有ID的道路再批量插入，缺少端点的道路忽略
+        List<Road> valid = upserted.stream()
+                .filter(road -> road.getStartId() != null && road.getEndId() != null)
+                .toList();
+        try (Connection connection = H2Database.connect(databasePath)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM ROADS WHERE ID = ?");
+                 PreparedStatement update = connection.prepareStatement(
+                         "UPDATE ROADS SET START_ID = ?, END_ID = ?, NAME = ?, LENGTH = ? WHERE ID = ?")) {
+                for (int roadId : deleted) {
+                    delete.setInt(1, roadId);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+                for (Road road : valid) {
+                    if (road.getId() == null) {
+                        continue;
+                    }
+                    update.setInt(1, road.getStartId());
+                    update.setInt(2, road.getEndId());
+                    update.setString(3, road.getName());
+                    update.setDouble(4, road.getLength());
+                    update.setInt(5, road.getId());
+                    update.addBatch();
+                }
+                int[] counts = update.executeBatch();
+                // 按原顺序插入没有更新到任何行的道路
+                List<Road> inserted = new ArrayList<>();
+                int batch = 0;
+                for (Road road : valid) {
+                    if (road.getId() == null || counts[batch++] == 0) {
+                        inserted.add(road);
+                    }
+                }
+                insertAll(connection, inserted);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("保存道路数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    private List<Road> query(String sql, int... params) {
+        try {
+            return select(databasePath, sql, params);
+        } catch (SQLException e) {
+            log.error("读取道路数据失败", e);
+            return new ArrayList<>();
+        }
+    }
+
+    private static List<Road> select(String databasePath, String sql, int... params) throws SQLException {
+        List<Road> roads = new ArrayList<>();
+        try (Connection connection = H2Database.connect(databasePath);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setInt(i + 1, params[i]);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    Road road = new Road(rs.getInt(3), rs.getInt(4), rs.getString(5), rs.getDouble(6));
+                    int id = rs.getInt(2);
+                    road.setId(rs.wasNull() ? null : id);
+                    roads.add(road);
+                }
+            }
+        }
+        return roads;
+    }
+
+    // 在一个事务中用新数据替换整张表
+    private void replaceAll(List<Road> roads) {
+        try (Connection connection = H2Database.connect(databasePath)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM ROADS")) {
+                delete.executeUpdate();
+                insertAll(connection, roads);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("保存道路数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    // 批量插入，跳过缺少端点的无效道路
+    private static void insertAll(Connection connection, List<Road> roads) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+            for (Road road : roads) {
+                if (road == null || road.getStartId() == null || road.getEndId() == null) {
+                    continue;
+                }
+                if (road.getId() == null) {
+                    insert.setNull(1, Types.INTEGER);
+                } else {
+                    insert.setInt(1, road.getId());
+                }
+                insert.setInt(2, road.getStartId());
+                insert.setInt(3, road.getEndId());
+                insert.setString(4, road.getName());
+                insert.setDouble(5, road.getLength());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package cn.woyioii.dao.impl;
+
+import cn.woyioii.dao.VillageDao;
+import cn.woyioii.model.Village;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 基于嵌入式H2数据库的村庄数据访问实现
+ * <p>村庄按ID建立索引，单个村庄的读写不需要序列化整个数据集；
+ * 读取全部村庄时描述字段延迟加载，按行号单独查询。</p>
+ */
+@Slf4j
+public class H2VillageDaoImpl implements VillageDao {
+    private static final String TABLE = "VILLAGES";
+    private static final String[] DDL = {
+            "CREATE TABLE VILLAGES (ROW_ID BIGINT AUTO_INCREMENT PRIMARY KEY, ID INT NOT NULL, "
+                    + "NAME VARCHAR, LOCATE_X INT NOT NULL, LOCATE_Y INT NOT NULL, DESCRIPTION VARCHAR)",
+            "CREATE INDEX IDX_VILLAGES_ID ON VILLAGES(ID)"
+    };
+    private static final String INSERT_SQL =
+            "INSERT INTO VILLAGES (ID, NAME, LOCATE_X, LOCATE_Y, DESCRIPTION) VALUES (?, ?, ?, ?, ?)";
+
+    private String filePath;
+    private String databasePath;
+    private final Gson gson = new Gson();
+
+    public H2VillageDaoImpl() {
+        // 初始化,默认数据库与默认JSON文件同名
+        this("data/default-villages.json");
+    }
+
+    public H2VillageDaoImpl(String filePath) {
+        setFilePath(filePath);
+    }
+
+    @Override
+    public void setFilePath(String filePath) {
+        // 设置文件路径，并定位对应的数据库
+        this.filePath = filePath;
+        this.databasePath = H2Database.toDatabasePath(filePath);
+        initializeTable(filePath, databasePath);
+    }
+
+    private void initializeTable(String filePath, String databasePath) {
+        try (Connection connection = H2Database.connect(databasePath)) {
+            if (H2Database.createTableIfAbsent(connection, TABLE, DDL)) {
+                try {
+                    importJson(connection, filePath);
+                } catch (RuntimeException | SQLException e) {
+                    // 导入失败时删除新建的空表，下次打开时重新导入
+                    H2Database.dropTable(connection, TABLE);
+                    throw e;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("无法初始化村庄数据库: " + e.getMessage(), e);
+        }
+    }
+
+    // 首次建表时导入同名JSON文件中的数据
+    private void importJson(Connection connection, String filePath) throws SQLException {
+        if (!filePath.endsWith(".json") || !Files.exists(Paths.get(filePath))) {
+            return;
+        }
+        try (FileReader reader = new FileReader(filePath)) {
+            List<Village> villages = gson.fromJson(reader, new TypeToken<List<Village>>() {}.getType());
+            if (villages != null) {
+                insertAll(connection, villages);
+                log.info("已从 {} 导入 {} 个村庄", filePath, villages.size());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("导入村庄数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void saveVillage(List<Village> village, String filePath) {
+        // 保存村庄到指定数据集
+        setFilePath(filePath);
+        replaceAll(village);
+    }
+
+    @Override
+    public void updateVillage(List<Village> updatedVillage) {
+        // 更新当前数据集中的村庄
+        replaceAll(updatedVillage);
+    }
+
+    @Override
+    public List<Village> getAllVillages() {
+        return selectAll(databasePath);
+    }
+
+    @Override
+    public List<Village> readVillages(String filePath) {
+        // 只打开指定数据集的数据库，不切换当前数据集
+        String database = H2Database.toDatabasePath(filePath);
+        initializeTable(filePath, database);
+        return selectAll(database);
+    }
+
+    // 获取所有村庄，描述延迟加载
+    private static List<Village> selectAll(String databasePath) {
+        List<Village> villages = new ArrayList<>();
+        try (Connection connection = H2Database.connect(databasePath);
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT ROW_ID, ID, NAME, LOCATE_X, LOCATE_Y, DESCRIPTION IS NOT NULL FROM VILLAGES ORDER BY ROW_ID");
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                Village village = new Village(rs.getInt(2), rs.getString(3), rs.getInt(4), rs.getInt(5), null);
+                // 没有描述的村庄不需要加载器
+                if (rs.getBoolean(6)) {
+                    village.setDescriptionLoader(new RowDescription(databasePath, rs.getLong(1)));
+                }
+                villages.add(village);
+            }
+            return villages;
+        } catch (SQLException e) {
+            throw new RuntimeException("读取村庄数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean supportsIncrementalSave(String filePath) {
+        // 村庄和道路文件对应同一个数据库，按数据库判断是否为当前数据集
+        return filePath == null || H2Database.toDatabasePath(filePath).equals(databasePath);
+    }
+
+    @Override
+    public Village getVillageById(int villageId) {
+        try (Connection connection = H2Database.connect(databasePath);
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT ID, NAME, LOCATE_X, LOCATE_Y, DESCRIPTION FROM VILLAGES WHERE ID = ? ORDER BY ROW_ID LIMIT 1")) {
+            statement.setInt(1, villageId);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new Village(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getInt(4), rs.getString(5));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("读取村庄数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void upsertVillage(Village village) {
+        applyChanges(List.of(village), List.of());
+    }
+
+    @Override
+    public void deleteVillage(int villageId) {
+        applyChanges(List.of(), List.of(villageId));
+    }
+
+    @Override
+    public void applyChanges(List<Village> upserted, List<Integer> deleted) {
+        // 在同一个事务中批量删除和更新，不存在的村庄再批量插入
+        materializeDescriptions(upserted);
+        try (Connection connection = H2Database.connect(databasePath)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM VILLAGES WHERE ID = ?");
+                 PreparedStatement update = connection.prepareStatement(
+                         "UPDATE VILLAGES SET NAME = ?, LOCATE_X = ?, LOCATE_Y = ?, DESCRIPTION = ? WHERE ID = ?")) {
+                for (int villageId : deleted) {
+                    delete.setInt(1, villageId);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+                for (Village village : upserted) {
+                    update.setString(1, village.getName());
+                    update.setInt(2, village.getLocateX());
+                    update.setInt(3, village.getLocateY());
+                    update.setString(4, village.getDescription());
+                    update.setInt(5, village.getId());
+                    update.addBatch();
+                }
+                int[] counts = update.executeBatch();
+                List<Village> inserted = new ArrayList<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        inserted.add(upserted.get(i));
+                    }
+                }
+                insertAll(connection, inserted);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("保存村庄数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    // 在一个事务中用新数据替换整张表
+    private void replaceAll(List<Village> villages) {
+        // 先读取所有延迟加载的描述，替换后原有行号将失效
+        materializeDescriptions(villages);
+        try (Connection connection = H2Database.connect(databasePath)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM VILLAGES")) {
+                delete.executeUpdate();
+                insertAll(connection, villages);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("保存村庄数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    // 读取尚未加载的描述，每个数据库只查询一次，其他来源的描述逐个加载
+    private static void materializeDescriptions(List<Village> villages) {
+        Map<String, Map<Long, List<Village>>> pending = new HashMap<>();
+        for (Village village : villages) {
+            Supplier<String> loader = village.getDescriptionLoader();
+            if (loader instanceof RowDescription row) {
+                pending.computeIfAbsent(row.databasePath(), k -> new HashMap<>())
+                        .computeIfAbsent(row.rowId(), k -> new ArrayList<>(1))
+                        .add(village);
+            } else if (loader != null) {
+                village.getDescription();
+            }
+        }
+        for (Map.Entry<String, Map<Long, List<Village>>> database : pending.entrySet()) {
+            Map<Long, List<Village>> rows = database.getValue();
+            try (Connection connection = H2Database.connect(database.getKey());
+                 PreparedStatement statement = connection.prepareStatement(
+                         "SELECT ROW_ID, DESCRIPTION FROM VILLAGES WHERE DESCRIPTION IS NOT NULL");
+                 ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    List<Village> owners = rows.get(rs.getLong(1));
+                    if (owners != null) {
+                        String description = rs.getString(2);
+                        owners.forEach(village -> village.setDescription(description));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("读取村庄描述失败: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void insertAll(Connection connection, List<Village> villages) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+            for (Village village : villages) {
+                insert.setInt(1, village.getId());
+                insert.setString(2, village.getName());
+                insert.setInt(3, village.getLocateX());
+                insert.setInt(4, village.getLocateY());
+                insert.setString(5, village.getDescription());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * 按行号延迟读取的村庄描述
+     * @param databasePath 数据库路径
+     * @param rowId 行号
+     */
+    private record RowDescription(String databasePath, long rowId) implements Supplier<String> {
+        @Override
+        public String get() {
+            try (Connection connection = H2Database.connect(databasePath);
+                 PreparedStatement statement = connection.prepareStatement(
+                         "SELECT DESCRIPTION FROM VILLAGES WHERE ROW_ID = ?")) {
+                statement.setLong(1, rowId);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return rs.next() ? rs.getString(1) : null;
+                }
+            } catch (SQLException e) {
+                log.error("读取村庄描述失败: {}", rowId, e);
+                return null;
+            }
+        }
+    }
+}
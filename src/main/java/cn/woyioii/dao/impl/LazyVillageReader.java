@@ -0,0 +1,279 @@
+package cn.woyioii.dao.impl;
+
+import cn.woyioii.model.Village;
+import com.google.gson.Gson;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 村庄数据的延迟读取器
+ * <p>扫描村庄JSON文件时只解析编号、坐标和名称，描述字段仅记录其在文件中的字节区间（{@link DescriptionRange}），
+ * 首次访问时再从文件中读取。相同的名称通过字符串池共享同一个实例。</p>
+ */
+@Slf4j
+class LazyVillageReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final Gson gson;
+    // 名称字符串池，只在读取期间使用
+    private Map<String, String> stringPool;
+
+    // 读取状态
+    private InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferLength;
+    private int bufferPosition;
+    private int pushback = -1;
+    private long position; // 已消费的字节数，即下一个字节在文件中的偏移
+
+    // 字符串内容缓冲
+    private byte[] token = new byte[256];
+    private int tokenLength;
+
+    LazyVillageReader(Path path, Gson gson) {
+        this.path = path;
+        this.gson = gson;
+    }
+
+    /**
+     * 扫描文件并返回村庄列表，描述字段延迟加载
+     */
+    List<Village> read() throws IOException {
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        List<Village> villages = new ArrayList<>();
+        stringPool = new HashMap<>();
+        int distinctNames;
+        try (InputStream input = Files.newInputStream(path)) {
+            in = input;
+            int c = nextNonWhitespace();
+            if (c == -1) {
+                return villages; // 空文件
+            }
+            if (c == 'n') {
+                skipLiteral(c);
+                return villages; // null
+            }
+            expect(c, '[');
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return villages;
+            }
+            while (true) {
+                expect(c, '{');
+                villages.add(readVillage(lastModified));
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    break;
+                }
+                expect(c, ',');
+                c = nextNonWhitespace();
+            }
+            distinctNames = stringPool.size();
+        } finally {
+            // 名称已被村庄引用，释放字符串池
+            in = null;
+            stringPool = null;
+        }
+        log.info("延迟加载村庄数据: {}，共{}个村庄，{}个不同名称", path, villages.size(), distinctNames);
+        return villages;
+    }
+
+    // 读取一个村庄对象，调用前已消费左花括号
+    private Village readVillage(long lastModified) throws IOException {
+        Village village = new Village();
+        int c = nextNonWhitespace();
+        if (c == '}') {
+            return village;
+        }
+        while (true) {
+            expect(c, '"');
+            String field = readString();
+            expect(nextNonWhitespace(), ':');
+            c = nextNonWhitespace();
+            switch (field) {
+                case "id" -> village.setId(readInt(c));
+                case "locateX" -> village.setLocateX(readInt(c));
+                case "locateY" -> village.setLocateY(readInt(c));
+                case "name" -> village.setName(c == '"' ? intern(readString()) : skipLiteral(c));
+                case "description" -> {
+                    if (c == '"') {
+                        long start = position - 1;
+                        skipString();
+                        village.setDescriptionLoader(new DescriptionRange(path, start, position, lastModified));
+                    } else {
+                        skipValue(c);
+                    }
+                }
+                default -> skipValue(c);
+            }
+            c = nextNonWhitespace();
+            if (c == '}') {
+                return village;
+            }
+            expect(c, ',');
+            c = nextNonWhitespace();
+        }
+    }
+
+    private String intern(String value) {
+        return stringPool.computeIfAbsent(value, v -> v);
+    }
+
+    // 读取字符串内容，调用前已消费左引号
+    private String readString() throws IOException {
+        tokenLength = 0;
+        boolean escaped = false;
+        while (true) {
+            int c = next();
+            if (c == -1) {
+                throw syntaxError("字符串未结束");
+            }
+            if (c == '"') {
+                break;
+            }
+            appendToken(c);
+            if (c == '\\') {
+                escaped = true;
+                appendToken(next());
+            }
+        }
+        if (!escaped) {
+            return new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+        }
+        // 含转义字符时交给Gson解码
+        String raw = '"' + new String(token, 0, tokenLength, StandardCharsets.UTF_8) + '"';
+        return gson.fromJson(raw, String.class);
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = next();
+            if (c == -1) {
+                throw syntaxError("字符串未结束");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                next();
+            }
+        }
+    }
+
+    private int readInt(int first) throws IOException {
+        if (first == 'n') {
+            skipLiteral(first);
+            return 0;
+        }
+        String literal = readLiteral(first);
+        try {
+            return Integer.parseInt(literal);
+        } catch (NumberFormatException e) {
+            double value = Double.parseDouble(literal);
+            if (value != (int) value) {
+                throw syntaxError("期望整数: " + literal);
+            }
+            return (int) value;
+        }
+    }
+
+    // 跳过任意值，嵌套对象和数组按层级跳过
+    private void skipValue(int first) throws IOException {
+        if (first == '"') {
+            skipString();
+        } else if (first == '{' || first == '[') {
+            int depth = 1;
+            while (depth > 0) {
+                int c = next();
+                switch (c) {
+                    case -1 -> throw syntaxError("对象未结束");
+                    case '"' -> skipString();
+                    case '{', '[' -> depth++;
+                    case '}', ']' -> depth--;
+                    default -> { }
+                }
+            }
+        } else {
+            skipLiteral(first);
+        }
+    }
+
+    private String skipLiteral(int first) throws IOException {
+        readLiteral(first);
+        return null;
+    }
+
+    // 读取数字、true/false/null等字面量
+    private String readLiteral(int first) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c = first;
+        while (c != -1 && c != ',' && c != '}' && c != ']' && !isWhitespace(c)) {
+            sb.append((char) c);
+            c = next();
+        }
+        pushback = c;
+        if (c != -1) {
+            position--;
+        }
+        return sb.toString();
+    }
+
+    private void appendToken(int c) {
+        if (tokenLength == token.length) {
+            token = Arrays.copyOf(token, token.length * 2);
+        }
+        token[tokenLength++] = (byte) c;
+    }
+
+    private void expect(int actual, char expected) throws IOException {
+        if (actual != expected) {
+            throw syntaxError("期望字符 '" + expected + "'");
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("村庄数据格式错误，偏移 " + position + ": " + message);
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c = next();
+        while (isWhitespace(c)) {
+            c = next();
+        }
+        return c;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private int next() throws IOException {
+        if (pushback != -1) {
+            int c = pushback;
+            pushback = -1;
+            position++;
+            return c;
+        }
+        if (bufferPosition == bufferLength) {
+            bufferLength = in.read(buffer);
+            bufferPosition = 0;
+            if (bufferLength <= 0) {
+                bufferLength = 0;
+                return -1;
+            }
+        }
+        position++;
+        return buffer[bufferPosition++] & 0xFF;
+    }
+}
@@ -22,7 +22,11 @@ public class RoadDaoImpl implements RoadDao {
     private final Gson gson = new Gson();
 
     public RoadDaoImpl() {
-        this.filePath = "data/default-roads.json";
+        this("data/default-roads.json");
+    }
+
+    public RoadDaoImpl(String filePath) {
+        this.filePath = filePath;
         initializeFile(); // 确保文件存在
     }
 
@@ -67,6 +71,16 @@ public class RoadDaoImpl implements RoadDao {
 
     @Override
     public List<Road> getAllRoads() {
+        try {
+            return readRoads(filePath);
+        } catch (RuntimeException e) {
+            log.error("读取道路数据失败", e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<Road> readRoads(String filePath) {
         try (FileReader reader = new FileReader(filePath)) {
             List<Road> roads = gson.fromJson(reader, new TypeToken<List<Road>>() {}.getType());
             
@@ -80,8 +94,7 @@ public class RoadDaoImpl implements RoadDao {
                 .collect(Collectors.toList());
                 
         } catch (IOException e) {
-            log.error("读取道路数据失败", e);
-            return new ArrayList<>();
+            throw new RuntimeException("读取道路数据失败: " + e.getMessage(), e);
         }
     }
 
@@ -3,25 +3,47 @@ package cn.woyioii.dao.impl;
 import cn.woyioii.model.Village;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
+import java.io.BufferedOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import cn.woyioii.dao.VillageDao;
 
+@Slf4j
 public class VillageDaoImpl implements VillageDao {
+    // 文件超过该大小时自动启用延迟加载
+    private static final long LAZY_LOADING_THRESHOLD = 32L * 1024 * 1024;
+
     private String filePath;
     private final Gson gson =new Gson();
+    // 是否延迟加载村庄描述，为null时按文件大小自动选择
+    @Setter
+    private Boolean lazyLoading;
 
     public VillageDaoImpl() {
         // 初始化,默认文件路径
-        this.filePath = "data/default-villages.json";
+        this("data/default-villages.json");
+    }
+
+    public VillageDaoImpl(String filePath) {
+        this.filePath = filePath;
         initializeFile(); // 确保文件存在
     }
 
@@ -48,11 +70,7 @@ public class VillageDaoImpl implements VillageDao {
     @Override
     public void saveVillage(List<Village> village, String filePath) {
         // 保存村庄到文件
-        try (FileWriter writer = new FileWriter(filePath)) {
-            gson.toJson(village, writer);
-        } catch (IOException e) {
-            throw new RuntimeException("保存村庄数据失败: " + e.getMessage(), e);
-        }
+        writeVillages(village, filePath);
     }
 
     @Override
@@ -63,6 +81,20 @@ public class VillageDaoImpl implements VillageDao {
 
     @Override
     public List<Village> getAllVillages(){
+        return readVillages(filePath);
+    }
+
+    @Override
+    public List<Village> readVillages(String filePath) {
+        // 大文件只解析名称和坐标，描述在访问时再读取
+        Path path = Paths.get(filePath);
+        if (shouldLoadLazily(path)) {
+            try {
+                return new LazyVillageReader(path, gson).read();
+            } catch (IOException e) {
+                throw new RuntimeException("读取村庄数据失败: " + e.getMessage(), e);
+            }
+        }
         // 获取所有村庄
         try (FileReader reader = new FileReader(filePath)) {
             return gson.fromJson(reader, new TypeToken<List<Village>>() {
@@ -72,12 +104,186 @@ public class VillageDaoImpl implements VillageDao {
         }
     }
 
+    private boolean shouldLoadLazily(Path path) {
+        if (lazyLoading != null) {
+            return lazyLoading;
+        }
+        try {
+            return Files.size(path) > LAZY_LOADING_THRESHOLD;
+        } catch (IOException e) {
+            log.warn("无法获取村庄数据文件大小: {}", path, e);
+            return false;
+        }
+    }
+
     private void saveAllVillages(List<Village> villages) {
         // 保存所有村庄
-        try (FileWriter writer = new FileWriter(filePath)) {
-            gson.toJson(villages, writer);
+        writeVillages(villages, filePath);
+    }
+
+    /**
+     * 写入村庄文件，格式与Gson序列化列表相同
+     * <p>尚未加载的描述按原始字节从源文件复制，不读入内存，每个源文件只打开一次。
+     * 先写入同目录下的临时文件再替换目标文件，源文件就是目标文件时，
+     * 写入完成后把这些村庄的加载器指向新文件中的位置。</p>
+     */
+    private void writeVillages(List<Village> villages, String filePath) {
+        Path target = Paths.get(filePath).toAbsolutePath();
+        Path temp = null;
+        List<Relocation> relocations = new ArrayList<>();
+        try {
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try (DescriptionCopier copier = new DescriptionCopier();
+                 CountingOutput out = new CountingOutput(Files.newOutputStream(temp))) {
+                out.write("[");
+                for (int i = 0; i < villages.size(); i++) {
+                    if (i > 0) {
+                        out.write(",");
+                    }
+                    writeVillage(villages.get(i), target, copier, out, relocations);
+                }
+                out.write("]");
+            }
+            move(temp, target);
+            temp = null;
+            relocate(relocations, target);
         } catch (IOException e) {
             throw new RuntimeException("保存村庄数据失败: " + e.getMessage(), e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    log.warn("删除临时文件失败: {}", temp, e);
+                }
+            }
+        }
+    }
+
+    // 字段顺序和转义方式与Gson一致，值为null的字段不写入
+    private void writeVillage(Village village, Path target, DescriptionCopier copier, CountingOutput out,
+                              List<Relocation> relocations) throws IOException {
+        StringBuilder fields = new StringBuilder("{\"id\":").append(village.getId());
+        if (village.getName() != null) {
+            fields.append(",\"name\":").append(gson.toJson(village.getName()));
+        }
+        fields.append(",\"locateX\":").append(village.getLocateX())
+                .append(",\"locateY\":").append(village.getLocateY());
+        out.write(fields);
+
+        if (village.getDescriptionLoader() instanceof DescriptionRange range) {
+            long start = out.count() + ",\"description\":".length();
+            if (copier.read(range)) {
+                out.write(",\"description\":");
+                out.write(copier.buffer.array(), 0, range.length());
+                if (range.path().equals(target)) {
+                    relocations.add(new Relocation(village, range, start, out.count()));
+                }
+                out.write("}");
+                return;
+            }
+        }
+        String description = village.getDescription();
+        if (description != null) {
+            out.write(",\"description\":" + gson.toJson(description));
+        }
+        out.write("}");
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // 源文件已被替换，将仍未加载的描述指向新文件
+    private static void relocate(List<Relocation> relocations, Path target) throws IOException {
+        if (relocations.isEmpty()) {
+            return;
+        }
+        long lastModified = Files.getLastModifiedTime(target).toMillis();
+        for (Relocation relocation : relocations) {
+            relocation.village().replaceDescriptionLoader(relocation.range(),
+                    new DescriptionRange(target, relocation.start(), relocation.end(), lastModified));
+        }
+    }
+
+    // 描述在新文件中的位置
+    private record Relocation(Village village, DescriptionRange range, long start, long end) {
+    }
+
+    // 按区间读取源文件中的原始描述，每个源文件只打开一次
+    private static final class DescriptionCopier implements AutoCloseable {
+        private final Map<Path, FileChannel> channels = new HashMap<>();
+        private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        // 读取到缓冲区开头，源文件已被修改或无法读取时返回false
+        boolean read(DescriptionRange range) {
+            try {
+                FileChannel channel = channels.get(range.path());
+                if (channel == null && !channels.containsKey(range.path())) {
+                    channel = range.isCurrent() ? FileChannel.open(range.path(), StandardOpenOption.READ) : null;
+                    channels.put(range.path(), channel);
+                    if (channel == null) {
+                        log.warn("村庄数据文件已被修改，无法复制延迟加载的描述: {}", range.path());
+                    }
+                }
+                if (channel == null) {
+                    return false;
+                }
+                if (buffer.capacity() < range.length()) {
+                    buffer = ByteBuffer.allocate(Math.max(range.length(), buffer.capacity() * 2));
+                }
+                buffer.clear().limit(range.length());
+                range.readFully(channel, buffer);
+                return buffer.position() == range.length();
+            } catch (IOException e) {
+                log.error("复制村庄描述失败: {}", range.path(), e);
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (FileChannel channel : channels.values()) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    // 记录已写入字节数的UTF-8输出
+    private static final class CountingOutput implements AutoCloseable {
+        private final OutputStream out;
+        private long count;
+
+        CountingOutput(OutputStream out) {
+            this.out = new BufferedOutputStream(out, 64 * 1024);
+        }
+
+        void write(CharSequence text) throws IOException {
+            write(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        void write(byte[] bytes) throws IOException {
+            write(bytes, 0, bytes.length);
+        }
+
+        void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+
+        long count() {
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
         }
     }
 }
@@ -25,6 +25,11 @@ public class ErrorHandler {
         log.error("{}: ", context, throwable);
         log.error("根本原因: {}: {}", rootCause.getClass().getName(), rootCause.getMessage());
         
+        // 无界面模式下只记录日志
+        if (AlertUtils.isHeadless()) {
+            return;
+        }
+
         // UI线程中显示错误
         if (Platform.isFxApplicationThread()) {
             showErrorDialog(context, rootCause, throwable);
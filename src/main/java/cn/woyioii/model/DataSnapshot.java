@@ -0,0 +1,51 @@
+package cn.woyioii.model;
+
+import java.util.List;
+
+/**
+ * <h1>带版本号的数据快照</h1>
+ * <p>保存某一版本下的完整数据列表，创建后不可修改。服务层的每次变更都会在副本上修改，
+ * 再以新版本号生成新快照并整体发布，读取方拿到快照后无需加锁即可在任意线程中遍历。</p>
+ *
+ * <h2>使用须知：</h2>
+ * <ul>
+ *     <li>列表不可修改，也不包含null元素</li>
+ *     <li>列表中的对象视为不可变，服务层修改数据时替换为新对象而不是修改原对象</li>
+ *     <li>版本号只增不减，可用于判断缓存是否失效</li>
+ * </ul>
+ *
+ * @param version 版本号
+ * @param items   该版本的数据
+ * @param <T>     元素类型
+ * @author woyioii
+ * @since 1.0
+ */
+public record DataSnapshot<T>(long version, List<T> items) {
+
+    public DataSnapshot {
+        // 已经是不可修改列表时不会再次复制
+        items = List.copyOf(items);
+    }
+
+    /**
+     * 创建版本号为0的空快照
+     * @param <T> 元素类型
+     * @return 空快照
+     */
+    public static <T> DataSnapshot<T> empty() {
+        return new DataSnapshot<>(0, List.of());
+    }
+
+    /**
+     * 以当前版本号加一生成新快照
+     * @param items 新版本的数据
+     * @return 新快照
+     */
+    public DataSnapshot<T> next(List<T> items) {
+        return new DataSnapshot<>(version + 1, items);
+    }
+
+    public int size() {
+        return items.size();
+    }
+}
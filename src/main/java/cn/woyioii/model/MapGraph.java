@@ -0,0 +1,335 @@
+package cn.woyioii.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <h1>村庄道路图</h1>
+ * <p>由同一版本的村庄和道路列表一次性构建，包含列式存储、邻接表（CSR格式）以及按需生成的邻接矩阵。
+ * 道路端点通过列式存储中的哈希索引转换为村庄下标，构建耗时与村庄数、道路数成线性关系。
+ * 服务层按数据版本缓存本对象，界面、批处理和路线查询服务共享同一实例。</p>
+ *
+ * <h2>使用须知：</h2>
+ * <ul>
+ *     <li>创建后不可修改，村庄下标与村庄列表顺序一致</li>
+ *     <li>端点村庄不存在的道路不会进入图，道路下标与列式存储一致</li>
+ *     <li>{@link #adjacencyMatrix()} 首次调用时构建并缓存，占用村庄数平方的内存，调用方只能读取</li>
+ * </ul>
+ *
+ * @author woyioii
+ * @see MapStore
+ * @since 1.0
+ */
+public final class MapGraph {
+    public static final MapGraph EMPTY = of(List.of(), List.of());
+
+    private final List<Village> villages;
+    private final List<Road> roads;
+    private final MapStore store;
+    // 按列式存储的道路下标排列的道路对象
+    private final Road[] graphRoads;
+    private final List<Road> graphRoadView;
+
+    // 邻接表，每条道路在两个端点下各出现一次，同一村庄的边按道路下标递增排列
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] edgeRoads;
+    private final double[] weights;
+
+    // 邻接矩阵，首次使用时构建
+    private volatile double[][] adjacencyMatrix;
+
+    private MapGraph(List<Village> villages, List<Road> roads, MapStore store, Road[] graphRoads) {
+        this.villages = villages;
+        this.roads = roads;
+        this.store = store;
+        this.graphRoads = graphRoads;
+        this.graphRoadView = Collections.unmodifiableList(Arrays.asList(graphRoads));
+
+        int n = store.getVillageCount();
+        int m = store.getRoadCount();
+        int[] starts = store.roadStarts();
+        int[] ends = store.roadEnds();
+        double[] lengths = store.roadLengths();
+        offsets = new int[n + 1];
+        for (int r = 0; r < m; r++) {
+            offsets[starts[r] + 1]++;
+            offsets[ends[r] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        targets = new int[2 * m];
+        edgeRoads = new int[2 * m];
+        weights = new double[2 * m];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int r = 0; r < m; r++) {
+            add(next, starts[r], ends[r], r, lengths[r]);
+            add(next, ends[r], starts[r], r, lengths[r]);
+        }
+    }
+
+    private void add(int[] next, int from, int to, int road, double weight) {
+        int slot = next[from]++;
+        targets[slot] = to;
+        edgeRoads[slot] = road;
+        weights[slot] = weight;
+    }
+
+    /**
+     * 由村庄和道路列表创建图
+     * @param villages 村庄列表，下标顺序保持不变
+     * @param roads 道路列表
+     * @return 图
+     */
+    public static MapGraph of(List<Village> villages, List<Road> roads) {
+        List<Village> villageList = List.copyOf(villages);
+        List<Road> roadList = List.copyOf(roads);
+        MapStore store = MapStore.of(villageList, roadList);
+
+        // 与列式存储使用相同的过滤条件，保证道路下标一致
+        Road[] graphRoads = new Road[store.getRoadCount()];
+        int count = 0;
+        for (Road road : roadList) {
+            if (road.getStartId() != null && road.getEndId() != null
+                    && store.indexOf(road.getStartId()) >= 0 && store.indexOf(road.getEndId()) >= 0) {
+                graphRoads[count++] = road;
+            }
+        }
+        return new MapGraph(villageList, roadList, store, graphRoads);
+    }
+
+    /**
+     * 构建图时使用的村庄列表，下标即村庄下标
+     */
+    public List<Village> villages() {
+        return villages;
+    }
+
+    /**
+     * 构建图时使用的全部道路，包括端点不存在而未进入图的道路
+     */
+    public List<Road> roads() {
+        return roads;
+    }
+
+    public MapStore store() {
+        return store;
+    }
+
+    public int getVillageCount() {
+        return store.getVillageCount();
+    }
+
+    /**
+     * 按村庄ID查找下标
+     * @return 村庄下标，不存在时返回-1
+     */
+    public int indexOf(int villageId) {
+        return store.indexOf(villageId);
+    }
+
+    /**
+     * 按列式存储中的道路下标获取道路对象
+     */
+    public Road road(int index) {
+        return graphRoads[index];
+    }
+
+    /**
+     * 进入图的道路，下标与列式存储中的道路下标一致
+     */
+    public List<Road> graphRoads() {
+        return graphRoadView;
+    }
+
+    /**
+     * 按村庄ID查找村庄，ID重复时返回列表中靠前的村庄
+     * @return 村庄对象，不存在时返回null
+     */
+    public Village villageById(int villageId) {
+        int index = store.indexOf(villageId);
+        return index < 0 ? null : villages.get(index);
+    }
+
+    /**
+     * 与村庄相连的道路数
+     */
+    public int degree(int village) {
+        return offsets[village + 1] - offsets[village];
+    }
+
+    /**
+     * 查找直接连接两个村庄的道路，存在多条时返回道路列表中靠前的一条
+     * @return 道路对象，不相邻时返回null
+     */
+    public Road roadBetween(int from, int to) {
+        for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+            if (targets[e] == to) {
+                return graphRoads[edgeRoads[e]];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按村庄下标建立的邻接矩阵，无道路为0，同一村庄对有多条道路时取道路列表中靠后的一条
+     * 首次调用时构建，之后返回同一个数组，调用方只能读取
+     * @return 邻接矩阵
+     */
+    public double[][] adjacencyMatrix() {
+        double[][] result = adjacencyMatrix;
+        if (result == null) {
+            synchronized (this) {
+                result = adjacencyMatrix;
+                if (result == null) {
+                    int n = store.getVillageCount();
+                    result = new double[n][n];
+                    for (int r = 0; r < store.getRoadCount(); r++) {
+                        int start = store.roadStart(r);
+                        int end = store.roadEnd(r);
+                        result[start][end] = store.roadLength(r);
+                        result[end][start] = store.roadLength(r);
+                    }
+                    adjacencyMatrix = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Dijkstra单源最短路径
+     * @param source 起点下标
+     * @param target 到达该村庄后提前结束，为-1时计算到所有村庄的距离
+     * @return 最短路径结果
+     */
+    public Paths shortestPaths(int source, int target) {
+        int n = store.getVillageCount();
+        double[] dist = new double[n];
+        int[] previousRoad = new int[n];
+        int[] previous = new int[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(previous, -1);
+        dist[source] = 0;
+        MinHeap heap = new MinHeap();
+        heap.push(0, source);
+        while (!heap.isEmpty()) {
+            double d = heap.peekKey();
+            int u = heap.pop();
+            if (d > dist[u]) {
+                continue; // 过期的堆元素
+            }
+            if (u == target) {
+                break;
+            }
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                double candidate = d + weights[e];
+                if (candidate < dist[v]) {
+                    dist[v] = candidate;
+                    previous[v] = u;
+                    previousRoad[v] = edgeRoads[e];
+                    heap.push(candidate, v);
+                }
+            }
+        }
+        return new Paths(source, dist, previous, previousRoad);
+    }
+
+    /**
+     * 单源最短路径结果，村庄和道路均为下标
+     */
+    public record Paths(int source, double[] dist, int[] previous, int[] previousRoad) {
+        public boolean reachable(int target) {
+            return !Double.isInfinite(dist[target]);
+        }
+
+        public double distance(int target) {
+            return dist[target];
+        }
+
+        // 起点到目标经过的村庄下标
+        public List<Integer> villagesTo(int target) {
+            List<Integer> path = new ArrayList<>();
+            for (int v = target; v != -1; v = previous[v]) {
+                path.add(v);
+            }
+            Collections.reverse(path);
+            return path;
+        }
+
+        // 起点到目标经过的道路下标
+        public List<Integer> roadsTo(int target) {
+            List<Integer> path = new ArrayList<>();
+            for (int v = target; v != source; v = previous[v]) {
+                path.add(previousRoad[v]);
+            }
+            Collections.reverse(path);
+            return path;
+        }
+    }
+
+    /**
+     * 以距离为键的二叉最小堆，允许同一村庄重复入堆
+     */
+    private static final class MinHeap {
+        private double[] keys = new double[16];
+        private int[] values = new int[16];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void push(double key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int pop() {
+            int result = values[0];
+            double key = keys[--size];
+            int value = values[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= key) {
+                    break;
+                }
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package cn.woyioii.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>村庄与道路的列式存储</h1>
+ * <p>以基本类型数组按列保存村庄坐标和道路端点，名称保存在去重后的字符串字典中。
+ * 道路端点直接保存为村庄下标，算法可以直接读取数组而无需查找村庄或拆箱。</p>
+ *
+ * <h2>使用须知：</h2>
+ * <ul>
+ *     <li>创建后不可修改，数据变更时由服务层重新生成</li>
+ *     <li>村庄下标与创建时传入的村庄列表顺序一致</li>
+ *     <li>端点村庄不存在的道路不会进入存储</li>
+ *     <li>{@code xs()} 等方法返回内部数组，调用方只能读取</li>
+ * </ul>
+ *
+ * @author woyioii
+ * @see Village
+ * @see Road
+ * @since 1.0
+ */
+public final class MapStore {
+    // 道路没有ID时使用的占位值
+    public static final int NO_ID = Integer.MIN_VALUE;
+
+    public static final MapStore EMPTY = of(List.of(), List.of());
+
+    // 村庄列
+    private final int villageCount;
+    private final int[] villageIds;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] villageNames;
+
+    // 道路列
+    private final int roadCount;
+    private final int[] roadIds;
+    private final int[] roadStarts;
+    private final int[] roadEnds;
+    private final double[] roadLengths;
+    private final int[] roadNames;
+
+    // 名称字典
+    private final String[] dictionary;
+    // 村庄ID到下标的索引
+    private final IdIndex idIndex;
+
+    private MapStore(int villageCount, int[] villageIds, int[] xs, int[] ys, int[] villageNames,
+                     int roadCount, int[] roadIds, int[] roadStarts, int[] roadEnds, double[] roadLengths,
+                     int[] roadNames, String[] dictionary, IdIndex idIndex) {
+        this.villageCount = villageCount;
+        this.villageIds = villageIds;
+        this.xs = xs;
+        this.ys = ys;
+        this.villageNames = villageNames;
+        this.roadCount = roadCount;
+        this.roadIds = roadIds;
+        this.roadStarts = roadStarts;
+        this.roadEnds = roadEnds;
+        this.roadLengths = roadLengths;
+        this.roadNames = roadNames;
+        this.dictionary = dictionary;
+        this.idIndex = idIndex;
+    }
+
+    /**
+     * 由村庄和道路列表创建列式存储
+     * @param villages 村庄列表，下标顺序保持不变
+     * @param roads 道路列表
+     * @return 列式存储
+     */
+    public static MapStore of(List<Village> villages, List<Road> roads) {
+        Map<String, Integer> names = new HashMap<>();
+
+        int n = villages.size();
+        int[] villageIds = new int[n];
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        int[] villageNames = new int[n];
+        IdIndex idIndex = new IdIndex(n);
+        for (int i = 0; i < n; i++) {
+            Village village = villages.get(i);
+            villageIds[i] = village.getId();
+            xs[i] = village.getLocateX();
+            ys[i] = village.getLocateY();
+            villageNames[i] = intern(names, village.getName());
+            idIndex.putIfAbsent(village.getId(), i);
+        }
+
+        int m = roads.size();
+        int[] roadIds = new int[m];
+        int[] roadStarts = new int[m];
+        int[] roadEnds = new int[m];
+        double[] roadLengths = new double[m];
+        int[] roadNames = new int[m];
+        int count = 0;
+        for (Road road : roads) {
+            if (road.getStartId() == null || road.getEndId() == null) {
+                continue;
+            }
+            int start = idIndex.get(road.getStartId());
+            int end = idIndex.get(road.getEndId());
+            if (start < 0 || end < 0) {
+                continue;
+            }
+            roadIds[count] = road.getId() == null ? NO_ID : road.getId();
+            roadStarts[count] = start;
+            roadEnds[count] = end;
+            roadLengths[count] = road.getLength();
+            roadNames[count] = intern(names, road.getName());
+            count++;
+        }
+
+        String[] dictionary = new String[names.size()];
+        names.forEach((name, index) -> dictionary[index] = name);
+
+        return new MapStore(n, villageIds, xs, ys, villageNames,
+                count, trim(roadIds, count), trim(roadStarts, count), trim(roadEnds, count),
+                count == m ? roadLengths : Arrays.copyOf(roadLengths, count), trim(roadNames, count),
+                dictionary, idIndex);
+    }
+
+    private static int intern(Map<String, Integer> names, String name) {
+        if (name == null) {
+            return -1;
+        }
+        return names.computeIfAbsent(name, k -> names.size());
+    }
+
+    private static int[] trim(int[] array, int length) {
+        return array.length == length ? array : Arrays.copyOf(array, length);
+    }
+
+    public int getVillageCount() {
+        return villageCount;
+    }
+
+    public int getRoadCount() {
+        return roadCount;
+    }
+
+    /**
+     * 根据村庄ID查找下标
+     * @return 村庄下标，不存在返回-1
+     */
+    public int indexOf(int villageId) {
+        return idIndex.get(villageId);
+    }
+
+    public int villageId(int index) {
+        return villageIds[index];
+    }
+
+    public int x(int index) {
+        return xs[index];
+    }
+
+    public int y(int index) {
+        return ys[index];
+    }
+
+    public String villageName(int index) {
+        return name(villageNames[index]);
+    }
+
+    public int roadId(int index) {
+        return roadIds[index];
+    }
+
+    public int roadStart(int index) {
+        return roadStarts[index];
+    }
+
+    public int roadEnd(int index) {
+        return roadEnds[index];
+    }
+
+    public double roadLength(int index) {
+        return roadLengths[index];
+    }
+
+    public String roadName(int index) {
+        return name(roadNames[index]);
+    }
+
+    private String name(int ref) {
+        return ref < 0 ? null : dictionary[ref];
+    }
+
+    // 以下方法返回内部数组，供算法批量读取，调用方不得修改
+
+    public int[] xs() {
+        return xs;
+    }
+
+    public int[] ys() {
+        return ys;
+    }
+
+    public int[] roadStarts() {
+        return roadStarts;
+    }
+
+    public int[] roadEnds() {
+        return roadEnds;
+    }
+
+    public double[] roadLengths() {
+        return roadLengths;
+    }
+
+    // 村庄ID到下标的开放寻址哈希表，避免装箱
+    private static final class IdIndex {
+        private final int[] keys;
+        private final int[] values;
+        private final boolean[] used;
+        private final int mask;
+
+        IdIndex(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+        void putIfAbsent(int key, int value) {
+            int slot = mix(key) & mask;
+            while (used[slot]) {
+                if (keys[slot] == key) {
+                    return; // 重复ID保留第一个
+                }
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        int get(int key) {
+            int slot = mix(key) & mask;
+            while (used[slot]) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
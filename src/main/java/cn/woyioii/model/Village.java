@@ -1,6 +1,10 @@
 package cn.woyioii.model;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.function.Supplier;
 
 @Data
 public class Village {
@@ -9,9 +13,14 @@ public class Village {
     private int locateX;
     private int locateY;
     private String description;
-    
+
+    // 延迟加载时用于读取描述的加载器，不参与序列化和比较
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Supplier<String> descriptionLoader;
+
     public Village() {}
-    
+
     public Village(int id, String name, int locateX, int locateY, String description) {
         this.id = id;
         this.name = name;
@@ -19,4 +28,47 @@ public class Village {
         this.locateY = locateY;
         this.description = description;
     }
+
+    // 描述可能尚未加载，首次访问时通过加载器读取
+    // 快照中的村庄会被界面线程和后台保存线程同时读取，加载过程需要同步
+    public synchronized String getDescription() {
+        if (description == null && descriptionLoader != null) {
+            String loaded = descriptionLoader.get();
+            // 加载失败时保留加载器，数据源恢复后仍可重新读取
+            if (loaded != null) {
+                description = loaded;
+                descriptionLoader = null;
+            }
+            return loaded;
+        }
+        return description;
+    }
+
+    public synchronized void setDescription(String description) {
+        this.description = description;
+        this.descriptionLoader = null;
+    }
+
+    // 尚未加载描述时返回加载器，已加载或没有延迟加载的描述时返回null
+    public synchronized Supplier<String> getDescriptionLoader() {
+        return description == null ? descriptionLoader : null;
+    }
+
+    public synchronized void setDescriptionLoader(Supplier<String> descriptionLoader) {
+        this.descriptionLoader = descriptionLoader;
+    }
+
+    /**
+     * 描述仍由指定加载器延迟加载时替换为新的加载器，用于数据源位置变化后重新定位描述
+     * @param expected 当前的加载器
+     * @param replacement 新的加载器
+     * @return 是否已替换
+     */
+    public synchronized boolean replaceDescriptionLoader(Supplier<String> expected, Supplier<String> replacement) {
+        if (description != null || descriptionLoader != expected) {
+            return false;
+        }
+        descriptionLoader = replacement;
+        return true;
+    }
 }
@@ -0,0 +1,133 @@
+package cn.woyioii.render;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 将{@link DrawSurface}命令绘制到Java2D图像，不依赖JavaFX，可以在任意线程使用
+ * <p>每个线程使用自己的图像和实例。创建时的变换作为基础变换，
+ * {@link #setTransform}设置的矩阵叠加在基础变换之上。</p>
+ */
+final class AwtSurface implements DrawSurface {
+    private final Graphics2D g;
+    private final AffineTransform base;
+    private final Map<Integer, Color> colors = new HashMap<>();
+    private final Map<Double, Font> fonts = new HashMap<>();
+
+    private Color fill = Color.BLACK;
+    private Color stroke = Color.BLACK;
+    private TextAnchor anchor = TextAnchor.BASELINE_LEFT;
+    private Path2D.Double path = new Path2D.Double();
+
+    AwtSurface(Graphics2D g) {
+        this.g = g;
+        this.base = g.getTransform();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        g.setStroke(new BasicStroke(1));
+    }
+
+    private Color color(int argb) {
+        return colors.computeIfAbsent(argb, value -> new Color(value, true));
+    }
+
+    @Override
+    public void setFill(int argb) {
+        fill = color(argb);
+    }
+
+    @Override
+    public void setStroke(int argb) {
+        stroke = color(argb);
+    }
+
+    @Override
+    public void setLineWidth(double width) {
+        g.setStroke(new BasicStroke((float) width));
+    }
+
+    @Override
+    public void setFontSize(double size) {
+        g.setFont(fonts.computeIfAbsent(size,
+                value -> new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(value.floatValue())));
+    }
+
+    @Override
+    public void setTextAnchor(TextAnchor anchor) {
+        this.anchor = anchor;
+    }
+
+    @Override
+    public void beginPath() {
+        path = new Path2D.Double();
+    }
+
+    @Override
+    public void moveTo(double x, double y) {
+        path.moveTo(x, y);
+    }
+
+    @Override
+    public void lineTo(double x, double y) {
+        path.lineTo(x, y);
+    }
+
+    @Override
+    public void addCircle(double x, double y, double radius) {
+        path.append(new Ellipse2D.Double(x - radius, y - radius, radius * 2, radius * 2), false);
+    }
+
+    @Override
+    public void fill() {
+        g.setColor(fill);
+        g.fill(path);
+    }
+
+    @Override
+    public void stroke() {
+        g.setColor(stroke);
+        g.draw(path);
+    }
+
+    @Override
+    public void fillRect(double x, double y, double width, double height) {
+        g.setColor(fill);
+        g.fill(new Rectangle2D.Double(x, y, width, height));
+    }
+
+    @Override
+    public void fillText(String text, double x, double y) {
+        if (text == null) {
+            return;
+        }
+        g.setColor(fill);
+        if (anchor == TextAnchor.CENTER) {
+            FontMetrics metrics = g.getFontMetrics();
+            x -= metrics.stringWidth(text) / 2.0;
+            y += (metrics.getAscent() - metrics.getDescent()) / 2.0;
+        }
+        g.drawString(text, (float) x, (float) y);
+    }
+
+    @Override
+    public void setTransform(double mxx, double myx, double mxy, double myy, double tx, double ty) {
+        g.setTransform(base);
+        g.transform(new AffineTransform(mxx, myx, mxy, myy, tx, ty));
+    }
+
+    @Override
+    public void resetTransform() {
+        g.setTransform(base);
+    }
+}
@@ -0,0 +1,232 @@
+package cn.woyioii.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 不可变的绘图命令列表
+ * <p>由{@link Recorder}在任意线程录制，录制完成后可以安全地交给其他线程回放到任意{@link DrawSurface}。
+ * 命令以操作码、数值参数和字符串参数三个数组紧凑保存，不为每条命令创建对象。</p>
+ */
+final class DrawList {
+    // 操作码
+    private static final byte SET_FILL = 0;
+    private static final byte SET_STROKE = 1;
+    private static final byte SET_LINE_WIDTH = 2;
+    private static final byte SET_FONT_SIZE = 3;
+    private static final byte SET_TEXT_ANCHOR = 4;
+    private static final byte BEGIN_PATH = 5;
+    private static final byte MOVE_TO = 6;
+    private static final byte LINE_TO = 7;
+    private static final byte ADD_CIRCLE = 8;
+    private static final byte FILL = 9;
+    private static final byte STROKE = 10;
+    private static final byte FILL_RECT = 11;
+    private static final byte FILL_TEXT = 12;
+    private static final byte SET_TRANSFORM = 13;
+    private static final byte RESET_TRANSFORM = 14;
+
+    private static final DrawSurface.TextAnchor[] ANCHORS = DrawSurface.TextAnchor.values();
+
+    private final byte[] ops;
+    private final double[] args;
+    private final String[] texts;
+
+    private DrawList(byte[] ops, double[] args, String[] texts) {
+        this.ops = ops;
+        this.args = args;
+        this.texts = texts;
+    }
+
+    // 命令数量
+    int size() {
+        return ops.length;
+    }
+
+    /**
+     * 按录制顺序将所有命令回放到目标画布
+     */
+    void replay(DrawSurface target) {
+        replay(target, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * 按录制顺序回放，跳过参考点纵坐标不在[minY, maxY]内的文字和矩形，其余命令全部回放
+     * 参考点为当前变换的平移量加上命令坐标，不考虑旋转，调用方需按图元的最大范围放宽区间
+     */
+    void replay(DrawSurface target, double minY, double maxY) {
+        int a = 0;
+        int t = 0;
+        double translateY = 0;
+        for (byte op : ops) {
+            switch (op) {
+                case SET_FILL -> target.setFill((int) args[a++]);
+                case SET_STROKE -> target.setStroke((int) args[a++]);
+                case SET_LINE_WIDTH -> target.setLineWidth(args[a++]);
+                case SET_FONT_SIZE -> target.setFontSize(args[a++]);
+                case SET_TEXT_ANCHOR -> target.setTextAnchor(ANCHORS[(int) args[a++]]);
+                case BEGIN_PATH -> target.beginPath();
+                case MOVE_TO -> target.moveTo(args[a++], args[a++]);
+                case LINE_TO -> target.lineTo(args[a++], args[a++]);
+                case ADD_CIRCLE -> target.addCircle(args[a++], args[a++], args[a++]);
+                case FILL -> target.fill();
+                case STROKE -> target.stroke();
+                case FILL_RECT -> {
+                    double y = translateY + args[a + 1];
+                    if (y >= minY && y <= maxY) {
+                        target.fillRect(args[a], args[a + 1], args[a + 2], args[a + 3]);
+                    }
+                    a += 4;
+                }
+                case FILL_TEXT -> {
+                    double y = translateY + args[a + 1];
+                    if (y >= minY && y <= maxY) {
+                        target.fillText(texts[t], args[a], args[a + 1]);
+                    }
+                    t++;
+                    a += 2;
+                }
+                case SET_TRANSFORM -> {
+                    translateY = args[a + 5];
+                    target.setTransform(args[a++], args[a++], args[a++], args[a++], args[a++], args[a++]);
+                }
+                case RESET_TRANSFORM -> {
+                    translateY = 0;
+                    target.resetTransform();
+                }
+                default -> throw new IllegalStateException("未知的绘图命令: " + op);
+            }
+        }
+    }
+
+    /**
+     * 录制绘图命令，不是线程安全的，同一时间只能由一个线程使用
+     */
+    static final class Recorder implements DrawSurface {
+        private byte[] ops = new byte[1024];
+        private int opCount;
+        private double[] args = new double[4096];
+        private int argCount;
+        private final List<String> texts = new ArrayList<>();
+
+        DrawList build() {
+            return new DrawList(Arrays.copyOf(ops, opCount), Arrays.copyOf(args, argCount),
+                    texts.toArray(String[]::new));
+        }
+
+        private void op(byte op) {
+            if (opCount == ops.length) {
+                ops = Arrays.copyOf(ops, opCount * 2);
+            }
+            ops[opCount++] = op;
+        }
+
+        private void arg(double value) {
+            if (argCount == args.length) {
+                args = Arrays.copyOf(args, argCount * 2);
+            }
+            args[argCount++] = value;
+        }
+
+        @Override
+        public void setFill(int argb) {
+            op(SET_FILL);
+            arg(argb);
+        }
+
+        @Override
+        public void setStroke(int argb) {
+            op(SET_STROKE);
+            arg(argb);
+        }
+
+        @Override
+        public void setLineWidth(double width) {
+            op(SET_LINE_WIDTH);
+            arg(width);
+        }
+
+        @Override
+        public void setFontSize(double size) {
+            op(SET_FONT_SIZE);
+            arg(size);
+        }
+
+        @Override
+        public void setTextAnchor(TextAnchor anchor) {
+            op(SET_TEXT_ANCHOR);
+            arg(anchor.ordinal());
+        }
+
+        @Override
+        public void beginPath() {
+            op(BEGIN_PATH);
+        }
+
+        @Override
+        public void moveTo(double x, double y) {
+            op(MOVE_TO);
+            arg(x);
+            arg(y);
+        }
+
+        @Override
+        public void lineTo(double x, double y) {
+            op(LINE_TO);
+            arg(x);
+            arg(y);
+        }
+
+        @Override
+        public void addCircle(double x, double y, double radius) {
+            op(ADD_CIRCLE);
+            arg(x);
+            arg(y);
+            arg(radius);
+        }
+
+        @Override
+        public void fill() {
+            op(FILL);
+        }
+
+        @Override
+        public void stroke() {
+            op(STROKE);
+        }
+
+        @Override
+        public void fillRect(double x, double y, double width, double height) {
+            op(FILL_RECT);
+            arg(x);
+            arg(y);
+            arg(width);
+            arg(height);
+        }
+
+        @Override
+        public void fillText(String text, double x, double y) {
+            op(FILL_TEXT);
+            texts.add(text);
+            arg(x);
+            arg(y);
+        }
+
+        @Override
+        public void setTransform(double mxx, double myx, double mxy, double myy, double tx, double ty) {
+            op(SET_TRANSFORM);
+            arg(mxx);
+            arg(myx);
+            arg(mxy);
+            arg(myy);
+            arg(tx);
+            arg(ty);
+        }
+
+        @Override
+        public void resetTransform() {
+            op(RESET_TRANSFORM);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package cn.woyioii.render;
+
+/**
+ * 与界面工具包无关的绘图接口
+ * <p>底图绘制逻辑只依赖该接口，既可以直接绘制到JavaFX画布，也可以录制为{@link DrawList}
+ * 在后台线程生成、在界面线程回放，或绘制到Java2D图像用于导出。</p>
+ * <p>颜色均为ARGB整数，字体只区分字号。</p>
+ */
+interface DrawSurface {
+
+    // 文字锚点
+    enum TextAnchor {
+        BASELINE_LEFT,  // 左对齐，坐标为基线起点
+        CENTER          // 水平、垂直居中
+    }
+
+    void setFill(int argb);
+
+    void setStroke(int argb);
+
+    void setLineWidth(double width);
+
+    void setFontSize(double size);
+
+    void setTextAnchor(TextAnchor anchor);
+
+    // 路径操作，同一路径中的图元使用相同样式一次描边或填充
+    void beginPath();
+
+    void moveTo(double x, double y);
+
+    void lineTo(double x, double y);
+
+    // 向当前路径添加一个闭合的圆
+    void addCircle(double x, double y, double radius);
+
+    void fill();
+
+    void stroke();
+
+    void fillRect(double x, double y, double width, double height);
+
+    void fillText(String text, double x, double y);
+
+    /**
+     * 设置绝对变换矩阵，参数含义与JavaFX的GraphicsContext.setTransform一致
+     */
+    void setTransform(double mxx, double myx, double mxy, double myy, double tx, double ty);
+
+    void resetTransform();
+}
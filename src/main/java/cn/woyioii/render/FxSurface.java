@@ -0,0 +1,118 @@
+package cn.woyioii.render;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 将{@link DrawSurface}命令转发到JavaFX画布，只能在JavaFX应用线程使用
+ * <p>颜色和字体对象按值缓存，回放大量命令时不重复创建。</p>
+ */
+final class FxSurface implements DrawSurface {
+    private final GraphicsContext gc;
+    private final Map<Integer, Color> colors = new HashMap<>();
+    private final Map<Double, Font> fonts = new HashMap<>();
+
+    FxSurface(GraphicsContext gc) {
+        this.gc = gc;
+    }
+
+    private Color color(int argb) {
+        return colors.computeIfAbsent(argb, FxSurface::toColor);
+    }
+
+    static Color toColor(int argb) {
+        return Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, ((argb >>> 24) & 0xFF) / 255.0);
+    }
+
+    @Override
+    public void setFill(int argb) {
+        gc.setFill(color(argb));
+    }
+
+    @Override
+    public void setStroke(int argb) {
+        gc.setStroke(color(argb));
+    }
+
+    @Override
+    public void setLineWidth(double width) {
+        gc.setLineWidth(width);
+    }
+
+    @Override
+    public void setFontSize(double size) {
+        gc.setFont(fonts.computeIfAbsent(size, Font::font));
+    }
+
+    @Override
+    public void setTextAnchor(TextAnchor anchor) {
+        switch (anchor) {
+            case BASELINE_LEFT -> {
+                gc.setTextAlign(TextAlignment.LEFT);
+                gc.setTextBaseline(VPos.BASELINE);
+            }
+            case CENTER -> {
+                gc.setTextAlign(TextAlignment.CENTER);
+                gc.setTextBaseline(VPos.CENTER);
+            }
+        }
+    }
+
+    @Override
+    public void beginPath() {
+        gc.beginPath();
+    }
+
+    @Override
+    public void moveTo(double x, double y) {
+        gc.moveTo(x, y);
+    }
+
+    @Override
+    public void lineTo(double x, double y) {
+        gc.lineTo(x, y);
+    }
+
+    @Override
+    public void addCircle(double x, double y, double radius) {
+        gc.moveTo(x + radius, y);
+        gc.arc(x, y, radius, radius, 0, 360);
+        gc.closePath();
+    }
+
+    @Override
+    public void fill() {
+        gc.fill();
+    }
+
+    @Override
+    public void stroke() {
+        gc.stroke();
+    }
+
+    @Override
+    public void fillRect(double x, double y, double width, double height) {
+        gc.fillRect(x, y, width, height);
+    }
+
+    @Override
+    public void fillText(String text, double x, double y) {
+        gc.fillText(text, x, y);
+    }
+
+    @Override
+    public void setTransform(double mxx, double myx, double mxy, double myy, double tx, double ty) {
+        gc.setTransform(mxx, myx, mxy, myy, tx, ty);
+    }
+
+    @Override
+    public void resetTransform() {
+        gc.setTransform(1, 0, 0, 1, 0, 0);
+    }
+}
@@ -0,0 +1,108 @@
+package cn.woyioii.render;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 标签避让布局
+ * <p>按调用顺序贪心放置标签：与已放置标签的包围盒相交或超出画布的标签被丢弃。
+ * 已放置的包围盒登记在屏幕空间的网格中，每次检测只比较附近格子里的标签。</p>
+ * <p>放置数量达到上限后不再接受新标签，保证标签绘制的耗时不随数据量增长。</p>
+ */
+final class LabelPlacer {
+    private static final double CELL_SIZE = 64;
+
+    private final double width;
+    private final double height;
+    private final int cols;
+    private final int rows;
+    private final List<double[]>[] cells;
+    private final int maxLabels;
+    private int placed;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    LabelPlacer(double width, double height, int maxLabels) {
+        this.width = width;
+        this.height = height;
+        this.cols = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        this.rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+        this.cells = new List[cols * rows];
+        this.maxLabels = maxLabels;
+    }
+
+    boolean isFull() {
+        return placed >= maxLabels;
+    }
+
+    /**
+     * 尝试放置一个标签
+     * @return 未与已有标签重叠且位于画布内时返回true，并登记该标签
+     */
+    boolean tryPlace(double minX, double minY, double maxX, double maxY) {
+        if (isFull() || maxX < 0 || maxY < 0 || minX > width || minY > height) {
+            return false;
+        }
+        int cx0 = cell(minX, cols);
+        int cx1 = cell(maxX, cols);
+        int cy0 = cell(minY, rows);
+        int cy1 = cell(maxY, rows);
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                List<double[]> boxes = cells[cy * cols + cx];
+                if (boxes == null) {
+                    continue;
+                }
+                for (double[] box : boxes) {
+                    if (box[2] >= minX && box[0] <= maxX && box[3] >= minY && box[1] <= maxY) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        register(minX, minY, maxX, maxY);
+        placed++;
+        return true;
+    }
+
+    private void register(double minX, double minY, double maxX, double maxY) {
+        double[] box = {minX, minY, maxX, maxY};
+        for (int cy = cell(minY, rows); cy <= cell(maxY, rows); cy++) {
+            for (int cx = cell(minX, cols); cx <= cell(maxX, cols); cx++) {
+                int index = cy * cols + cx;
+                if (cells[index] == null) {
+                    cells[index] = new ArrayList<>(4);
+                }
+                cells[index].add(box);
+            }
+        }
+    }
+
+    /**
+     * 登记一个不可被标签覆盖的区域（如村庄节点），不计入标签数量
+     */
+    void block(double minX, double minY, double maxX, double maxY) {
+        if (maxX < 0 || maxY < 0 || minX > width || minY > height) {
+            return;
+        }
+        register(minX, minY, maxX, maxY);
+    }
+
+    private static int cell(double value, int count) {
+        return Math.max(0, Math.min(count - 1, (int) (value / CELL_SIZE)));
+    }
+
+    /**
+     * 估算文字宽度，中日韩字符按一个字号宽，其余字符按0.6个字号宽
+     */
+    static double estimateTextWidth(String text, double fontSize) {
+        if (text == null) {
+            return 0;
+        }
+        double width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += text.charAt(i) >= 0x2E80 ? fontSize : fontSize * 0.6;
+        }
+        return width;
+    }
+}
@@ -0,0 +1,150 @@
+package cn.woyioii.render;
+
+import cn.woyioii.model.MapGraph;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <h1>地图导出</h1>
+ * <p>不依赖JavaFX，将村庄和道路绘制为任意尺寸的PNG图像，绘制逻辑与界面中的{@link MapScene}相同。</p>
+ *
+ * <h2>流程</h2>
+ * <ol>
+ *   <li>缩放数据范围以适应图像，按整幅图像完成细节层次选择和标签布局，录制标签绘图命令</li>
+ *   <li>图像按水平条带划分，多个线程并行绘制条带的几何图层，再回放落在条带内的标签</li>
+ *   <li>条带按从上到下的顺序交给{@link PngWriter}压缩写出，写出后即释放</li>
+ * </ol>
+ * <p>同时存在的条带数不超过线程数加一，内存占用与图像高度无关。</p>
+ *
+ * @author woyioii
+ * @since 1.0
+ */
+@Slf4j
+public final class MapExporter {
+    // 图像四周保留的像素
+    private static final double FIT_PADDING = 40;
+    // 每个条带的像素数上限，决定条带高度
+    private static final long STRIP_PIXELS = 4L * 1024 * 1024;
+    // 标签超出其参考点的最大像素数，回放标签时按此放宽条带范围
+    private static final double LABEL_REACH = 512;
+
+    private MapExporter() {
+        // 工具类，禁止实例化
+    }
+
+    /**
+     * 将地图导出为PNG图像
+     * @param width 图像宽度（像素）
+     * @param height 图像高度（像素），不大于0时按数据范围的宽高比计算
+     * @param threads 绘制线程数
+     */
+    public static void exportPng(MapGraph graph, int width, int height, Path output, int threads) throws IOException {
+        if (width <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("导出参数无效: 宽度=" + width + ", 线程数=" + threads);
+        }
+        MapScene scene = new MapScene(graph, null);
+        SpatialIndex index = scene.getIndex();
+        if (height <= 0) {
+            height = autoHeight(index, width);
+        }
+
+        Viewport view = new Viewport();
+        if (!index.isEmpty()) {
+            view.fit(index.getMinX(), index.getMinY(), index.getMaxX(), index.getMaxY(), width, height, FIT_PADDING);
+        }
+        boolean clustered = scene.isClustered(view, width, height);
+        DrawList labels = scene.recordLabels(view, width, height, clustered, null);
+
+        int stripHeight = (int) Math.max(1, Math.min(height, STRIP_PIXELS / width));
+        int strips = (height + stripHeight - 1) / stripHeight;
+        log.info("导出地图: {}x{}像素, {}个条带, {}个线程", width, height, strips, threads);
+
+        long start = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "map-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output));
+             PngWriter png = new PngWriter(out, width, height)) {
+            Deque<Future<int[]>> window = new ArrayDeque<>();
+            int submitted = 0;
+            for (int written = 0; written < strips; written++) {
+                // 保持最多threads + 1个条带在绘制或等待写出
+                while (submitted < strips && window.size() <= threads) {
+                    int top = submitted * stripHeight;
+                    int rows = Math.min(stripHeight, height - top);
+                    window.add(pool.submit(() -> renderStrip(scene, view, labels, clustered, width, top, rows)));
+                    submitted++;
+                }
+                png.writeRows(await(window.poll()), Math.min(stripHeight, height - written * stripHeight));
+                if ((written + 1) % Math.max(1, strips / 10) == 0) {
+                    log.info("导出进度: {}/{}", written + 1, strips);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(output);
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+        log.info("地图已导出到 {}，耗时{}ms", output, System.currentTimeMillis() - start);
+    }
+
+    // 按数据范围的宽高比计算图像高度
+    private static int autoHeight(SpatialIndex index, int width) {
+        if (index.isEmpty()) {
+            return width;
+        }
+        double dataWidth = Math.max(index.getMaxX() - index.getMinX(), 1);
+        double dataHeight = Math.max(index.getMaxY() - index.getMinY(), 1);
+        double available = Math.max(width - FIT_PADDING * 2, 1);
+        return (int) Math.ceil(available * dataHeight / dataWidth + FIT_PADDING * 2);
+    }
+
+    /**
+     * 绘制一个条带
+     * @return 条带的RGB像素，按行排列
+     */
+    private static int[] renderStrip(MapScene scene, Viewport view, DrawList labels, boolean clustered,
+                                     int width, int top, int rows) {
+        BufferedImage image = new BufferedImage(width, rows, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            Viewport stripView = new Viewport(view.getScale(),
+                    view.getOffsetX(), view.getOffsetY() + top / view.getScale());
+            scene.draw(new AwtSurface(g), stripView, width, rows, MapScene.Layer.GEOMETRY, clustered);
+            // 标签按整幅图像布局，平移后只回放条带附近的部分，超出条带的部分被裁剪
+            g.translate(0, -top);
+            labels.replay(new AwtSurface(g), top - LABEL_REACH, top + rows + LABEL_REACH);
+        } finally {
+            g.dispose();
+        }
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private static int[] await(Future<int[]> strip) {
+        try {
+            return strip.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("导出地图被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("绘制地图条带失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
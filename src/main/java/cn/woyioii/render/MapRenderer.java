@@ -1,15 +1,29 @@
 package cn.woyioii.render;
 
+import cn.woyioii.model.MapGraph;
 import cn.woyioii.model.Road;
 import cn.woyioii.model.Village;
-import cn.woyioii.service.VillageService;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.geometry.VPos;
+import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import lombok.Getter;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <h1>地图渲染器</h1>
@@ -31,21 +45,117 @@ import java.util.*;
  *   <li>提供网格坐标系统</li>
  *   <li>支持道路和村庄的悬停效果</li>
  * </ol>
+ *
+ * <h2>分层绘制</h2>
+ * <ul>
+ *   <li>几何图层：网格线和普通状态的道路、村庄，在离散的缩放级别上按256像素的瓦片绘制，由{@link TileCache}按内存上限缓存</li>
+ *   <li>标签图层：网格刻度、村庄名称和道路标签，按整个画布布局，缓存为透明图像</li>
+ *   <li>覆盖层：选中、建议道路和路径高亮，每帧在底图之上重新绘制</li>
+ * </ul>
+ *
+ * <h2>路线回放</h2>
+ * <ul>
+ *   <li>按道路显示的路径可以回放动画，标记以给定速度沿路径从起点移动到终点</li>
+ *   <li>标记位置按经过的时间计算，在预先计算的累计长度中二分查找所在路段，与帧率无关</li>
+ *   <li>回放期间路径缓存为透明图像，视口变化时才重新绘制，每帧只合成图像并绘制标记</li>
+ * </ul>
+ *
+ * <h2>视口</h2>
+ * <ul>
+ *   <li>村庄坐标经{@link Viewport}变换为画布坐标，支持平移、缩放和适应数据范围</li>
+ *   <li>底图只绘制与可见范围相交的道路和村庄，由{@link SpatialIndex}查询</li>
+ *   <li>线宽、节点半径和字号保持像素大小，不随缩放变化</li>
+ * </ul>
+ *
+ * <h2>细节层次</h2>
+ * <ul>
+ *   <li>村庄名称和道路标签按优先级贪心放置，与已放置标签重叠的不绘制，每帧标签数量有上限</li>
+ *   <li>可见村庄过多时按屏幕网格聚合，聚合点显示村庄数量，聚合内部的道路不绘制</li>
+ *   <li>可见道路过多时，端点落在相同像素格子的道路只绘制一条</li>
+ * </ul>
+ *
+ * <h2>调度</h2>
+ * <ul>
+ *   <li>公开方法只记录需要重绘的内容，由{@link AnimationTimer}在每个脉冲最多合成一帧，连续的修改合并为一次重绘</li>
+ *   <li>数据快照在界面线程生成，空间索引、裁剪、标签布局和颜色选择在后台线程完成并录制为{@link DrawList}，界面线程只回放</li>
+ *   <li>瓦片由多个后台线程并行绘制；数据变化时只有与变化范围相交的瓦片失效</li>
+ *   <li>新的标签图层和瓦片生成前，旧图像按当前视口缩放平移显示</li>
+ * </ul>
+ *
+ * <h2>统计</h2>
+ * <ul>
+ *   <li>各图层的绘制耗时、绘制和裁剪的图元数量累计在{@link RenderStats}中，可通过{@link #getStats()}读取</li>
+ *   <li>可以在画布左下角显示统计面板，每秒刷新一次最近一秒的帧率、每帧耗时和图元数量</li>
+ * </ul>
  * 
  * @author woyioii
  * @since 1.0
  */
 
+@Slf4j
 public class MapRenderer {
     // Canvas相关字段
     private final Canvas canvas;
     private final GraphicsContext gc;
+    private final FxSurface surface;
+
+    // 几何图层瓦片
+    private final TileCache tileCache = new TileCache(TILE_CACHE_BYTES);
+    private final Set<TileCache.Key> pendingTiles = new HashSet<>();  // 正在后台绘制的瓦片
+
+    // 标签图层
+    private final Canvas labelCanvas = new Canvas();  // 离屏画布，不加入场景
+    private WritableImage labelLayer;                 // 标签图层缓存，透明背景
+    private Viewport labelView;                       // 绘制标签图层时使用的视口
+    private boolean clustered;                        // 当前画面是否聚合显示，由最近一次标签布局决定
+
+    // 视口与场景
+    @Getter private final Viewport viewport = new Viewport();
+    private MapScene scene = MapScene.EMPTY;
+
+    // 调度状态，只在界面线程访问
+    private boolean dataDirty;            // 数据已变化，需要重建场景
+    private boolean sceneBuilding;        // 是否有场景正在后台建立
+    private boolean labelsDirty = true;   // 标签图层需要重新布局
+    private boolean labelsBuilding;       // 是否有标签图层正在后台绘制
+    private boolean frameDirty = true;    // 需要重新合成一帧
+
+    // 后台线程：场景和标签图层在同一线程依次处理，瓦片并行绘制
+    private static final ExecutorService RENDER_EXECUTOR = Executors.newSingleThreadExecutor(daemon("map-render"));
+    private static final int TILE_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final ExecutorService TILE_EXECUTOR = Executors.newFixedThreadPool(TILE_THREADS, daemon("map-tile"));
+
+    // 同时在后台绘制的瓦片数上限，快速拖动时不为已经移出画布的瓦片排队
+    private static final int MAX_PENDING_TILES = TILE_THREADS * 2;
+    // 瓦片缓存占用的内存上限
+    private static final long TILE_CACHE_BYTES = 96L * 1024 * 1024;
+    // 瓦片失效时图元超出其坐标的像素数：聚合网格加聚合点半径
+    private static final double TILE_MARGIN = 48;
 
     // 状态相关字段
     @Setter private Village selectedVillage;    // 当前选中的村庄
     @Setter private Road selectedRoad;          // 当前选中的道路
     private List<Road> highlightedPath = new ArrayList<>();  // 高亮显示的路径
 
+    // 路径覆盖层
+    private PathOverlay pathOverlay = PathOverlay.EMPTY;
+
+    // 渲染统计
+    @Getter private final RenderStats stats = new RenderStats();
+    @Getter private boolean statsVisible;             // 是否在画布上显示统计面板
+    private RenderStats.Snapshot statsWindowStart;    // 当前统计窗口开始时的快照
+    private List<String> statsLines = List.of();      // 上一个统计窗口的面板文字
+
+    // 路线回放
+    private boolean playing;                          // 是否正在回放
+    private double playbackSpeed;                     // 每秒前进的世界坐标长度
+    private double playbackDistance;                  // 标记沿路径已前进的世界坐标长度
+    private long lastPulse;                           // 上一个脉冲的时间（纳秒），0表示尚未开始计时
+    @Setter private Runnable onPlaybackStopped;       // 回放结束或被停止时调用
+    private final Canvas pathCanvas = new Canvas();   // 离屏画布，不加入场景
+    private WritableImage pathLayer;                  // 回放期间的路径图层缓存，透明背景
+    private Viewport pathView;                        // 绘制路径图层时使用的视口
+
     // 颜色配置
     private final Color villageColor = Color.BLUE;           // 普通村庄颜色
     private final Color selectedVillageColor = Color.RED;    // 选中村庄颜色
@@ -53,98 +163,364 @@ public class MapRenderer {
     private final Color pathColor = Color.GREEN;             // 路径高亮颜色
     private final Color hoveredRoadColor = Color.ORANGE;     // 悬停道路颜色
 
+    // 适应数据范围时四周保留的像素
+    private static final double FIT_PADDING = 40;
+    // 每公里对应的世界坐标长度，与道路长度的计算一致
+    private static final double WORLD_UNITS_PER_KM = 10;
+    // 统计面板的刷新间隔（纳秒）
+    private static final long STATS_WINDOW = 1_000_000_000L;
+    private static final Font STATS_FONT = Font.font("Monospaced", 12);
+    private static final Color STATS_BACKGROUND = Color.rgb(0, 0, 0, 0.65);
+
+    // 缓存的字体和颜色，避免每次绘制都创建对象
+    private static final Font ROAD_FONT = Font.font(MapScene.ROAD_FONT_SIZE);
+    private static final Font HIGHLIGHTED_ROAD_FONT = Font.font(13);
+    private static final Font MARK_FONT = Font.font(14);
+    private static final Font VILLAGE_FONT = Font.font(MapScene.VILLAGE_FONT_SIZE);
+    private static final Font SELECTED_VILLAGE_FONT = Font.font(18);
+    private static final Color LABEL_BACKGROUND = FxSurface.toColor(MapScene.LABEL_BACKGROUND);
+
     // 缓存数据
-    private List<Village> lastVillages = new ArrayList<>();
-    private List<Road> lastRoads = new ArrayList<>();
-    private VillageService lastVillageService;
+    // 服务层按数据版本构建的图，绘制覆盖层时按ID查找端点
+    private MapGraph lastGraph = MapGraph.EMPTY;
 
     public MapRenderer(Canvas canvas) {
         this.canvas = canvas;
         this.gc = canvas.getGraphicsContext2D();
-          }
+        this.surface = new FxSurface(gc);
+        canvas.widthProperty().addListener((obs, oldValue, newValue) -> invalidateView());
+        canvas.heightProperty().addListener((obs, oldValue, newValue) -> invalidateView());
 
-    public void clear() {
-        gc.setFill(Color.WHITE);
-        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pulse(now);
+            }
+        }.start();
     }
 
-    public void drawVillages(List<Village> villages) {
-        villages.forEach(village -> {
-            // 判断是否为选中的村庄，使用不同颜色绘制
-            if (village.equals(selectedVillage)) {
-                gc.setFill(selectedVillageColor);
-            } else {
-                gc.setFill(villageColor);
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 每个脉冲执行一次：按需启动后台任务，有变化时合成一帧
+     */
+    private void pulse(long now) {
+        int width = (int) Math.ceil(canvas.getWidth());
+        int height = (int) Math.ceil(canvas.getHeight());
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (dataDirty && !sceneBuilding) {
+            startSceneBuild();
+        }
+        if (labelsDirty && !labelsBuilding && !sceneBuilding) {
+            startLabelBuild(width, height);
+        }
+        requestTiles(width, height);
+        if (playing) {
+            advancePlayback(now);
+        }
+        if (statsVisible) {
+            updateStatsWindow();
+        }
+        if (frameDirty) {
+            frameDirty = false;
+            long start = System.nanoTime();
+            compose(width, height);
+            stats.addFrame(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 在后台线程由服务层的图建立场景并与上一场景比较几何变化
+     */
+    private void startSceneBuild() {
+        MapGraph graph = lastGraph;
+        MapScene previous = scene;
+        dataDirty = false;
+        sceneBuilding = true;
+        CompletableFuture
+                .supplyAsync(() -> {
+                    MapScene next = new MapScene(graph, previous);
+                    return new SceneUpdate(next, next.changedBounds(previous));
+                }, RENDER_EXECUTOR)
+                .whenComplete((update, error) -> Platform.runLater(() -> finishSceneBuild(update, error)));
+    }
+
+    // 切换到新场景，只移除几何发生变化的瓦片
+    private void finishSceneBuild(SceneUpdate update, Throwable error) {
+        sceneBuilding = false;
+        if (error != null) {
+            log.error("建立地图场景失败", error);
+            return;
+        }
+        scene = update.scene();
+        tileCache.invalidate(update.changed(), TILE_MARGIN);
+        labelsDirty = true;
+        frameDirty = true;
+    }
+
+    // 后台建立的场景和几何变化范围
+    private record SceneUpdate(MapScene scene, List<double[]> changed) {
+    }
+
+    /**
+     * 在后台线程完成标签裁剪、避让布局和细节层次选择，录制为绘图命令
+     */
+    private void startLabelBuild(int width, int height) {
+        MapScene source = scene;
+        Viewport view = viewport.copy();
+        labelsDirty = false;
+        labelsBuilding = true;
+        CompletableFuture
+                .supplyAsync(() -> {
+                    boolean clusteredView = source.isClustered(view, width, height);
+                    return new LabelFrame(view, width, height, clusteredView,
+                            source.recordLabels(view, width, height, clusteredView, stats));
+                }, RENDER_EXECUTOR)
+                .whenComplete((frame, error) -> Platform.runLater(() -> finishLabelBuild(frame, error)));
+    }
+
+    // 在界面线程回放标签绘图命令并缓存为透明图像
+    private void finishLabelBuild(LabelFrame frame, Throwable error) {
+        labelsBuilding = false;
+        if (error != null) {
+            log.error("绘制地图标签失败", error);
+            return;
+        }
+        long start = System.nanoTime();
+        labelCanvas.setWidth(frame.width());
+        labelCanvas.setHeight(frame.height());
+        GraphicsContext labels = labelCanvas.getGraphicsContext2D();
+        labels.clearRect(0, 0, frame.width(), frame.height());
+        frame.commands().replay(new FxSurface(labels));
+        if (labelLayer == null || (int) labelLayer.getWidth() != frame.width()
+                || (int) labelLayer.getHeight() != frame.height()) {
+            labelLayer = new WritableImage(frame.width(), frame.height());
+        }
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        labelCanvas.snapshot(params, labelLayer);
+        stats.addTime(RenderStats.Layer.LABELS, System.nanoTime() - start);
+        labelView = frame.view();
+        clustered = frame.clustered();
+        frameDirty = true;
+    }
+
+    // 后台绘制的标签图层
+    private record LabelFrame(Viewport view, int width, int height, boolean clustered, DrawList commands) {
+    }
+
+    /**
+     * 为画布范围内缺少的瓦片安排后台绘制，离画布中心近的优先
+     */
+    private void requestTiles(int width, int height) {
+        int level = TileCache.Key.levelOf(viewport.getScale());
+        List<TileCache.Key> missing = new ArrayList<>();
+        forEachVisibleTile(level, width, height, (x, y) -> {
+            TileCache.Key key = new TileCache.Key(level, x, y, clustered);
+            if (!tileCache.contains(key) && !pendingTiles.contains(key)) {
+                missing.add(key);
             }
-            drawVillage(village);
         });
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        double size = TileCache.Key.worldSize(level);
+        double centerX = viewport.toWorldX(width / 2.0) / size - 0.5;
+        double centerY = viewport.toWorldY(height / 2.0) / size - 0.5;
+        missing.sort(Comparator.comparingDouble(key -> Math.hypot(key.x() - centerX, key.y() - centerY)));
+        for (TileCache.Key key : missing) {
+            if (pendingTiles.size() >= MAX_PENDING_TILES) {
+                break;
+            }
+            pendingTiles.add(key);
+            MapScene source = scene;
+            CompletableFuture
+                    .supplyAsync(() -> TileCache.rasterize(source, key, stats), TILE_EXECUTOR)
+                    .whenComplete((pixels, error) -> Platform.runLater(() -> finishTile(source, key, pixels, error)));
+        }
     }
 
-    public void drawRoads(List<Road> roads) {
-        roads.forEach(road -> {
-            // 判断是否为高亮路径的一部分
-            boolean isHighlighted = highlightedPath.contains(road);
-            drawRoad(road, isHighlighted);
-        });
+    // 缓存绘制完成的瓦片，场景已更换时丢弃，由下一个脉冲重新安排
+    private void finishTile(MapScene source, TileCache.Key key, int[] pixels, Throwable error) {
+        pendingTiles.remove(key);
+        if (error != null) {
+            log.error("绘制地图瓦片失败: {}", key, error);
+            return;
+        }
+        if (source != scene) {
+            return;
+        }
+        tileCache.put(key, TileCache.toImage(pixels));
+        stats.add(RenderStats.Counter.TILES_RENDERED, 1);
+        frameDirty = true;
+    }
+
+    // 遍历给定级别下与画布相交的瓦片行列号
+    private void forEachVisibleTile(int level, double width, double height, TileVisitor visitor) {
+        double size = TileCache.Key.worldSize(level);
+        int firstX = (int) Math.floor(viewport.toWorldX(0) / size);
+        int lastX = (int) Math.floor(viewport.toWorldX(width) / size);
+        int firstY = (int) Math.floor(viewport.toWorldY(0) / size);
+        int lastY = (int) Math.floor(viewport.toWorldY(height) / size);
+        for (int y = firstY; y <= lastY; y++) {
+            for (int x = firstX; x <= lastX; x++) {
+                visitor.visit(x, y);
+            }
+        }
+    }
+
+    private interface TileVisitor {
+        void visit(int x, int y);
     }
 
     /**
-     * 绘制网格系统
-     * 每10像素代表1公里，每100像素显示刻度
+     * 合成一帧：瓦片、按当前视口缩放平移的标签图层，再绘制覆盖层
+     * 当前级别的瓦片未就绪时，先用相邻级别已缓存的瓦片填充，缩放时不出现空白
      */
-    public void drawGrid() {
-        double width = canvas.getWidth();
-        double height = canvas.getHeight();
-
-        // 设置网格样式
-        gc.setStroke(Color.LIGHTGRAY);
-        gc.setLineWidth(0.5);
-
-        // 绘制垂直线（每10像素一条，代表1km）
-        for (int i = 0; i <= width; i += 10) {
-            if (i % 100 == 0) {
-                gc.setLineWidth(1.0);
-                gc.setStroke(Color.GRAY);
-            } else {
-                gc.setLineWidth(0.5);
-                gc.setStroke(Color.LIGHTGRAY);
-            }
-            gc.strokeLine(i, 0, i, height);
+    private void compose(double width, double height) {
+        gc.setFill(Color.WHITE);
+        gc.fillRect(0, 0, width, height);
+        int level = TileCache.Key.levelOf(viewport.getScale());
+        for (int fallback : new int[]{level - 2, level - 1, level + 1, level}) {
+            drawTiles(fallback, width, height);
+        }
+        if (labelLayer != null) {
+            double ratio = viewport.getScale() / labelView.getScale();
+            gc.drawImage(labelLayer,
+                    (labelView.getOffsetX() - viewport.getOffsetX()) * viewport.getScale(),
+                    (labelView.getOffsetY() - viewport.getOffsetY()) * viewport.getScale(),
+                    labelLayer.getWidth() * ratio, labelLayer.getHeight() * ratio);
         }
+        long start = System.nanoTime();
+        drawOverlay();
+        stats.addTime(RenderStats.Layer.OVERLAY, System.nanoTime() - start);
+        if (statsVisible) {
+            drawStatsPanel(height);
+        }
+    }
 
-        // 绘制水平线
-        for (int i = 0; i <= height; i += 10) {
-            if (i % 100 == 0) {
-                gc.setLineWidth(1.0);
-                gc.setStroke(Color.GRAY);
-            } else {
-                gc.setLineWidth(0.5);
-                gc.setStroke(Color.LIGHTGRAY);
+    // 绘制给定级别已缓存的瓦片，边界取整到像素避免拼接缝隙
+    private void drawTiles(int level, double width, double height) {
+        double size = TileCache.Key.worldSize(level);
+        forEachVisibleTile(level, width, height, (x, y) -> {
+            WritableImage tile = tileCache.get(new TileCache.Key(level, x, y, clustered));
+            if (tile != null) {
+                double left = Math.round(viewport.toScreenX(x * size));
+                double top = Math.round(viewport.toScreenY(y * size));
+                double right = Math.round(viewport.toScreenX((x + 1) * size));
+                double bottom = Math.round(viewport.toScreenY((y + 1) * size));
+                gc.drawImage(tile, left, top, right - left, bottom - top);
             }
-            gc.strokeLine(0, i, width, i);
+        });
+    }
+
+    // 视口或画布尺寸变化：标签重新布局，瓦片在合成时按需请求
+    private void invalidateView() {
+        labelsDirty = true;
+        frameDirty = true;
+    }
+
+    // 只需重新合成覆盖层
+    private void requestFrame() {
+        frameDirty = true;
+    }
+
+    /**
+     * 显示或隐藏画布上的统计面板
+     */
+    public void setStatsVisible(boolean visible) {
+        this.statsVisible = visible;
+        this.statsWindowStart = null;
+        this.statsLines = List.of("统计中...");
+        requestFrame();
+    }
+
+    // 每个统计窗口结束时根据两次快照的差生成面板文字，并合成一帧显示
+    private void updateStatsWindow() {
+        RenderStats.Snapshot now = stats.snapshot();
+        if (statsWindowStart == null) {
+            statsWindowStart = now;
+            return;
         }
+        RenderStats.Snapshot window = now.minus(statsWindowStart);
+        if (window.time() < STATS_WINDOW) {
+            return;
+        }
+        statsWindowStart = now;
+
+        double seconds = window.time() / 1e9;
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("帧率 %.0f fps  合成 %.2f ms/帧", window.frames() / seconds, window.averageFrameMillis()));
+        StringBuilder layers = new StringBuilder();
+        for (RenderStats.Layer layer : RenderStats.Layer.values()) {
+            layers.append(String.format("%s %.1f ", layer.getDisplayName(), window.millis(layer)));
+        }
+        lines.add(layers.append("ms").toString());
+        lines.add(String.format("道路 绘制 %d  合并 %d  裁剪 %d",
+                window.count(RenderStats.Counter.ROADS_DRAWN), window.count(RenderStats.Counter.ROADS_MERGED),
+                window.count(RenderStats.Counter.ROADS_CULLED)));
+        lines.add(String.format("村庄 绘制 %d  聚合点 %d  裁剪 %d",
+                window.count(RenderStats.Counter.VILLAGES_DRAWN), window.count(RenderStats.Counter.CLUSTERS_DRAWN),
+                window.count(RenderStats.Counter.VILLAGES_CULLED)));
+        lines.add(String.format("标签 绘制 %d  未放置 %d",
+                window.count(RenderStats.Counter.LABELS_DRAWN), window.count(RenderStats.Counter.LABELS_SKIPPED)));
+        lines.add(String.format("瓦片 绘制 %d  缓存 %d (%d MB)", window.count(RenderStats.Counter.TILES_RENDERED),
+                tileCache.size(), tileCache.getBytes() / (1024 * 1024)));
+        statsLines = lines;
+        requestFrame();
+    }
 
-        // 标记主要网格线刻度（每100像素，代表10km）
-        gc.setFill(Color.GRAY);
-        gc.setFont(javafx.scene.text.Font.font(10));
-        for (int i = 0; i <= width; i += 100) {
-            gc.fillText(String.valueOf(i/10), i+2, 12);
+    // 在画布左下角绘制统计面板
+    private void drawStatsPanel(double height) {
+        double lineHeight = 16;
+        double panelHeight = statsLines.size() * lineHeight + 8;
+        double panelWidth = 0;
+        for (String line : statsLines) {
+            panelWidth = Math.max(panelWidth, LabelPlacer.estimateTextWidth(line, 12));
         }
-        for (int i = 0; i <= height; i += 100) {
-            gc.fillText(String.valueOf(i/10), 2, i+12);
+        gc.setFill(STATS_BACKGROUND);
+        gc.fillRect(4, height - panelHeight - 4, panelWidth + 12, panelHeight);
+        gc.setFill(Color.WHITE);
+        gc.setFont(STATS_FONT);
+        for (int i = 0; i < statsLines.size(); i++) {
+            gc.fillText(statsLines.get(i), 10, height - panelHeight + 10 + i * lineHeight);
         }
     }
 
+    private double screenX(Village village) {
+        return viewport.toScreenX(village.getLocateX());
+    }
+
+    private double screenY(Village village) {
+        return viewport.toScreenY(village.getLocateY());
+    }
+
     /**
      * 绘制单个村庄
      * 包含选中效果、发光效果和文字标注
      */
-    private void drawVillage(Village village) {
-        double x = village.getLocateX();
-        double y = village.getLocateY();
+    private void drawVillage(GraphicsContext gc, Village village, boolean selected) {
+        drawVillageNode(gc, village, selected);
+        drawVillageName(gc, village, selected);
+    }
+
+    // 绘制村庄节点
+    private void drawVillageNode(GraphicsContext gc, Village village, boolean selected) {
+        double x = screenX(village);
+        double y = screenY(village);
         double radius = 5; // 默认半径
 
-        if (village.equals(selectedVillage)) {
+        if (selected) {
             // 选中村庄特效
             radius = 8;  // 放大效果
             
@@ -167,7 +543,7 @@ public class MapRenderer {
         gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
 
         // 绘制边框
-        if (village.equals(selectedVillage)) {
+        if (selected) {
             // 选中状态边框效果
             gc.setStroke(Color.rgb(200, 0, 0));
             gc.setLineWidth(2);
@@ -178,15 +554,24 @@ public class MapRenderer {
             gc.setLineWidth(1);
             gc.strokeOval(x - radius - 6, y - radius - 6, (radius + 6) * 2, (radius + 6) * 2);
         }
+    }
 
-        // 绘制村庄名称
-        if (village.equals(selectedVillage)) {
+    // 绘制村庄名称
+    private void drawVillageName(GraphicsContext gc, Village village, boolean selected) {
+        double x = screenX(village);
+        double y = screenY(village);
+        if (selected) {
+            double radius = 8;
+            // 底图中同一村庄的名称位于下方，先铺背景避免文字重叠
+            gc.setFill(LABEL_BACKGROUND);
+            gc.fillRect(x + 7, y - 12, village.getName().length() * 15 + 6, 18);
             gc.setFill(Color.RED);
-            gc.setFont(javafx.scene.text.Font.font(18)); // 选中时字体放大
+            gc.setFont(SELECTED_VILLAGE_FONT); // 选中时字体放大
             gc.fillText(village.getName(), x + radius + 5, y + 5);
         } else {
+            double radius = 5;
             gc.setFill(Color.BLACK);
-            gc.setFont(javafx.scene.text.Font.font(15));
+            gc.setFont(VILLAGE_FONT);
             gc.fillText(village.getName(), x + radius + 3, y + 3);
         }
     }
@@ -195,393 +580,429 @@ public class MapRenderer {
      * 绘制道路连接
      * 支持高亮显示和悬停效果
      */
-    private void drawRoad(Road road , boolean highlighted) {
-        Village start = lastVillageService.getVillageById(road.getStartId());
-        Village end = lastVillageService.getVillageById(road.getEndId());
+    private void drawRoad(GraphicsContext gc, Road road, boolean highlighted, boolean selected) {
+        Village start = villageById(road.getStartId());
+        Village end = villageById(road.getEndId());
 
         if (start != null && end != null) {
-            double x1 = start.getLocateX();
-            double y1 = start.getLocateY();
-            double x2 = end.getLocateX();
-            double y2 = end.getLocateY();
-
-            // 设置道路样式
-            Color currentColor;
-            if (road.equals(selectedRoad)) {
-                currentColor = hoveredRoadColor;
-                gc.setLineWidth(2.5);
-            } else if ( highlighted ) {
-                currentColor = pathColor;
-                gc.setLineWidth(3);
-            } else {
-                currentColor = roadColor;
-                gc.setLineWidth(1.5);
-            }
-            gc.setStroke(currentColor);
+            double x1 = screenX(start);
+            double y1 = screenY(start);
+            double x2 = screenX(end);
+            double y2 = screenY(end);
+            drawRoadLine(gc, x1, y1, x2, y2, highlighted, selected);
+            MapScene.RoadLabel label = MapScene.RoadLabel.of(road.getName(), road.getLength(),
+                    start.getLocateX(), start.getLocateY(), end.getLocateX(), end.getLocateY());
+            drawRoadLabel(gc, MapScene.PlacedLabel.at(label, x1, y1, x2, y2), highlighted, selected);
+        }
+    }
 
-            // 绘制道路线条
-            gc.strokeLine(x1, y1, x2, y2);
+    // 绘制道路线条
+    private void drawRoadLine(GraphicsContext gc, double x1, double y1, double x2, double y2,
+                              boolean highlighted, boolean selected) {
+        // 设置道路样式
+        Color currentColor;
+        if (selected) {
+            currentColor = hoveredRoadColor;
+            gc.setLineWidth(2.5);
+        } else if ( highlighted ) {
+            currentColor = pathColor;
+            gc.setLineWidth(3);
+        } else {
+            currentColor = roadColor;
+            gc.setLineWidth(1.5);
+        }
+        gc.setStroke(currentColor);
 
-            // 计算道路中点和角度
-            double midX = (x1 + x2) / 2;
-            double midY = (y1 + y2) / 2;
-            double angle = Math.atan2(y2 - y1, x2 - x1) * 180 / Math.PI;
+        // 绘制道路线条
+        gc.strokeLine(x1, y1, x2, y2);
+    }
 
-            // 保存当前图形状态
-            gc.save();
-            
-            // 绘制文本
-            String roadInfo = road.getName() + " (" + road.getLength() + "km)";
-            
-            // 设置字体
-            gc.setFont(javafx.scene.text.Font.font(12));
-            gc.setTextAlign(javafx.scene.text.TextAlignment.CENTER);
-            gc.setTextBaseline(javafx.geometry.VPos.CENTER);
-            
-            // 平移到文本位置，增加垂直偏移以避免遮挡道路
-            double offsetDistance = -10;
-            double perpendicular = angle + Math.PI / 2;
-            
-            double offsetY = offsetDistance * Math.sin(perpendicular * Math.PI / 180);
-            gc.translate(midX, midY + offsetY);
-            
-            // 如果角度在90到270度之间，翻转文本以保证可读性
-            if (angle > 90 && angle <= 270) {
-                angle -= 180;
-            }
-            
-            // 旋转画布以绘制文本
-            gc.rotate(angle);
-            
-            // 创建文本背景
-            double padding = 2;
-            double textWidth = gc.getFont().getSize() * roadInfo.length() * 0.6;
-            double textHeight = gc.getFont().getSize() + 2;
-            
-            gc.setFill(Color.rgb(255, 255, 255, 0.85));
-            gc.fillRect(-textWidth/2 - padding, -textHeight/2 - padding,
-                       textWidth + padding * 2, textHeight + padding * 2);
-            
-            // 根据路径状态设置文本颜色
-            if (highlighted) {
-                gc.setFill(Color.rgb(0, 120, 0));  // 深绿色文字
-                gc.setFont(javafx.scene.text.Font.font(13));  // 稍微加大字号
-            } else if (road.equals(selectedRoad)) {
-                gc.setFill(Color.rgb(200, 100, 0));  // 深橙色文字
-            } else {
-                gc.setFill(Color.BLACK);
-            }
-            gc.fillText(roadInfo, 0, 0);
-            
-            // 恢复图形状态
-            gc.restore();
+    // 绘制单个道路标签：名称和长度，沿道路方向旋转
+    private void drawRoadLabel(GraphicsContext gc, MapScene.PlacedLabel placed, boolean highlighted, boolean selected) {
+        gc.save();
+        gc.setFont(ROAD_FONT);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        placed.applyTransform(surface);
+
+        // 创建文本背景
+        gc.setFill(LABEL_BACKGROUND);
+        placed.label().fillBackground(surface);
+
+        // 根据路径状态设置文本颜色
+        if (highlighted) {
+            gc.setFill(Color.rgb(0, 120, 0));  // 深绿色文字
+            gc.setFont(HIGHLIGHTED_ROAD_FONT);  // 稍微加大字号
+        } else if (selected) {
+            gc.setFill(Color.rgb(200, 100, 0));  // 深橙色文字
+        } else {
+            gc.setFill(Color.BLACK);
         }
+        gc.fillText(placed.label().text(), 0, 0);
+
+        // 恢复图形状态
+        gc.restore();
     }
 
     /**
      * 重绘整个地图
-     * 包括网格、道路和村庄的完整绘制
+     * 数据发生变化，底图在下一个脉冲重建，并清除上一次的路径高亮
      */
-    public void redraw(List<Village> villages, List<Road> roads, VillageService villageService) {
-        // 保存数据以供后续重绘使用
-        this.lastVillages = new ArrayList<>(villages);
-        this.lastRoads = new ArrayList<>(roads);
-        this.lastVillageService = villageService;
-        
-        // 执行实际的重绘操作
-        clear();
-        // 新增：绘制背景图片在网格下方
-        drawGrid();  // 先绘制网格
-        drawRoads(roads);
-        drawVillages(villages);
+    public void redraw(MapGraph graph) {
+        // 保存数据以供后续重绘使用，图不可修改，无需复制
+        this.lastGraph = graph;
+        this.highlightedPath = new ArrayList<>();
+        stopPlayback();
+        this.pathOverlay = PathOverlay.EMPTY;
+        this.dataDirty = true;
+        invalidateView();
     }
 
     public void highlightVillage(Village village) {
-        // 更新选中的村庄
+        // 更新选中的村庄，只需重绘覆盖层
         this.selectedVillage = village;
-        // 立即重绘地图以显示选中效果
-        redraw(List.copyOf(getLastVillages()), List.copyOf(getLastRoads()), getLastVillageService());
+        requestFrame();
     }
 
     public void highlightRoad(Road road) {
-        // 更新选中的道路
+        // 更新选中的道路，只需重绘覆盖层
         this.selectedRoad = road;
-        // 立即重绘地图以显示高亮效果
-        redraw(List.copyOf(getLastVillages()), List.copyOf(getLastRoads()), getLastVillageService());
+        requestFrame();
     }
-    
-    // Getter方法
-    private List<Village> getLastVillages() {
-        return lastVillages;
+
+    /**
+     * 平移地图
+     * @param dx 水平拖动的像素数
+     * @param dy 垂直拖动的像素数
+     */
+    public void pan(double dx, double dy) {
+        viewport.pan(dx, dy);
+        invalidateView();
     }
-    
-    private List<Road> getLastRoads() {
-        return lastRoads;
+
+    /**
+     * 以画布上的一点为中心缩放地图
+     * @param factor 缩放倍数，大于1为放大
+     */
+    public void zoomAt(double factor, double x, double y) {
+        viewport.zoomAt(factor, x, y);
+        invalidateView();
     }
-    
-    private VillageService getLastVillageService() {
-        return lastVillageService;
+
+    // 缩放并平移地图，使所有村庄完整显示
+    public void fitToData() {
+        if (lastGraph.villages().isEmpty()) {
+            return;
+        }
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (Village village : lastGraph.villages()) {
+            minX = Math.min(minX, village.getLocateX());
+            minY = Math.min(minY, village.getLocateY());
+            maxX = Math.max(maxX, village.getLocateX());
+            maxY = Math.max(maxY, village.getLocateY());
+        }
+        viewport.fit(minX, minY, maxX, maxY, canvas.getWidth(), canvas.getHeight(), FIT_PADDING);
+        invalidateView();
+    }
+
+    // 恢复1:1显示
+    public void resetView() {
+        viewport.reset();
+        invalidateView();
+    }
+
+    private Village villageById(Integer villageId) {
+        return villageId == null ? null : lastGraph.villageById(villageId);
+    }
+
+    // 按ID建立村庄索引，ID重复时保留第一个
+    private static Map<Integer, Village> indexVillages(List<Village> villages) {
+        Map<Integer, Village> index = new HashMap<>(villages.size() * 2);
+        for (Village village : villages) {
+            index.putIfAbsent(village.getId(), village);
+        }
+        return index;
+    }
+
+    // 绘制覆盖层：建议道路、选中道路、路径和选中村庄
+    private void drawOverlay() {
+        for (Road road : highlightedPath) {
+            drawRoad(gc, road, true, false);
+        }
+
+        if (selectedRoad != null) {
+            drawRoad(gc, selectedRoad, highlightedPath.contains(selectedRoad), true);
+            // 端点村庄重新绘制在道路之上
+            drawEndpoint(selectedRoad.getStartId());
+            drawEndpoint(selectedRoad.getEndId());
+        }
+
+        if (!pathOverlay.isEmpty()) {
+            if (playing) {
+                drawPathLayer();
+                drawPlaybackMarker();
+            } else if (pathOverlay.isWithRoads()) {
+                drawPathWithRoads(gc, pathOverlay);
+            } else {
+                drawPath(pathOverlay);
+            }
+        }
+
+        if (selectedVillage != null) {
+            drawVillage(gc, selectedVillage, true);
+        }
+    }
+
+    private void drawEndpoint(Integer villageId) {
+        Village village = villageById(villageId);
+        if (village != null && !village.equals(selectedVillage)) {
+            drawVillage(gc, village, false);
+        }
     }
 
     // 高亮一组道路
     public void highlightRoads(List<Village> villages, List<int[]> mstEdges) {
         // 高亮显示MST的所有边
         List<Road> path = new ArrayList<>();
+        Map<Integer, Village> index = indexVillages(villages);
 
-        int index = 0;
+        int count = 0;
         for (int[] edge : mstEdges) {
-            int startId = edge[0];
-            int endId = edge[1];
-            Village start = villages.stream().filter(v -> v.getId() == startId).findFirst().orElse(null);
-            Village end = villages.stream().filter(v -> v.getId() == endId).findFirst().orElse(null);
+            Village start = index.get(edge[0]);
+            Village end = index.get(edge[1]);
             if (start != null && end != null) {
-                index++;
-                String temp = "MST-" + index;
+                count++;
+                String temp = "MST-" + count;
                 Road road = new Road(start.getId(), end.getId(),temp);
                 path.add(road);
             }
         }
-       this.highlightedPath = path;
-        drawRoads(path);
+        this.highlightedPath = path;
+        requestFrame();
     }
 
     public void highlightPath(List<Village> pathVillages) {
-        // 清除现有高亮
-        redraw(lastVillages, lastRoads, lastVillageService);
-        
-        if (pathVillages == null || pathVillages.size() < 2) {
-            return;
-        }
-
-        GraphicsContext gc = getGraphicsContext(pathVillages);
-        for (Village v : pathVillages) {
-            gc.fillOval(
-                v.getLocateX() - 5,
-                v.getLocateY() - 5,
-                10,
-                10
-            );
-        }
+        // 替换路径覆盖层，底图不需要重建
+        stopPlayback();
+        this.pathOverlay = PathOverlay.of(pathVillages, false, false);
+        requestFrame();
     }
 
-    private GraphicsContext getGraphicsContext(List<Village> pathVillages) {
-        GraphicsContext gc = canvas.getGraphicsContext2D();
+    private void drawPath(PathOverlay path) {
         gc.setStroke(Color.RED);
         gc.setLineWidth(3);
 
         // 绘制路径线段
-        for (int i = 0; i < pathVillages.size() - 1; i++) {
-            Village current = pathVillages.get(i);
-            Village next = pathVillages.get(i + 1);
-
-            gc.strokeLine(
-                current.getLocateX(),
-                current.getLocateY(),
-                next.getLocateX(),
-                next.getLocateY()  // 添加缺少的y坐标参数
-            );
+        for (int i = 0; i < path.size() - 1; i++) {
+            gc.strokeLine(pathX(path, i), pathY(path, i), pathX(path, i + 1), pathY(path, i + 1));
         }
 
         // 高亮路径上的村庄
         gc.setFill(Color.RED);
-        return gc;
+        for (int i : path.distinct()) {
+            gc.fillOval(pathX(path, i) - 5, pathY(path, i) - 5, 10, 10);
+        }
+    }
+
+    private double pathX(PathOverlay path, int i) {
+        return viewport.toScreenX(path.x(i));
+    }
+
+    private double pathY(PathOverlay path, int i) {
+        return viewport.toScreenY(path.y(i));
     }
 
     public void highlightPathWithRoads(List<Village> pathVillages, List<Road> pathRoads, boolean isRoundTrip) {
-        // 清除现有高亮
-        redraw(lastVillages, lastRoads, lastVillageService);
-        
-        if (pathVillages == null || pathVillages.size() < 2 || pathRoads == null || pathRoads.isEmpty()) {
-            return;
+        // 替换路径覆盖层，底图不需要重建
+        stopPlayback();
+        if (pathRoads == null || pathRoads.isEmpty()) {
+            this.pathOverlay = PathOverlay.EMPTY;
+        } else {
+            this.pathOverlay = PathOverlay.of(pathVillages, true, isRoundTrip);
         }
+        requestFrame();
+    }
+
+    private void drawPathWithRoads(GraphicsContext gc, PathOverlay path) {
+        boolean isRoundTrip = path.isRoundTrip();
+        Color color = isRoundTrip ? Color.PURPLE : Color.RED;
 
-        GraphicsContext gc = canvas.getGraphicsContext2D();
-        
         // 高亮道路
-        gc.setStroke(isRoundTrip ? Color.PURPLE : Color.RED);
+        gc.setStroke(color);
         gc.setLineWidth(3);
         gc.setLineCap(StrokeLineCap.ROUND);
-        
-        // 创建路径段计数Map来跟踪重复路段
-        Map<String, Integer> pathSegmentCount = new HashMap<>();
-        
-        // 绘制所有路径段和箭头
-        for (int i = 0; i < pathVillages.size() - 1; i++) {
-            Village start = pathVillages.get(i);
-            Village end = pathVillages.get(i + 1);
-            
-            // 生成路径段的唯一标识符（按较小ID在前排序）
-            String segmentKey = start.getId() < end.getId() ? 
-                start.getId() + "-" + end.getId() :
-                end.getId() + "-" + start.getId();
-                
-            // 更新计数
-            int count = pathSegmentCount.getOrDefault(segmentKey, 0);
-            pathSegmentCount.put(segmentKey, count + 1);
-            
-            // 根据重复次数计算偏移量
-            double offset = count * 4; // 每次重复偏移4个像素
-            
-            // 计算偏移后的路径点
+
+        // 绘制所有路径段和箭头，回路的最后一段返回起点；重复经过的路段按预先计算的偏移量错开
+        for (int i = 0; i < path.segmentCount(); i++) {
+            int next = (i + 1) % path.size();
             double[] offsetPoints = calculateOffsetPoints(
-                start.getLocateX(), start.getLocateY(),
-                end.getLocateX(), end.getLocateY(),
-                offset
+                pathX(path, i), pathY(path, i),
+                pathX(path, next), pathY(path, next),
+                path.offset(i)
             );
-            
+
             // 绘制偏移后的路径线段
             gc.strokeLine(
                 offsetPoints[0], offsetPoints[1],
                 offsetPoints[2], offsetPoints[3]
             );
-            
+
             // 在偏移后的路径中点绘制箭头
-            drawArrow(gc, 
+            drawArrow(gc,
                 offsetPoints[0], offsetPoints[1],
                 offsetPoints[2], offsetPoints[3],
-                isRoundTrip ? Color.PURPLE : Color.RED
-            );
-        }
-        
-        // 如果是回环路径，处理返回起点的路径段
-        if (isRoundTrip && pathVillages.size() >= 2) {
-            Village last = pathVillages.getLast();
-            Village first = pathVillages.getFirst();
-            
-            String segmentKey = last.getId() < first.getId() ? 
-                last.getId() + "-" + first.getId() :
-                first.getId() + "-" + last.getId();
-            
-            int count = pathSegmentCount.getOrDefault(segmentKey, 0);
-            double offset = count * 4;
-            
-            double[] offsetPoints = calculateOffsetPoints(
-                last.getLocateX(), last.getLocateY(),
-                first.getLocateX(), first.getLocateY(),
-                offset
-            );
-            
-            gc.strokeLine(
-                offsetPoints[0], offsetPoints[1],
-                offsetPoints[2], offsetPoints[3]
-            );
-            
-            drawArrow(gc, 
-                offsetPoints[0], offsetPoints[1],
-                offsetPoints[2], offsetPoints[3],
-                Color.PURPLE
+                color
             );
         }
 
-        // 高亮路径上的村庄节点
-        gc.setFill(isRoundTrip ? Color.PURPLE : Color.RED);
-        for (Village v : pathVillages) {
-            // 绘制大一点的节点
-            gc.fillOval(
-                v.getLocateX() - 6,
-                v.getLocateY() - 6,
-                12,
-                12
-            );
-            
+        // 绘制路径上的村庄，每个村庄只绘制一次，其余村庄已在底图中
+        int firstId = path.id(0);
+        int lastId = path.id(path.size() - 1);
+        gc.setFont(MARK_FONT);
+        for (int i : path.distinct()) {
+            double x = pathX(path, i);
+            double y = pathY(path, i);
+            double radius = 6;
+
             // 为起点和终点添加特殊标记
-            if (v.equals(pathVillages.getFirst())) {
+            if (path.id(i) == firstId) {
                 gc.setStroke(Color.YELLOW);
                 gc.setLineWidth(2);
-                gc.strokeOval(
-                    v.getLocateX() - 8,
-                    v.getLocateY() - 8,
-                    16,
-                    16
-                );
-                
-                // 添加"起点"标记
-                gc.setFill(Color.GREEN);
-                gc.setFont(javafx.scene.text.Font.font(14));
-                gc.fillText("起点", v.getLocateX() + 10, v.getLocateY() - 10);
-                
+                gc.strokeOval(x - 8, y - 8, 16, 16);
+                drawMark(gc, "起点", x + 10, y - 10);
                 if (isRoundTrip) {
-                    gc.fillText("终点", v.getLocateX() + 10, v.getLocateY() + 20);
+                    drawMark(gc, "终点", x + 10, y + 20);
                 }
             }
-            
             // 如果不是回路且是终点，添加终点标记
-            if (!isRoundTrip && v.equals(pathVillages.getLast())) {
-                gc.setStroke(Color.GREEN);
+            else if (!isRoundTrip && path.id(i) == lastId) {
+                gc.setStroke(Color.YELLOW);
                 gc.setLineWidth(2);
-                gc.strokeOval(
-                    v.getLocateX() - 8,
-                    v.getLocateY() - 8,
-                    16,
-                    16
-                );
-                gc.setFill(Color.GREEN);
-                gc.fillText("终点", v.getLocateX() + 10, v.getLocateY() - 10);
+                gc.strokeOval(x - 8, y - 8, 16, 16);
+                drawMark(gc, "终点", x + 10, y - 10);
             }
-        }
 
-        // 重新绘制所有村庄
-        for (Village v : lastVillages) {
-            double radius = 6;
-            
-            // 检查村庄是否在路径上
-            if (pathVillages.contains(v)) {
-                gc.setFill(isRoundTrip ? Color.PURPLE : Color.RED);
-                
-                // 为起点和终点添加特殊标记
-                if (v.equals(pathVillages.getFirst())) {
-                    gc.setStroke(Color.YELLOW);
-                    gc.setLineWidth(2);
-                    gc.strokeOval(
-                        v.getLocateX() - 8,
-                        v.getLocateY() - 8,
-                        16,
-                        16
-                    );
-                    
-                    // 添加"起点"标记
-                    gc.setFill(Color.WHITE);
-                    gc.setFont(javafx.scene.text.Font.font(14));
-                    gc.fillText("起点", v.getLocateX() + 10, v.getLocateY() - 10);
-                    
-                    if (isRoundTrip) {
-                        gc.fillText("终点", v.getLocateX() + 10, v.getLocateY() + 20);
-                    }
-                } 
-                // 如果不是回路且是终点，添加终点标记
-                else if (!isRoundTrip && v.equals(pathVillages.getLast())) {
-                    gc.setStroke(Color.YELLOW);
-                    gc.setLineWidth(2);
-                    gc.strokeOval(
-                        v.getLocateX() - 8,
-                        v.getLocateY() - 8,
-                        16,
-                        16
-                    );
-                    gc.setFill(Color.WHITE);
-                    gc.fillText("终点", v.getLocateX() + 10, v.getLocateY() - 10);
-                }
-            } else {
-                // 非路径上的村庄保持蓝色
-                gc.setFill(villageColor);
-                radius = 5;  // 使用默认大小
-            }
-            
             // 绘制村庄节点
-            gc.fillOval(
-                v.getLocateX() - radius,
-                v.getLocateY() - radius,
-                radius * 2,
-                radius * 2
-            );
-            
+            gc.setFill(color);
+            gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+
             // 绘制村庄名称
             gc.setFill(Color.BLACK);
-            gc.setFont(javafx.scene.text.Font.font(15));
-            gc.fillText(v.getName(), v.getLocateX() + radius + 3, v.getLocateY() + 3);
+            gc.setFont(VILLAGE_FONT);
+            gc.fillText(path.name(i), x + radius + 3, y + 3);
+            gc.setFont(MARK_FONT);
+        }
+    }
+
+    // 起终点标记：绿色文字上叠加白色文字
+    private void drawMark(GraphicsContext gc, String text, double x, double y) {
+        gc.setFill(Color.GREEN);
+        gc.fillText(text, x, y);
+        gc.setFill(Color.WHITE);
+        gc.fillText(text, x, y);
+    }
+
+    /**
+     * 沿当前按道路显示的路径回放动画，标记从起点匀速移动到终点
+     * @param kmPerSecond 每秒前进的公里数
+     * @return 没有可回放的路径时返回false
+     */
+    public boolean playRoute(double kmPerSecond) {
+        if (pathOverlay.isEmpty() || !pathOverlay.isWithRoads() || kmPerSecond <= 0) {
+            return false;
+        }
+        playing = true;
+        playbackSpeed = kmPerSecond * WORLD_UNITS_PER_KM;
+        playbackDistance = 0;
+        lastPulse = 0;
+        requestFrame();
+        return true;
+    }
+
+    // 停止回放，路径恢复为直接绘制
+    public void stopPlayback() {
+        if (!playing) {
+            return;
+        }
+        playing = false;
+        pathLayer = null;
+        pathView = null;
+        requestFrame();
+        if (onPlaybackStopped != null) {
+            onPlaybackStopped.run();
         }
     }
 
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    // 按距上一脉冲的时间推进标记，到达终点时结束回放
+    private void advancePlayback(long now) {
+        if (lastPulse != 0) {
+            playbackDistance += playbackSpeed * (now - lastPulse) / 1e9;
+        }
+        lastPulse = now;
+        if (playbackDistance >= pathOverlay.length()) {
+            stopPlayback();
+            return;
+        }
+        requestFrame();
+    }
+
+    // 回放期间路径不变，按视口缓存为透明图像，视口或画布尺寸变化时重新绘制
+    private void drawPathLayer() {
+        int width = (int) Math.ceil(canvas.getWidth());
+        int height = (int) Math.ceil(canvas.getHeight());
+        boolean resized = pathLayer == null || (int) pathLayer.getWidth() != width
+                || (int) pathLayer.getHeight() != height;
+        if (resized || !sameView(pathView, viewport)) {
+            pathCanvas.setWidth(width);
+            pathCanvas.setHeight(height);
+            GraphicsContext path = pathCanvas.getGraphicsContext2D();
+            path.clearRect(0, 0, width, height);
+            drawPathWithRoads(path, pathOverlay);
+            if (resized) {
+                pathLayer = new WritableImage(width, height);
+            }
+            SnapshotParameters params = new SnapshotParameters();
+            params.setFill(Color.TRANSPARENT);
+            pathCanvas.snapshot(params, pathLayer);
+            pathView = viewport.copy();
+        }
+        gc.drawImage(pathLayer, 0, 0);
+    }
+
+    private static boolean sameView(Viewport a, Viewport b) {
+        return a != null && a.getScale() == b.getScale()
+                && a.getOffsetX() == b.getOffsetX() && a.getOffsetY() == b.getOffsetY();
+    }
+
+    // 绘制回放标记：二分查找所在路段，在偏移后的路段上按比例插值
+    private void drawPlaybackMarker() {
+        PathOverlay path = pathOverlay;
+        int segment = path.segmentAt(playbackDistance);
+        int next = (segment + 1) % path.size();
+        double[] points = calculateOffsetPoints(
+                pathX(path, segment), pathY(path, segment),
+                pathX(path, next), pathY(path, next),
+                path.offset(segment));
+        double start = path.distanceAt(segment);
+        double length = path.distanceAt(segment + 1) - start;
+        double t = length > 0 ? Math.min(1, (playbackDistance - start) / length) : 0;
+        double x = points[0] + (points[2] - points[0]) * t;
+        double y = points[1] + (points[3] - points[1]) * t;
+
+        gc.setFill(Color.ORANGE);
+        gc.fillOval(x - 7, y - 7, 14, 14);
+        gc.setStroke(Color.WHITE);
+        gc.setLineWidth(2);
+        gc.strokeOval(x - 7, y - 7, 14, 14);
+    }
+
     // 计算偏移后的路径点坐标
     private double[] calculateOffsetPoints(double x1, double y1, double x2, double y2, double offset) {
         if (offset == 0) {
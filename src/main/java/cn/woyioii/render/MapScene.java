@@ -0,0 +1,808 @@
+package cn.woyioii.render;
+
+import cn.woyioii.model.MapGraph;
+import cn.woyioii.model.MapStore;
+import cn.woyioii.model.Road;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 底图场景
+ * <p>某一版本村庄和道路数据的不可变快照，包含列式存储、空间索引和各村庄连接的道路数。
+ * 底图的全部绘制逻辑（网格、道路、村庄、标签和细节层次）都在这里，只依赖{@link DrawSurface}，
+ * 因此可以在后台线程录制为{@link DrawList}，也可以绘制到其他画布。</p>
+ * <p>底图分为几何图层和标签图层：几何图层只由数据和视口决定，可以按瓦片分别绘制后拼接；
+ * 标签需要在整个画布范围内避让，按画布绘制。</p>
+ * <p>道路标签几何按需计算并缓存，创建新场景时沿用上一场景中同一道路对象且内容未变的标签。</p>
+ * <p>绘制时可以传入{@link RenderStats}，按图层累计耗时和图元数量。</p>
+ */
+final class MapScene {
+    // 颜色（ARGB）
+    static final int WHITE = 0xFFFFFFFF;
+    static final int BLACK = 0xFF000000;
+    static final int GRAY = 0xFF808080;
+    static final int LIGHT_GRAY = 0xFFD3D3D3;
+    static final int VILLAGE_COLOR = 0xFF0000FF;
+    static final int ROAD_COLOR = GRAY;
+    static final int LABEL_BACKGROUND = 0xD9FFFFFF;
+    static final int CLUSTER_COLOR = 0x8C0000FF;
+
+    // 字号
+    static final double SMALL_FONT_SIZE = 10;
+    static final double ROAD_FONT_SIZE = 12;
+    static final double VILLAGE_FONT_SIZE = 15;
+
+    // 可见范围外保留的像素，避免靠近边缘的名称和道路标签被截断
+    private static final double CULL_MARGIN = 120;
+
+    // 细节层次阈值
+    private static final int CLUSTER_THRESHOLD = 1500;        // 可见村庄超过该数量时聚合显示
+    private static final double CLUSTER_CELL = 32;            // 聚合的屏幕网格大小（像素）
+    private static final int ROAD_SIMPLIFY_THRESHOLD = 3000;  // 可见道路超过该数量时合并重叠道路
+    private static final double ROAD_SNAP = 4;                // 合并道路时端点吸附的网格大小（像素），能整除瓦片边长
+    private static final int MAX_LABELS = 400;                // 每帧最多绘制的标签数
+    // 以上数量阈值对应的画布面积，画布更大时（如导出大图）按面积等比放大
+    private static final double REFERENCE_AREA = 1200 * 800;
+
+    // 批量绘制时每条路径包含的最多图元数
+    private static final int BATCH_SIZE = 2048;
+
+    // 数据变化的范围超过该数量时不再逐个比较，全部瓦片失效
+    private static final int MAX_CHANGED_BOUNDS = 256;
+
+    static final MapScene EMPTY = new MapScene(MapGraph.EMPTY, null);
+
+    private final MapStore store;
+    private final List<Road> roads;       // 与列式存储中道路下标一一对应的道路对象，只用于沿用标签缓存
+    private final SpatialIndex index;
+    private final int[] degrees;          // 村庄连接的道路数，决定名称的显示优先级
+    private final RoadLabel[] labels;     // 道路标签几何，按需计算
+
+    /**
+     * 创建场景，建立空间索引并沿用上一场景的标签缓存，耗时与数据量成正比，应在后台线程调用
+     * @param graph 村庄道路图，使用其中的列式存储和与道路下标对应的道路对象
+     * @param previous 上一场景，可以为null
+     */
+    MapScene(MapGraph graph, MapScene previous) {
+        this.store = graph.store();
+        this.roads = graph.graphRoads();
+        this.index = SpatialIndex.build(store);
+
+        this.degrees = new int[store.getVillageCount()];
+        int[] starts = store.roadStarts();
+        int[] ends = store.roadEnds();
+        for (int r = 0; r < store.getRoadCount(); r++) {
+            degrees[starts[r]]++;
+            degrees[ends[r]]++;
+        }
+
+        this.labels = new RoadLabel[store.getRoadCount()];
+        if (previous != null && roads.size() == labels.length) {
+            Map<Road, RoadLabel> cached = new IdentityHashMap<>(previous.roads.size());
+            for (int r = 0; r < previous.labels.length; r++) {
+                if (previous.labels[r] != null) {
+                    cached.put(previous.roads.get(r), previous.labels[r]);
+                }
+            }
+            for (int r = 0; r < labels.length; r++) {
+                RoadLabel label = cached.get(roads.get(r));
+                if (label != null && label.matches(store, r)) {
+                    labels[r] = label;
+                }
+            }
+        }
+    }
+
+    MapStore getStore() {
+        return store;
+    }
+
+    SpatialIndex getIndex() {
+        return index;
+    }
+
+    // 绘制的图层
+    enum Layer {
+        ALL,        // 完整底图
+        GEOMETRY,   // 背景、网格线、道路和村庄节点，与画布边界无关，可以按瓦片绘制
+        LABELS      // 网格刻度、村庄名称和道路标签，透明背景，需要按整个画布布局
+    }
+
+    /**
+     * 按视口绘制完整底图：背景、网格、道路、村庄和标签
+     */
+    void draw(DrawSurface surface, Viewport view, double width, double height) {
+        new Frame(surface, view, width, height, Layer.ALL, isClustered(view, width, height), null).draw();
+    }
+
+    /**
+     * 按视口绘制一个图层
+     * @param clustered 是否聚合显示村庄，同一画面的各图层和瓦片必须一致
+     */
+    void draw(DrawSurface surface, Viewport view, double width, double height, Layer layer, boolean clustered) {
+        draw(surface, view, width, height, layer, clustered, null);
+    }
+
+    /**
+     * 按视口绘制一个图层并累计统计
+     * @param stats 渲染统计，为null时不统计
+     */
+    void draw(DrawSurface surface, Viewport view, double width, double height, Layer layer, boolean clustered,
+              RenderStats stats) {
+        new Frame(surface, view, width, height, layer, clustered, stats).draw();
+    }
+
+    /**
+     * 录制标签图层的绘图命令
+     * @param stats 渲染统计，为null时不统计
+     */
+    DrawList recordLabels(Viewport view, double width, double height, boolean clustered, RenderStats stats) {
+        DrawList.Recorder recorder = new DrawList.Recorder();
+        draw(recorder, view, width, height, Layer.LABELS, clustered, stats);
+        return recorder.build();
+    }
+
+    /**
+     * 画布范围内的村庄过多时聚合显示
+     */
+    boolean isClustered(Viewport view, double width, double height) {
+        double margin = CULL_MARGIN / view.getScale();
+        int visible = index.queryVillages(view.toWorldX(0) - margin, view.toWorldY(0) - margin,
+                view.toWorldX(width) + margin, view.toWorldY(height) + margin).length;
+        return visible > scaled(CLUSTER_THRESHOLD, width, height);
+    }
+
+    /**
+     * 与上一场景相比几何图层发生变化的世界坐标范围，用于只重绘受影响的瓦片
+     * 名称和长度只影响标签图层，不计入；变化过多时返回null，表示全部失效
+     * @return 每项为[minX, minY, maxX, maxY]
+     */
+    List<double[]> changedBounds(MapScene previous) {
+        if (previous == null) {
+            return null;
+        }
+        // 村庄节点和道路线段按坐标计数，上一场景加一、当前场景减一，计数不为0的即为变化部分
+        Map<Long, Integer> points = new HashMap<>();
+        countPoints(points, previous.store, 1);
+        countPoints(points, store, -1);
+        Map<Edge, Integer> edges = new HashMap<>();
+        countEdges(edges, previous.store, 1);
+        countEdges(edges, store, -1);
+
+        List<double[]> changed = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : points.entrySet()) {
+            if (entry.getValue() != 0) {
+                double x = (int) (entry.getKey() >> 32);
+                double y = (int) (long) entry.getKey();
+                changed.add(new double[]{x, y, x, y});
+            }
+        }
+        for (Map.Entry<Edge, Integer> entry : edges.entrySet()) {
+            if (entry.getValue() != 0) {
+                Edge edge = entry.getKey();
+                changed.add(new double[]{Math.min(edge.x1(), edge.x2()), Math.min(edge.y1(), edge.y2()),
+                        Math.max(edge.x1(), edge.x2()), Math.max(edge.y1(), edge.y2())});
+            }
+        }
+        return changed.size() > MAX_CHANGED_BOUNDS ? null : changed;
+    }
+
+    private static void countPoints(Map<Long, Integer> points, MapStore store, int delta) {
+        for (int i = 0; i < store.getVillageCount(); i++) {
+            long key = ((long) store.x(i) << 32) | (store.y(i) & 0xFFFFFFFFL);
+            points.merge(key, delta, Integer::sum);
+        }
+    }
+
+    private static void countEdges(Map<Edge, Integer> edges, MapStore store, int delta) {
+        for (int r = 0; r < store.getRoadCount(); r++) {
+            int start = store.roadStart(r);
+            int end = store.roadEnd(r);
+            edges.merge(Edge.of(store.x(start), store.y(start), store.x(end), store.y(end)), delta, Integer::sum);
+        }
+    }
+
+    // 道路线段的世界坐标，端点排序后与方向无关
+    private record Edge(int x1, int y1, int x2, int y2) {
+        static Edge of(int x1, int y1, int x2, int y2) {
+            return x1 < x2 || (x1 == x2 && y1 <= y2) ? new Edge(x1, y1, x2, y2) : new Edge(x2, y2, x1, y1);
+        }
+    }
+
+    // 按画布面积放大数量阈值，不小于原值
+    private static int scaled(int threshold, double width, double height) {
+        return (int) Math.max(threshold, threshold * (width * height / REFERENCE_AREA));
+    }
+
+    // 获取道路标签几何，多个线程同时计算同一标签时结果相同
+    private RoadLabel label(int r) {
+        RoadLabel label = labels[r];
+        if (label == null) {
+            label = RoadLabel.of(store, r);
+            labels[r] = label;
+        }
+        return label;
+    }
+
+    static String roadLabelText(String name, double length) {
+        return name + " (" + length + "km)";
+    }
+
+    // 一次绘制的上下文
+    private final class Frame {
+        private final DrawSurface s;
+        private final Viewport view;
+        private final double width;
+        private final double height;
+        private final Layer layer;
+        private final boolean clustered;
+        private final int maxLabels;
+        private final RenderStats stats;
+        private final int[] xs = store.xs();
+        private final int[] ys = store.ys();
+
+        Frame(DrawSurface s, Viewport view, double width, double height, Layer layer, boolean clustered,
+              RenderStats stats) {
+            this.s = s;
+            this.view = view;
+            this.width = width;
+            this.height = height;
+            this.layer = layer;
+            this.clustered = clustered;
+            this.maxLabels = scaled(MAX_LABELS, width, height);
+            this.stats = stats;
+        }
+
+        // 开始计时，不统计时不读取时钟
+        private long start() {
+            return stats != null ? System.nanoTime() : 0;
+        }
+
+        private void time(RenderStats.Layer layer, long start) {
+            if (stats != null) {
+                stats.addTime(layer, System.nanoTime() - start);
+            }
+        }
+
+        private void count(RenderStats.Counter counter, long value) {
+            if (stats != null) {
+                stats.add(counter, value);
+            }
+        }
+
+        private boolean geometry() {
+            return layer != Layer.LABELS;
+        }
+
+        private boolean labels() {
+            return layer != Layer.GEOMETRY;
+        }
+
+        private double sx(int village) {
+            return view.toScreenX(xs[village]);
+        }
+
+        private double sy(int village) {
+            return view.toScreenY(ys[village]);
+        }
+
+        void draw() {
+            s.resetTransform();
+            s.setTextAnchor(DrawSurface.TextAnchor.BASELINE_LEFT);
+            long start = start();
+            if (geometry()) {
+                s.setFill(WHITE);
+                s.fillRect(0, 0, width, height);
+                drawGridLines();  // 先绘制网格
+            }
+            if (labels()) {
+                drawGridScale();
+            }
+            time(RenderStats.Layer.GRID, start);
+            drawContent();
+        }
+
+        // 网格间距：缩小时按10倍放大，保证网格线不过密
+        private double gridStep() {
+            double step = 10;
+            while (step * view.getScale() < 8) {
+                step *= 10;
+            }
+            return step;
+        }
+
+        /**
+         * 绘制网格线
+         * 每10个坐标单位代表1公里，每10条网格线中有一条主要网格线
+         */
+        private void drawGridLines() {
+            double step = gridStep();
+
+            // 先绘制所有次要网格线，再绘制主要网格线，每种样式一条路径
+            long firstX = (long) Math.floor(view.toWorldX(0) / step);
+            long lastX = (long) Math.ceil(view.toWorldX(width) / step);
+            long firstY = (long) Math.floor(view.toWorldY(0) / step);
+            long lastY = (long) Math.ceil(view.toWorldY(height) / step);
+            for (boolean major : new boolean[]{false, true}) {
+                s.setLineWidth(major ? 1.0 : 0.5);
+                s.setStroke(major ? GRAY : LIGHT_GRAY);
+                s.beginPath();
+                // 垂直线（默认每10像素一条，代表1km）
+                for (long i = firstX; i <= lastX; i++) {
+                    if ((i % 10 == 0) == major) {
+                        double x = view.toScreenX(i * step);
+                        s.moveTo(x, 0);
+                        s.lineTo(x, height);
+                    }
+                }
+                // 水平线
+                for (long i = firstY; i <= lastY; i++) {
+                    if ((i % 10 == 0) == major) {
+                        double y = view.toScreenY(i * step);
+                        s.moveTo(0, y);
+                        s.lineTo(width, y);
+                    }
+                }
+                s.stroke();
+            }
+        }
+
+        // 沿画布上边和左边标记主要网格线刻度（默认每100像素，代表10km）
+        private void drawGridScale() {
+            s.setFill(GRAY);
+            s.setFontSize(SMALL_FONT_SIZE);
+            double major = gridStep() * 10;
+            for (long i = (long) Math.ceil(view.toWorldX(0) / major); i * major <= view.toWorldX(width); i++) {
+                s.fillText(String.valueOf(Math.round(i * major / 10)), view.toScreenX(i * major) + 2, 12);
+            }
+            for (long i = (long) Math.ceil(view.toWorldY(0) / major); i * major <= view.toWorldY(height); i++) {
+                s.fillText(String.valueOf(Math.round(i * major / 10)), 2, view.toScreenY(i * major) + 12);
+            }
+        }
+
+        /**
+         * 绘制当前图层的道路、村庄和标签
+         * 同一样式的图元合并为一条路径或连续的文字命令，减少画布状态切换和命令数量
+         */
+        private void drawContent() {
+            double margin = CULL_MARGIN / view.getScale();
+            double minX = view.toWorldX(0) - margin;
+            double minY = view.toWorldY(0) - margin;
+            double maxX = view.toWorldX(width) + margin;
+            double maxY = view.toWorldY(height) + margin;
+            int[] visibleRoads = index.queryRoads(minX, minY, maxX, maxY);
+            int[] visibleVillages = index.queryVillages(minX, minY, maxX, maxY);
+            count(RenderStats.Counter.ROADS_CULLED, store.getRoadCount() - visibleRoads.length);
+            count(RenderStats.Counter.VILLAGES_CULLED, store.getVillageCount() - visibleVillages.length);
+
+            if (clustered) {
+                drawClustered(visibleRoads, visibleVillages);
+                return;
+            }
+
+            if (geometry()) {
+                long start = start();
+                drawRoadLines(visibleRoads, visibleRoads.length > ROAD_SIMPLIFY_THRESHOLD ? ROAD_SNAP : 0);
+                time(RenderStats.Layer.ROADS, start);
+                start = start();
+                fillVillageNodes(visibleVillages, visibleVillages.length);
+                time(RenderStats.Layer.VILLAGES, start);
+            }
+            if (labels()) {
+                long start = start();
+                LabelPlacer placer = new LabelPlacer(width, height, maxLabels);
+                for (int i : visibleVillages) {
+                    placer.block(sx(i) - 5, sy(i) - 5, sx(i) + 5, sy(i) + 5);
+                }
+                int[] names = placeVillageLabels(visibleVillages, placer);
+                List<PlacedLabel> roadLabels = placeRoadLabels(visibleRoads, placer);
+                drawVillageNames(names);
+                drawRoadLabels(roadLabels);
+                int drawn = names.length + roadLabels.size();
+                count(RenderStats.Counter.LABELS_DRAWN, drawn);
+                count(RenderStats.Counter.LABELS_SKIPPED, visibleVillages.length + visibleRoads.length - drawn);
+                time(RenderStats.Layer.LABELS, start);
+            }
+        }
+
+        /**
+         * 以普通样式批量绘制道路线条
+         * @param snap 大于0时端点按该像素网格吸附，吸附后重合或退化为点的道路只绘制一次
+         */
+        private void drawRoadLines(int[] visibleRoads, double snap) {
+            int[] starts = store.roadStarts();
+            int[] ends = store.roadEnds();
+            Set<Segment> drawn = snap > 0 ? new HashSet<>() : null;
+            s.setStroke(ROAD_COLOR);
+            s.setLineWidth(1.5);
+            s.beginPath();
+            int pending = 0;
+            int lines = 0;
+            for (int r : visibleRoads) {
+                double x1 = sx(starts[r]);
+                double y1 = sy(starts[r]);
+                double x2 = sx(ends[r]);
+                double y2 = sy(ends[r]);
+                if (drawn != null) {
+                    long from = cellKey(x1, y1, snap);
+                    long to = cellKey(x2, y2, snap);
+                    if (from == to || !drawn.add(Segment.of(from, to))) {
+                        continue;
+                    }
+                }
+                s.moveTo(x1, y1);
+                s.lineTo(x2, y2);
+                lines++;
+                if (++pending == BATCH_SIZE) {
+                    s.stroke();
+                    s.beginPath();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                s.stroke();
+            }
+            count(RenderStats.Counter.ROADS_DRAWN, lines);
+            count(RenderStats.Counter.ROADS_MERGED, visibleRoads.length - lines);
+        }
+
+        // 以普通样式批量绘制村庄节点，所有圆形合并为一条路径填充
+        private void fillVillageNodes(int[] villages, int count) {
+            s.setFill(VILLAGE_COLOR);
+            s.beginPath();
+            int pending = 0;
+            for (int k = 0; k < count; k++) {
+                s.addCircle(sx(villages[k]), sy(villages[k]), 5);
+                if (++pending == BATCH_SIZE) {
+                    s.fill();
+                    s.beginPath();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                s.fill();
+            }
+            count(RenderStats.Counter.VILLAGES_DRAWN, count);
+        }
+
+        // 村庄名称按连接道路数从多到少放置，返回放置成功的村庄
+        private int[] placeVillageLabels(int[] villages, LabelPlacer placer) {
+            Integer[] order = Arrays.stream(villages).boxed().toArray(Integer[]::new);
+            Arrays.sort(order, Comparator.comparingInt((Integer i) -> degrees[i]).reversed());
+            int[] placed = new int[Math.min(villages.length, maxLabels)];
+            int count = 0;
+            for (int i : order) {
+                if (placer.isFull()) {
+                    break;
+                }
+                if (tryPlaceVillageName(i, placer)) {
+                    placed[count++] = i;
+                }
+            }
+            return Arrays.copyOf(placed, count);
+        }
+
+        private boolean tryPlaceVillageName(int village, LabelPlacer placer) {
+            double x = sx(village) + 8;
+            double y = sy(village) + 3;
+            double textWidth = LabelPlacer.estimateTextWidth(store.villageName(village), VILLAGE_FONT_SIZE);
+            return placer.tryPlace(x, y - VILLAGE_FONT_SIZE, x + textWidth, y + 4);
+        }
+
+        // 以普通样式批量绘制村庄名称
+        private void drawVillageNames(int[] villages) {
+            s.setFill(BLACK);
+            s.setFontSize(VILLAGE_FONT_SIZE);
+            for (int i : villages) {
+                s.fillText(store.villageName(i), sx(i) + 8, sy(i) + 3);
+            }
+        }
+
+        // 道路标签按屏幕上的道路长度从长到短放置，返回放置成功的标签
+        private List<PlacedLabel> placeRoadLabels(int[] visibleRoads, LabelPlacer placer) {
+            int[] starts = store.roadStarts();
+            int[] ends = store.roadEnds();
+            List<PlacedLabel> candidates = new ArrayList<>(visibleRoads.length);
+            for (int r : visibleRoads) {
+                double x1 = sx(starts[r]);
+                double y1 = sy(starts[r]);
+                double x2 = sx(ends[r]);
+                double y2 = sy(ends[r]);
+                candidates.add(PlacedLabel.at(label(r), x1, y1, x2, y2));
+            }
+            candidates.sort(Comparator.comparingDouble(PlacedLabel::screenLength).reversed());
+
+            List<PlacedLabel> placed = new ArrayList<>();
+            for (PlacedLabel candidate : candidates) {
+                if (placer.isFull()) {
+                    break;
+                }
+                double[] box = candidate.bounds();
+                if (placer.tryPlace(box[0], box[1], box[2], box[3])) {
+                    placed.add(candidate);
+                }
+            }
+            return placed;
+        }
+
+        /**
+         * 以普通样式批量绘制道路标签
+         * 先绘制所有背景再绘制所有文字，每个标签只设置一次变换矩阵
+         */
+        private void drawRoadLabels(List<PlacedLabel> placed) {
+            if (placed.isEmpty()) {
+                return;
+            }
+            s.setFontSize(ROAD_FONT_SIZE);
+            s.setTextAnchor(DrawSurface.TextAnchor.CENTER);
+
+            s.setFill(LABEL_BACKGROUND);
+            for (PlacedLabel label : placed) {
+                label.applyTransform(s);
+                label.label().fillBackground(s);
+            }
+            s.setFill(BLACK);
+            for (PlacedLabel label : placed) {
+                label.applyTransform(s);
+                s.fillText(label.label().text(), 0, 0);
+            }
+
+            s.resetTransform();
+            s.setTextAnchor(DrawSurface.TextAnchor.BASELINE_LEFT);
+        }
+
+        /**
+         * 聚合绘制：村庄按屏幕网格合并为带数量的聚合点
+         * 同一聚合内部的道路不绘制，连接相同两个聚合的道路只绘制一条
+         */
+        private void drawClustered(int[] visibleRoads, int[] visibleVillages) {
+            Map<Long, Cluster> clusters = new HashMap<>();
+            for (int i : visibleVillages) {
+                cluster(clusters, cellKey(sx(i), sy(i), CLUSTER_CELL));
+            }
+            List<Cluster> visible = new ArrayList<>(clusters.values());
+
+            if (geometry()) {
+                long start = start();
+                int[] starts = store.roadStarts();
+                int[] ends = store.roadEnds();
+                Set<Segment> drawn = new HashSet<>();
+                s.setStroke(ROAD_COLOR);
+                s.setLineWidth(1.5);
+                s.beginPath();
+                int pending = 0;
+                for (int r : visibleRoads) {
+                    long from = cellKey(sx(starts[r]), sy(starts[r]), CLUSTER_CELL);
+                    long to = cellKey(sx(ends[r]), sy(ends[r]), CLUSTER_CELL);
+                    if (from == to || !drawn.add(Segment.of(from, to))) {
+                        continue;
+                    }
+                    Cluster a = cluster(clusters, from);
+                    Cluster b = cluster(clusters, to);
+                    s.moveTo(a.centerX(), a.centerY());
+                    s.lineTo(b.centerX(), b.centerY());
+                    if (++pending == BATCH_SIZE) {
+                        s.stroke();
+                        s.beginPath();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    s.stroke();
+                }
+                count(RenderStats.Counter.ROADS_DRAWN, drawn.size());
+                count(RenderStats.Counter.ROADS_MERGED, visibleRoads.length - drawn.size());
+                time(RenderStats.Layer.ROADS, start);
+            }
+
+            int[] singles = new int[visible.size()];
+            int singleCount = 0;
+            List<Cluster> groups = new ArrayList<>();
+            for (Cluster cluster : visible) {
+                if (cluster.count == 1) {
+                    singles[singleCount++] = cluster.first;
+                } else {
+                    groups.add(cluster);
+                }
+            }
+            if (geometry()) {
+                long start = start();
+                fillVillageNodes(singles, singleCount);
+                drawClusters(groups);
+                count(RenderStats.Counter.CLUSTERS_DRAWN, groups.size());
+                time(RenderStats.Layer.VILLAGES, start);
+            }
+            if (labels()) {
+                long start = start();
+                LabelPlacer placer = new LabelPlacer(width, height, maxLabels);
+                for (Cluster cluster : visible) {
+                    double radius = clusterRadius(cluster.count);
+                    placer.block(cluster.centerX() - radius, cluster.centerY() - radius,
+                            cluster.centerX() + radius, cluster.centerY() + radius);
+                }
+                int[] named = new int[singleCount];
+                int namedCount = 0;
+                for (int k = 0; k < singleCount && !placer.isFull(); k++) {
+                    if (tryPlaceVillageName(singles[k], placer)) {
+                        named[namedCount++] = singles[k];
+                    }
+                }
+                drawVillageNames(Arrays.copyOf(named, namedCount));
+                count(RenderStats.Counter.LABELS_DRAWN, namedCount);
+                count(RenderStats.Counter.LABELS_SKIPPED, singleCount - namedCount);
+                time(RenderStats.Layer.LABELS, start);
+            }
+        }
+
+        /**
+         * 获取网格对应的聚合点，首次访问时从空间索引查询整个网格内的村庄
+         * 聚合点只由网格内的全部村庄决定，与可见范围无关，相邻瓦片绘制的同一聚合点位置一致
+         */
+        private Cluster cluster(Map<Long, Cluster> clusters, long key) {
+            Cluster cluster = clusters.get(key);
+            if (cluster == null) {
+                cluster = new Cluster();
+                double left = (key >> 32) * CLUSTER_CELL;
+                double top = (int) key * CLUSTER_CELL;
+                // 查询范围各边扩大1像素，避免浮点误差漏掉网格边界上的村庄
+                int[] villages = index.queryVillages(view.toWorldX(left - 1), view.toWorldY(top - 1),
+                        view.toWorldX(left + CLUSTER_CELL + 1), view.toWorldY(top + CLUSTER_CELL + 1));
+                for (int i : villages) {
+                    double x = sx(i);
+                    double y = sy(i);
+                    if (cellKey(x, y, CLUSTER_CELL) == key) {
+                        cluster.add(i, x, y);
+                    }
+                }
+                clusters.put(key, cluster);
+            }
+            return cluster;
+        }
+
+        // 批量绘制聚合点：半透明圆形、白色边框和村庄数量
+        private void drawClusters(List<Cluster> clusters) {
+            if (clusters.isEmpty()) {
+                return;
+            }
+            s.setFill(CLUSTER_COLOR);
+            s.beginPath();
+            for (Cluster cluster : clusters) {
+                s.addCircle(cluster.centerX(), cluster.centerY(), clusterRadius(cluster.count));
+            }
+            s.fill();
+
+            s.setStroke(WHITE);
+            s.setLineWidth(1.5);
+            s.beginPath();
+            for (Cluster cluster : clusters) {
+                s.addCircle(cluster.centerX(), cluster.centerY(), clusterRadius(cluster.count));
+            }
+            s.stroke();
+
+            s.setFill(WHITE);
+            s.setFontSize(SMALL_FONT_SIZE);
+            s.setTextAnchor(DrawSurface.TextAnchor.CENTER);
+            for (Cluster cluster : clusters) {
+                s.fillText(String.valueOf(cluster.count), cluster.centerX(), cluster.centerY());
+            }
+            s.setTextAnchor(DrawSurface.TextAnchor.BASELINE_LEFT);
+        }
+    }
+
+    // 聚合点半径随村庄数量对数增长
+    private static double clusterRadius(int count) {
+        return count == 1 ? 5 : Math.min(16, 7 + 2.5 * Math.log10(count));
+    }
+
+    // 屏幕坐标所在网格的编号
+    private static long cellKey(double x, double y, double cellSize) {
+        long cx = (long) Math.floor(x / cellSize);
+        long cy = (long) Math.floor(y / cellSize);
+        return (cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    // 两个网格之间的线段，端点按编号排序，与方向无关
+    private record Segment(long from, long to) {
+        static Segment of(long a, long b) {
+            return a <= b ? new Segment(a, b) : new Segment(b, a);
+        }
+    }
+
+    /**
+     * 道路标签几何，与视口无关：文字、宽度、旋转角度和垂直偏移
+     * 同时记录计算时的名称、长度和端点坐标，用于判断缓存是否仍然有效
+     */
+    record RoadLabel(String name, double length, int x1, int y1, int x2, int y2,
+                     String text, double width, double cos, double sin, double offsetY) {
+        static final double HEIGHT = ROAD_FONT_SIZE + 2;
+        static final double PADDING = 2;
+
+        static RoadLabel of(MapStore store, int r) {
+            int start = store.roadStart(r);
+            int end = store.roadEnd(r);
+            return of(store.roadName(r), store.roadLength(r), store.x(start), store.y(start), store.x(end), store.y(end));
+        }
+
+        static RoadLabel of(String name, double length, int x1, int y1, int x2, int y2) {
+            double angle = Math.atan2(y2 - y1, x2 - x1) * 180 / Math.PI;
+            // 增加垂直偏移以避免遮挡道路
+            double offsetY = -10 * Math.sin((angle + Math.PI / 2) * Math.PI / 180);
+            // 如果角度在90到270度之间，翻转文本以保证可读性
+            if (angle > 90 && angle <= 270) {
+                angle -= 180;
+            }
+            String text = roadLabelText(name, length);
+            double radians = Math.toRadians(angle);
+            return new RoadLabel(name, length, x1, y1, x2, y2,
+                    text, ROAD_FONT_SIZE * text.length() * 0.6, Math.cos(radians), Math.sin(radians), offsetY);
+        }
+
+        boolean matches(MapStore store, int r) {
+            int start = store.roadStart(r);
+            int end = store.roadEnd(r);
+            return Objects.equals(name, store.roadName(r)) && length == store.roadLength(r)
+                    && x1 == store.x(start) && y1 == store.y(start)
+                    && x2 == store.x(end) && y2 == store.y(end);
+        }
+
+        // 在已旋转的坐标系中绘制文字背景
+        void fillBackground(DrawSurface s) {
+            s.fillRect(-width / 2 - PADDING, -HEIGHT / 2 - PADDING, width + PADDING * 2, HEIGHT + PADDING * 2);
+        }
+    }
+
+    // 道路标签在画布上的位置
+    record PlacedLabel(RoadLabel label, double x, double y, double screenLength) {
+        static PlacedLabel at(RoadLabel label, double x1, double y1, double x2, double y2) {
+            return new PlacedLabel(label, (x1 + x2) / 2, (y1 + y2) / 2 + label.offsetY(), Math.hypot(x2 - x1, y2 - y1));
+        }
+
+        // 将坐标系平移到标签中心并旋转
+        void applyTransform(DrawSurface s) {
+            s.setTransform(label.cos(), label.sin(), -label.sin(), label.cos(), x, y);
+        }
+
+        // 旋转后背景的包围盒
+        double[] bounds() {
+            double width = label.width() + RoadLabel.PADDING * 2;
+            double height = RoadLabel.HEIGHT + RoadLabel.PADDING * 2;
+            double halfWidth = (Math.abs(width * label.cos()) + Math.abs(height * label.sin())) / 2;
+            double halfHeight = (Math.abs(width * label.sin()) + Math.abs(height * label.cos())) / 2;
+            return new double[]{x - halfWidth, y - halfHeight, x + halfWidth, y + halfHeight};
+        }
+    }
+
+    // 一个聚合点：屏幕坐标的累加值和第一个村庄
+    private static final class Cluster {
+        private int count;
+        private double sumX;
+        private double sumY;
+        private int first;
+
+        void add(int village, double x, double y) {
+            if (count == 0) {
+                first = village;
+            }
+            count++;
+            sumX += x;
+            sumY += y;
+        }
+
+        double centerX() {
+            return sumX / count;
+        }
+
+        double centerY() {
+            return sumY / count;
+        }
+    }
+}
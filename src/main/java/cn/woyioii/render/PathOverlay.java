@@ -0,0 +1,152 @@
+package cn.woyioii.render;
+
+import cn.woyioii.model.Village;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 路径覆盖层数据
+ * <p>高亮路径时一次性计算绘制所需的数据：路径上村庄的坐标、重复路段的偏移量和去重后的村庄，
+ * 每帧只做坐标变换，绘制耗时与路径长度成正比，与村庄总数无关。</p>
+ * <p>同时计算各路段起点沿路径的累计长度，回放动画时按二分查找定位标记所在的路段。</p>
+ */
+final class PathOverlay {
+    static final PathOverlay EMPTY = new PathOverlay(new int[0], new int[0], new int[0], new String[0],
+            new double[0], new double[]{0}, new int[0], false, false);
+
+    // 同一路段每重复经过一次偏移的像素数
+    private static final double REPEAT_OFFSET = 4;
+
+    private final int[] ids;          // 按路径顺序排列的村庄ID
+    private final int[] xs;           // 村庄的世界坐标
+    private final int[] ys;
+    private final String[] names;
+    private final double[] offsets;   // 每个路段的偏移像素，回路包含返回起点的一段
+    private final double[] distances; // 各路段起点沿路径的累计长度（世界坐标），末尾为路径总长度
+    private final int[] distinct;     // 去重后的村庄在路径中的下标，按首次出现的顺序
+    private final boolean withRoads;  // 是否按道路绘制（带箭头和起终点标记）
+    private final boolean roundTrip;  // 是否为回路
+
+    private PathOverlay(int[] ids, int[] xs, int[] ys, String[] names, double[] offsets, double[] distances,
+                        int[] distinct, boolean withRoads, boolean roundTrip) {
+        this.ids = ids;
+        this.xs = xs;
+        this.ys = ys;
+        this.names = names;
+        this.offsets = offsets;
+        this.distances = distances;
+        this.distinct = distinct;
+        this.withRoads = withRoads;
+        this.roundTrip = roundTrip;
+    }
+
+    /**
+     * 根据路径上的村庄建立覆盖层，村庄少于两个时返回空覆盖层
+     */
+    static PathOverlay of(List<Village> path, boolean withRoads, boolean roundTrip) {
+        if (path == null || path.size() < 2) {
+            return EMPTY;
+        }
+        int n = path.size();
+        int[] ids = new int[n];
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        String[] names = new String[n];
+        int[] distinct = new int[n];
+        int distinctCount = 0;
+        Set<Integer> seen = new HashSet<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            Village village = path.get(i);
+            ids[i] = village.getId();
+            xs[i] = village.getLocateX();
+            ys[i] = village.getLocateY();
+            names[i] = village.getName();
+            if (seen.add(ids[i])) {
+                distinct[distinctCount++] = i;
+            }
+        }
+
+        // 同一路段（不分方向）第k次经过时偏移k × 4像素，避免往返路线重叠
+        int segments = withRoads && roundTrip ? n : n - 1;
+        double[] offsets = new double[segments];
+        double[] distances = new double[segments + 1];
+        Map<Long, Integer> segmentCount = new HashMap<>(segments * 2);
+        for (int i = 0; i < segments; i++) {
+            int a = ids[i];
+            int b = ids[(i + 1) % n];
+            long key = a < b ? ((long) a << 32) | (b & 0xFFFFFFFFL) : ((long) b << 32) | (a & 0xFFFFFFFFL);
+            offsets[i] = (segmentCount.merge(key, 1, Integer::sum) - 1) * REPEAT_OFFSET;
+            int next = (i + 1) % n;
+            distances[i + 1] = distances[i] + Math.hypot(xs[next] - xs[i], ys[next] - ys[i]);
+        }
+        return new PathOverlay(ids, xs, ys, names, offsets, distances, Arrays.copyOf(distinct, distinctCount),
+                withRoads, roundTrip);
+    }
+
+    boolean isEmpty() {
+        return ids.length < 2;
+    }
+
+    // 路径上的村庄数（含重复）
+    int size() {
+        return ids.length;
+    }
+
+    int segmentCount() {
+        return offsets.length;
+    }
+
+    int id(int i) {
+        return ids[i];
+    }
+
+    int x(int i) {
+        return xs[i];
+    }
+
+    int y(int i) {
+        return ys[i];
+    }
+
+    String name(int i) {
+        return names[i];
+    }
+
+    double offset(int segment) {
+        return offsets[segment];
+    }
+
+    // 路径总长度（世界坐标）
+    double length() {
+        return distances[distances.length - 1];
+    }
+
+    // 路段起点沿路径的累计长度，segment等于路段数时为总长度
+    double distanceAt(int segment) {
+        return distances[segment];
+    }
+
+    // 沿路径距离为distance的点所在的路段，超出范围时取第一段或最后一段
+    int segmentAt(double distance) {
+        int found = Arrays.binarySearch(distances, distance);
+        int segment = found >= 0 ? found : -found - 2;
+        return Math.max(0, Math.min(segment, offsets.length - 1));
+    }
+
+    int[] distinct() {
+        return distinct;
+    }
+
+    boolean isWithRoads() {
+        return withRoads;
+    }
+
+    boolean isRoundTrip() {
+        return roundTrip;
+    }
+}
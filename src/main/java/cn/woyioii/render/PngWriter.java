@@ -0,0 +1,116 @@
+package cn.woyioii.render;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 流式PNG编码器
+ * <p>按从上到下的顺序逐行写入8位RGB像素，压缩后的数据按块立即输出，
+ * 内存占用与图像高度无关，可以编码无法整体放入内存的大图。</p>
+ */
+final class PngWriter implements AutoCloseable {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int CHUNK_SIZE = 64 * 1024;   // 每个IDAT块的最大字节数
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final Deflater deflater;
+    private final byte[] row;
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private int rowsWritten;
+
+    PngWriter(OutputStream out, int width, int height) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.row = new byte[1 + width * 3];
+
+        this.out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = 8;    // 位深度
+        header[9] = 2;    // 颜色类型：RGB
+        header[10] = 0;   // 压缩方法
+        header[11] = 0;   // 滤波方法
+        header[12] = 0;   // 不隔行扫描
+        writeChunk("IHDR", header, header.length);
+    }
+
+    /**
+     * 写入若干行像素
+     * @param rgb 按行排列的像素，每个int的低24位为RGB
+     * @param rows 行数
+     */
+    void writeRows(int[] rgb, int rows) throws IOException {
+        if (rowsWritten + rows > height) {
+            throw new IllegalStateException("写入的行数超过图像高度");
+        }
+        for (int y = 0; y < rows; y++) {
+            row[0] = 0;   // 不使用滤波
+            int offset = y * width;
+            for (int x = 0, i = 1; x < width; x++) {
+                int pixel = rgb[offset + x];
+                row[i++] = (byte) (pixel >> 16);
+                row[i++] = (byte) (pixel >> 8);
+                row[i++] = (byte) pixel;
+            }
+            deflater.setInput(row);
+            while (!deflater.needsInput()) {
+                flushCompressed(Deflater.NO_FLUSH);
+            }
+        }
+        rowsWritten += rows;
+    }
+
+    /**
+     * 写入剩余的压缩数据和结束块，所有行都写入后调用
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsWritten != height) {
+                throw new IllegalStateException("图像未写完: " + rowsWritten + "/" + height + "行");
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                flushCompressed(Deflater.NO_FLUSH);
+            }
+            writeChunk("IEND", new byte[0], 0);
+            out.flush();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void flushCompressed(int mode) throws IOException {
+        int length = deflater.deflate(buffer, 0, buffer.length, mode);
+        if (length > 0) {
+            writeChunk("IDAT", buffer, length);
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+}
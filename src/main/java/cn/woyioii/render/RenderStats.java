@@ -0,0 +1,140 @@
+package cn.woyioii.render;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <h1>渲染统计</h1>
+ * <p>累计地图各图层的绘制耗时、绘制和裁剪的图元数量以及合成的帧数。</p>
+ *
+ * <h2>说明</h2>
+ * <ul>
+ *   <li>网格、道路、村庄和标签的耗时在绘制它们的线程上统计，包括后台绘制瓦片和布局标签的时间</li>
+ *   <li>覆盖层和帧合成的耗时在JavaFX应用线程统计，决定界面的流畅程度</li>
+ *   <li>计数器可以被多个绘制线程同时累加，读取时通过{@link #snapshot()}得到一致性较弱的快照</li>
+ *   <li>两次快照相减即为这段时间内的统计，用于计算帧率和每帧耗时</li>
+ * </ul>
+ *
+ * @author woyioii
+ * @since 1.0
+ */
+public final class RenderStats {
+
+    /**
+     * 计时的图层
+     */
+    public enum Layer {
+        GRID("网格"),
+        ROADS("道路"),
+        VILLAGES("村庄"),
+        LABELS("标签"),
+        OVERLAY("覆盖层");
+
+        private final String displayName;
+
+        Layer(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * 图元计数
+     */
+    public enum Counter {
+        ROADS_DRAWN,       // 绘制的道路线段
+        ROADS_MERGED,      // 端点吸附到同一网格后合并掉的道路
+        ROADS_CULLED,      // 不在可见范围内、由空间索引排除的道路
+        VILLAGES_DRAWN,    // 绘制的村庄节点（不含聚合点）
+        CLUSTERS_DRAWN,    // 绘制的聚合点
+        VILLAGES_CULLED,   // 不在可见范围内的村庄
+        LABELS_DRAWN,      // 绘制的村庄名称和道路标签
+        LABELS_SKIPPED,    // 因重叠或数量上限未绘制的标签
+        TILES_RENDERED     // 绘制完成的瓦片
+    }
+
+    private final AtomicLongArray layerNanos = new AtomicLongArray(Layer.values().length);
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong frameNanos = new AtomicLong();
+
+    void addTime(Layer layer, long nanos) {
+        layerNanos.addAndGet(layer.ordinal(), nanos);
+    }
+
+    void add(Counter counter, long value) {
+        if (value != 0) {
+            counters.addAndGet(counter.ordinal(), value);
+        }
+    }
+
+    // 记录一帧的合成耗时
+    void addFrame(long nanos) {
+        frames.incrementAndGet();
+        frameNanos.addAndGet(nanos);
+    }
+
+    public Snapshot snapshot() {
+        long[] nanos = new long[layerNanos.length()];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = layerNanos.get(i);
+        }
+        long[] counts = new long[counters.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = counters.get(i);
+        }
+        return new Snapshot(nanos, counts, frames.get(), frameNanos.get(), System.nanoTime());
+    }
+
+    public void reset() {
+        for (int i = 0; i < layerNanos.length(); i++) {
+            layerNanos.set(i, 0);
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        frames.set(0);
+        frameNanos.set(0);
+    }
+
+    /**
+     * 某一时刻的累计统计
+     * @param time 取快照的时间（纳秒，{@link System#nanoTime()}），两个快照相减后为经过的时间
+     */
+    public record Snapshot(long[] layerNanos, long[] counters, long frames, long frameNanos, long time) {
+
+        public long nanos(Layer layer) {
+            return layerNanos[layer.ordinal()];
+        }
+
+        public double millis(Layer layer) {
+            return nanos(layer) / 1e6;
+        }
+
+        public long count(Counter counter) {
+            return counters[counter.ordinal()];
+        }
+
+        // 平均每帧合成耗时（毫秒）
+        public double averageFrameMillis() {
+            return frames == 0 ? 0 : frameNanos / 1e6 / frames;
+        }
+
+        // 与较早的快照之间的统计
+        public Snapshot minus(Snapshot earlier) {
+            long[] nanos = new long[layerNanos.length];
+            for (int i = 0; i < nanos.length; i++) {
+                nanos[i] = layerNanos[i] - earlier.layerNanos[i];
+            }
+            long[] counts = new long[counters.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = counters[i] - earlier.counters[i];
+            }
+            return new Snapshot(nanos, counts, frames - earlier.frames, frameNanos - earlier.frameNanos,
+                    time - earlier.time);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package cn.woyioii.render;
+
+import cn.woyioii.model.MapStore;
+
+import java.util.Arrays;
+
+/**
+ * 村庄与道路的均匀网格空间索引
+ * <p>将村庄坐标的范围划分为网格，村庄按坐标、道路按包围盒登记到所在的格子中，
+ * 查询矩形范围时只检查与之相交的格子。跨越格子过多的长道路单独保存，每次查询都逐一检查。</p>
+ * <p>查询结果为村庄、道路在{@link MapStore}中的下标，按升序排列以保持原有的绘制顺序。
+ * 建立后不再修改，可以在多个线程中同时查询。</p>
+ */
+final class SpatialIndex {
+    private static final int MAX_CELLS_PER_SIDE = 1024;
+    private static final int MAX_ROAD_CELLS = 64;   // 道路包围盒最多登记的格子数
+
+    // 网格参数
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final int cols;
+    private final int rows;
+    private final double cellWidth;
+    private final double cellHeight;
+
+    // 村庄坐标，下标与村庄列表一致
+    private final double[] villageX;
+    private final double[] villageY;
+    // 每个格子中的村庄下标（CSR格式：villageCellStart[c]到villageCellStart[c+1]之间）
+    private final int[] villageCellStart;
+    private final int[] villageCells;
+
+    // 道路包围盒
+    private final double[] roadMinX;
+    private final double[] roadMinY;
+    private final double[] roadMaxX;
+    private final double[] roadMaxY;
+    private final int[] roadCellStart;
+    private final int[] roadCells;
+    private final int[] oversizedRoads;
+
+    private SpatialIndex(double minX, double minY, double maxX, double maxY, int cols, int rows,
+                         double[] villageX, double[] villageY, int[] villageCellStart, int[] villageCells,
+                         double[] roadMinX, double[] roadMinY, double[] roadMaxX, double[] roadMaxY,
+                         int[] roadCellStart, int[] roadCells, int[] oversizedRoads) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.cols = cols;
+        this.rows = rows;
+        this.cellWidth = Math.max(maxX - minX, 1) / cols;
+        this.cellHeight = Math.max(maxY - minY, 1) / rows;
+        this.villageX = villageX;
+        this.villageY = villageY;
+        this.villageCellStart = villageCellStart;
+        this.villageCells = villageCells;
+        this.roadMinX = roadMinX;
+        this.roadMinY = roadMinY;
+        this.roadMaxX = roadMaxX;
+        this.roadMaxY = roadMaxY;
+        this.roadCellStart = roadCellStart;
+        this.roadCells = roadCells;
+        this.oversizedRoads = oversizedRoads;
+    }
+
+    /**
+     * 由列式存储建立空间索引
+     */
+    static SpatialIndex build(MapStore store) {
+        int n = store.getVillageCount();
+        int[] xs = store.xs();
+        int[] ys = store.ys();
+        double[] villageX = new double[n];
+        double[] villageY = new double[n];
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            villageX[i] = xs[i];
+            villageY[i] = ys[i];
+            minX = Math.min(minX, villageX[i]);
+            minY = Math.min(minY, villageY[i]);
+            maxX = Math.max(maxX, villageX[i]);
+            maxY = Math.max(maxY, villageY[i]);
+        }
+        if (n == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+
+        // 列式存储中道路的端点都存在
+        int m = store.getRoadCount();
+        int[] starts = store.roadStarts();
+        int[] ends = store.roadEnds();
+        double[] roadMinX = new double[m];
+        double[] roadMinY = new double[m];
+        double[] roadMaxX = new double[m];
+        double[] roadMaxY = new double[m];
+        for (int r = 0; r < m; r++) {
+            roadMinX[r] = Math.min(xs[starts[r]], xs[ends[r]]);
+            roadMinY[r] = Math.min(ys[starts[r]], ys[ends[r]]);
+            roadMaxX[r] = Math.max(xs[starts[r]], xs[ends[r]]);
+            roadMaxY[r] = Math.max(ys[starts[r]], ys[ends[r]]);
+        }
+
+        // 每个格子平均约4个对象
+        int side = (int) Math.ceil(Math.sqrt((n + m) / 4.0));
+        side = Math.max(1, Math.min(MAX_CELLS_PER_SIDE, side));
+        double width = Math.max(maxX - minX, 1);
+        double height = Math.max(maxY - minY, 1);
+        int cols = Math.max(1, (int) Math.round(side * Math.sqrt(width / height)));
+        int rows = Math.max(1, (int) Math.round(side * Math.sqrt(height / width)));
+        cols = Math.min(cols, MAX_CELLS_PER_SIDE);
+        rows = Math.min(rows, MAX_CELLS_PER_SIDE);
+        double cellWidth = width / cols;
+        double cellHeight = height / rows;
+
+        // 村庄：先计数，再填充
+        int[] villageCell = new int[n];
+        int[] villageCellStart = new int[cols * rows + 1];
+        for (int i = 0; i < n; i++) {
+            int cx = clamp((int) ((villageX[i] - minX) / cellWidth), cols);
+            int cy = clamp((int) ((villageY[i] - minY) / cellHeight), rows);
+            villageCell[i] = cy * cols + cx;
+            villageCellStart[villageCell[i] + 1]++;
+        }
+        prefixSum(villageCellStart);
+        int[] villageCells = new int[n];
+        int[] fill = Arrays.copyOf(villageCellStart, villageCellStart.length - 1);
+        for (int i = 0; i < n; i++) {
+            villageCells[fill[villageCell[i]]++] = i;
+        }
+
+        // 道路：包围盒覆盖的所有格子，跨越过多格子的道路单独保存
+        int[] roadCellStart = new int[cols * rows + 1];
+        boolean[] oversized = new boolean[m];
+        int oversizedCount = 0;
+        for (int r = 0; r < m; r++) {
+            int cx0 = clamp((int) ((roadMinX[r] - minX) / cellWidth), cols);
+            int cx1 = clamp((int) ((roadMaxX[r] - minX) / cellWidth), cols);
+            int cy0 = clamp((int) ((roadMinY[r] - minY) / cellHeight), rows);
+            int cy1 = clamp((int) ((roadMaxY[r] - minY) / cellHeight), rows);
+            if ((long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1) > MAX_ROAD_CELLS) {
+                oversized[r] = true;
+                oversizedCount++;
+                continue;
+            }
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    roadCellStart[cy * cols + cx + 1]++;
+                }
+            }
+        }
+        prefixSum(roadCellStart);
+        int[] roadCells = new int[roadCellStart[roadCellStart.length - 1]];
+        fill = Arrays.copyOf(roadCellStart, roadCellStart.length - 1);
+        int[] oversizedRoads = new int[oversizedCount];
+        int o = 0;
+        for (int r = 0; r < m; r++) {
+            if (oversized[r]) {
+                oversizedRoads[o++] = r;
+                continue;
+            }
+            int cx0 = clamp((int) ((roadMinX[r] - minX) / cellWidth), cols);
+            int cx1 = clamp((int) ((roadMaxX[r] - minX) / cellWidth), cols);
+            int cy0 = clamp((int) ((roadMinY[r] - minY) / cellHeight), rows);
+            int cy1 = clamp((int) ((roadMaxY[r] - minY) / cellHeight), rows);
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    roadCells[fill[cy * cols + cx]++] = r;
+                }
+            }
+        }
+
+        return new SpatialIndex(minX, minY, maxX, maxY, cols, rows,
+                villageX, villageY, villageCellStart, villageCells,
+                roadMinX, roadMinY, roadMaxX, roadMaxY, roadCellStart, roadCells, oversizedRoads);
+    }
+
+    private static void prefixSum(int[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+    }
+
+    private static int clamp(int cell, int count) {
+        return Math.max(0, Math.min(count - 1, cell));
+    }
+
+    boolean isEmpty() {
+        return villageX.length == 0;
+    }
+
+    // 村庄坐标范围
+    double getMinX() {
+        return minX;
+    }
+
+    double getMinY() {
+        return minY;
+    }
+
+    double getMaxX() {
+        return maxX;
+    }
+
+    double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * 查询位于矩形范围内的村庄
+     * @return 村庄下标，升序
+     */
+    int[] queryVillages(double qMinX, double qMinY, double qMaxX, double qMaxY) {
+        if (isEmpty() || qMaxX < minX || qMinX > maxX || qMaxY < minY || qMinY > maxY) {
+            return new int[0];
+        }
+        int cx0 = clamp((int) Math.floor((qMinX - minX) / cellWidth), cols);
+        int cx1 = clamp((int) Math.floor((qMaxX - minX) / cellWidth), cols);
+        int cy0 = clamp((int) Math.floor((qMinY - minY) / cellHeight), rows);
+        int cy1 = clamp((int) Math.floor((qMaxY - minY) / cellHeight), rows);
+
+        int[] result = new int[16];
+        int count = 0;
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int cell = cy * cols + cx;
+                for (int k = villageCellStart[cell]; k < villageCellStart[cell + 1]; k++) {
+                    int i = villageCells[k];
+                    double x = villageX[i];
+                    double y = villageY[i];
+                    if (x >= qMinX && x <= qMaxX && y >= qMinY && y <= qMaxY) {
+                        if (count == result.length) {
+                            result = Arrays.copyOf(result, count * 2);
+                        }
+                        result[count++] = i;
+                    }
+                }
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * 查询包围盒与矩形范围相交的道路
+     * @return 道路下标，升序
+     */
+    int[] queryRoads(double qMinX, double qMinY, double qMaxX, double qMaxY) {
+        int[] result = new int[16];
+        int count = 0;
+
+        if (!isEmpty() && qMaxX >= minX && qMinX <= maxX && qMaxY >= minY && qMinY <= maxY) {
+            int cx0 = clamp((int) Math.floor((qMinX - minX) / cellWidth), cols);
+            int cx1 = clamp((int) Math.floor((qMaxX - minX) / cellWidth), cols);
+            int cy0 = clamp((int) Math.floor((qMinY - minY) / cellHeight), rows);
+            int cy1 = clamp((int) Math.floor((qMaxY - minY) / cellHeight), rows);
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    int cell = cy * cols + cx;
+                    for (int k = roadCellStart[cell]; k < roadCellStart[cell + 1]; k++) {
+                        int r = roadCells[k];
+                        if (!intersects(r, qMinX, qMinY, qMaxX, qMaxY)) {
+                            continue;
+                        }
+                        if (count == result.length) {
+                            result = Arrays.copyOf(result, count * 2);
+                        }
+                        result[count++] = r;
+                    }
+                }
+            }
+        }
+        for (int r : oversizedRoads) {
+            if (intersects(r, qMinX, qMinY, qMaxX, qMaxY)) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = r;
+            }
+        }
+        // 跨越多个格子的道路会被重复收集，排序后去重
+        Arrays.sort(result, 0, count);
+        int unique = 0;
+        for (int k = 0; k < count; k++) {
+            if (unique == 0 || result[k] != result[unique - 1]) {
+                result[unique++] = result[k];
+            }
+        }
+        return Arrays.copyOf(result, unique);
+    }
+
+    private boolean intersects(int r, double qMinX, double qMinY, double qMaxX, double qMaxY) {
+        return roadMaxX[r] >= qMinX && roadMinX[r] <= qMaxX && roadMaxY[r] >= qMinY && roadMinY[r] <= qMaxY;
+    }
+}
@@ -0,0 +1,135 @@
+package cn.woyioii.render;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * 底图瓦片缓存
+ * <p>几何图层在离散的缩放级别上按固定大小的瓦片绘制，瓦片按最近使用顺序淘汰，
+ * 缓存占用的像素内存不超过上限。</p>
+ * <p>瓦片像素由{@link #rasterize}在后台线程用Java2D绘制，缓存本身只在JavaFX应用线程访问。</p>
+ */
+final class TileCache {
+    static final int TILE_SIZE = 256;
+    static final int LEVELS_PER_OCTAVE = 2;   // 缩放每扩大一倍划分的级别数
+    private static final long TILE_BYTES = TILE_SIZE * TILE_SIZE * 4L;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, WritableImage> tiles = new LinkedHashMap<>(64, 0.75f, true);
+
+    TileCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // 获取瓦片并标记为最近使用，不存在时返回null
+    WritableImage get(Key key) {
+        return tiles.get(key);
+    }
+
+    boolean contains(Key key) {
+        return tiles.containsKey(key);
+    }
+
+    void put(Key key, WritableImage image) {
+        tiles.put(key, image);
+        var eldest = tiles.keySet().iterator();
+        while (getBytes() > maxBytes && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * 移除与变化范围相交的瓦片
+     * 聚合显示的瓦片中聚合点位置和连线受网格内所有村庄影响，数据变化时全部移除
+     * @param changed 世界坐标范围[minX, minY, maxX, maxY]，为null时清空缓存
+     * @param margin 图元超出其坐标的像素数，如节点半径和聚合点大小
+     */
+    void invalidate(List<double[]> changed, double margin) {
+        if (changed == null) {
+            tiles.clear();
+            return;
+        }
+        tiles.keySet().removeIf(key -> key.clustered() || changed.stream().anyMatch(box -> key.intersects(box, margin)));
+    }
+
+    int size() {
+        return tiles.size();
+    }
+
+    long getBytes() {
+        return tiles.size() * TILE_BYTES;
+    }
+
+    /**
+     * 在当前线程绘制一个瓦片的几何图层
+     * @param stats 渲染统计，为null时不统计
+     * @return 预乘透明度的ARGB像素
+     */
+    static int[] rasterize(MapScene scene, Key key, RenderStats stats) {
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = image.createGraphics();
+        try {
+            scene.draw(new AwtSurface(g), key.viewport(), TILE_SIZE, TILE_SIZE, MapScene.Layer.GEOMETRY,
+                    key.clustered(), stats);
+        } finally {
+            g.dispose();
+        }
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    // 将瓦片像素复制为JavaFX图像，只能在JavaFX应用线程调用
+    static WritableImage toImage(int[] pixels) {
+        WritableImage image = new WritableImage(TILE_SIZE, TILE_SIZE);
+        image.getPixelWriter().setPixels(0, 0, TILE_SIZE, TILE_SIZE,
+                PixelFormat.getIntArgbPreInstance(), pixels, 0, TILE_SIZE);
+        return image;
+    }
+
+    /**
+     * 瓦片编号：缩放级别、行列号和是否聚合显示
+     * 级别为level的瓦片按2^(level/LEVELS_PER_OCTAVE)的缩放绘制，第(x, y)个瓦片的左上角位于世界坐标
+     * (x, y) × TILE_SIZE / 缩放
+     */
+    record Key(int level, int x, int y, boolean clustered) {
+        // 最接近给定缩放的级别
+        static int levelOf(double scale) {
+            return (int) Math.round(Math.log(scale) / Math.log(2) * LEVELS_PER_OCTAVE);
+        }
+
+        static double scaleOf(int level) {
+            return Math.pow(2, (double) level / LEVELS_PER_OCTAVE);
+        }
+
+        // 瓦片边长对应的世界坐标长度
+        static double worldSize(int level) {
+            return TILE_SIZE / scaleOf(level);
+        }
+
+        double minX() {
+            return x * worldSize(level);
+        }
+
+        double minY() {
+            return y * worldSize(level);
+        }
+
+        // 绘制该瓦片时使用的视口
+        Viewport viewport() {
+            return new Viewport(scaleOf(level), minX(), minY());
+        }
+
+        boolean intersects(double[] box, double margin) {
+            double size = worldSize(level);
+            double worldMargin = margin / scaleOf(level);
+            return box[2] + worldMargin >= minX() && box[0] - worldMargin <= minX() + size
+                    && box[3] + worldMargin >= minY() && box[1] - worldMargin <= minY() + size;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package cn.woyioii.render;
+
+import lombok.Getter;
+
+/**
+ * 地图视口
+ * <p>维护村庄坐标（世界坐标）到画布像素坐标的变换：像素坐标 = (世界坐标 - 偏移) × 缩放。
+ * 默认缩放为1、偏移为0，即世界坐标按1:1绘制。</p>
+ */
+@Getter
+public class Viewport {
+    public static final double MIN_SCALE = 1e-4;
+    public static final double MAX_SCALE = 50;
+
+    private double scale = 1;   // 每个世界坐标单位对应的像素数
+    private double offsetX;     // 画布左上角对应的世界坐标
+    private double offsetY;
+
+    public Viewport() {
+    }
+
+    Viewport(double scale, double offsetX, double offsetY) {
+        this.scale = scale;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+    }
+
+    public double toScreenX(double worldX) {
+        return (worldX - offsetX) * scale;
+    }
+
+    public double toScreenY(double worldY) {
+        return (worldY - offsetY) * scale;
+    }
+
+    public double toWorldX(double screenX) {
+        return screenX / scale + offsetX;
+    }
+
+    public double toWorldY(double screenY) {
+        return screenY / scale + offsetY;
+    }
+
+    /**
+     * 平移视口
+     * @param dx 水平拖动的像素数
+     * @param dy 垂直拖动的像素数
+     */
+    public void pan(double dx, double dy) {
+        offsetX -= dx / scale;
+        offsetY -= dy / scale;
+    }
+
+    /**
+     * 以画布上的一点为中心缩放，该点对应的世界坐标保持不变
+     * @param factor 缩放倍数，大于1为放大
+     */
+    public void zoomAt(double factor, double screenX, double screenY) {
+        double worldX = toWorldX(screenX);
+        double worldY = toWorldY(screenY);
+        scale = clampScale(scale * factor);
+        offsetX = worldX - screenX / scale;
+        offsetY = worldY - screenY / scale;
+    }
+
+    /**
+     * 调整视口使世界坐标范围完整显示在画布中并居中
+     * @param padding 四周保留的像素
+     */
+    public void fit(double minX, double minY, double maxX, double maxY,
+                    double width, double height, double padding) {
+        double worldWidth = Math.max(maxX - minX, 1);
+        double worldHeight = Math.max(maxY - minY, 1);
+        double availableWidth = Math.max(width - padding * 2, 1);
+        double availableHeight = Math.max(height - padding * 2, 1);
+        scale = clampScale(Math.min(availableWidth / worldWidth, availableHeight / worldHeight));
+        offsetX = (minX + maxX) / 2 - width / 2 / scale;
+        offsetY = (minY + maxY) / 2 - height / 2 / scale;
+    }
+
+    // 复制当前视口，供后台线程绘制时使用
+    public Viewport copy() {
+        return new Viewport(scale, offsetX, offsetY);
+    }
+
+    // 恢复1:1显示
+    public void reset() {
+        scale = 1;
+        offsetX = 0;
+        offsetY = 0;
+    }
+
+    private static double clampScale(double value) {
+        return Math.max(MIN_SCALE, Math.min(MAX_SCALE, value));
+    }
+}
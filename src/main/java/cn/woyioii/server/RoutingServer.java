@@ -0,0 +1,363 @@
+package cn.woyioii.server;
+
+import cn.woyioii.model.MapGraph;
+import cn.woyioii.model.MapStore;
+import cn.woyioii.model.Road;
+import cn.woyioii.model.Village;
+import cn.woyioii.util.MapCalculator;
+import cn.woyioii.util.ProgressMonitor;
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * <h1>本地路线查询服务</h1>
+ * <p>基于JDK内置的HTTP服务器，在持有数据的进程内提供最短路径、距离矩阵、连通性和最优路径查询，
+ * 返回JSON。通过系统属性 {@code villagemap.http.port} 指定端口后随程序启动，只监听本机地址。</p>
+ *
+ * <h2>接口</h2>
+ * <ul>
+ *   <li>{@code GET /api/status}：当前快照的版本、村庄数和道路数</li>
+ *   <li>{@code GET /api/shortest-path?from=ID&to=ID}：两个村庄之间的最短路径</li>
+ *   <li>{@code GET /api/distance-matrix?ids=ID,ID,...}：指定村庄两两之间的最短距离，不可达为null</li>
+ *   <li>{@code GET /api/connectivity}：连通分量及其包含的村庄</li>
+ *   <li>{@code GET /api/optimal-route?start=ID}：从起点出发经过所有村庄的最优路径</li>
+ * </ul>
+ *
+ * <h2>并发</h2>
+ * <p>每个请求在独立的虚拟线程中处理。数据所有者在数据变化后调用 {@link #publish} 发布服务层构建的图，
+ * 请求只读取通过原子引用发布的不可变快照，编辑数据和处理请求互不阻塞；
+ * 邻接表和邻接矩阵随图按数据版本构建一次，与界面中的分析共享；
+ * 最优路径所需的所有点对最短路径表在快照上首次请求时计算一次，之后每次请求只构建路径。</p>
+ */
+@Slf4j
+public class RoutingServer {
+    public static final String PORT_PROPERTY = "villagemap.http.port";
+    // 距离矩阵最多包含的村庄数
+    private static final int MAX_MATRIX_SIZE = 200;
+    // 最优路径的最短路径表与村庄数量平方成正比，限制村庄数量
+    private static final int MAX_ROUTE_VILLAGES = 2000;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(0, MapGraph.EMPTY));
+    private final Gson gson = new Gson();
+
+    public RoutingServer(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        context("/api/status", this::status);
+        context("/api/shortest-path", this::shortestPath);
+        context("/api/distance-matrix", this::distanceMatrix);
+        context("/api/connectivity", this::connectivity);
+        context("/api/optimal-route", this::optimalRoute);
+    }
+
+    /**
+     * 按系统属性创建并启动服务
+     * @return 未设置端口时返回null
+     */
+    public static RoutingServer startFromSystemProperty() throws IOException {
+        String port = System.getProperty(PORT_PROPERTY);
+        if (port == null || port.isBlank()) {
+            return null;
+        }
+        RoutingServer routingServer = new RoutingServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port.trim())));
+        routingServer.start();
+        return routingServer;
+    }
+
+    public void start() {
+        server.start();
+        log.info("路线查询服务已启动: http://{}:{}/api/", server.getAddress().getHostString(), getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("路线查询服务已停止");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 发布新的数据快照，图未变化时保持当前版本
+     * @param graph 村庄道路图，创建后不可修改
+     */
+    public void publish(MapGraph graph) {
+        Snapshot published = snapshot.updateAndGet(current ->
+                current.graph() == graph ? current : new Snapshot(current.version() + 1, graph));
+        log.debug("发布路线查询快照: 版本{}，{}个村庄，{}条道路", published.version(),
+                graph.getVillageCount(), graph.store().getRoadCount());
+    }
+
+    public long getVersion() {
+        return snapshot.get().version();
+    }
+
+    private void context(String path, Function<Request, Map<String, Object>> handler) {
+        server.createContext(path, exchange -> handle(exchange, handler));
+    }
+
+    // 统一处理请求：校验方法、解析参数、读取快照并写出JSON
+    private void handle(HttpExchange exchange, Function<Request, Map<String, Object>> handler) throws IOException {
+        int status = 200;
+        Map<String, Object> body;
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                throw new RequestException(405, "只支持GET请求");
+            }
+            Snapshot current = snapshot.get();
+            body = new LinkedHashMap<>();
+            body.put("version", current.version());
+            body.putAll(handler.apply(new Request(current, parseQuery(exchange.getRequestURI().getRawQuery()))));
+        } catch (RequestException e) {
+            status = e.status;
+            body = Map.of("error", e.getMessage());
+        } catch (Exception e) {
+            log.error("处理请求失败: {}", exchange.getRequestURI(), e);
+            status = 500;
+            body = Map.of("error", "处理请求失败: " + e.getMessage());
+        }
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private Map<String, Object> status(Request request) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("villages", request.store().getVillageCount());
+        body.put("roads", request.store().getRoadCount());
+        return body;
+    }
+
+    private Map<String, Object> shortestPath(Request request) {
+        int from = request.village("from");
+        int to = request.village("to");
+        MapGraph.Paths paths = request.snapshot().graph().shortestPaths(from, to);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("from", request.store().villageId(from));
+        body.put("to", request.store().villageId(to));
+        body.put("reachable", paths.reachable(to));
+        if (paths.reachable(to)) {
+            body.put("distance", round(paths.distance(to)));
+            List<Integer> villages = new ArrayList<>();
+            List<Integer> roads = new ArrayList<>();
+            for (int road : paths.roadsTo(to)) {
+                int id = request.store().roadId(road);
+                roads.add(id == MapStore.NO_ID ? null : id);
+            }
+            for (int village : paths.villagesTo(to)) {
+                villages.add(request.store().villageId(village));
+            }
+            body.put("villages", villages);
+            body.put("roads", roads);
+        }
+        return body;
+    }
+
+    private Map<String, Object> distanceMatrix(Request request) {
+        String ids = request.param("ids");
+        String[] parts = ids.split(",");
+        if (parts.length > MAX_MATRIX_SIZE) {
+            throw new RequestException(400, "距离矩阵最多包含" + MAX_MATRIX_SIZE + "个村庄");
+        }
+        int[] indices = new int[parts.length];
+        List<Integer> villageIds = new ArrayList<>(parts.length);
+        for (int i = 0; i < parts.length; i++) {
+            indices[i] = request.indexOf(parts[i], "ids");
+            villageIds.add(request.store().villageId(indices[i]));
+        }
+        MapGraph graph = request.snapshot().graph();
+        List<List<Double>> distances = new ArrayList<>(indices.length);
+        for (int source : indices) {
+            MapGraph.Paths paths = graph.shortestPaths(source, -1);
+            List<Double> row = new ArrayList<>(indices.length);
+            for (int target : indices) {
+                row.add(paths.reachable(target) ? round(paths.distance(target)) : null);
+            }
+            distances.add(row);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ids", villageIds);
+        body.put("distances", distances);
+        return body;
+    }
+
+    private Map<String, Object> connectivity(Request request) {
+        MapStore store = request.store();
+        List<Set<Integer>> components = MapCalculator.checkConnectivity(store);
+        List<List<Integer>> result = new ArrayList<>(components.size());
+        for (Set<Integer> component : components) {
+            List<Integer> ids = new ArrayList<>(component.size());
+            for (int index : component) {
+                ids.add(store.villageId(index));
+            }
+            result.add(ids);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("componentCount", components.size());
+        body.put("components", result);
+        return body;
+    }
+
+    private Map<String, Object> optimalRoute(Request request) {
+        int start = request.village("start");
+        MapGraph graph = request.snapshot().graph();
+        MapStore store = graph.store();
+        if (store.getVillageCount() > MAX_ROUTE_VILLAGES) {
+            throw new RequestException(422, "村庄数量超过" + MAX_ROUTE_VILLAGES + "，无法计算最优路径");
+        }
+        MapCalculator.RouteResult route = MapCalculator.calculateOptimalRoute(graph, graph.villages().get(start),
+                request.snapshot().routes()::table);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("start", store.villageId(start));
+        body.put("success", route.isSuccess());
+        if (!route.isSuccess()) {
+            body.put("error", route.getErrorMessage());
+            return body;
+        }
+        body.put("distance", route.getTotalDistance());
+        body.put("villages", route.getPath().stream().map(Village::getId).toList());
+        body.put("roads", route.getPathRoads().stream().map(Road::getId).toList());
+        return body;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10.0) / 10.0;
+    }
+
+    /**
+     * 发布的数据快照，版本号随每次发布递增
+     */
+    private record Snapshot(long version, MapGraph graph, RouteTable routes) {
+        Snapshot(long version, MapGraph graph) {
+            this(version, graph, new RouteTable(graph));
+        }
+    }
+
+    /**
+     * 快照对应的所有点对最短路径表，首次计算最优路径时构建，同一版本的请求共用
+     */
+    private static final class RouteTable {
+        private final MapGraph graph;
+        private volatile MapCalculator.ShortestPathTable table;
+
+        RouteTable(MapGraph graph) {
+            this.graph = graph;
+        }
+
+        MapCalculator.ShortestPathTable table() {
+            MapCalculator.ShortestPathTable result = table;
+            if (result == null) {
+                synchronized (this) {
+                    result = table;
+                    if (result == null) {
+                        long begin = System.nanoTime();
+                        result = MapCalculator.shortestPathTable(graph.adjacencyMatrix(), ProgressMonitor.NONE);
+                        table = result;
+                        log.debug("构建最短路径表: {}个村庄，耗时{}ms", graph.getVillageCount(),
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 一次请求的快照和参数
+     */
+    private record Request(Snapshot snapshot, Map<String, String> params) {
+        MapStore store() {
+            return snapshot.graph().store();
+        }
+
+        String param(String name) {
+            String value = params.get(name);
+            if (value == null || value.isBlank()) {
+                throw new RequestException(400, "缺少参数: " + name);
+            }
+            return value;
+        }
+
+        // 按参数中的村庄ID查找村庄下标
+        int village(String name) {
+            return indexOf(param(name), name);
+        }
+
+        int indexOf(String value, String name) {
+            int id;
+            try {
+                id = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new RequestException(400, "参数" + name + "不是有效的村庄ID: " + value);
+            }
+            int index = store().indexOf(id);
+            if (index < 0) {
+                throw new RequestException(404, "村庄不存在: " + id);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 请求参数错误等需要返回特定状态码的异常
+     */
+    private static final class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package cn.woyioii.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>分析结果缓存</h1>
+ * <p>按分析类型、参数以及村庄和道路的数据版本缓存耗时分析的结果。数据未变化时重复执行同一分析直接返回缓存，
+ * 数据变化后版本号递增，旧结果不会再被命中，并在下一次写入时清除。</p>
+ *
+ * <h2>淘汰策略：</h2>
+ * <ul>
+ *     <li>按最近最少使用的顺序淘汰</li>
+ *     <li>同时限制条目数和总权重，权重由调用方按结果包含的元素数估算</li>
+ *     <li>单个结果的权重超过上限时不缓存</li>
+ * </ul>
+ *
+ * <h2>使用须知：</h2>
+ * <ul>
+ *     <li>所有方法都是线程安全的，可以在后台计算线程中写入</li>
+ *     <li>缓存的结果会被多次返回，调用方不能修改</li>
+ *     <li>命中、未命中和淘汰次数可用于观察缓存效果</li>
+ * </ul>
+ *
+ * @author woyioii
+ * @see VillageService#getVersion()
+ * @see RoadService#getVersion()
+ * @since 1.0
+ */
+@Slf4j
+public class AnalysisCache {
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+    // 约等于数百万个引用，避免大数据集的全路径结果占满内存
+    public static final long DEFAULT_MAX_WEIGHT = 4_000_000;
+
+    private final VillageService villageService;
+    private final RoadService roadService;
+    private final int maxEntries;
+    private final long maxWeight;
+
+    // 按访问顺序排列，最久未使用的在最前面
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    // 统计
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * 缓存键，数据版本不同的键不会相等
+     * @param type 分析类型
+     * @param params 分析参数
+     * @param villageVersion 村庄数据版本
+     * @param roadVersion 道路数据版本
+     */
+    public record Key(String type, List<Object> params, long villageVersion, long roadVersion) {
+    }
+
+    private record Entry(Object value, long weight) {
+    }
+
+    public AnalysisCache(VillageService villageService, RoadService roadService) {
+        this(villageService, roadService, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    public AnalysisCache(VillageService villageService, RoadService roadService, int maxEntries, long maxWeight) {
+        this.villageService = villageService;
+        this.roadService = roadService;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * 以当前数据版本生成缓存键
+     * @param type 分析类型
+     * @param params 分析参数，不能为null
+     * @return 缓存键
+     */
+    public Key key(String type, Object... params) {
+        return new Key(type, List.of(params), villageService.getVersion(), roadService.getVersion());
+    }
+
+    /**
+     * 查找缓存的结果
+     * @param key 缓存键
+     * @return 缓存的结果，未命中时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            log.debug("分析缓存未命中: {}，{}", key, summary());
+            return null;
+        }
+        hits++;
+        log.debug("分析缓存命中: {}，{}", key, summary());
+        return (T) entry.value();
+    }
+
+    /**
+     * 写入结果，计算期间数据已变化时结果已过期，不会写入
+     * @param key 计算开始时生成的缓存键
+     * @param value 结果
+     * @param weight 结果的估算权重
+     */
+    public synchronized void put(Key key, Object value, long weight) {
+        if (key.villageVersion() != villageService.getVersion() || key.roadVersion() != roadService.getVersion()) {
+            log.debug("数据已变化，不缓存过期结果: {}", key);
+            return;
+        }
+        if (weight > maxWeight) {
+            log.debug("结果过大，不缓存: {}，权重{}", key, weight);
+            return;
+        }
+
+        // 版本只增不减，其他版本的结果不会再被命中
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> stale = iterator.next();
+            if (stale.getKey().villageVersion() != key.villageVersion() || stale.getKey().roadVersion() != key.roadVersion()) {
+                totalWeight -= stale.getValue().weight();
+                iterator.remove();
+            }
+        }
+
+        Entry previous = entries.put(key, new Entry(value, weight));
+        if (previous != null) {
+            totalWeight -= previous.weight();
+        }
+        totalWeight += weight;
+
+        // 淘汰最久未使用的结果
+        iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxWeight) && iterator.hasNext()) {
+            Map.Entry<Key, Entry> eldest = iterator.next();
+            totalWeight -= eldest.getValue().weight();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * 清空缓存，统计数据保留
+     */
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 获取缓存统计信息
+     * @return 统计信息文本
+     */
+    public synchronized String summary() {
+        return String.format("命中%d次，未命中%d次，淘汰%d项，当前%d项，权重%d", hits, misses, evictions,
+                entries.size(), totalWeight);
+    }
+}
@@ -1,6 +1,9 @@
 package cn.woyioii.service;
 
 import cn.woyioii.dao.RoadDao;
+import cn.woyioii.model.DataSnapshot;
+import cn.woyioii.model.MapGraph;
+import cn.woyioii.model.MapStore;
 import cn.woyioii.model.Road;
 
 import java.util.List;
@@ -103,8 +106,17 @@ public interface RoadService {
     /**
      * 将当前内存中的道路数据保存到文件
      * 只有在调用此方法时，数据才会写入文件
+     * 数据访问层支持按ID写入时只写入上次保存或加载以来变更的道路
      */
     void saveRoads();
+
+    /**
+     * 将指定快照中的道路数据保存到文件
+     * 目标属于当前数据集且数据访问层支持按ID写入时只写入变更的道路，否则写入全部道路
+     * @param roads 要保存的快照
+     * @param filePath 目标文件路径
+     */
+    void saveRoads(DataSnapshot<Road> roads, String filePath);
     
     /**
      * 从文件重新加载道路数据
@@ -128,9 +140,50 @@ public interface RoadService {
      * 创建新的空白道路数据，清除当前内存中数据
      */
     void createNewRoads();
+
+    /**
+     * 用新的道路数据整体替换内存中的数据
+     * 用于后台加载完成后一次性切换数据集，新数据视为当前文件中已保存的数据
+     * @param roads 新的道路列表
+     */
+    void replaceRoads(List<Road> roads);
+
+    /**
+     * 获取数据版本号
+     * 内存中的道路数据每次变更后递增，可用于判断缓存是否失效
+     * @return 当前版本号
+     */
+    long getVersion();
+
+    /**
+     * 获取当前道路数据的快照
+     * 快照创建后不可修改，可在任意线程中读取而无需加锁，数据变更时发布新的快照
+     * @return 当前快照
+     */
+    DataSnapshot<Road> getSnapshot();
+
+    /**
+     * 获取当前村庄和道路的列式存储，即{@code getGraph().store()}
+     * @return 列式存储
+     */
+    MapStore getMapStore();
+
+    /**
+     * 获取当前村庄和道路构成的图
+     * 村庄或道路数据变更后首次调用时重建，其余调用返回缓存，所有算法共享同一实例
+     * 由同一时刻的村庄快照和道路快照生成，可在任意线程中调用
+     * @return 图
+     */
+    MapGraph getGraph();
+
+    /**
+     * 按村庄坐标重新计算所有道路的长度
+     */
+    void recalculateRoadLengths();
     
     /**
-     * 验证道路数据中的村庄引用是否有效，移除无效引用
+     * 验证道路数据中的村庄引用是否有效，移除内存中的无效引用
+     * 不会写入文件，需要持久化时调用{@link #saveRoads()}
      * @param villageService 用于验证村庄ID的服务
      */
     void validateRoadReferences(VillageService villageService);
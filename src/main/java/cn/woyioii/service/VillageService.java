@@ -1,6 +1,7 @@
 package cn.woyioii.service;
 
 import cn.woyioii.dao.VillageDao;
+import cn.woyioii.model.DataSnapshot;
 import cn.woyioii.model.Village;
 
 import java.util.List;
@@ -80,8 +81,17 @@ public interface VillageService {
     /**
      * 将当前内存中的村庄数据保存到文件
      * 只有在调用此方法时，数据才会写入文件
+     * 数据访问层支持按ID写入时只写入上次保存或加载以来变更的村庄
      */
     void saveVillages();
+
+    /**
+     * 将指定快照中的村庄数据保存到文件
+     * 目标属于当前数据集且数据访问层支持按ID写入时只写入变更的村庄，否则写入全部村庄
+     * @param villages 要保存的快照
+     * @param filePath 目标文件路径
+     */
+    void saveVillages(DataSnapshot<Village> villages, String filePath);
     
     /**
      * 从文件重新加载村庄数据
@@ -105,4 +115,25 @@ public interface VillageService {
      * 创建新的空白村庄数据，清除当前内存中数据
      */
     void createNewVillages();
+
+    /**
+     * 用新的村庄数据整体替换内存中的数据
+     * 用于后台加载完成后一次性切换数据集，新数据视为当前文件中已保存的数据
+     * @param villages 新的村庄列表
+     */
+    void replaceVillages(List<Village> villages);
+
+    /**
+     * 获取数据版本号
+     * 内存中的村庄数据每次变更后递增，可用于判断缓存是否失效
+     * @return 当前版本号
+     */
+    long getVersion();
+
+    /**
+     * 获取当前村庄数据的快照
+     * 快照创建后不可修改，可在任意线程中读取而无需加锁，数据变更时发布新的快照
+     * @return 当前快照
+     */
+    DataSnapshot<Village> getSnapshot();
 }
\ No newline at end of file
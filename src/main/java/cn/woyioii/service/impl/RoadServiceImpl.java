@@ -1,35 +1,65 @@
 package cn.woyioii.service.impl;
 
 import cn.woyioii.dao.RoadDao;
+import cn.woyioii.model.DataSnapshot;
+import cn.woyioii.model.MapGraph;
+import cn.woyioii.model.MapStore;
 import cn.woyioii.model.Road;
 import cn.woyioii.model.Village;
 import cn.woyioii.service.RoadService;
 import cn.woyioii.service.VillageService;
 import cn.woyioii.util.AlertUtils;
-import lombok.Getter;
+import cn.woyioii.util.DistanceKernel;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class RoadServiceImpl implements RoadService {
     private final RoadDao roadDao;
     private final VillageService villageService;
-    private List<Road> roads;
+    // 当前道路数据的快照，读取方无需加锁，变更在副本上完成后整体替换
+    private final AtomicReference<DataSnapshot<Road>> snapshot = new AtomicReference<>(DataSnapshot.empty());
+    // 最近一次从当前文件加载或保存的快照，保存时据此只写入变更的道路
+    private volatile DataSnapshot<Road> saved = DataSnapshot.empty();
+    // 保存在后台线程中进行，不占用本对象的锁，避免阻塞编辑
+    private final Object saveLock = new Object();
 
+    // 图的缓存，与生成它的村庄、道路版本一起整体替换
+    private volatile CachedGraph graph;
+
+    // 依赖注入，初始化时加载数据
     public RoadServiceImpl(RoadDao roadDao, VillageService villageService) {
+        this(roadDao, villageService, loadRoads(roadDao));
+    }
+
+    // 使用给定数据初始化，不读取文件，由调用方随后加载数据
+    public RoadServiceImpl(RoadDao roadDao, VillageService villageService, List<Road> roads) {
         this.roadDao = roadDao;
         this.villageService = villageService;
+        publish(roads);
+        saved = snapshot.get();
+    }
+
+    private static List<Road> loadRoads(RoadDao roadDao) {
         try {
-            // 初始化时加载数据
-            this.roads = new ArrayList<>(roadDao.getAllRoads());
+            return roadDao.getAllRoads();
         } catch (Exception e) {
             log.error("初始化道路数据失败", e);
-            this.roads = new ArrayList<>();
+            return List.of();
         }
     }
 
+    // 以新版本号发布数据，调用方需持有本对象的锁
+    private void publish(List<Road> roads) {
+        snapshot.set(snapshot.get().next(roads));
+    }
+
+    private record CachedGraph(long villageVersion, long roadVersion, MapGraph graph) {
+    }
+
     /**
      * 添加道路
      * 包含验证逻辑：
@@ -38,7 +68,7 @@ public class RoadServiceImpl implements RoadService {
      * 3. 自动计算道路长度
      */
     @Override
-    public boolean addRoad(Road road) {
+    public synchronized boolean addRoad(Road road) {
         try {
             // 检查道路基本信息是否有效
             if (!validateRoad(road)) {
@@ -47,6 +77,7 @@ public class RoadServiceImpl implements RoadService {
             }
 
             // 检查是否已存在连接相同两个村庄的道路（不分方向）
+            List<Road> roads = snapshot.get().items();
             boolean existingRoad = roads.stream().anyMatch(r -> 
                 (r.getStartId().equals(road.getStartId()) && r.getEndId().equals(road.getEndId())) ||
                 (r.getStartId().equals(road.getEndId()) && r.getEndId().equals(road.getStartId()))
@@ -64,7 +95,10 @@ public class RoadServiceImpl implements RoadService {
                     .orElse(0);
             road.setId(maxId + 1);
             
-            roads.add(road);
+            List<Road> next = new ArrayList<>(roads.size() + 1);
+            next.addAll(roads);
+            next.add(road);
+            publish(next);
             log.info("道路添加成功: {}", road);
             return true;
         } catch (Exception e) {
@@ -75,10 +109,12 @@ public class RoadServiceImpl implements RoadService {
     }
 
     @Override
-    public boolean deleteRoad(int roadId) {
+    public synchronized boolean deleteRoad(int roadId) {
         try {
-            boolean removed = roads.removeIf(r -> r.getId().equals(roadId));
+            List<Road> next = new ArrayList<>(snapshot.get().items());
+            boolean removed = next.removeIf(r -> r.getId().equals(roadId));
             if (removed) {
+                publish(next);
                 // 不再立即写入文件
                 AlertUtils.showInfo("删除成功", "道路已删除");
             }
@@ -99,21 +135,24 @@ public class RoadServiceImpl implements RoadService {
     }
 
     @Override
-    public boolean updateRoad(Road road) {
+    public synchronized boolean updateRoad(Road road) {
         try {
             if (!validateRoad(road)) {
                 AlertUtils.showWarning("更新失败", "道路信息验证失败，请检查输入");
                 return false;
             }
+            // 替换为新对象，已发布的快照中的旧对象保持不变
+            List<Road> next = new ArrayList<>(snapshot.get().items());
             boolean updated = false;
-            for (int i = 0; i < roads.size(); i++) {
-                if (roads.get(i).getId().equals(road.getId())) {
-                    roads.set(i, road);
+            for (int i = 0; i < next.size(); i++) {
+                if (next.get(i).getId().equals(road.getId())) {
+                    next.set(i, road);
                     updated = true;
                     break;
                 }
             }
             if (updated) {
+                publish(next);
                 // 不再立即写入文件
                 AlertUtils.showInfo("更新成功", "道路信息已更新");
             }
@@ -128,8 +167,8 @@ public class RoadServiceImpl implements RoadService {
     @Override
     public List<Road> getAllRoads() {
         try {
-            // 返回内存中的数据
-            return Collections.unmodifiableList(roads);
+            // 返回当前快照中的数据
+            return snapshot.get().items();
         } catch (Exception e) {
             log.error("获取道路列表失败", e);
             AlertUtils.showException("系统错误", "获取道路列表时发生错误", e);
@@ -140,7 +179,7 @@ public class RoadServiceImpl implements RoadService {
     @Override
     public Road getRoadById(Integer roadId) {
         try {
-            return roads.stream()
+            return snapshot.get().items().stream()
                     .filter(r -> r.getId().equals(roadId))
                     .findFirst()
                     .orElse(null);
@@ -154,7 +193,7 @@ public class RoadServiceImpl implements RoadService {
     @Override
     public List<Road> getRoadsByVillageId(Integer villageId) {
         try {
-            return roads.stream()
+            return snapshot.get().items().stream()
                     .filter(r -> Objects.equals(r.getStartId(), villageId) ||
                             Objects.equals(r.getEndId(), villageId))
                     .collect(Collectors.toList());
@@ -184,10 +223,7 @@ public class RoadServiceImpl implements RoadService {
 
     /**
      * 计算最短路径
-     * 使用Dijkstra算法实现：
-     * 1. 构建邻接图
-     * 2. 计算最短路径
-     * 3. 返回路径上的道路列表
+     * 在当前版本的图上使用Dijkstra算法，返回路径上的道路列表
      */
     @Override
     public List<Road> calculateShortestPath(String startVillageId, String endVillageId) {
@@ -196,10 +232,14 @@ public class RoadServiceImpl implements RoadService {
             int endId = Integer.parseInt(endVillageId);
             
             log.info("计算从村庄{}到村庄{}的最短路径", startId, endId);
-            
+
+            // 整个计算过程使用同一版本的图
+            MapGraph graph = getGraph();
+            int start = graph.indexOf(startId);
+            int end = graph.indexOf(endId);
+
             // 验证起点和终点村庄存在
-            if (villageService.getVillageById(startId) == null || 
-                villageService.getVillageById(endId) == null) {
+            if (start < 0 || end < 0) {
                 log.error("起点或终点村庄不存在");
                 AlertUtils.showWarning("参数错误", "起点或终点村庄不存在");
                 return Collections.emptyList();
@@ -211,103 +251,26 @@ public class RoadServiceImpl implements RoadService {
                 return Collections.emptyList();
             }
             
-            // 构建图数据结构
-            Map<Integer, Map<Integer, Road>> graph = new HashMap<>();
-            
-            // 填充图
-            for (Road road : roads) {
-                // 添加正向路径
-                graph.computeIfAbsent(road.getStartId(), k -> new HashMap<>())
-                    .put(road.getEndId(), road);
-                
-                // 由于是无向图，同时添加反向路径
-                graph.computeIfAbsent(road.getEndId(), k -> new HashMap<>())
-                    .put(road.getStartId(), road);
-            }
-            
             // 无法到达检查
-            if (!graph.containsKey(startId) || !graph.containsKey(endId)) {
+            if (graph.degree(start) == 0 || graph.degree(end) == 0) {
                 log.warn("起点或终点没有连接的道路");
                 AlertUtils.showWarning("无法计算", "起点或终点没有连接的道路");
                 return Collections.emptyList();
             }
             
-            // Dijkstra算法
-            Map<Integer, Double> distances = new HashMap<>();
-            Map<Integer, Integer> previous = new HashMap<>();
-            PriorityQueue<VillageDistance> queue = new PriorityQueue<>(
-                Comparator.comparingDouble(VillageDistance::getDistance));
-            Set<Integer> visited = new HashSet<>();
-            
-            // 初始化距离
-            for (Village village : villageService.getAllVillages()) {
-                if (village.getId() == startId) {
-                    distances.put(startId, 0.0);
-                    queue.add(new VillageDistance(startId, 0.0));
-                } else {
-                    distances.put(village.getId(), Double.MAX_VALUE);
-                }
-                previous.put(village.getId(), null);
-            }
-            
-            // 开始寻路
-            while (!queue.isEmpty()) {
-                VillageDistance current = queue.poll();
-                int currentId = current.getVillageId();
-                
-                if (visited.contains(currentId)) {
-                    continue;
-                }
-                
-                if (currentId == endId) {
-                    break; // 到达终点
-                }
-                
-                visited.add(currentId);
-                
-                // 没有邻接点，跳过
-                if (!graph.containsKey(currentId)) {
-                    continue;
-                }
-                
-                // 检查所有邻居
-                for (Map.Entry<Integer, Road> neighbor : graph.get(currentId).entrySet()) {
-                    int neighborId = neighbor.getKey();
-                    
-                    if (visited.contains(neighborId)) {
-                        continue;
-                    }
-                    
-                    Road road = neighbor.getValue();
-                    double newDist = distances.get(currentId) + road.getLength();
-                    
-                    if (newDist < distances.getOrDefault(neighborId, Double.MAX_VALUE)) {
-                        distances.put(neighborId, newDist);
-                        previous.put(neighborId, currentId);
-                        queue.add(new VillageDistance(neighborId, newDist));
-                    }
-                }
-            }
-            
-            // 重建路径
-            List<Road> path = new ArrayList<>();
-            Integer current = endId;
+            MapGraph.Paths paths = graph.shortestPaths(start, end);
             
             // 如果无法到达终点
-            if (previous.get(endId) == null) {
+            if (!paths.reachable(end)) {
                 log.warn("无法从村庄{}到达村庄{}", startId, endId);
                 AlertUtils.showWarning("无法到达", "没有通往目标村庄的路径");
                 return Collections.emptyList();
             }
             
             // 回溯路径
-            while (previous.get(current) != null) {
-                Integer prev = previous.get(current);
-                Road road = findRoad(prev, current);
-                if (road != null) {
-                    path.addFirst(road); // 添加到路径开头
-                }
-                current = prev;
+            List<Road> path = new ArrayList<>();
+            for (int road : paths.roadsTo(end)) {
+                path.add(graph.road(road));
             }
             
             log.info("最短路径计算完成，共{}条道路", path.size());
@@ -319,52 +282,50 @@ public class RoadServiceImpl implements RoadService {
         }
     }
 
-    // 寻找连接两个村庄的道路
-    private Road findRoad(int startId, int endId) {
-        for (Road road : roads) {
-            // 检查正向路径
-            if (road.getStartId() == startId && road.getEndId() == endId) {
-                return road;
-            }
-            // 检查反向路径（无向图）
-            if (road.getStartId() == endId && road.getEndId() == startId) {
-                return road;
-            }
-        }
-        return null;
-    }
-
-    // 用于Dijkstra算法的辅助类
-    @Getter
-    private static class VillageDistance {
-        private final int villageId;
-        private final double distance;
-
-        public VillageDistance(int villageId, double distance) {
-            this.villageId = villageId;
-            this.distance = distance;
-        }
-
-    }
-
     @Override
     public void saveRoads() {
         try {
-            roadDao.updateRoad(roads);
-            log.info("保存道路数据成功，共{}条道路", roads.size());
+            write(snapshot.get(), null);
         } catch (Exception e) {
             log.error("保存道路数据失败", e);
             AlertUtils.showException("保存失败", "无法保存道路数据", e);
         }
     }
+
+    @Override
+    public void saveRoads(DataSnapshot<Road> roads, String filePath) {
+        write(roads, filePath);
+    }
+
+    // 写入道路数据，filePath为null时写入当前文件
+    private void write(DataSnapshot<Road> roads, String filePath) {
+        synchronized (saveLock) {
+            Optional<SnapshotChanges<Road>> changes = roadDao.supportsIncrementalSave(filePath)
+                    ? SnapshotChanges.between(saved.items(), roads.items(), Road::getId)
+                    : Optional.empty();
+            if (changes.isPresent() && changes.get().isSmallComparedTo(roads.size())) {
+                roadDao.applyChanges(changes.get().upserted(), changes.get().deleted());
+                log.info("保存道路数据成功，写入{}条道路，删除{}条道路", changes.get().upserted().size(),
+                        changes.get().deleted().size());
+            } else {
+                if (filePath == null) {
+                    roadDao.updateRoad(roads.items());
+                } else {
+                    roadDao.saveRoad(roads.items(), filePath);
+                }
+                log.info("保存道路数据成功，共{}条道路", roads.size());
+            }
+            saved = roads;
+        }
+    }
     
     @Override
-    public void reloadRoads() {
+    public synchronized void reloadRoads() {
         try {
-            roads.clear();
-            roads.addAll(roadDao.getAllRoads());
+            publish(roadDao.getAllRoads());
+            saved = snapshot.get();
             validateRoadReferences(villageService);
-            log.info("重新加载道路数据成功，共{}条道路", roads.size());
+            log.info("重新加载道路数据成功，共{}条道路", snapshot.get().size());
         } catch (Exception e) {
             log.error("重新加载道路数据失败", e);
             AlertUtils.showException("加载失败", "无法重新加载道路数据", e);
@@ -382,8 +343,12 @@ public class RoadServiceImpl implements RoadService {
             return false;
         }
         try {
-            List<Road> savedRoads = roadDao.getAllRoads();
-            return !roads.equals(savedRoads);
+            // 与最近保存的快照比较，不重新读取文件
+            DataSnapshot<Road> current = snapshot.get();
+            DataSnapshot<Road> base = saved;
+            return current != base && SnapshotChanges.between(base.items(), current.items(), Road::getId)
+                    .map(changes -> !changes.isEmpty())
+                    .orElse(true);
         } catch (Exception e) {
             log.error("检查数据变更失败", e);
             return false;
@@ -392,50 +357,107 @@ public class RoadServiceImpl implements RoadService {
 
     /**
      * 验证道路引用的有效性
-     * 移除引用不存在村庄的道路
+     * 移除引用不存在村庄的道路，只修改内存中的数据，不写入文件
      * @param villageService 村庄服务
      */
     @Override
-    public void validateRoadReferences(VillageService villageService) {
-        List<Road> roads = getAllRoads();
-        List<Road> invalidRoads = new ArrayList<>();
-        
-        for (Road road : roads) {
-            // 检查起点和终点村庄是否存在
-            boolean startExists = villageService.getVillageById(road.getStartId()) != null;
-            boolean endExists = villageService.getVillageById(road.getEndId()) != null;
-            
-            if (!startExists || !endExists) {
-                invalidRoads.add(road);
-                log.warn("发现无效道路引用: {} (起点: {}, 终点: {})", 
+    public synchronized void validateRoadReferences(VillageService villageService) {
+        // 先建立村庄ID索引，避免每条道路都线性查找村庄
+        Set<Integer> villageIds = villageService.getAllVillages().stream()
+                .map(Village::getId)
+                .collect(Collectors.toSet());
+
+        // 单次遍历移除无效道路
+        List<Road> next = new ArrayList<>(snapshot.get().items());
+        int before = next.size();
+        next.removeIf(road -> {
+            boolean invalid = !villageIds.contains(road.getStartId()) || !villageIds.contains(road.getEndId());
+            if (invalid) {
+                log.warn("发现无效道路引用: {} (起点: {}, 终点: {})",
                     road.getName(), road.getStartId(), road.getEndId());
             }
-        }
-        
-        // 移除无效道路
-        for (Road invalidRoad : invalidRoads) {
-            roads.remove(invalidRoad);
-            log.info("已移除无效道路: {}", invalidRoad.getName());
-        }
-        
-        // 如果有无效道路被移除，保存更新后的道路数据
-        if (!invalidRoads.isEmpty()) {
-            saveRoads();
-            log.info("已移除 {} 条无效道路引用", invalidRoads.size());
+            return invalid;
+        });
+
+        int removed = before - next.size();
+        if (removed > 0) {
+            publish(next);
+            log.info("已移除 {} 条无效道路引用", removed);
         }
     }
 
     @Override
-    public void createNewRoads() {
+    public synchronized void createNewRoads() {
         try {
-            if (roads == null) {
-                roads = new ArrayList<>();
-            }
-            roads.clear();
+            publish(List.of());
             log.info("已创建新的空白道路数据");
         } catch (Exception e) {
             log.error("创建新的道路数据失败", e);
             AlertUtils.showException("创建失败", "无法创建新的道路数据", e);
         }
     }
+
+    @Override
+    public synchronized void replaceRoads(List<Road> roads) {
+        // 整体替换快照，避免读取方看到加载了一半的数据
+        publish(roads == null ? List.of() : roads);
+        saved = snapshot.get();
+        log.info("已替换道路数据，共{}条道路", snapshot.get().size());
+    }
+
+    @Override
+    public long getVersion() {
+        return snapshot.get().version();
+    }
+
+    @Override
+    public DataSnapshot<Road> getSnapshot() {
+        return snapshot.get();
+    }
+
+    @Override
+    public MapStore getMapStore() {
+        return getGraph().store();
+    }
+
+    @Override
+    public MapGraph getGraph() {
+        // 先各取一次快照，保证图由同一组村庄和道路生成
+        DataSnapshot<Village> villages = villageService.getSnapshot();
+        DataSnapshot<Road> roads = snapshot.get();
+        CachedGraph cached = graph;
+        if (cached == null || cached.villageVersion() != villages.version() || cached.roadVersion() != roads.version()) {
+            // 并发时可能重复构建，结果相同，后写入的覆盖先写入的
+            cached = new CachedGraph(villages.version(), roads.version(), MapGraph.of(villages.items(), roads.items()));
+            graph = cached;
+            log.debug("重建村庄道路图: {}个村庄，{}条道路", cached.graph().getVillageCount(),
+                    cached.graph().store().getRoadCount());
+        }
+        return cached.graph();
+    }
+
+    @Override
+    public synchronized void recalculateRoadLengths() {
+        // 持有锁时道路不会变化，图中的道路列表就是当前快照
+        MapGraph graph = getGraph();
+        MapStore store = graph.store();
+        double[] lengths = new double[store.getRoadCount()];
+        DistanceKernel.distances(store.xs(), store.ys(), store.roadStarts(), store.roadEnds(), store.getRoadCount(), lengths);
+
+        List<Road> roads = graph.roads();
+        List<Road> next = new ArrayList<>(roads.size());
+        int index = 0;
+        for (Road road : roads) {
+            // 图中的道路按原列表顺序排列，端点不存在的道路不在图中，保持不变
+            if (index >= store.getRoadCount() || graph.road(index) != road) {
+                next.add(road);
+                continue;
+            }
+            // 生成新对象，不修改旧快照中的道路
+            Road updated = new Road(road.getStartId(), road.getEndId(), road.getName(), lengths[index++]);
+            updated.setId(road.getId());
+            next.add(updated);
+        }
+        publish(next);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package cn.woyioii.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 已保存的数据与当前数据之间按ID比较的变更，用于只写入变更的记录
+ * <p>快照中的对象视为不可变，修改数据时会替换为新对象，因此按引用判断记录是否变化，
+ * 不会触发延迟加载的字段。</p>
+ *
+ * @param upserted 新增或修改的记录，按当前数据中的顺序排列
+ * @param deleted  已删除记录的ID
+ * @param <T>      记录类型
+ */
+record SnapshotChanges<T>(List<T> upserted, List<Integer> deleted) {
+
+    /**
+     * 比较两组数据
+     * @param saved 已保存的数据
+     * @param current 当前数据
+     * @param id 记录ID
+     * @return 变更，任一组数据中存在空ID或重复ID时无法按ID写入，返回空
+     */
+    static <T> Optional<SnapshotChanges<T>> between(List<T> saved, List<T> current, Function<T, Integer> id) {
+        Map<Integer, T> savedById = new HashMap<>(saved.size() * 2);
+        for (T item : saved) {
+            Integer key = id.apply(item);
+            if (key == null || savedById.put(key, item) != null) {
+                return Optional.empty();
+            }
+        }
+
+        List<T> upserted = new ArrayList<>();
+        Set<Integer> currentIds = new HashSet<>(current.size() * 2);
+        for (T item : current) {
+            Integer key = id.apply(item);
+            if (key == null || !currentIds.add(key)) {
+                return Optional.empty();
+            }
+            if (savedById.get(key) != item) {
+                upserted.add(item);
+            }
+        }
+
+        List<Integer> deleted = new ArrayList<>();
+        for (Integer key : savedById.keySet()) {
+            if (!currentIds.contains(key)) {
+                deleted.add(key);
+            }
+        }
+        return Optional.of(new SnapshotChanges<>(upserted, deleted));
+    }
+
+    public int size() {
+        return upserted.size() + deleted.size();
+    }
+
+    /**
+     * 变更是否适合逐条写入，变更超过数据量的一半时整体写入更快
+     * @param total 要保存的记录数
+     */
+    public boolean isSmallComparedTo(int total) {
+        return size() <= total / 2;
+    }
+
+    public boolean isEmpty() {
+        return upserted.isEmpty() && deleted.isEmpty();
+    }
+}
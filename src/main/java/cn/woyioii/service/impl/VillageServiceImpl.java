@@ -1,6 +1,7 @@
 package cn.woyioii.service.impl;
 
 import cn.woyioii.dao.VillageDao;
+import cn.woyioii.model.DataSnapshot;
 import cn.woyioii.model.Village;
 import cn.woyioii.service.VillageService;
 import cn.woyioii.util.AlertUtils;
@@ -9,28 +10,48 @@ import lombok.extern.slf4j.Slf4j;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 @Slf4j
 public class VillageServiceImpl implements VillageService {
     private final VillageDao villageDao;
-    // 内存中存储当前村庄数据
-    private List<Village> villages;
+    // 当前村庄数据的快照，读取方无需加锁，变更在副本上完成后整体替换
+    private final AtomicReference<DataSnapshot<Village>> snapshot = new AtomicReference<>(DataSnapshot.empty());
+    // 最近一次从当前文件加载或保存的快照，保存时据此只写入变更的村庄
+    private volatile DataSnapshot<Village> saved = DataSnapshot.empty();
+    // 保存在后台线程中进行，不占用本对象的锁，避免阻塞编辑
+    private final Object saveLock = new Object();
     // 数据变更监听器
     private Consumer<Void> onDataChanged;
 
-    // 依赖注入
+    // 依赖注入，初始化时加载数据
     public VillageServiceImpl(VillageDao villageDao) {
+        this(villageDao, loadVillages(villageDao));
+    }
+
+    // 使用给定数据初始化，不读取文件，由调用方随后加载数据
+    public VillageServiceImpl(VillageDao villageDao, List<Village> villages) {
         this.villageDao = villageDao;
+        publish(villages);
+        saved = snapshot.get();
+    }
+
+    private static List<Village> loadVillages(VillageDao villageDao) {
         try {
-            // 初始化时加载数据
-            this.villages = new ArrayList<>(villageDao.getAllVillages());
+            return villageDao.getAllVillages();
         } catch (Exception e) {
             log.error("初始化村庄数据失败", e);
-            this.villages = new ArrayList<>();
+            return List.of();
         }
     }
 
+    // 以新版本号发布数据，调用方需持有本对象的锁
+    private void publish(List<Village> villages) {
+        snapshot.set(snapshot.get().next(villages));
+    }
+
     private void notifyDataChanged() {
         // 通知数据已更改
         if (onDataChanged != null) {
@@ -39,7 +60,7 @@ public class VillageServiceImpl implements VillageService {
     }
 
     @Override
-    public boolean addVillage(Village village) {
+    public synchronized boolean addVillage(Village village) {
         try {
             // 更详细的日志记录
             log.debug("尝试添加村庄: {}", village);
@@ -50,13 +71,17 @@ public class VillageServiceImpl implements VillageService {
                 return false;
             }
             
+            List<Village> villages = snapshot.get().items();
             if (villages.stream().anyMatch(v -> v.getId() == village.getId())) {
                 log.warn("村庄ID已存在: {}", village.getId());
                 AlertUtils.showWarning("添加失败", "村庄ID已存在");
                 return false;
             }
             
-            villages.add(village);
+            List<Village> next = new ArrayList<>(villages.size() + 1);
+            next.addAll(villages);
+            next.add(village);
+            publish(next);
             // 不再立即写入文件
             log.info("村庄添加成功: {}", village);
             AlertUtils.showInfo("添加成功", "村庄信息已添加");
@@ -70,10 +95,12 @@ public class VillageServiceImpl implements VillageService {
     }
 
     @Override
-    public boolean deleteVillage(int villageId) {
+    public synchronized boolean deleteVillage(int villageId) {
         try {
-            boolean removed = villages.removeIf(v -> v.getId() == villageId);
+            List<Village> next = new ArrayList<>(snapshot.get().items());
+            boolean removed = next.removeIf(v -> v.getId() == villageId);
             if (removed) {
+                publish(next);
                 // 不再立即写入文件
                 AlertUtils.showInfo("删除成功", "村庄已删除");
                 notifyDataChanged(); // 通知数据已更改
@@ -87,21 +114,24 @@ public class VillageServiceImpl implements VillageService {
     }
 
     @Override
-    public boolean updateVillage(Village village) {
+    public synchronized boolean updateVillage(Village village) {
         try {
             if (!validateVillage(village)) {
                 AlertUtils.showWarning("更新失败", "村庄信息验证失败，请检查输入");
                 return false;
             }
+            // 替换为新对象，已发布的快照中的旧对象保持不变
+            List<Village> next = new ArrayList<>(snapshot.get().items());
             boolean updated = false;
-            for (int i = 0; i < villages.size(); i++) {
-                if (villages.get(i).getId() == village.getId()) {
-                    villages.set(i, village);
+            for (int i = 0; i < next.size(); i++) {
+                if (next.get(i).getId() == village.getId()) {
+                    next.set(i, village);
                     updated = true;
                     break;
                 }
             }
             if (updated) {
+                publish(next);
                 // 不再立即写入文件
                 AlertUtils.showInfo("更新成功", "村庄信息已更新");
                 notifyDataChanged(); // 通知数据已更改
@@ -117,8 +147,8 @@ public class VillageServiceImpl implements VillageService {
     @Override
     public List<Village> getAllVillages() {
         try {
-            // 返回内存中的数据而不是重新从文件加载
-            return Collections.unmodifiableList(villages);
+            // 返回当前快照中的数据而不是重新从文件加载
+            return snapshot.get().items();
         } catch (Exception e) {
             log.error("获取村庄列表失败", e);
             AlertUtils.showException("系统错误", "获取村庄列表时发生错误", e);
@@ -129,7 +159,7 @@ public class VillageServiceImpl implements VillageService {
     @Override
     public Village getVillageById(int villageId) {
         try {
-            return villages.stream()
+            return snapshot.get().items().stream()
                     .filter(v -> v.getId() == villageId)
                     .findFirst()
                     .orElse(null);
@@ -154,8 +184,7 @@ public class VillageServiceImpl implements VillageService {
     public void saveVillages() {
         try {
             // 显式方法用于保存数据
-            villageDao.updateVillage(villages);
-            log.info("保存村庄数据成功，共{}个村庄", villages.size());
+            write(snapshot.get(), null);
         } catch (Exception e) {
             log.error("保存村庄数据失败", e);
             AlertUtils.showException("保存失败", "无法保存村庄数据", e);
@@ -163,12 +192,39 @@ public class VillageServiceImpl implements VillageService {
     }
 
     @Override
-    public void reloadVillages() {
+    public void saveVillages(DataSnapshot<Village> villages, String filePath) {
+        write(villages, filePath);
+    }
+
+    // 写入村庄数据，filePath为null时写入当前文件
+    private void write(DataSnapshot<Village> villages, String filePath) {
+        synchronized (saveLock) {
+            Optional<SnapshotChanges<Village>> changes = villageDao.supportsIncrementalSave(filePath)
+                    ? SnapshotChanges.between(saved.items(), villages.items(), Village::getId)
+                    : Optional.empty();
+            if (changes.isPresent() && changes.get().isSmallComparedTo(villages.size())) {
+                villageDao.applyChanges(changes.get().upserted(), changes.get().deleted());
+                log.info("保存村庄数据成功，写入{}个村庄，删除{}个村庄", changes.get().upserted().size(),
+                        changes.get().deleted().size());
+            } else {
+                if (filePath == null) {
+                    villageDao.updateVillage(villages.items());
+                } else {
+                    villageDao.saveVillage(villages.items(), filePath);
+                }
+                log.info("保存村庄数据成功，共{}个村庄", villages.size());
+            }
+            saved = villages;
+        }
+    }
+
+    @Override
+    public synchronized void reloadVillages() {
         try {
             // 重新加载数据
-            villages.clear();
-            villages.addAll(villageDao.getAllVillages());
-            log.info("重新加载村庄数据成功，共{}个村庄", villages.size());
+            publish(villageDao.getAllVillages());
+            saved = snapshot.get();
+            log.info("重新加载村庄数据成功，共{}个村庄", snapshot.get().size());
         } catch (Exception e) {
             log.error("重新加载村庄数据失败", e);
             AlertUtils.showException("加载失败", "无法重新加载村庄数据", e);
@@ -186,8 +242,12 @@ public class VillageServiceImpl implements VillageService {
             return false;
         }
         try {
-            List<Village> savedVillages = villageDao.getAllVillages();
-            return !villages.equals(savedVillages);
+            // 与最近保存的快照比较，不重新读取文件
+            DataSnapshot<Village> current = snapshot.get();
+            DataSnapshot<Village> base = saved;
+            return current != base && SnapshotChanges.between(base.items(), current.items(), Village::getId)
+                    .map(changes -> !changes.isEmpty())
+                    .orElse(true);
         } catch (Exception e) {
             log.error("检查数据变更失败", e);
             return false;
@@ -195,13 +255,31 @@ public class VillageServiceImpl implements VillageService {
     }
     
     @Override
-    public void createNewVillages() {
+    public synchronized void createNewVillages() {
         try {
-            villages.clear();
+            publish(List.of());
             log.info("已创建新的空白村庄数据");
         } catch (Exception e) {
             log.error("创建新的村庄数据失败", e);
             AlertUtils.showException("创建失败", "无法创建新的村庄数据", e);
         }
     }
+
+    @Override
+    public synchronized void replaceVillages(List<Village> villages) {
+        // 整体替换快照，避免读取方看到加载了一半的数据
+        publish(villages == null ? List.of() : villages);
+        saved = snapshot.get();
+        log.info("已替换村庄数据，共{}个村庄", snapshot.get().size());
+    }
+
+    @Override
+    public long getVersion() {
+        return snapshot.get().version();
+    }
+
+    @Override
+    public DataSnapshot<Village> getSnapshot() {
+        return snapshot.get();
+    }
 }
\ No newline at end of file
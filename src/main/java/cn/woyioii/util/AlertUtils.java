@@ -6,6 +6,7 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.control.TextArea;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -13,13 +14,29 @@ import java.util.Optional;
 
 /**
  * 工具类，用于显示各种警告和错误提示框
+ * 无界面模式下不创建对话框，提示内容写入日志，确认对话框按取消处理
  */
+@Slf4j
 public class AlertUtils {
+    // 无界面模式，命令行入口在使用服务前开启，此时JavaFX工具包未初始化
+    private static volatile boolean headless;
 
     private AlertUtils() {
         // 工具类无需实例化
     }
 
+    /**
+     * 设置无界面模式
+     * @param headless 为true时提示只写入日志
+     */
+    public static void setHeadless(boolean headless) {
+        AlertUtils.headless = headless;
+    }
+
+    public static boolean isHeadless() {
+        return headless;
+    }
+
     /**
      * 显示信息提示框
      * 
@@ -27,6 +44,10 @@ public class AlertUtils {
      * @param message 消息内容
      */
     public static void showInfo(String title, String message) {
+        if (headless) {
+            log.info("{}: {}", title, message);
+            return;
+        }
         Platform.runLater(() -> {
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle(title);
@@ -43,6 +64,10 @@ public class AlertUtils {
      * @param message 消息内容
      */
     public static void showInformation(String title, String context, String message) {
+        if (headless) {
+            log.info("{}: {}\n{}", title, context, message);
+            return;
+        }
         Platform.runLater(() -> {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle(title);
@@ -83,6 +108,10 @@ public class AlertUtils {
      * @param message 警告内容
      */
     public static void showWarning(String title, String message) {
+        if (headless) {
+            log.warn("{}: {}", title, message);
+            return;
+        }
         Platform.runLater(() -> {
             Alert alert = new Alert(Alert.AlertType.WARNING);
             alert.setTitle(title);
@@ -99,6 +128,10 @@ public class AlertUtils {
      * @param message 错误内容
      */
     public static void showError(String title, String message) {
+        if (headless) {
+            log.error("{}: {}", title, message);
+            return;
+        }
         Platform.runLater(() -> {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle(title);
@@ -116,6 +149,10 @@ public class AlertUtils {
      * @param exception 异常
      */
     public static void showException(String title, String message, Throwable exception) {
+        if (headless) {
+            log.error("{}: {}", title, message, exception);
+            return;
+        }
         Platform.runLater(() -> {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle(title);
@@ -140,6 +177,10 @@ public class AlertUtils {
      * @return 如果用户点击"确定"，则返回true；否则返回false
      */
     public static boolean showConfirmation(String title, String message) {
+        if (headless) {
+            log.warn("{}: {}（无界面模式，按取消处理）", title, message);
+            return false;
+        }
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle(title);
         alert.setHeaderText(null);
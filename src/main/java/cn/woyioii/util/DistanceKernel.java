@@ -0,0 +1,138 @@
+package cn.woyioii.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>批量距离计算</h1>
+ * <p>在坐标数组上一次计算多组村庄之间的直线距离，用于连通方案的候选边、道路长度重算和最近村庄查找。
+ * 运行时加载了 {@code jdk.incubator.vector} 模块时使用SIMD指令并行计算多个距离，否则逐个计算。</p>
+ *
+ * <h2>使用须知：</h2>
+ * <ul>
+ *     <li>道路长度与 {@link MapCalculator#calculateDistance(int, int, int, int)} 的结果完全一致</li>
+ *     <li>启动参数需要加上 {@code --add-modules jdk.incubator.vector} 才会启用向量计算</li>
+ *     <li>系统属性 {@code villagemap.vector=false} 可以强制使用逐个计算，便于对比性能</li>
+ * </ul>
+ *
+ * @author woyioii
+ * @since 1.0
+ */
+@Slf4j
+public final class DistanceKernel {
+    public static final String VECTOR_PROPERTY = "villagemap.vector";
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final boolean VECTORIZED = detectVectorSupport();
+
+    private DistanceKernel() {
+        // 工具类私有构造
+    }
+
+    // 向量模块只有在启动时显式加入才能使用，缺失时不能加载引用它的类
+    private static boolean detectVectorSupport() {
+        if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))) {
+            log.info("已通过系统属性{}禁用向量距离计算", VECTOR_PROPERTY);
+            return false;
+        }
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.debug("未加载{}模块，使用逐个距离计算", VECTOR_MODULE);
+            return false;
+        }
+        try {
+            int lanes = VectorDistanceKernel.lanes();
+            if (lanes < 2) {
+                log.debug("当前平台不支持SIMD向量，使用逐个距离计算");
+                return false;
+            }
+            log.info("启用向量距离计算，每次并行计算{}个距离", lanes);
+            return true;
+        } catch (LinkageError | RuntimeException e) {
+            log.warn("向量距离计算初始化失败，使用逐个距离计算: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 是否使用向量计算
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * 计算一个村庄到多个村庄的道路长度
+     * @param x 起点横坐标
+     * @param y 起点纵坐标
+     * @param xs 村庄横坐标
+     * @param ys 村庄纵坐标
+     * @param targets 终点村庄下标
+     * @param count 终点数量
+     * @param out 输出，第k个元素为到targets[k]的长度
+     */
+    public static void distances(int x, int y, int[] xs, int[] ys, int[] targets, int count, double[] out) {
+        int done = VECTORIZED ? VectorDistanceKernel.distances(x, y, xs, ys, targets, count, out) : 0;
+        for (int k = done; k < count; k++) {
+            out[k] = Math.sqrt(square(xs[targets[k]] - x) + square(y - ys[targets[k]]));
+        }
+        roundLengths(out, count);
+    }
+
+    /**
+     * 按端点下标成对计算道路长度
+     * @param xs 村庄横坐标
+     * @param ys 村庄纵坐标
+     * @param starts 道路起点下标
+     * @param ends 道路终点下标
+     * @param count 道路数量
+     * @param out 输出，第r个元素为道路r的长度
+     */
+    public static void distances(int[] xs, int[] ys, int[] starts, int[] ends, int count, double[] out) {
+        int done = VECTORIZED ? VectorDistanceKernel.distances(xs, ys, starts, ends, count, out) : 0;
+        for (int r = done; r < count; r++) {
+            out[r] = Math.sqrt(square(xs[ends[r]] - xs[starts[r]]) + square(ys[starts[r]] - ys[ends[r]]));
+        }
+        roundLengths(out, count);
+    }
+
+    /**
+     * 查找距离给定坐标最近的村庄，距离相同时取下标较小的村庄
+     * @param x 横坐标
+     * @param y 纵坐标
+     * @param xs 村庄横坐标
+     * @param ys 村庄纵坐标
+     * @param count 村庄数量
+     * @param maxDistance 距离必须小于该值，与道路长度不同，不做缩放和取整
+     * @return 村庄下标，范围内没有村庄时返回-1
+     */
+    public static int nearest(double x, double y, int[] xs, int[] ys, int count, double maxDistance) {
+        double[] distances = new double[count];
+        int done = VECTORIZED ? VectorDistanceKernel.distances(x, y, xs, ys, count, distances) : 0;
+        for (int i = done; i < count; i++) {
+            distances[i] = Math.sqrt(square(xs[i] - x) + square(ys[i] - y));
+        }
+        int closest = -1;
+        double minDistance = maxDistance;
+        for (int i = 0; i < count; i++) {
+            if (distances[i] < minDistance) {
+                minDistance = distances[i];
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    // 与calculateDistance相同的取整方式：除以十并保留一位小数
+    static double roundLength(double distance) {
+        return Math.round(distance / 10.0 * 10.0) / 10.0;
+    }
+
+    private static void roundLengths(double[] distances, int count) {
+        for (int i = 0; i < count; i++) {
+            distances[i] = roundLength(distances[i]);
+        }
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+}
@@ -1,11 +1,15 @@
 package cn.woyioii.util;
 
+import cn.woyioii.model.MapGraph;
+import cn.woyioii.model.MapStore;
 import cn.woyioii.model.Road;
 import cn.woyioii.model.Village;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -35,9 +39,10 @@ public class MapCalculator {
      * 计算两点间的直线距离
      */
     public static double calculateDistance(int x1, int y1, int x2, int y2) {
-        // 除以十并保留一位小数
-        double distance = Math.sqrt(Math.pow(x2 - x1, 2) + Math.pow(y1 - y2, 2));
-        return Math.round(distance / 10.0 * 10.0) / 10.0;
+        double dx = x2 - x1;
+        double dy = y1 - y2;
+        // 除以十并保留一位小数，批量计算见DistanceKernel
+        return DistanceKernel.roundLength(Math.sqrt(dx * dx + dy * dy));
     }
 
     /**
@@ -72,6 +77,105 @@ public class MapCalculator {
         }
     }
 
+    /**
+     * 基于列式存储检查连通性，直接遍历道路端点数组，无需构建邻接矩阵
+     * @param store 村庄与道路的列式存储
+     * @return 连通分量列表,每个分量包含其中的村庄下标
+     */
+    public static List<Set<Integer>> checkConnectivity(MapStore store) {
+        try {
+            DisjointSet ds = unionRoads(store);
+
+            // 获取所有连通分量
+            Map<Integer, Set<Integer>> components = new HashMap<>();
+            for (int i = 0; i < store.getVillageCount(); i++) {
+                components.computeIfAbsent(ds.find(i), k -> new HashSet<>()).add(i);
+            }
+
+            return new ArrayList<>(components.values());
+        } catch (Exception e) {
+            log.error("检查连通性时发生错误: {}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 基于列式存储生成连通所有村庄所需的最少新边
+     * 只为位于不同连通分量的村庄对生成候选边，结果与邻接矩阵版本一致
+     * @param store 村庄与道路的列式存储
+     * @return 需要新增的边列表,每条边用一个长度为2的数组表示[起点下标+1, 终点下标+1]
+     */
+    public static List<int[]> addNewRoadToConnect(MapStore store) {
+        return addNewRoadToConnect(store, ProgressMonitor.NONE);
+    }
+
+    /**
+     * 基于列式存储生成连通所有村庄所需的最少新边，生成候选边时报告进度
+     * @param store 村庄与道路的列式存储
+     * @param monitor 进度回调，取消时抛出{@link CancellationException}
+     * @return 需要新增的边列表,每条边用一个长度为2的数组表示[起点下标+1, 终点下标+1]
+     */
+    public static List<int[]> addNewRoadToConnect(MapStore store, ProgressMonitor monitor) {
+        try {
+            int n = store.getVillageCount();
+            int[] xs = store.xs();
+            int[] ys = store.ys();
+            DisjointSet ds = unionRoads(store);
+
+            // 同一连通分量内的村庄对不会被选中，无需生成候选边
+            int[] roots = new int[n];
+            for (int i = 0; i < n; i++) {
+                roots[i] = ds.find(i);
+            }
+            List<Edge> edges = new ArrayList<>();
+            int[] targets = new int[n];
+            double[] distances = new double[n];
+            for (int i = 0; i < n; i++) {
+                monitor.worked(i, n);
+                // 先收集不在同一连通分量的村庄，再批量计算距离
+                int count = 0;
+                for (int j = i + 1; j < n; j++) {
+                    if (roots[i] != roots[j]) {
+                        targets[count++] = j;
+                    }
+                }
+                DistanceKernel.distances(xs[i], ys[i], xs, ys, targets, count, distances);
+                for (int k = 0; k < count; k++) {
+                    edges.add(new Edge(i, targets[k], distances[k]));
+                }
+            }
+
+            // 按权重排序
+            edges.sort(Comparator.comparingDouble(e -> e.weight));
+
+            // Kruskal算法选择需要添加的边
+            List<int[]> newRoads = new ArrayList<>();
+            for (Edge edge : edges) {
+                if (ds.find(edge.start) != ds.find(edge.end)) {
+                    newRoads.add(new int[]{edge.start + 1, edge.end + 1});
+                    ds.union(edge.start, edge.end);
+                }
+            }
+            return newRoads;
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("生成连通方案时发生错误: {}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // 按道路端点数组合并并查集
+    private static DisjointSet unionRoads(MapStore store) {
+        DisjointSet ds = new DisjointSet(store.getVillageCount());
+        int[] starts = store.roadStarts();
+        int[] ends = store.roadEnds();
+        for (int r = 0; r < store.getRoadCount(); r++) {
+            ds.union(starts[r], ends[r]);
+        }
+        return ds;
+    }
+
     /**
      * 生成最小生成树连通所有顶点所需最少新边
      * @param adjacencyMatrix 邻接矩阵
@@ -133,6 +237,16 @@ public class MapCalculator {
      * @return 距离矩阵
      */
     public static double[][] findAllPairsShortestPaths(double[][] adjacencyMatrix) {
+        return findAllPairsShortestPaths(adjacencyMatrix, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Floyd-Warshall算法计算所有点对最短路径，每轮中转点迭代报告一次进度
+     * @param adjacencyMatrix 邻接矩阵
+     * @param monitor 进度回调，取消时抛出{@link CancellationException}
+     * @return 距离矩阵
+     */
+    public static double[][] findAllPairsShortestPaths(double[][] adjacencyMatrix, ProgressMonitor monitor) {
         try {
             int n = adjacencyMatrix.length;
             double[][] dist = new double[n][n];
@@ -152,6 +266,7 @@ public class MapCalculator {
             
             // Floyd-Warshall算法
             for (int k = 0; k < n; k++) {
+                monitor.worked(k, n);
                 for (int i = 0; i < n; i++) {
                     if (i != k && !Double.isInfinite(dist[i][k])) {
                         for (int j = 0; j < n; j++) {
@@ -167,6 +282,8 @@ public class MapCalculator {
             }
             
             return dist;
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("计算所有点对最短路径时发生错误: {}", e.getMessage());
             return new double[0][0];
@@ -180,6 +297,18 @@ public class MapCalculator {
      * @return Map<终点索引, 路径顶点列表>
      */
     public static Map<Integer, List<Integer>> findAllPairsShortestPathsWithRoute(double[][] adjacencyMatrix, int startVertex) {
+        return findAllPairsShortestPathsWithRoute(adjacencyMatrix, startVertex, ProgressMonitor.NONE);
+    }
+
+    /**
+     * 计算从指定起点到其他所有顶点的最短路径，每确定一个顶点报告一次进度
+     * @param adjacencyMatrix 邻接矩阵
+     * @param startVertex 起点索引
+     * @param monitor 进度回调，取消时抛出{@link CancellationException}
+     * @return Map<终点索引, 路径顶点列表>
+     */
+    public static Map<Integer, List<Integer>> findAllPairsShortestPathsWithRoute(double[][] adjacencyMatrix, int startVertex,
+                                                                                  ProgressMonitor monitor) {
         try {
             int n = adjacencyMatrix.length;
             double[] dist = new double[n];  // 到各点的距离
@@ -193,6 +322,7 @@ public class MapCalculator {
             
             // Dijkstra算法
             for (int i = 0; i < n; i++) {
+                monitor.worked(i, n);
                 // 找到未访问的最近顶点
                 int u = -1;
                 double minDist = Double.POSITIVE_INFINITY;
@@ -234,6 +364,8 @@ public class MapCalculator {
             }
             
             return paths;
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("计算最短路径时发生错误: {}", e.getMessage());
             return new HashMap<>();
@@ -247,85 +379,136 @@ public class MapCalculator {
      * @return 路径顶点序列(1-based顶点编号)
      */
     public static List<Integer> findOptimalRoute(double[][] adjacencyMatrix, int startVertex) {
+        return findOptimalRoute(adjacencyMatrix, startVertex, ProgressMonitor.NONE);
+    }
+
+    /**
+     * 求经过所有顶点的最短路径，计算所有点对最短路径时报告进度
+     * @param adjacencyMatrix 邻接矩阵
+     * @param startVertex 起点索引
+     * @param monitor 进度回调，取消时抛出{@link CancellationException}
+     * @return 路径顶点序列(1-based顶点编号)
+     */
+    public static List<Integer> findOptimalRoute(double[][] adjacencyMatrix, int startVertex, ProgressMonitor monitor) {
         try {
             if(isStronglyConnected(adjacencyMatrix)) {
                 return new ArrayList<>();
             }
+            return findOptimalRoute(shortestPathTable(adjacencyMatrix, monitor), startVertex);
+        } catch(CancellationException e) {
+            throw e;
+        } catch(Exception e) {
+            log.error("计算最优路径时发生错误: {}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
 
-            int n = adjacencyMatrix.length;
-            double[][] dist = new double[n][n];
-            int[][] next = new int[n][n];
+    /**
+     * 所有点对最短路径的距离和下一跳，同一张图上不同起点的最优路径可以共用
+     * @param dist 最短距离，不可达为正无穷
+     * @param next 从i到j的最短路径上i之后的顶点，不可达为-1
+     */
+    public record ShortestPathTable(double[][] dist, int[][] next) {
+    }
 
-            // 初始化距离矩阵和下一跳矩阵
-            for(int i = 0; i < n; i++) {
-                Arrays.fill(dist[i], Double.POSITIVE_INFINITY);
-                Arrays.fill(next[i], -1);
-                dist[i][i] = 0;
-                for(int j = 0; j < n; j++) {
-                    if(adjacencyMatrix[i][j] > 0) {
-                        dist[i][j] = adjacencyMatrix[i][j];
-                        next[i][j] = j;
-                    }
+    /**
+     * Floyd-Warshall算法计算所有点对最短路径及下一跳，每轮中转点迭代报告一次进度
+     * @param adjacencyMatrix 邻接矩阵
+     * @param monitor 进度回调，取消时抛出{@link CancellationException}
+     * @return 最短路径表
+     */
+    public static ShortestPathTable shortestPathTable(double[][] adjacencyMatrix, ProgressMonitor monitor) {
+        int n = adjacencyMatrix.length;
+        double[][] dist = new double[n][n];
+        int[][] next = new int[n][n];
+
+        // 初始化距离矩阵和下一跳矩阵
+        for(int i = 0; i < n; i++) {
+            Arrays.fill(dist[i], Double.POSITIVE_INFINITY);
+            Arrays.fill(next[i], -1);
+            dist[i][i] = 0;
+            for(int j = 0; j < n; j++) {
+                if(adjacencyMatrix[i][j] > 0) {
+                    dist[i][j] = adjacencyMatrix[i][j];
+                    next[i][j] = j;
                 }
             }
+        }
 
-            // Floyd-Warshall求所有点对最短路径
-            for(int k = 0; k < n; k++) {
-                for(int i = 0; i < n; i++) {
-                    for(int j = 0; j < n; j++) {
-                        if(dist[i][k] + dist[k][j] < dist[i][j]) {
-                            dist[i][j] = dist[i][k] + dist[k][j];
-                            next[i][j] = next[i][k];
-                        }
+        // Floyd-Warshall求所有点对最短路径，i到k不可达时整行都不会更新
+        for(int k = 0; k < n; k++) {
+            monitor.worked(k, n);
+            double[] distK = dist[k];
+            for(int i = 0; i < n; i++) {
+                double[] distI = dist[i];
+                double ik = distI[k];
+                if(ik == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                int[] nextI = next[i];
+                int nextIk = nextI[k];
+                for(int j = 0; j < n; j++) {
+                    if(ik + distK[j] < distI[j]) {
+                        distI[j] = ik + distK[j];
+                        nextI[j] = nextIk;
                     }
                 }
             }
+        }
+        return new ShortestPathTable(dist, next);
+    }
 
-            // 使用贪心算法构建最短路径
-            List<Integer> path = new ArrayList<>();
-            Set<Integer> visited = new HashSet<>();
-            int current = startVertex;
-            path.add(current + 1);  // 转换为1-based
-            visited.add(current);
-
-            // 每次选择最近的未访问顶点
-            while(visited.size() < n) {
-                double minDist = Double.POSITIVE_INFINITY;
-                int nextVertex = -1;
+    /**
+     * 基于已计算的最短路径表，用贪心算法构建从起点出发经过所有顶点的路径，耗时与顶点数平方成正比
+     * @param table 最短路径表
+     * @param startVertex 起点索引
+     * @return 路径顶点序列(1-based顶点编号)
+     */
+    public static List<Integer> findOptimalRoute(ShortestPathTable table, int startVertex) {
+        double[][] dist = table.dist();
+        int[][] next = table.next();
+        int n = dist.length;
+
+        List<Integer> path = new ArrayList<>();
+        boolean[] visited = new boolean[n];
+        int visitedCount = 1;
+        int current = startVertex;
+        path.add(current + 1);  // 转换为1-based
+        visited[current] = true;
+
+        // 每次选择最近的未访问顶点
+        while(visitedCount < n) {
+            double minDist = Double.POSITIVE_INFINITY;
+            int nextVertex = -1;
 
-                for(int i = 0; i < n; i++) {
-                    if(!visited.contains(i)) {
-                        if(dist[current][i] < minDist) {
-                            minDist = dist[current][i];
-                            nextVertex = i;
-                        }
-                    }
+            for(int i = 0; i < n; i++) {
+                if(!visited[i] && dist[current][i] < minDist) {
+                    minDist = dist[current][i];
+                    nextVertex = i;
                 }
+            }
 
-                if(nextVertex == -1) {
-                    break;  // 无法访问更多顶点
-                }
+            if(nextVertex == -1) {
+                break;  // 无法访问更多顶点
+            }
 
-                // 添加最短路径上的所有顶点
-                int u = current;
-                while(u != nextVertex) {
-                    int v = next[u][nextVertex];
-                    if(v != nextVertex) {
-                        path.add(v + 1);  // 转换为1-based
-                    }
-                    u = v;
+            // 添加最短路径上的所有顶点
+            int u = current;
+            while(u != nextVertex) {
+                int v = next[u][nextVertex];
+                if(v != nextVertex) {
+                    path.add(v + 1);  // 转换为1-based
                 }
-                path.add(nextVertex + 1);  // 转换为1-based
-
-                current = nextVertex;
-                visited.add(current);
+                u = v;
             }
+            path.add(nextVertex + 1);  // 转换为1-based
 
-            return path;
-        } catch(Exception e) {
-            log.error("计算最优路径时发生错误: {}", e.getMessage());
-            return new ArrayList<>();
+            current = nextVertex;
+            visited[current] = true;
+            visitedCount++;
         }
+
+        return path;
     }
 
     /**
@@ -460,6 +643,56 @@ public class MapCalculator {
      * @return 路径计算结果
      */
     public static RouteResult calculateOptimalRoute(List<Village> villages, List<Road> roads, Village startVillage) {
+        return calculateOptimalRoute(MapGraph.of(villages, roads), startVillage, ProgressMonitor.NONE);
+    }
+
+    /**
+     * 计算最优路径，计算路径时报告进度
+     * @param villages 村庄列表
+     * @param roads 道路列表
+     * @param startVillage 起点村庄
+     * @param monitor 进度回调，取消时抛出{@link CancellationException}
+     * @return 路径计算结果
+     */
+    public static RouteResult calculateOptimalRoute(List<Village> villages, List<Road> roads, Village startVillage,
+                                                    ProgressMonitor monitor) {
+        return calculateOptimalRoute(MapGraph.of(villages, roads), startVillage, monitor);
+    }
+
+    /**
+     * 基于已构建的图计算最优路径
+     * @param graph 村庄道路图
+     * @param startVillage 起点村庄
+     * @return 路径计算结果
+     */
+    public static RouteResult calculateOptimalRoute(MapGraph graph, Village startVillage) {
+        return calculateOptimalRoute(graph, startVillage, ProgressMonitor.NONE);
+    }
+
+    /**
+     * 基于已构建的图计算最优路径，直接使用图缓存的邻接矩阵，计算路径时报告进度
+     * @param graph 村庄道路图
+     * @param startVillage 起点村庄
+     * @param monitor 进度回调，取消时抛出{@link CancellationException}
+     * @return 路径计算结果
+     */
+    public static RouteResult calculateOptimalRoute(MapGraph graph, Village startVillage, ProgressMonitor monitor) {
+        return calculateOptimalRoute(graph, startVillage,
+                () -> shortestPathTable(graph.adjacencyMatrix(), monitor));
+    }
+
+    /**
+     * 基于已构建的图计算最优路径，最短路径表由调用方提供，只在图连通时获取一次
+     * 同一张图多次计算不同起点时，调用方可以缓存最短路径表，每次只需构建路径
+     * @param graph 村庄道路图
+     * @param startVillage 起点村庄
+     * @param table 提供该图的最短路径表
+     * @return 路径计算结果
+     */
+    public static RouteResult calculateOptimalRoute(MapGraph graph, Village startVillage,
+                                                    Supplier<ShortestPathTable> table) {
+        List<Village> villages = graph.villages();
+        List<Road> roads = graph.roads();
         RouteResult result = new RouteResult();
         result.setStartVillage(startVillage);
         
@@ -471,32 +704,14 @@ public class MapCalculator {
         }
         
         // 验证起点是否与任何道路相连
-        boolean hasConnectedRoad = roads.stream().anyMatch(road -> 
-            road.getStartId() == startVillage.getId() || 
-            road.getEndId() == startVillage.getId());
-        
-        if (!hasConnectedRoad) {
+        int startIndex = graph.indexOf(startVillage.getId());
+        if (startIndex < 0 || graph.degree(startIndex) == 0) {
             result.setSuccess(false);
             result.setErrorMessage("起点村庄没有与任何其他村庄相连的道路");
             return result;
         }
 
-        // 构建邻接矩阵
-        double[][] adjacencyMatrix = new double[villages.size()][villages.size()];
-        for (Road road : roads) {
-            int startIndex = -1;
-            int endIndex = -1;
-            for (int i = 0; i < villages.size(); i++) {
-                Village v = villages.get(i);
-                if (v.getId() == road.getStartId()) startIndex = i;
-                if (v.getId() == road.getEndId()) endIndex = i;
-                if (startIndex != -1 && endIndex != -1) break;
-            }
-            if (startIndex != -1 && endIndex != -1) {
-                adjacencyMatrix[startIndex][endIndex] = road.getLength();
-                adjacencyMatrix[endIndex][startIndex] = road.getLength();
-            }
-        }
+        double[][] adjacencyMatrix = graph.adjacencyMatrix();
         
         // 检查连通性
         if (isStronglyConnected(adjacencyMatrix)) {
@@ -519,8 +734,15 @@ public class MapCalculator {
             return result;
         }
         
-        int startIndex = villages.indexOf(startVillage);
-        List<Integer> optimalPath = findOptimalRoute(adjacencyMatrix, startIndex);
+        List<Integer> optimalPath;
+        try {
+            optimalPath = findOptimalRoute(table.get(), startIndex);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("计算最优路径时发生错误: {}", e.getMessage());
+            optimalPath = new ArrayList<>();
+        }
         
         if (optimalPath.isEmpty()) {
             result.setSuccess(false);
@@ -528,19 +750,12 @@ public class MapCalculator {
             return result;
         }
         
-        // 验证路径有效性
-        for (int i = 0; i < optimalPath.size() - 1; i++) {
-            int currentId = villages.get(optimalPath.get(i) - 1).getId();
-            int nextId = villages.get(optimalPath.get(i + 1) - 1).getId();
-            boolean hasRoad = roads.stream().anyMatch(road -> 
-                (road.getStartId() == currentId && road.getEndId() == nextId) ||
-                (road.getStartId() == nextId && road.getEndId() == currentId)
-            );
-            if (!hasRoad) {
-                result.setSuccess(false);
-                result.setErrorMessage("计算出的路径包含不存在的道路");
-                return result;
-            }
+        // 获取路径上的道路，同时验证路径有效性
+        List<Road> pathRoads = pathRoads(graph, optimalPath);
+        if (pathRoads == null) {
+            result.setSuccess(false);
+            result.setErrorMessage("计算出的路径包含不存在的道路");
+            return result;
         }
         
         // 计算总距离
@@ -556,19 +771,6 @@ public class MapCalculator {
                 .map(id -> villages.get(id - 1))
                 .collect(Collectors.toList());
         
-        // 获取路径上的道路
-        List<Road> pathRoads = new ArrayList<>();
-        for (int i = 0; i < optimalPath.size() - 1; i++) {
-            int currentId = villages.get(optimalPath.get(i) - 1).getId();
-            int nextId = villages.get(optimalPath.get(i + 1) - 1).getId();
-            roads.stream()
-                .filter(road -> 
-                    (road.getStartId() == currentId && road.getEndId() == nextId) ||
-                    (road.getStartId() == nextId && road.getEndId() == currentId))
-                .findFirst()
-                .ifPresent(pathRoads::add);
-        }
-        
         // 设置结果
         result.setSuccess(true);
         result.setPath(pathVillages);
@@ -579,6 +781,19 @@ public class MapCalculator {
         return result;
     }
 
+    // 按路径上相邻的村庄查找道路，路径顶点为1-based下标，存在不相邻的村庄时返回null
+    private static List<Road> pathRoads(MapGraph graph, List<Integer> path) {
+        List<Road> pathRoads = new ArrayList<>();
+        for (int i = 0; i < path.size() - 1; i++) {
+            Road road = graph.roadBetween(path.get(i) - 1, path.get(i + 1) - 1);
+            if (road == null) {
+                return null;
+            }
+            pathRoads.add(road);
+        }
+        return pathRoads;
+    }
+
     /**
      * 计算最优回路，包含完整的逻辑处理
      * @param villages 村庄列表
@@ -587,6 +802,47 @@ public class MapCalculator {
      * @return 回路计算结果
      */
     public static RouteResult calculateOptimalRoundTrip(double[][] adjacencyMatrix, List<Village> villages, List<Road> roads, Village startVillage) {
+        return calculateOptimalRoundTrip(adjacencyMatrix, villages, roads, startVillage, ProgressMonitor.NONE);
+    }
+
+    /**
+     * 计算最优回路，计算路径时报告进度
+     * @param villages 村庄列表
+     * @param roads 道路列表
+     * @param startVillage 起点村庄
+     * @param monitor 进度回调，取消时抛出{@link CancellationException}
+     * @return 回路计算结果
+     */
+    public static RouteResult calculateOptimalRoundTrip(double[][] adjacencyMatrix, List<Village> villages, List<Road> roads,
+                                                        Village startVillage, ProgressMonitor monitor) {
+        return calculateOptimalRoundTrip(MapGraph.of(villages, roads), adjacencyMatrix, startVillage, monitor);
+    }
+
+    /**
+     * 基于已构建的图计算最优回路
+     * @param graph 村庄道路图
+     * @param startVillage 起点村庄
+     * @return 回路计算结果
+     */
+    public static RouteResult calculateOptimalRoundTrip(MapGraph graph, Village startVillage) {
+        return calculateOptimalRoundTrip(graph, startVillage, ProgressMonitor.NONE);
+    }
+
+    /**
+     * 基于已构建的图计算最优回路，直接使用图缓存的邻接矩阵，计算路径时报告进度
+     * @param graph 村庄道路图
+     * @param startVillage 起点村庄
+     * @param monitor 进度回调，取消时抛出{@link CancellationException}
+     * @return 回路计算结果
+     */
+    public static RouteResult calculateOptimalRoundTrip(MapGraph graph, Village startVillage, ProgressMonitor monitor) {
+        return calculateOptimalRoundTrip(graph, graph.adjacencyMatrix(), startVillage, monitor);
+    }
+
+    private static RouteResult calculateOptimalRoundTrip(MapGraph graph, double[][] adjacencyMatrix,
+                                                         Village startVillage, ProgressMonitor monitor) {
+        List<Village> villages = graph.villages();
+        List<Road> roads = graph.roads();
         RouteResult result = new RouteResult();
         result.setStartVillage(startVillage);
         result.setRoundTrip(true);
@@ -609,8 +865,8 @@ public class MapCalculator {
             return result;
         }
         
-        int startIndex = villages.indexOf(startVillage);
-        List<Integer> roundTripPath = findOptimalRoundTrip(adjacencyMatrix, startIndex);
+        int startIndex = graph.indexOf(startVillage.getId());
+        List<Integer> roundTripPath = findOptimalRoundTrip(adjacencyMatrix, startIndex, monitor);
         log.info("计算最优回路路径：{}", roundTripPath);
         if (roundTripPath.isEmpty()) {
             result.setSuccess(false);
@@ -626,14 +882,10 @@ public class MapCalculator {
         // 获取路径上的道路
         List<Road> pathRoads = new ArrayList<>();
         for (int i = 0; i < roundTripPath.size() - 1; i++) {
-            int currentId = villages.get(roundTripPath.get(i) - 1).getId();
-            int nextId = villages.get(roundTripPath.get(i + 1) - 1).getId();
-            roads.stream()
-                .filter(road ->
-                    (road.getStartId() == currentId && road.getEndId() == nextId) ||
-                    (road.getStartId() == nextId && road.getEndId() == currentId))
-                .findFirst()
-                .ifPresent(pathRoads::add);
+            Road road = graph.roadBetween(roundTripPath.get(i) - 1, roundTripPath.get(i + 1) - 1);
+            if (road != null) {
+                pathRoads.add(road);
+            }
         }
         
         // 设置结果
@@ -651,11 +903,22 @@ public class MapCalculator {
      * @return 路径顶点序列(1-based顶点编号)
      */
     public static List<Integer> findOptimalRoundTrip(double[][] adjacencyMatrix, int startIndex) {
+        return findOptimalRoundTrip(adjacencyMatrix, startIndex, ProgressMonitor.NONE);
+    }
+
+    /**
+     * 求经过所有顶点的最短环路，去程和返程两个阶段分别报告进度
+     * @param adjacencyMatrix 邻接矩阵
+     * @param startIndex 起始顶点索引
+     * @param monitor 进度回调，取消时抛出{@link CancellationException}
+     * @return 路径顶点序列(1-based顶点编号)
+     */
+    public static List<Integer> findOptimalRoundTrip(double[][] adjacencyMatrix, int startIndex, ProgressMonitor monitor) {
         log.info("状态压缩DP求解TSP回路问题，找出经过所有顶点的最短环路");
-        List<Integer> result = findOptimalRoute(adjacencyMatrix, startIndex);
+        List<Integer> result = findOptimalRoute(adjacencyMatrix, startIndex, monitor);
         System.out.println(result);
 
-       Map<Integer, List<Integer>> list = findAllPairsShortestPathsWithRoute(adjacencyMatrix, result.getLast()-1);
+       Map<Integer, List<Integer>> list = findAllPairsShortestPathsWithRoute(adjacencyMatrix, result.getLast()-1, monitor);
         System.out.println(startIndex);
         System.out.println(list);
        List<Integer> reversePath = list.get(startIndex);
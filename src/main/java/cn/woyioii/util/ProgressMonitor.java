@@ -0,0 +1,32 @@
+package cn.woyioii.util;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * <h1>计算进度回调</h1>
+ * <p>{@link MapCalculator}中的耗时循环在每轮外层迭代时调用，用于报告进度并检查计算是否已被取消。</p>
+ *
+ * <h2>使用须知：</h2>
+ * <ul>
+ *     <li>取消时由实现方抛出{@link CancellationException}，计算方法不会吞掉该异常</li>
+ *     <li>一次计算可能包含多个阶段，每个阶段的进度都从0开始重新报告</li>
+ *     <li>调用发生在计算线程中，实现方需要自行切换到界面线程</li>
+ * </ul>
+ *
+ * @author woyioii
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface ProgressMonitor {
+    // 不报告进度也不可取消
+    ProgressMonitor NONE = (done, total) -> {
+    };
+
+    /**
+     * 报告当前阶段的进度
+     * @param done 已完成的工作量
+     * @param total 总工作量
+     * @throws CancellationException 计算已被取消
+     */
+    void worked(long done, long total);
+}
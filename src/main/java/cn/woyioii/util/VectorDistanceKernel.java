@@ -0,0 +1,67 @@
+package cn.woyioii.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于Vector API的距离计算，只能在{@link DistanceKernel}确认向量模块已加载后使用
+ * 每个方法处理完整的向量宽度，返回已计算的数量，剩余的元素由调用方逐个计算
+ * 输出的是未取整的直线距离，坐标差按int计算后再转为double，与逐个计算的结果逐位相同
+ */
+final class VectorDistanceKernel {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    // 与double向量通道数相同的int向量，坐标转换后正好填满一个double向量
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    private VectorDistanceKernel() {
+        // 工具类私有构造
+    }
+
+    static int lanes() {
+        return DOUBLES.length();
+    }
+
+    static int distances(int x, int y, int[] xs, int[] ys, int[] targets, int count, double[] out) {
+        int bound = INTS.loopBound(count);
+        for (int k = 0; k < bound; k += INTS.length()) {
+            IntVector dx = IntVector.fromArray(INTS, xs, 0, targets, k).sub(x);
+            IntVector dy = IntVector.broadcast(INTS, y).sub(IntVector.fromArray(INTS, ys, 0, targets, k));
+            length(dx, dy).intoArray(out, k);
+        }
+        return bound;
+    }
+
+    static int distances(int[] xs, int[] ys, int[] starts, int[] ends, int count, double[] out) {
+        int bound = INTS.loopBound(count);
+        for (int r = 0; r < bound; r += INTS.length()) {
+            IntVector dx = IntVector.fromArray(INTS, xs, 0, ends, r).sub(IntVector.fromArray(INTS, xs, 0, starts, r));
+            IntVector dy = IntVector.fromArray(INTS, ys, 0, starts, r).sub(IntVector.fromArray(INTS, ys, 0, ends, r));
+            length(dx, dy).intoArray(out, r);
+        }
+        return bound;
+    }
+
+    static int distances(double x, double y, int[] xs, int[] ys, int count, double[] out) {
+        int bound = INTS.loopBound(count);
+        for (int i = 0; i < bound; i += INTS.length()) {
+            DoubleVector dx = toDouble(IntVector.fromArray(INTS, xs, i)).sub(x);
+            DoubleVector dy = toDouble(IntVector.fromArray(INTS, ys, i)).sub(y);
+            dx.mul(dx).add(dy.mul(dy)).lanewise(VectorOperators.SQRT).intoArray(out, i);
+        }
+        return bound;
+    }
+
+    private static DoubleVector length(IntVector dx, IntVector dy) {
+        DoubleVector ddx = toDouble(dx);
+        DoubleVector ddy = toDouble(dy);
+        return ddx.mul(ddx).add(ddy.mul(ddy)).lanewise(VectorOperators.SQRT);
+    }
+
+    private static DoubleVector toDouble(IntVector vector) {
+        return (DoubleVector) vector.convertShape(VectorOperators.I2D, DOUBLES, 0);
+    }
+}
@@ -2,8 +2,14 @@ module cn.woyioii.villageMap {
     requires javafx.controls;
     requires javafx.fxml;
     requires static lombok;
+    // 孵化模块，启动时加上--add-modules才会启用向量距离计算
+    requires static jdk.incubator.vector;
     requires com.google.gson;
     requires org.slf4j;
+    requires java.sql;
+    requires java.desktop;
+    requires jdk.httpserver;
+    requires com.h2database;
     requires transitive javafx.graphics;
 
     opens cn.woyioii.model to com.google.gson, javafx.base;
@@ -17,4 +23,6 @@ module cn.woyioii.villageMap {
     exports cn.woyioii.model;
     exports cn.woyioii.handler;
     exports cn.woyioii.dao;
+    // MainController的公开方法使用RoutingServer
+    exports cn.woyioii.server;
 }
\ No newline at end of file
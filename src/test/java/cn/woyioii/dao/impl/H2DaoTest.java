@@ -0,0 +1,120 @@
+package cn.woyioii.dao.impl;
+
+import cn.woyioii.model.DataSnapshot;
+import cn.woyioii.model.Road;
+import cn.woyioii.model.Village;
+import cn.woyioii.service.impl.RoadServiceImpl;
+import cn.woyioii.service.impl.VillageServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class H2DaoTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<Village> villages(int count) {
+        List<Village> villages = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            villages.add(new Village(i, "村庄" + i, i * 10, i * 20, i % 3 == 0 ? null : "描述“" + i + "”🌲"));
+        }
+        return villages;
+    }
+
+    private static Road road(Integer id, int start, int end) {
+        Road road = new Road(start, end, "道路" + start + "-" + end, start + end);
+        road.setId(id);
+        return road;
+    }
+
+    private static List<String> descriptions(List<Village> villages) {
+        return villages.stream().map(Village::getDescription).toList();
+    }
+
+    @Test
+    void incrementalSaveSurvivesReopen() {
+        String file = directory.resolve("round-villages.json").toString();
+        H2VillageDaoImpl dao = new H2VillageDaoImpl(file);
+        VillageServiceImpl service = new VillageServiceImpl(dao, List.of());
+        List<Village> initial = villages(10);
+        service.saveVillages(new DataSnapshot<>(1, initial), null);
+
+        // 从数据库读取的村庄描述延迟加载，修改其中两个并删除一个后只写入变更
+        List<Village> loaded = new H2VillageDaoImpl(file).getAllVillages();
+        VillageServiceImpl reopened = new VillageServiceImpl(new H2VillageDaoImpl(file), loaded);
+        List<Village> current = new ArrayList<>(loaded);
+        current.set(1, new Village(2, "改名", 1, 2, "新的描述"));
+        current.remove(4);
+        current.add(new Village(11, "新村", 5, 6, null));
+        reopened.saveVillages(new DataSnapshot<>(2, current), null);
+
+        List<Village> stored = new H2VillageDaoImpl(file).getAllVillages();
+        assertEquals(current, stored);
+        assertEquals(descriptions(current), descriptions(stored));
+    }
+
+    @Test
+    void fullSaveMaterializesLazyDescriptions() {
+        String file = directory.resolve("full-villages.json").toString();
+        H2VillageDaoImpl dao = new H2VillageDaoImpl(file);
+        List<Village> initial = villages(6);
+        dao.updateVillage(initial);
+
+        // 重写整张表前需要先读出尚未加载的描述
+        List<Village> loaded = dao.getAllVillages();
+        List<Village> reversed = new ArrayList<>(loaded.reversed());
+        dao.updateVillage(reversed);
+
+        List<Village> stored = new H2VillageDaoImpl(file).getAllVillages();
+        assertEquals(initial.reversed(), stored);
+        assertEquals(descriptions(initial.reversed()), descriptions(stored));
+    }
+
+    @Test
+    void roadChangesSurviveReopen() {
+        String villageFile = directory.resolve("net-villages.json").toString();
+        String roadFile = directory.resolve("net-roads.json").toString();
+        VillageServiceImpl villageService = new VillageServiceImpl(new H2VillageDaoImpl(villageFile), villages(6));
+        H2RoadDaoImpl dao = new H2RoadDaoImpl(roadFile);
+        List<Road> initial = List.of(road(1, 1, 2), road(2, 2, 3), road(3, 3, 4), road(4, 4, 5), road(5, 5, 6));
+        dao.updateRoad(initial);
+
+        RoadServiceImpl service = new RoadServiceImpl(new H2RoadDaoImpl(roadFile), villageService, dao.getAllRoads());
+        List<Road> current = new ArrayList<>(service.getSnapshot().items());
+        current.set(0, road(1, 1, 3));
+        current.remove(3);
+        current.add(road(6, 1, 6));
+        service.saveRoads(new DataSnapshot<>(2, current), null);
+
+        assertEquals(current, new H2RoadDaoImpl(roadFile).getAllRoads());
+    }
+
+    @Test
+    void roadsWithoutIdAreAppendedInOrder() {
+        String file = directory.resolve("append-roads.json").toString();
+        H2RoadDaoImpl dao = new H2RoadDaoImpl(file);
+        dao.updateRoad(List.of(road(1, 1, 2), road(2, 2, 3)));
+
+        Road unnamed = road(null, 3, 4);
+        Road added = road(5, 4, 5);
+        dao.applyChanges(List.of(unnamed, road(2, 2, 4), added), List.of(1));
+
+        assertEquals(List.of(road(2, 2, 4), unnamed, added), new H2RoadDaoImpl(file).getAllRoads());
+    }
+
+    @Test
+    void databasePathStripsOnlyTheFileSuffix() {
+        Path folder = directory.resolve("backup.json.d");
+
+        assertEquals(folder.resolve("data").toString(),
+                H2Database.toDatabasePath(folder.resolve("data-villages.json").toString()));
+        assertEquals(folder.resolve("data").toString(),
+                H2Database.toDatabasePath(folder.resolve("data-roads.json").toString()));
+    }
+}
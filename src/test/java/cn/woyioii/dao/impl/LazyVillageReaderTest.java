@@ -0,0 +1,113 @@
+package cn.woyioii.dao.impl;
+
+import cn.woyioii.model.Village;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyVillageReaderTest {
+    private final Gson gson = new Gson();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsEscapedAndMultibyteStringsLikeGson() throws IOException {
+        List<Village> villages = List.of(
+                new Village(1, "青松镇", 150, 120, "位于山区的林业重镇，盛产木材和林果"),
+                new Village(2, "引号\"与\\反斜杠", 1, 2, "换行\n制表\t<html>&'="),
+                new Village(3, "emoji 🌲 村", 3, 4, "\u0001控制字符和   分隔符"),
+                new Village(4, "", 0, 0, ""));
+        Path file = write(gson.toJson(villages));
+
+        List<Village> lazy = new LazyVillageReader(file, gson).read();
+
+        assertEquals(readWithGson(file), lazy);
+        assertEquals(villages, lazy);
+    }
+
+    @Test
+    void handlesNullAndMissingFields() throws IOException {
+        Path file = write("[{\"id\":1,\"name\":null,\"locateX\":5,\"description\":null},"
+                + "{\"id\":2},"
+                + "{\"locateY\":7,\"name\":\"只有名称\"},"
+                + "{}]");
+
+        List<Village> lazy = new LazyVillageReader(file, gson).read();
+
+        assertEquals(readWithGson(file), lazy);
+        assertNull(lazy.get(0).getName());
+        assertNull(lazy.get(0).getDescription());
+        assertNull(lazy.get(1).getDescriptionLoader());
+    }
+
+    @Test
+    void skipsNestedUnknownFields() throws IOException {
+        Path file = write(" [ {\"extra\": {\"a\": [1, {\"b\": \"}]\\\"\"}, null], \"c\": true},\n"
+                + "  \"id\": 9, \"name\": \"河滨村\", \"tags\": [\"{\", \"[\"],\n"
+                + "  \"locateX\": 3.0, \"locateY\": -4, \"description\": \"描述\", \"weight\": 1.5e3 } ]\n");
+
+        List<Village> lazy = new LazyVillageReader(file, gson).read();
+
+        assertEquals(readWithGson(file), lazy);
+        assertEquals(new Village(9, "河滨村", 3, -4, "描述"), lazy.getFirst());
+    }
+
+    @Test
+    void readsEmptyAndNullFiles() throws IOException {
+        assertTrue(new LazyVillageReader(write(""), gson).read().isEmpty());
+        assertTrue(new LazyVillageReader(write("null"), gson).read().isEmpty());
+        assertTrue(new LazyVillageReader(write("[ ]"), gson).read().isEmpty());
+    }
+
+    @Test
+    void sharesEqualNames() throws IOException {
+        Path file = write(gson.toJson(List.of(new Village(1, "同名", 0, 0, null), new Village(2, "同名", 0, 0, null))));
+
+        List<Village> lazy = new LazyVillageReader(file, gson).read();
+
+        assertSame(lazy.get(0).getName(), lazy.get(1).getName());
+    }
+
+    @Test
+    void loaderReturnsNullAfterFileIsModified() throws IOException {
+        Path file = write(gson.toJson(List.of(new Village(1, "青松镇", 0, 0, "原始描述"))));
+        List<Village> lazy = new LazyVillageReader(file, gson).read();
+        Village village = lazy.getFirst();
+        assertNotNull(village.getDescriptionLoader());
+
+        Files.writeString(file, gson.toJson(List.of(new Village(1, "青松镇", 0, 0, "修改后的描述"))));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 5000));
+
+        assertNull(village.getDescription());
+        // 加载失败时保留加载器
+        assertNotNull(village.getDescriptionLoader());
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThrows(IOException.class, () -> new LazyVillageReader(write("[{\"id\":1,\"name\":\"未结束"), gson).read());
+        assertThrows(IOException.class, () -> new LazyVillageReader(write("{\"id\":1}"), gson).read());
+    }
+
+    private Path write(String json) throws IOException {
+        Path file = Files.createTempFile(directory, "villages", ".json");
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private List<Village> readWithGson(Path file) throws IOException {
+        return gson.fromJson(Files.readString(file), new TypeToken<List<Village>>() {
+        }.getType());
+    }
+}
@@ -0,0 +1,75 @@
+package cn.woyioii.dao.impl;
+
+import cn.woyioii.model.Village;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VillageDaoImplTest {
+    private final Gson gson = new Gson();
+
+    @TempDir
+    Path directory;
+
+    private final List<Village> villages = List.of(
+            new Village(1, "青松镇", 150, 120, "位于山区的林业重镇"),
+            new Village(2, "引号\"<村>", 320, 200, "换行\n与 emoji 🌲"),
+            new Village(3, null, 0, 0, null));
+
+    @Test
+    void writesSameBytesAsGson() throws IOException {
+        Path file = directory.resolve("a-villages.json");
+        VillageDaoImpl dao = new VillageDaoImpl(file.toString());
+
+        dao.updateVillage(villages);
+
+        assertEquals(gson.toJson(villages), Files.readString(file));
+        assertEquals(villages, dao.getAllVillages());
+    }
+
+    @Test
+    void copiesUnloadedDescriptionsWithoutLoadingThem() throws IOException {
+        Path source = directory.resolve("source-villages.json");
+        Files.writeString(source, gson.toJson(villages));
+        VillageDaoImpl dao = new VillageDaoImpl(source.toString());
+        dao.setLazyLoading(true);
+        List<Village> lazy = dao.getAllVillages();
+
+        Path copy = directory.resolve("copy-villages.json");
+        dao.saveVillage(lazy, copy.toString());
+
+        assertEquals(gson.toJson(villages), Files.readString(copy));
+        assertNotNull(lazy.get(0).getDescriptionLoader());
+        assertNotNull(lazy.get(1).getDescriptionLoader());
+    }
+
+    @Test
+    void relocatesDescriptionsWhenOverwritingTheSourceFile() throws IOException {
+        Path file = directory.resolve("b-villages.json");
+        Files.writeString(file, gson.toJson(villages));
+        VillageDaoImpl dao = new VillageDaoImpl(file.toString());
+        dao.setLazyLoading(true);
+        List<Village> lazy = new ArrayList<>(dao.getAllVillages());
+
+        // 删除第一个村庄后其余描述在新文件中的位置发生变化
+        lazy.removeFirst();
+        lazy.add(new Village(4, "新村", 5, 6, "新增的描述"));
+        dao.updateVillage(lazy);
+
+        List<Village> expected = List.of(villages.get(1), villages.get(2), new Village(4, "新村", 5, 6, "新增的描述"));
+        assertEquals(gson.toJson(expected), Files.readString(file));
+        assertNotNull(lazy.getFirst().getDescriptionLoader());
+        assertEquals("换行\n与 emoji 🌲", lazy.getFirst().getDescription());
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count(), "临时文件应已替换目标文件");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package cn.woyioii.service;
+
+import cn.woyioii.dao.impl.RoadDaoImpl;
+import cn.woyioii.dao.impl.VillageDaoImpl;
+import cn.woyioii.service.impl.RoadServiceImpl;
+import cn.woyioii.service.impl.VillageServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private VillageService villageService;
+    private RoadService roadService;
+
+    @BeforeEach
+    void setUp() {
+        villageService = new VillageServiceImpl(
+                new VillageDaoImpl(directory.resolve("cache-villages.json").toString()), List.of());
+        roadService = new RoadServiceImpl(
+                new RoadDaoImpl(directory.resolve("cache-roads.json").toString()), villageService, List.of());
+    }
+
+    @Test
+    void returnsCachedResultForSameKey() {
+        AnalysisCache cache = new AnalysisCache(villageService, roadService, 4, 100);
+        String result = "结果";
+
+        assertNull(cache.get(cache.key("shortest", 1)));
+        cache.put(cache.key("shortest", 1), result, 1);
+
+        assertSame(result, cache.get(cache.key("shortest", 1)));
+        assertNull(cache.get(cache.key("shortest", 2)));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenWeightExceeded() {
+        AnalysisCache cache = new AnalysisCache(villageService, roadService, 10, 100);
+        cache.put(cache.key("a"), "a", 40);
+        cache.put(cache.key("b"), "b", 40);
+        // 访问a后b成为最久未使用的结果
+        cache.get(cache.key("a"));
+
+        cache.put(cache.key("c"), "c", 40);
+
+        assertEquals("a", cache.get(cache.key("a")));
+        assertNull(cache.get(cache.key("b")));
+        assertEquals("c", cache.get(cache.key("c")));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void evictsUntilWeightFitsAgain() {
+        AnalysisCache cache = new AnalysisCache(villageService, roadService, 10, 100);
+        cache.put(cache.key("a"), "a", 30);
+        cache.put(cache.key("b"), "b", 30);
+        cache.put(cache.key("c"), "c", 30);
+
+        cache.put(cache.key("d"), "d", 90);
+
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getEvictions());
+        assertEquals("d", cache.get(cache.key("d")));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenEntryLimitExceeded() {
+        AnalysisCache cache = new AnalysisCache(villageService, roadService, 2, 100);
+        cache.put(cache.key("a"), "a", 1);
+        cache.put(cache.key("b"), "b", 1);
+        cache.get(cache.key("a"));
+
+        cache.put(cache.key("c"), "c", 1);
+
+        assertNull(cache.get(cache.key("b")));
+        assertEquals("a", cache.get(cache.key("a")));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void replacingResultReplacesItsWeight() {
+        AnalysisCache cache = new AnalysisCache(villageService, roadService, 10, 100);
+        cache.put(cache.key("a"), "a", 60);
+        cache.put(cache.key("a"), "a2", 60);
+
+        cache.put(cache.key("b"), "b", 40);
+
+        assertEquals("a2", cache.get(cache.key("a")));
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    void doesNotCacheOversizedResult() {
+        AnalysisCache cache = new AnalysisCache(villageService, roadService, 10, 100);
+        cache.put(cache.key("a"), "a", 10);
+
+        cache.put(cache.key("huge"), "huge", 101);
+
+        assertNull(cache.get(cache.key("huge")));
+        assertEquals("a", cache.get(cache.key("a")));
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    void rejectsResultComputedFromStaleVersion() {
+        AnalysisCache cache = new AnalysisCache(villageService, roadService, 10, 100);
+        AnalysisCache.Key started = cache.key("connectivity");
+
+        // 计算期间村庄数据发生变化
+        villageService.reloadVillages();
+        cache.put(started, "过期结果", 1);
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get(cache.key("connectivity")));
+    }
+
+    @Test
+    void rejectsResultWhenRoadsChanged() {
+        AnalysisCache cache = new AnalysisCache(villageService, roadService, 10, 100);
+        AnalysisCache.Key started = cache.key("plan");
+
+        roadService.reloadRoads();
+        cache.put(started, "过期结果", 1);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void purgesOldVersionsOnNextPut() {
+        AnalysisCache cache = new AnalysisCache(villageService, roadService, 10, 100);
+        AnalysisCache.Key old = cache.key("route", 1);
+        cache.put(old, "旧结果", 80);
+        cache.put(cache.key("route", 2), "旧结果2", 10);
+
+        villageService.reloadVillages();
+        AnalysisCache.Key current = cache.key("route", 1);
+        assertNotEquals(old, current);
+        assertNull(cache.get(current));
+        cache.put(current, "新结果", 80);
+
+        // 旧版本的结果被清除而不是按淘汰计数，其权重也已释放
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.getEvictions());
+        assertNull(cache.get(old));
+        assertEquals("新结果", cache.get(current));
+    }
+
+    @Test
+    void clearKeepsStatistics() {
+        AnalysisCache cache = new AnalysisCache(villageService, roadService, 10, 100);
+        cache.put(cache.key("a"), "a", 1);
+        cache.get(cache.key("a"));
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHits());
+        assertNull(cache.get(cache.key("a")));
+    }
+}
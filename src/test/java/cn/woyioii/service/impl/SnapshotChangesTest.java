@@ -0,0 +1,80 @@
+package cn.woyioii.service.impl;
+
+import cn.woyioii.model.Road;
+import cn.woyioii.model.Village;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotChangesTest {
+    private final Village first = new Village(1, "青松镇", 150, 120, "林业重镇");
+    private final Village second = new Village(2, "溪水村", 320, 200, "临河");
+    private final Village third = new Village(3, "石桥村", 80, 40, null);
+
+    @Test
+    void unchangedReferencesProduceNoChanges() {
+        List<Village> saved = List.of(first, second, third);
+
+        SnapshotChanges<Village> changes = SnapshotChanges.between(saved, new ArrayList<>(saved), Village::getId)
+                .orElseThrow();
+
+        assertTrue(changes.isEmpty());
+        assertEquals(0, changes.size());
+    }
+
+    @Test
+    void detectsAddedEditedAndDeletedRecords() {
+        Village edited = new Village(2, "溪水村", 320, 200, "临河，已修改");
+        Village added = new Village(4, "新村", 5, 6, null);
+
+        SnapshotChanges<Village> changes = SnapshotChanges.between(
+                List.of(first, second, third), List.of(first, edited, added), Village::getId).orElseThrow();
+
+        assertEquals(List.of(edited, added), changes.upserted());
+        assertEquals(List.of(3), changes.deleted());
+        assertEquals(3, changes.size());
+    }
+
+    @Test
+    void replacedObjectCountsAsChangedEvenWhenEqual() {
+        // 快照中的对象不可变，按引用比较，不读取延迟加载的描述
+        Village copy = new Village(1, "青松镇", 150, 120, "林业重镇");
+
+        SnapshotChanges<Village> changes = SnapshotChanges.between(List.of(first), List.of(copy), Village::getId)
+                .orElseThrow();
+
+        assertEquals(List.of(copy), changes.upserted());
+        assertTrue(changes.deleted().isEmpty());
+    }
+
+    @Test
+    void duplicateIdsCannotBeSavedById() {
+        Village duplicate = new Village(1, "重复", 0, 0, null);
+
+        assertEquals(Optional.empty(), SnapshotChanges.between(List.of(first, duplicate), List.of(first), Village::getId));
+        assertEquals(Optional.empty(), SnapshotChanges.between(List.of(first), List.of(first, duplicate), Village::getId));
+    }
+
+    @Test
+    void nullIdsCannotBeSavedById() {
+        Road road = new Road(1, 2, "主路", 10);
+        road.setId(1);
+        Road unnamed = new Road(2, 3, "新路", 5);
+
+        assertEquals(Optional.empty(), SnapshotChanges.between(List.of(road, unnamed), List.of(road), Road::getId));
+        assertEquals(Optional.empty(), SnapshotChanges.between(List.of(road), List.of(road, unnamed), Road::getId));
+    }
+
+    @Test
+    void incrementalOnlyUpToHalfOfTheRecords() {
+        SnapshotChanges<Village> changes = new SnapshotChanges<>(List.of(first, second), List.of(3));
+
+        assertTrue(changes.isSmallComparedTo(6));
+        assertTrue(changes.isSmallComparedTo(7));
+        assertFalse(changes.isSmallComparedTo(5));
+    }
+}
@@ -0,0 +1,126 @@
+package cn.woyioii.service.impl;
+
+import cn.woyioii.dao.VillageDao;
+import cn.woyioii.model.DataSnapshot;
+import cn.woyioii.model.Village;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VillageServiceImplTest {
+
+    // 记录保存方式的数据访问对象
+    private static class RecordingDao implements VillageDao {
+        private final boolean incremental;
+        private final List<String> calls = new ArrayList<>();
+        private List<Village> upserted;
+        private List<Integer> deleted;
+
+        RecordingDao(boolean incremental) {
+            this.incremental = incremental;
+        }
+
+        @Override
+        public void setFilePath(String filePath) {
+        }
+
+        @Override
+        public void saveVillage(List<Village> village, String filePath) {
+            calls.add("save " + filePath);
+        }
+
+        @Override
+        public void updateVillage(List<Village> updatedVillage) {
+            calls.add("update " + updatedVillage.size());
+        }
+
+        @Override
+        public List<Village> getAllVillages() {
+            return List.of();
+        }
+
+        @Override
+        public List<Village> readVillages(String filePath) {
+            return List.of();
+        }
+
+        @Override
+        public boolean supportsIncrementalSave(String filePath) {
+            return incremental && filePath == null;
+        }
+
+        @Override
+        public void applyChanges(List<Village> upserted, List<Integer> deleted) {
+            calls.add("apply");
+            this.upserted = upserted;
+            this.deleted = deleted;
+        }
+    }
+
+    private static List<Village> villages(int count) {
+        List<Village> villages = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            villages.add(new Village(i, "村庄" + i, i, i, null));
+        }
+        return villages;
+    }
+
+    @Test
+    void smallChangesAreAppliedInOneBatch() {
+        RecordingDao dao = new RecordingDao(true);
+        List<Village> villages = villages(10);
+        VillageServiceImpl service = new VillageServiceImpl(dao, villages);
+
+        List<Village> current = new ArrayList<>(villages);
+        Village edited = new Village(2, "改名", 2, 2, null);
+        current.set(1, edited);
+        current.remove(9);
+        service.saveVillages(new DataSnapshot<>(2, current), null);
+
+        assertEquals(List.of("apply"), dao.calls);
+        assertEquals(List.of(edited), dao.upserted);
+        assertEquals(List.of(10), dao.deleted);
+    }
+
+    @Test
+    void changingMoreThanHalfFallsBackToFullWrite() {
+        RecordingDao dao = new RecordingDao(true);
+        List<Village> villages = villages(10);
+        VillageServiceImpl service = new VillageServiceImpl(dao, villages);
+
+        List<Village> current = new ArrayList<>(villages.subList(0, 4));
+        current.addAll(villages(12).subList(10, 12));
+        service.saveVillages(new DataSnapshot<>(2, current), null);
+
+        assertEquals(List.of("update 6"), dao.calls);
+    }
+
+    @Test
+    void savedBaselineFollowsEachSave() {
+        RecordingDao dao = new RecordingDao(true);
+        List<Village> villages = villages(10);
+        VillageServiceImpl service = new VillageServiceImpl(dao, villages);
+
+        List<Village> current = new ArrayList<>(villages);
+        current.set(0, new Village(1, "改名", 1, 1, null));
+        service.saveVillages(new DataSnapshot<>(2, current), null);
+        service.saveVillages(new DataSnapshot<>(3, current), null);
+
+        assertEquals(List.of("apply", "apply"), dao.calls);
+        assertTrue(dao.upserted.isEmpty());
+    }
+
+    @Test
+    void otherFilesAreAlwaysWrittenInFull() {
+        RecordingDao dao = new RecordingDao(true);
+        List<Village> villages = villages(10);
+        VillageServiceImpl service = new VillageServiceImpl(dao, villages);
+
+        service.saveVillages(new DataSnapshot<>(2, villages), "other-villages.json");
+
+        assertEquals(List.of("save other-villages.json"), dao.calls);
+    }
+}
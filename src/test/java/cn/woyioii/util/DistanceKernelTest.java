@@ -0,0 +1,147 @@
+package cn.woyioii.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量距离计算与逐个计算的结果必须逐位相同
+ * 构建时分别在加载向量模块和 {@code -Dvillagemap.vector=false} 两种方式下运行
+ */
+class DistanceKernelTest {
+    // 覆盖常见向量宽度下的所有尾部长度
+    private static final int MAX_COUNT = 40;
+    // 坐标差接近int范围，平方和远超int
+    private static final int LARGE = 1_000_000_000;
+
+    private final Random random = new Random(42);
+
+    private int[] coordinates(int count, int bound) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextInt(bound);
+        }
+        return values;
+    }
+
+    private int[] indexes(int count, int villages) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextInt(villages);
+        }
+        return values;
+    }
+
+    @Test
+    void vectorModeFollowsSystemProperty() {
+        if (!Boolean.parseBoolean(System.getProperty(DistanceKernel.VECTOR_PROPERTY, "true"))) {
+            assertFalse(DistanceKernel.isVectorized());
+        }
+    }
+
+    @Test
+    void distancesFromOneVillageMatchCalculateDistance() {
+        for (int bound : new int[]{2000, LARGE}) {
+            for (int count = 0; count <= MAX_COUNT; count++) {
+                int villages = count + 5;
+                int[] xs = coordinates(villages, bound);
+                int[] ys = coordinates(villages, bound);
+                int[] targets = indexes(count, villages);
+                int x = random.nextInt(bound);
+                int y = random.nextInt(bound);
+                double[] out = new double[count];
+
+                DistanceKernel.distances(x, y, xs, ys, targets, count, out);
+
+                for (int k = 0; k < count; k++) {
+                    assertEquals(MapCalculator.calculateDistance(x, y, xs[targets[k]], ys[targets[k]]), out[k],
+                            "count=" + count + " k=" + k);
+                }
+            }
+        }
+    }
+
+    @Test
+    void roadDistancesMatchCalculateDistance() {
+        for (int bound : new int[]{2000, LARGE}) {
+            for (int count = 0; count <= MAX_COUNT; count++) {
+                int villages = count + 5;
+                int[] xs = coordinates(villages, bound);
+                int[] ys = coordinates(villages, bound);
+                int[] starts = indexes(count, villages);
+                int[] ends = indexes(count, villages);
+                double[] out = new double[count];
+
+                DistanceKernel.distances(xs, ys, starts, ends, count, out);
+
+                for (int r = 0; r < count; r++) {
+                    double expected = MapCalculator.calculateDistance(
+                            xs[starts[r]], ys[starts[r]], xs[ends[r]], ys[ends[r]]);
+                    assertEquals(expected, out[r], "count=" + count + " r=" + r);
+                }
+            }
+        }
+    }
+
+    @Test
+    void nearestMatchesLinearScan() {
+        for (int bound : new int[]{2000, LARGE}) {
+            for (int count = 0; count <= MAX_COUNT; count++) {
+                int[] xs = coordinates(count, bound);
+                int[] ys = coordinates(count, bound);
+                double x = random.nextDouble() * bound;
+                double y = random.nextDouble() * bound;
+                double maxDistance = random.nextBoolean() ? Double.MAX_VALUE : bound / 4.0;
+
+                int expected = -1;
+                double minDistance = maxDistance;
+                for (int i = 0; i < count; i++) {
+                    double distance = Math.sqrt((xs[i] - x) * (xs[i] - x) + (ys[i] - y) * (ys[i] - y));
+                    if (distance < minDistance) {
+                        minDistance = distance;
+                        expected = i;
+                    }
+                }
+
+                assertEquals(expected, DistanceKernel.nearest(x, y, xs, ys, count, maxDistance), "count=" + count);
+            }
+        }
+    }
+
+    @Test
+    void nearestPrefersLowerIndexOnTies() {
+        int[] xs = {10, 0, 10, 0};
+        int[] ys = {0, 10, 0, 10};
+
+        assertEquals(0, DistanceKernel.nearest(0, 0, xs, ys, xs.length, Double.MAX_VALUE));
+        assertEquals(-1, DistanceKernel.nearest(0, 0, xs, ys, xs.length, 10));
+    }
+
+    @Test
+    void vectorKernelMatchesScalarBeforeRounding() {
+        if (!DistanceKernel.isVectorized()) {
+            return;
+        }
+        for (int bound : new int[]{2000, LARGE}) {
+            for (int count = 0; count <= MAX_COUNT; count++) {
+                int villages = count + 5;
+                int[] xs = coordinates(villages, bound);
+                int[] ys = coordinates(villages, bound);
+                int[] starts = indexes(count, villages);
+                int[] ends = indexes(count, villages);
+                double[] out = new double[count];
+
+                int done = VectorDistanceKernel.distances(xs, ys, starts, ends, count, out);
+
+                assertTrue(done <= count && count - done < VectorDistanceKernel.lanes());
+                for (int r = 0; r < done; r++) {
+                    double dx = xs[ends[r]] - xs[starts[r]];
+                    double dy = ys[starts[r]] - ys[ends[r]];
+                    assertEquals(Math.sqrt(dx * dx + dy * dy), out[r], "count=" + count + " r=" + r);
+                }
+            }
+        }
+    }
+}